@@ -0,0 +1,115 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.concurrent.IdAllocator;
+import com.revolut.interview.concurrent.PaddedAtomicLong;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of shared state written by every thread: id allocation, account creation, metrics counters and
+ * counters of different threads next to each other in memory. Scaling shows when run with increasing thread
+ * counts on a machine with that many cores, e.g.
+ * <p>
+ * <code>for t in 1 2 4 8 16; do java -jar build/libs/revolut-interview-jmh.jar ContentionBenchmark -t $t; done</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+public class ContentionBenchmark {
+
+    private static final int MAX_THREADS = 256;
+
+    private final AtomicLong sharedCounter = new AtomicLong();
+
+    private final IdAllocator idAllocator = new IdAllocator(1, IdAllocator.DEFAULT_BLOCK_SIZE);
+
+    private final LongAdder stripedCounter = new LongAdder();
+
+    /**
+     * Allocated one after another, so counters of several threads share a cache line
+     */
+    private final AtomicLong[] adjacentCounters = new AtomicLong[MAX_THREADS];
+
+    private final PaddedAtomicLong[] paddedCounters = new PaddedAtomicLong[MAX_THREADS];
+
+    private AccountRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < MAX_THREADS; i++) {
+            adjacentCounters[i] = new AtomicLong();
+            paddedCounters[i] = new PaddedAtomicLong();
+        }
+    }
+
+    /**
+     * Fresh repository every iteration, so it does not grow for the whole run
+     */
+    @Setup(Level.Iteration)
+    public void newRepository() {
+        repository = new AccountRepository();
+    }
+
+    /**
+     * Baseline: every id is a CAS on one line bouncing between cores, as account ids were allocated before
+     */
+    @Benchmark
+    public long sharedCounterId() {
+        return sharedCounter.getAndIncrement();
+    }
+
+    @Benchmark
+    public long blockId() {
+        return idAllocator.next();
+    }
+
+    @Benchmark
+    public Account createAccount() {
+        return repository.create("account", null, BigDecimal.ONE);
+    }
+
+    /**
+     * Baseline metrics update
+     */
+    @Benchmark
+    public long sharedCounterIncrement() {
+        return sharedCounter.incrementAndGet();
+    }
+
+    /**
+     * Metrics update striped per thread, merged on read
+     */
+    @Benchmark
+    public void stripedCounterIncrement() {
+        stripedCounter.increment();
+    }
+
+    /**
+     * Every thread writes only its own counter, yet neighbours share cache lines
+     */
+    @Benchmark
+    public long adjacentOwnCounterIncrement(ThreadParams thread) {
+        return adjacentCounters[thread.getThreadIndex() % MAX_THREADS].incrementAndGet();
+    }
+
+    @Benchmark
+    public long paddedOwnCounterIncrement(ThreadParams thread) {
+        return paddedCounters[thread.getThreadIndex() % MAX_THREADS].incrementAndGet();
+    }
+}
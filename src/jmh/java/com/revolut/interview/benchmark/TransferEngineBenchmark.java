@@ -0,0 +1,89 @@
+package com.revolut.interview.benchmark;
+
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.ActorTransferEngine;
+import com.revolut.interview.service.TransferEngine;
+import com.revolut.interview.service.TransferEngineType;
+import com.revolut.interview.service.TransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer and deposit throughput of {@link TransferEngine} implementations on uniform and skewed account choice.
+ * <p>
+ * Run with <code>./gradlew jmh</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class TransferEngineBenchmark {
+
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal(1_000_000_000);
+
+    @Param({"LOCK", "ACTOR"})
+    private TransferEngineType engine;
+
+    @Param({"10000"})
+    private int accounts;
+
+    /**
+     * Share of transfers touching one of the first {@link #HOT_ACCOUNTS} accounts
+     */
+    @Param({"0", "0.9"})
+    private double skew;
+
+    private static final int HOT_ACCOUNTS = 4;
+
+    private TransferEngine transferEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccountService accountService = new AccountService(new AccountRepository());
+        for (int i = 0; i < accounts; i++) {
+            accountService.create("account" + i, INITIAL_AMOUNT);
+        }
+        transferEngine = engine == TransferEngineType.ACTOR
+                ? new ActorTransferEngine(accountService, Runtime.getRuntime().availableProcessors())
+                : new TransferService(accountService);
+    }
+
+    @Benchmark
+    public Object transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long from = pick(random);
+        long to = pick(random);
+        if (from == to) {
+            to = to % accounts + 1;
+        }
+        return transferEngine.transfer(from, to, BigDecimal.ONE);
+    }
+
+    /**
+     * Single account mutation, combined with concurrent ones of the same account by the lock engine
+     */
+    @Benchmark
+    public Object deposit() {
+        return transferEngine.deposit(pick(ThreadLocalRandom.current()), BigDecimal.ONE);
+    }
+
+    private long pick(ThreadLocalRandom random) {
+        if (random.nextDouble() < skew) {
+            return random.nextInt(HOT_ACCOUNTS) + 1;
+        }
+        return random.nextInt(accounts) + 1;
+    }
+}
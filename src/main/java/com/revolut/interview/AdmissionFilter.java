@@ -0,0 +1,43 @@
+package com.revolut.interview;
+
+import com.revolut.interview.admission.AdaptiveLimiter;
+import com.revolut.interview.admission.AdmissionControl;
+import com.revolut.interview.exception.ServiceOverloadedException;
+import org.jooby.Request;
+import org.jooby.Response;
+import org.jooby.Route;
+
+import java.util.Optional;
+
+/**
+ * Admits requests of a route through its {@link AdaptiveLimiter}, rejecting them before any work is done
+ * when the route is overloaded
+ */
+public class AdmissionFilter implements Route.Filter {
+
+    private final String route;
+
+    public AdmissionFilter(String route) {
+        this.route = route;
+    }
+
+    @Override
+    public void handle(Request req, Response rsp, Route.Chain chain) throws Throwable {
+        Optional<AdaptiveLimiter> limiter = req.require(AdmissionControl.class).limiter(route);
+        if (!limiter.isPresent()) {
+            chain.next(req, rsp);
+            return;
+        }
+        AdaptiveLimiter admission = limiter.get();
+        if (!admission.acquire()) {
+            throw new ServiceOverloadedException("Too many concurrent " + route + " requests",
+                    admission.getRetryAfterSeconds());
+        }
+        long start = System.nanoTime();
+        try {
+            chain.next(req, rsp);
+        } finally {
+            admission.release(System.nanoTime() - start);
+        }
+    }
+}
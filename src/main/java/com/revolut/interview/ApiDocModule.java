@@ -0,0 +1,33 @@
+package com.revolut.interview;
+
+import com.google.inject.Binder;
+import com.typesafe.config.Config;
+import org.jooby.Env;
+import org.jooby.Jooby;
+import org.jooby.apitool.ApiTool;
+
+/**
+ * Installs Swagger and RAML documentation only when <code>apidoc.enabled</code> is set.
+ * <p>
+ * Outside of the dev environment {@link ApiTool} builds the API model while the application starts, from the
+ * spec precomputed by <code>joobySpec</code> at build time or, when it is missing, by parsing bytecode.
+ * Instances that must start fast can skip it completely.
+ */
+public class ApiDocModule implements Jooby.Module {
+
+    private final ApiTool apiTool = new ApiTool()
+            .swagger()
+            .raml();
+
+    @Override
+    public Config config() {
+        return apiTool.config();
+    }
+
+    @Override
+    public void configure(Env env, Config conf, Binder binder) throws Throwable {
+        if (conf.getBoolean("apidoc.enabled")) {
+            apiTool.configure(env, conf, binder);
+        }
+    }
+}
@@ -1,43 +1,159 @@
 package com.revolut.interview;
 
+import com.google.common.base.Preconditions;
+import com.google.inject.name.Names;
+import com.revolut.interview.admission.AdmissionControl;
+import com.revolut.interview.batch.BatchJobs;
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.cluster.ClusteredTransferEngine;
+import com.revolut.interview.cluster.TwoPhaseTransfers;
+import com.revolut.interview.dto.AsyncTransferRequest;
+import com.revolut.interview.dto.BatchJobRequest;
 import com.revolut.interview.dto.CreateAccountRequest;
+import com.revolut.interview.dto.FxRatesRequest;
+import com.revolut.interview.dto.HoldRequest;
+import com.revolut.interview.dto.LookupRequest;
 import com.revolut.interview.dto.RefillRequest;
 import com.revolut.interview.dto.TransferRequest;
 import com.revolut.interview.dto.mapping.AccountMapper;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.journal.JournalRecorder;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.lock.StripedLockManager;
+import com.revolut.interview.dto.TransferStatusResponse;
 import com.revolut.interview.model.Account;
+import com.revolut.interview.pipeline.TransferPipeline;
+import com.revolut.interview.replication.Replication;
+import com.revolut.interview.repository.AccountStore;
+import com.revolut.interview.repository.AccountStoreType;
+import com.revolut.interview.schedule.TransferScheduler;
+import com.revolut.interview.service.AccountImporter;
+import com.revolut.interview.service.AccountLookup;
 import com.revolut.interview.service.AccountService;
-import com.revolut.interview.service.TransferService;
+import com.revolut.interview.service.HoldExpiry;
+import com.revolut.interview.service.ImportFormat;
+import com.revolut.interview.service.StatementExporter;
+import com.revolut.interview.service.TransferEngine;
+import com.revolut.interview.service.TransferEngineType;
+import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
+import org.jooby.Deferred;
 import org.jooby.Jooby;
 import org.jooby.MediaType;
-import org.jooby.apitool.ApiTool;
+import org.jooby.Results;
 import org.jooby.json.Jackson;
 import org.mapstruct.factory.Mappers;
 
 import javax.inject.Inject;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class Application extends Jooby {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     @Inject
     private AccountService accountService;
 
     @Inject
-    private TransferService transferService;
+    private TransferEngine transferService;
+
+    @Inject
+    private AccountImporter accountImporter;
 
     private AccountMapper mapper = Mappers.getMapper(AccountMapper.class);
 
     public Application() {
         use(new Jackson());
+        parser(new BodyStreamParser());
+        use((env, conf, binder) -> {
+            binder.bind(LockManager.class).to(StripedLockManager.class);
+            TransferEngineType engineType = conf.getEnum(TransferEngineType.class, "transfer.engine");
+            AccountStoreType storeType = conf.getEnum(AccountStoreType.class, "repository.store");
+            // actors keep account instances between messages, an evicted one would be changed
+            Preconditions.checkArgument(storeType != AccountStoreType.TIERED || engineType == TransferEngineType.LOCK,
+                    "TIERED repository.store requires LOCK transfer.engine");
+            binder.bind(AccountStore.class).to(storeType.implementation());
+            Class<? extends TransferEngine> engine = engineType.implementation();
+            binder.bind(TransferEngine.class).annotatedWith(Names.named(ClusteredTransferEngine.LOCAL)).to(engine);
+            binder.bind(TransferEngine.class)
+                    .to(new ClusterTopology(conf).isClustered() ? ClusteredTransferEngine.class : engine);
+        });
+        onStart(registry -> {
+            registry.require(JournalLog.class).start();
+            if (registry.require(ClusterTopology.class).isClustered()) {
+                registry.require(TwoPhaseTransfers.class).recover();
+            }
+            registry.require(JournalRecorder.class).start();
+            registry.require(Replication.class).start();
+            registry.require(TransferScheduler.class).start();
+            registry.require(HoldExpiry.class).start();
+            registry.require(TransferPipeline.class).start();
+            BatchJobs batchJobs = registry.require(BatchJobs.class);
+            batchJobs.start();
+            if (!registry.require(Replication.class).isReadOnly()) {
+                batchJobs.resume();
+            }
+        });
+        onStop(registry -> {
+            registry.require(BatchJobs.class).stop();
+            registry.require(TransferPipeline.class).stop();
+            registry.require(HoldExpiry.class).stop();
+            registry.require(TransferScheduler.class).stop();
+            registry.require(Replication.class).stop();
+            registry.require(JournalRecorder.class).stop();
+            registry.require(JournalLog.class).stop();
+            AccountStore store = registry.require(AccountStore.class);
+            if (store instanceof Closeable) {
+                ((Closeable) store).close();
+            }
+        });
+
+        use("*", "/api/accounts/**", new ReadOnlyReplicaFilter());
+        use("*", "/api/internal/**", new ReadOnlyReplicaFilter());
+        use("*", "/api/transfers/**", new ReadOnlyReplicaFilter());
+        use("*", "/api/admin/batch/**", new ReadOnlyReplicaFilter());
+
+        use("*", "/api/accounts/:id", new ClusterRoutingFilter());
+        use("*", "/api/accounts/:id/**", new ClusterRoutingFilter());
+
+        use("POST", "/api/accounts/:id/deposit", new AdmissionFilter("deposit"));
+        use("POST", "/api/accounts/:id/withdraw", new AdmissionFilter("withdraw"));
+        use("POST", "/api/accounts/:id/transfer", new AdmissionFilter("transfer"));
+        use("POST", "/api/accounts/:id/holds/**", new AdmissionFilter("holds"));
 
         path("/api/accounts", () -> {
 
             /**
-             * Return all accounts
+             * Return all accounts or, when <code>namePrefix</code> is set, a page of accounts
+             * which name starts with it
+             *
+             * @param namePrefix optional name prefix, case insensitive
+             * @param afterId id of the last account of the previous page
+             * @param limit page size, 100 by default
+             * @return Returns <code>200</code> with accounts or <code>400</code> in case of validation error,
+             * including an <code>afterId</code> which is not an account matching the prefix.
              */
-            get("/", req -> accountService.getAll()
-                    .stream()
-                    .map(mapper::toResponse));
+            get("/", req -> {
+                Optional<String> namePrefix = req.param("namePrefix").toOptional();
+                if (!namePrefix.isPresent()) {
+                    return accountService.getAll()
+                            .stream()
+                            .map(mapper::toResponse);
+                }
+                return accountService.findByNamePrefix(
+                        namePrefix.get(),
+                        req.param("afterId").toOptional(Long.class).orElse(null),
+                        req.param("limit").intValue(DEFAULT_PAGE_SIZE))
+                        .stream()
+                        .map(mapper::toResponse);
+            });
 
             /**
              * Returns account by id
@@ -47,6 +163,18 @@ public class Application extends Jooby {
              */
             get("/:id", req -> accountService.getById(req.param("id").longValue()));
 
+            /**
+             * Read balances of many accounts at once, as of the same moment with the LOCK engine. Only accounts
+             * of this node are found.
+             *
+             * @param body account ids
+             * @return Returns <code>200</code> with <code>id</code>, <code>currency</code> and <code>amount</code>
+             * of found accounts and ids which were not found, or <code>400</code> in case of validation error.
+             */
+            post("/lookup", req -> Results
+                    .ok(req.require(AccountLookup.class).lookup(req.body(LookupRequest.class).getIds()))
+                    .type(MediaType.json));
+
 
             /**
              * Adds a new account
@@ -56,7 +184,7 @@ public class Application extends Jooby {
              */
             post("/", req -> {
                 CreateAccountRequest body = req.body(CreateAccountRequest.class);
-                Account account = accountService.create(body.getName(), body.getAmount());
+                Account account = accountService.create(body.getName(), body.getCurrency(), body.getAmount());
                 return mapper.toResponse(account);
             });
 
@@ -91,14 +219,20 @@ public class Application extends Jooby {
 
 
             /**
-             * Transfer money form one account to another
+             * Transfer money form one account to another, now or, when <code>executeAt</code> or
+             * <code>repeatEvery</code> is set, later
              *
              * @param id accountId
              * @param body transfer request
-             * @return Returns a modified account or <code>400</code> in case of validation error.
+             * @return Returns a modified account, <code>202</code> with the scheduled transfer or <code>400</code>
+             * in case of validation error.
              */
             post("/:id/transfer", req -> {
                 TransferRequest transferRequest = req.body(TransferRequest.class);
+                if (transferRequest.getExecuteAt() != null || transferRequest.getRepeatEvery() != null) {
+                    return Results.accepted(req.require(TransferScheduler.class)
+                            .schedule(req.param("id").longValue(), transferRequest));
+                }
                 Account account = transferService.transfer(
                         req.param("id").longValue(),
                         transferRequest.getToAccountId(),
@@ -106,13 +240,236 @@ public class Application extends Jooby {
                 return mapper.toResponse(account);
             });
 
+            /**
+             * Reserve money for a later transfer, reserved money cannot be withdrawn or transferred otherwise
+             *
+             * @param id accountId
+             * @param body hold request
+             * @return Returns the hold or <code>400</code> in case of validation error or insufficient funds.
+             */
+            post("/:id/holds", req -> {
+                HoldRequest body = req.body(HoldRequest.class);
+                Duration expiresIn = body.getExpiresIn() != null ? body.getExpiresIn()
+                        : req.require(Config.class).getDuration("transfer.holds.expiresIn");
+                return mapper.toResponse(transferService.hold(
+                        req.param("id").longValue(), body.getToAccountId(), body.getAmount(), expiresIn));
+            });
+
+            /**
+             * Returns active hold
+             *
+             * @param id accountId
+             * @param holdId hold id
+             * @return Returns <code>200</code> with the hold or <code>404</code> if it is not active
+             */
+            get("/:id/holds/:holdId", req -> mapper.toResponse(
+                    accountService.getHold(req.param("id").longValue(), req.param("holdId").longValue())));
+
+            /**
+             * Transfer held money to the account given when holding it, the rest of the hold is released
+             *
+             * @param id accountId
+             * @param holdId hold id
+             * @param body optional amount to capture, the whole hold by default
+             * @return Returns a modified account, <code>404</code> if the hold is not active or <code>400</code>
+             * in case of validation error.
+             */
+            post("/:id/holds/:holdId/capture", req -> {
+                Account account = transferService.capture(
+                        req.param("id").longValue(),
+                        req.param("holdId").longValue(),
+                        req.body().toOptional(RefillRequest.class).map(RefillRequest::getAmount).orElse(null));
+                return mapper.toResponse(account);
+            });
+
+            /**
+             * Release held money
+             *
+             * @param id accountId
+             * @param holdId hold id
+             * @return Returns the released hold or <code>404</code> if it is not active
+             */
+            post("/:id/holds/:holdId/release", req -> mapper.toResponse(transferService.release(
+                    req.param("id").longValue(), req.param("holdId").longValue())));
+
+            /**
+             * Returns pending scheduled transfer
+             *
+             * @param id accountId
+             * @param transferId scheduled transfer id
+             * @return Returns <code>200</code> with the transfer or <code>404</code> if it is not pending
+             */
+            get("/:id/scheduled/:transferId", req -> req.require(TransferScheduler.class)
+                    .get(req.param("id").longValue(), req.param("transferId").longValue()));
+
+            /**
+             * Cancel pending scheduled transfer
+             *
+             * @param id accountId
+             * @param transferId scheduled transfer id
+             * @return Returns <code>200</code> with the cancelled transfer or <code>404</code> if it is not pending
+             */
+            delete("/:id/scheduled/:transferId", req -> req.require(TransferScheduler.class)
+                    .cancel(req.param("id").longValue(), req.param("transferId").longValue()));
+
         }).consumes(MediaType.json).produces(MediaType.json);
 
+        path("/api/accounts/import", () -> {
+
+            /**
+             * Bulk create accounts from NDJSON (one account json per line) or CSV (<code>name,amount</code>)
+             * body. Accounts are created while the response is streamed.
+             *
+             * @param body accounts, one per line
+             * @return Returns NDJSON with <code>line</code> and created <code>id</code> or <code>error</code>
+             * for every non-empty input line.
+             */
+            post("/", req -> Results
+                    .ok(accountImporter.importAccounts(
+                            req.body(InputStream.class),
+                            ImportFormat.of(req.type().name())))
+                    .type(ImportFormat.NDJSON.contentType()));
+
+        }).consumes(ImportFormat.NDJSON.contentType(), ImportFormat.CSV.contentType());
+
+        path("/api/accounts/:id/statement", () -> {
+
+            /**
+             * Stream changes of an account in a period, rendered while the response is sent. Needs
+             * <code>journal.log.dir</code>, changes already compacted into the log snapshot are not listed.
+             *
+             * @param id accountId
+             * @param from optional start of the period, inclusive, e.g. <code>2018-05-01T00:00:00Z</code>
+             * @param to optional end of the period, exclusive, now by default
+             * @param format statement format, <code>csv</code> by default
+             * @return Returns CSV with <code>timestamp,type,amount,balance,counterparty</code> rows,
+             * <code>404</code> if account not exists or <code>400</code> in case of validation error.
+             */
+            get("/", req -> Results
+                    .ok(req.require(StatementExporter.class).export(
+                            req.param("id").longValue(),
+                            req.param("from").toOptional().map(Instant::parse).orElse(Instant.EPOCH),
+                            req.param("to").toOptional().map(Instant::parse).orElse(Instant.now()),
+                            req.param("format").value(StatementExporter.CSV)))
+                    .type("text/csv"));
+
+        }).produces("text/csv");
+
+        path("/api/transfers", () -> {
+
+            /**
+             * Queue a transfer, it is applied in background. Transfers from the same account are applied in
+             * order of submission. Send it to the node owning the source account.
+             *
+             * @param body source and target account, amount and optional <code>callbackUrl</code> the final
+             * status is posted to
+             * @return Returns <code>202</code> with the transfer id, <code>400</code> in case of validation error or
+             * <code>503</code> if too many transfers are queued.
+             */
+            post("/", req -> Results.accepted(
+                    req.require(TransferPipeline.class).submit(req.body(AsyncTransferRequest.class))));
+
+            /**
+             * Returns status of a queued transfer, optionally waiting for it to finish
+             *
+             * @param id transfer id
+             * @param wait optional max wait, e.g. <code>PT5S</code>
+             * @return Returns <code>200</code> with QUEUED, COMPLETED or FAILED status or <code>404</code> if the
+             * transfer is not known
+             */
+            get("/:id", req -> {
+                long waitMillis = req.param("wait").toOptional().map(wait -> Duration.parse(wait).toMillis())
+                        .orElse(0L);
+                CompletableFuture<TransferStatusResponse> status = req.require(TransferPipeline.class)
+                        .await(req.param("id").longValue(), waitMillis);
+                return new Deferred(deferred -> status.whenComplete(
+                        (response, e) -> deferred.set(e != null ? e : response)));
+            });
+
+        }).consumes(MediaType.json).produces(MediaType.json);
+
+        path("/api/admin", () -> {
+
+            /**
+             * Admission control counters
+             *
+             * @return Returns per-route limit, in flight, waiting and admitted/queued/shed totals.
+             */
+            get("/admission", req -> req.require(AdmissionControl.class).stats());
+
+            /**
+             * Replication state and lag
+             *
+             * @return Returns role, last appended (primary) or applied (follower) journal sequence, follower
+             * lag in milliseconds and, on the primary, lag of every follower in records.
+             */
+            get("/replication", req -> req.require(Replication.class).stats());
+
+            /**
+             * Exchange rates of cross-currency transfers
+             *
+             * @return Returns base currency, version and rate of every supported currency.
+             */
+            get("/fx", req -> req.require(FxRates.class).describe());
+
+            /**
+             * Replace exchange rates, transfers in progress finish with the rates they started with. Currencies
+             * missing from the update can no longer be converted.
+             *
+             * @param body units of every currency per unit of the base currency
+             * @return Returns the new rates or <code>400</code> on an unknown currency or a non-positive rate.
+             */
+            put("/fx", req -> {
+                FxRatesRequest body = req.body(FxRatesRequest.class);
+                Preconditions.checkArgument(body.getRates() != null, "Rates should be set");
+                FxRates rates = req.require(FxRates.class);
+                rates.update(body.getRates());
+                return rates.describe();
+            });
+
+            /**
+             * Promote this follower to primary
+             *
+             * @return Returns replication state or <code>400</code> if the node is not a follower.
+             */
+            post("/replication/promote", req -> {
+                Replication replication = req.require(Replication.class);
+                replication.promote();
+                return replication.stats();
+            });
+
+            /**
+             * Start a job changing every account of this node, e.g. accruing interest or charging a fee. Jobs
+             * run in background alongside live traffic and are resumed after a restart.
+             *
+             * @param body job type and amount
+             * @return Returns <code>202</code> with the job or <code>400</code> in case of validation error.
+             */
+            post("/batch", req -> Results.accepted(
+                    req.require(BatchJobs.class).submit(req.body(BatchJobRequest.class))));
+
+            /**
+             * Batch jobs started since the node started
+             *
+             * @return Returns progress of every job.
+             */
+            get("/batch", req -> req.require(BatchJobs.class).list());
+
+            /**
+             * Returns batch job
+             *
+             * @param jobId job id
+             * @return Returns <code>200</code> with progress of the job or <code>404</code> if it is not known
+             */
+            get("/batch/:jobId", req -> req.require(BatchJobs.class).get(req.param("jobId").longValue()));
+
+        }).produces(MediaType.json);
+
         err(new ErrorHandler());
 
-        use(new ApiTool()
-                .swagger()
-                .raml());
+        use(new ClusterModule());
+
+        use(new ApiDocModule());
 
     }
 
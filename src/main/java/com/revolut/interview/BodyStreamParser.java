@@ -0,0 +1,53 @@
+package com.revolut.interview;
+
+import com.google.inject.TypeLiteral;
+import org.jooby.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Makes request body available as {@link InputStream}, so large uploads can be consumed incrementally.
+ * <p>
+ * Small bodies are served from memory, large ones are spooled to a temporary file which is removed once
+ * the stream is closed.
+ */
+public class BodyStreamParser implements Parser {
+
+    private static final long IN_MEMORY_LIMIT = 1024 * 1024;
+
+    @Override
+    public Object parse(TypeLiteral<?> type, Context ctx) throws Throwable {
+        if (type.getRawType() != InputStream.class) {
+            return ctx.next();
+        }
+        return ctx.body(body -> body.length() >= 0 && body.length() < IN_MEMORY_LIMIT
+                ? new ByteArrayInputStream(body.bytes())
+                : spool(body));
+    }
+
+    private InputStream spool(BodyReference body) throws Exception {
+        File file = File.createTempFile("body", ".tmp");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            body.writeTo(out);
+        }
+        return new FileInputStream(file) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                file.delete();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "InputStream";
+    }
+}
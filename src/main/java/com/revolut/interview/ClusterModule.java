@@ -0,0 +1,65 @@
+package com.revolut.interview;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Binder;
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.cluster.TwoPhaseTransfers;
+import com.revolut.interview.dto.TransferRequest;
+import com.revolut.interview.exception.TransferNotFoundException;
+import com.typesafe.config.Config;
+import org.jooby.Env;
+import org.jooby.Jooby;
+import org.jooby.MediaType;
+import org.jooby.Results;
+import org.jooby.Router;
+
+/**
+ * Installs the cluster internal routes of two-phase transfers only when <code>cluster.nodes</code> are set.
+ * <p>
+ * The routes move money without any account owner involved, so they accept only requests carrying
+ * <code>cluster.secret</code>, which every node of the cluster is configured with.
+ */
+public class ClusterModule implements Jooby.Module {
+
+    @Override
+    public void configure(Env env, Config conf, Binder binder) throws Throwable {
+        if (!new ClusterTopology(conf).isClustered()) {
+            return;
+        }
+        String secret = conf.getString("cluster.secret");
+        Preconditions.checkArgument(!secret.isEmpty(), "cluster.secret must be set when cluster.nodes are");
+
+        Router router = env.router();
+        router.use("*", "/api/internal/**", new ClusterSecretFilter(secret));
+
+        // prepare to credit an account of this node, 404 if account not exists or 400 if there is no
+        // exchange rate or the coordinator does not confirm the transfer
+        router.post("/api/internal/transfers/:txId/prepare", req -> {
+            TransferRequest body = req.body(TransferRequest.class);
+            req.require(TwoPhaseTransfers.class)
+                    .prepare(req.param("txId").value(), body.getToAccountId(), body.getAmount(), body.getCurrency());
+            return Results.noContent();
+        }).consumes(MediaType.json).produces(MediaType.json);
+
+        // credit prepared transfer
+        router.post("/api/internal/transfers/:txId/commit", req -> {
+            req.require(TwoPhaseTransfers.class).commit(req.param("txId").value());
+            return Results.noContent();
+        }).consumes(MediaType.json).produces(MediaType.json);
+
+        // drop prepared transfer
+        router.post("/api/internal/transfers/:txId/abort", req -> {
+            req.require(TwoPhaseTransfers.class).abort(req.param("txId").value());
+            return Results.noContent();
+        }).consumes(MediaType.json).produces(MediaType.json);
+
+        // coordinator: 204 while the source of the transfer is debited and waits for the participant to prepare
+        router.get("/api/internal/transfers/:txId", req -> {
+            String txId = req.param("txId").value();
+            if (!req.require(TwoPhaseTransfers.class).isAwaitingPrepare(txId)) {
+                throw new TransferNotFoundException("Transfer " + txId + " does not wait for prepare");
+            }
+            return Results.noContent();
+        }).produces(MediaType.json);
+    }
+}
@@ -0,0 +1,41 @@
+package com.revolut.interview;
+
+import com.google.common.primitives.Longs;
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.cluster.NodeClient;
+import org.jooby.MediaType;
+import org.jooby.Request;
+import org.jooby.Response;
+import org.jooby.Route;
+import org.jooby.Status;
+
+/**
+ * Forwards requests for accounts owned by other nodes to the owner and relays its reply
+ */
+public class ClusterRoutingFilter implements Route.Filter {
+
+    @Override
+    public void handle(Request req, Response rsp, Route.Chain chain) throws Throwable {
+        Long accountId = Longs.tryParse(req.param("id").value(""));
+        ClusterTopology topology = req.require(ClusterTopology.class);
+        if (accountId == null || topology.isLocal(accountId) || req.header(NodeClient.FORWARDED_HEADER).isSet()) {
+            chain.next(req, rsp);
+            return;
+        }
+
+        String query = req.queryString().map(q -> "?" + q).orElse("");
+        NodeClient.Reply reply = req.require(NodeClient.class).forward(
+                topology.nodeUrl(topology.owner(accountId)),
+                req.method(),
+                req.path() + query,
+                req.type().name(),
+                req.header("Accept").value(MediaType.json.name()),
+                req.length() > 0 ? req.body(byte[].class) : null);
+
+        rsp.status(Status.valueOf(reply.getStatus()));
+        if (reply.getContentType() != null) {
+            rsp.type(reply.getContentType());
+        }
+        rsp.send(reply.getBody());
+    }
+}
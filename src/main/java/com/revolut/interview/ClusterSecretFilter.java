@@ -0,0 +1,32 @@
+package com.revolut.interview;
+
+import com.revolut.interview.cluster.NodeClient;
+import com.revolut.interview.exception.ClusterAccessDeniedException;
+import org.jooby.Request;
+import org.jooby.Response;
+import org.jooby.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Lets only other nodes of the cluster, which know <code>cluster.secret</code>, call internal routes
+ */
+public class ClusterSecretFilter implements Route.Filter {
+
+    private final byte[] secret;
+
+    public ClusterSecretFilter(String secret) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void handle(Request req, Response rsp, Route.Chain chain) throws Throwable {
+        byte[] presented = req.header(NodeClient.SECRET_HEADER).value("").getBytes(StandardCharsets.UTF_8);
+        // constant time, so the secret cannot be guessed byte by byte from response times
+        if (!MessageDigest.isEqual(secret, presented)) {
+            throw new ClusterAccessDeniedException(req.path() + " is available to cluster nodes only");
+        }
+        chain.next(req, rsp);
+    }
+}
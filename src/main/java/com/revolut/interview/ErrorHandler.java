@@ -1,5 +1,7 @@
 package com.revolut.interview;
 
+import com.revolut.interview.exception.ServiceOverloadedException;
+import com.revolut.interview.monitoring.RejectionEvent;
 import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
 import org.jooby.Env;
@@ -13,15 +15,24 @@ import org.jooby.funzy.Try;
 import static org.jooby.Err.DefHandler.VIEW;
 
 /**
- * Same as default {@link Err.DefHandler} but with json error formatting
+ * Same as default {@link Err.DefHandler} but with json error formatting. Every error is also emitted as a
+ * {@link RejectionEvent} to Java Flight Recorder.
  */
 @Slf4j
 public class ErrorHandler implements Err.Handler {
 
     @Override
     public void handle(Request req, Response rsp, Err ex) throws Throwable {
-        log.error("execution of: {}{} resulted in exception\nRoute:\n{}\n\nStacktrace:",
-                req.method(), req.path(), req.route().print(6), ex);
+        RejectionEvent.emit(ex.getCause() != null ? ex.getCause() : ex, ex.statusCode(), req.method(),
+                req.route().pattern());
+        if (ex.getCause() instanceof ServiceOverloadedException) {
+            // shedding must stay cheap, so no stacktrace logging here
+            log.debug("{}{} rejected: {}", req.method(), req.path(), ex.getCause().getMessage());
+            rsp.header("Retry-After", ((ServiceOverloadedException) ex.getCause()).getRetryAfterSeconds());
+        } else {
+            log.error("execution of: {}{} resulted in exception\nRoute:\n{}\n\nStacktrace:",
+                    req.method(), req.path(), req.route().print(6), ex);
+        }
         Config conf = req.require(Config.class);
         boolean stacktrace = Try.apply(() -> conf.getBoolean("err.stacktrace"))
                 .orElse(req.require(Env.class).name().equals("dev"));
@@ -0,0 +1,31 @@
+package com.revolut.interview;
+
+import com.revolut.interview.exception.ReadOnlyReplicaException;
+import com.revolut.interview.replication.Replication;
+import org.jooby.Request;
+import org.jooby.Response;
+import org.jooby.Route;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Rejects writes on a follower, they must go to the primary
+ */
+public class ReadOnlyReplicaFilter implements Route.Filter {
+
+    /**
+     * Reads sent as POST because ids do not fit a query string
+     */
+    private static final Set<String> POST_READS = Collections.singleton("/api/accounts/lookup");
+
+    @Override
+    public void handle(Request req, Response rsp, Route.Chain chain) throws Throwable {
+        if (!"GET".equals(req.method()) && !POST_READS.contains(req.path())
+                && req.require(Replication.class).isReadOnly()) {
+            throw new ReadOnlyReplicaException("Node is a read-only replica, send " + req.method()
+                    + " " + req.path() + " to the primary");
+        }
+        chain.next(req, rsp);
+    }
+}
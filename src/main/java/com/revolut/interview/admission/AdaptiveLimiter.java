@@ -0,0 +1,285 @@
+package com.revolut.interview.admission;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.concurrent.PaddedAtomicLong;
+import com.revolut.interview.dto.AdmissionStats;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Concurrency limiter with a bounded wait queue and AIMD limit adaptation.
+ * <p>
+ * Requests are admitted while less than {@code limit} of them are in flight. Others wait in a queue
+ * of at most {@code maxQueue} for up to {@code maxWait}, and are shed when the queue is full or the
+ * wait is over. The limit grows by one per window of fast completions and shrinks by
+ * {@code backoffRatio} whenever latency exceeds {@code latencyTolerance} times the observed minimum.
+ * <p>
+ * Waiting requests are admitted in arrival order: new requests queue up behind them instead of taking a free slot,
+ * and a completing request hands its slot over to the first waiter.
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * The latency baseline is re-learnt periodically so that the limiter recovers if the service got slower for good
+     */
+    private static final long BASELINE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int maxQueue;
+
+    private final long maxWaitNanos;
+
+    private final double latencyTolerance;
+
+    private final double backoffRatio;
+
+    private final AtomicLong limitBits;
+
+    private final AtomicLong baselineLatency = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong baselineSince = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong lastBackoff = new AtomicLong(System.nanoTime());
+
+    /**
+     * Written by every request, padded so they do not invalidate the limit and baseline read by every request
+     */
+    private final PaddedAtomicLong inFlight = new PaddedAtomicLong();
+
+    private final PaddedAtomicLong queued = new PaddedAtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    /**
+     * Threads waiting for a slot in arrival order, guarded by {@link #lock}
+     */
+    private final ArrayDeque<Thread> waiters = new ArrayDeque<>();
+
+    /**
+     * Slots released to the first waiter, still counted as in flight, guarded by {@link #lock}
+     */
+    private int handedOver;
+
+    private final LongAdder admittedCount = new LongAdder();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder shedCount = new LongAdder();
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                           int maxQueue, long maxWait, TimeUnit unit,
+                           double latencyTolerance, double backoffRatio) {
+        Preconditions.checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+        Preconditions.checkArgument(maxQueue >= 0, "Queue size cannot be negative");
+        Preconditions.checkArgument(latencyTolerance >= 1, "Latency tolerance must be at least 1");
+        Preconditions.checkArgument(backoffRatio > 0 && backoffRatio < 1, "Backoff ratio must be in (0, 1)");
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    }
+
+    /**
+     * Try to admit a request, waiting in the queue if there is room in it
+     *
+     * @return <code>true</code> if request is admitted and {@link #release(long)} must be called
+     * once it completes, <code>false</code> if it should be shed
+     */
+    public boolean acquire() throws InterruptedException {
+        if (queued.get() == 0 && tryAcquire()) {
+            admittedCount.increment();
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            shedCount.increment();
+            return false;
+        }
+        queuedCount.increment();
+        Thread current = Thread.currentThread();
+        try {
+            long remaining = maxWaitNanos;
+            lock.lockInterruptibly();
+            try {
+                waiters.add(current);
+                try {
+                    while (waiters.peek() != current || !takeSlot()) {
+                        if (remaining <= 0) {
+                            shedCount.increment();
+                            return false;
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } finally {
+                    leave(current);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            queued.decrementAndGet();
+        }
+        admittedCount.increment();
+        return true;
+    }
+
+    /**
+     * Complete admitted request and adapt the limit to its latency
+     *
+     * @param latencyNanos time the request spent in processing
+     */
+    public void release(long latencyNanos) {
+        adapt(latencyNanos, (int) inFlight.get());
+        if (queued.get() > 0 && handOver()) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        // a request queued meanwhile may have missed the slot
+        if (queued.get() > 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Keep the slot of a completed request for the first waiter, unless the limit shrank below the slots in use
+     *
+     * @return <code>true</code> when handed over
+     */
+    private boolean handOver() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() || inFlight.get() > getLimit()) {
+                return false;
+            }
+            handedOver++;
+            released.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called with the lock held by the first waiter
+     */
+    private boolean takeSlot() {
+        if (handedOver > 0) {
+            handedOver--;
+            return true;
+        }
+        return tryAcquire();
+    }
+
+    /**
+     * Called with the lock held by a waiter either admitted or giving up
+     */
+    private void leave(Thread waiter) {
+        waiters.remove(waiter);
+        if (waiters.isEmpty()) {
+            // nobody left to take them
+            inFlight.getAndAdd(-handedOver);
+            handedOver = 0;
+        } else {
+            released.signalAll();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit();
+    }
+
+    /**
+     * @return <code>true</code> while requests wait for a slot or at least half of the limit is in use
+     */
+    public boolean isSaturated() {
+        return queued.get() > 0 || inFlight.get() * 2 >= getLimit();
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos));
+    }
+
+    public AdmissionStats stats() {
+        return new AdmissionStats(name, getLimit(), (int) inFlight.get(), (int) queued.get(),
+                admittedCount.sum(), queuedCount.sum(), shedCount.sum());
+    }
+
+    private boolean tryAcquire() {
+        int limit = getLimit();
+        long current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void adapt(long latencyNanos, int inFlightAtCompletion) {
+        long now = System.nanoTime();
+        long baseline = updateBaseline(latencyNanos, now);
+
+        if (latencyNanos > baseline * latencyTolerance) {
+            // back off at most once per observed latency, so one slow burst does not collapse the limit
+            long last = lastBackoff.get();
+            if (now - last > latencyNanos && lastBackoff.compareAndSet(last, now)) {
+                updateLimit(limit -> Math.max(minLimit, limit * backoffRatio));
+            }
+        } else if (inFlightAtCompletion * 2 >= limit()) {
+            // grow only while the limit is actually used, otherwise it would grow without bound
+            updateLimit(limit -> Math.min(maxLimit, limit + 1 / limit));
+        }
+    }
+
+    private long updateBaseline(long latencyNanos, long now) {
+        long since = baselineSince.get();
+        if (now - since > BASELINE_WINDOW_NANOS && baselineSince.compareAndSet(since, now)) {
+            baselineLatency.set(latencyNanos);
+            return latencyNanos;
+        }
+        long baseline;
+        do {
+            baseline = baselineLatency.get();
+            if (latencyNanos >= baseline) {
+                return baseline;
+            }
+        } while (!baselineLatency.compareAndSet(baseline, latencyNanos));
+        return latencyNanos;
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        long bits;
+        do {
+            bits = limitBits.get();
+        } while (!limitBits.compareAndSet(bits,
+                Double.doubleToLongBits(update.applyAsDouble(Double.longBitsToDouble(bits)))));
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+}
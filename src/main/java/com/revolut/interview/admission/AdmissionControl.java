@@ -0,0 +1,80 @@
+package com.revolut.interview.admission;
+
+import com.revolut.interview.dto.AdmissionStats;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of per-route {@link AdaptiveLimiter}s configured under <code>admission</code>.
+ * <p>
+ * Every entry of <code>admission.routes</code> gets its own limiter, missing settings are taken
+ * from <code>admission.default</code>.
+ */
+@Singleton
+public class AdmissionControl {
+
+    private final Map<String, AdaptiveLimiter> limiters;
+
+    @Inject
+    public AdmissionControl(Config config) {
+        Config admission = config.getConfig("admission");
+        if (!admission.getBoolean("enabled")) {
+            limiters = Collections.emptyMap();
+            return;
+        }
+        Config defaults = admission.getConfig("default");
+        Config routes = admission.getConfig("routes");
+        Map<String, AdaptiveLimiter> limiters = new TreeMap<>();
+        for (String route : routes.root().keySet()) {
+            limiters.put(route, create(route, routes.getConfig(route).withFallback(defaults)));
+        }
+        this.limiters = Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * @param route route name
+     * @return limiter of the route or empty if admission control is disabled for it
+     */
+    public Optional<AdaptiveLimiter> limiter(String route) {
+        return Optional.ofNullable(limiters.get(route));
+    }
+
+    /**
+     * @return <code>true</code> when any route is saturated, background work should give way
+     */
+    public boolean isBusy() {
+        for (AdaptiveLimiter limiter : limiters.values()) {
+            if (limiter.isSaturated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<AdmissionStats> stats() {
+        return limiters.values()
+                .stream()
+                .map(AdaptiveLimiter::stats)
+                .collect(Collectors.toList());
+    }
+
+    private static AdaptiveLimiter create(String route, Config config) {
+        return new AdaptiveLimiter(route,
+                config.getInt("initialLimit"),
+                config.getInt("minLimit"),
+                config.getInt("maxLimit"),
+                config.getInt("maxQueue"),
+                config.getDuration("maxWait", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS,
+                config.getDouble("latencyTolerance"),
+                config.getDouble("backoffRatio"));
+    }
+}
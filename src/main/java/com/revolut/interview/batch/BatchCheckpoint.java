@@ -0,0 +1,146 @@
+package com.revolut.interview.batch;
+
+import com.google.common.base.Splitter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only, fsync-ed log of batch job progress, one text line per event:
+ * <pre>
+ * START job type amount bound,bound,...
+ * RANGE job range cursor processed changed failed
+ * END job
+ * </pre>
+ * Only the latest line of every range matters; on start the log is read back to find jobs which did not end.
+ */
+@Slf4j
+class BatchCheckpoint implements AutoCloseable {
+
+    private static final String START = "START";
+
+    private static final String RANGE = "RANGE";
+
+    private static final String END = "END";
+
+    private final FileChannel channel;
+
+    private final Map<Long, BatchJob> unfinished = new LinkedHashMap<>();
+
+    private long lastId;
+
+    BatchCheckpoint(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    try {
+                        read(line);
+                    } catch (RuntimeException e) {
+                        // only the last line can be torn by a crash, its range is repeated from the previous one
+                        log.warn("Skipping malformed batch checkpoint line: {}", line);
+                    }
+                }
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open batch checkpoint " + file, e);
+        }
+    }
+
+    synchronized void started(BatchJob job) {
+        String bounds = Arrays.stream(job.getBounds()).mapToObj(Long::toString).collect(Collectors.joining(","));
+        write(START + " " + job.getId() + " " + job.getType() + " " + job.getAmount().toPlainString()
+                + " " + bounds);
+        unfinished.put(job.getId(), job);
+    }
+
+    /**
+     * Durably record current progress of a range
+     */
+    synchronized void progress(BatchJob job, int range) {
+        write(RANGE + " " + job.getId() + " " + range + " " + job.getCursors().get(range)
+                + " " + job.getProcessed().get(range) + " " + job.getChanged().get(range)
+                + " " + job.getFailed().get(range));
+    }
+
+    synchronized void ended(BatchJob job) {
+        write(END + " " + job.getId());
+        unfinished.remove(job.getId());
+    }
+
+    /**
+     * @return jobs which did not end, in order of start
+     */
+    synchronized Collection<BatchJob> unfinished() {
+        return new ArrayList<>(unfinished.values());
+    }
+
+    /**
+     * @return highest job id in the log
+     */
+    synchronized long lastId() {
+        return lastId;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write batch checkpoint", e);
+        }
+    }
+
+    private void read(String line) {
+        List<String> parts = Splitter.on(' ').splitToList(line);
+        long id = Long.parseLong(parts.get(1));
+        switch (parts.get(0)) {
+            case START:
+                long[] bounds = parts.size() < 5 || parts.get(4).isEmpty() ? new long[0]
+                        : Splitter.on(',').splitToList(parts.get(4)).stream().mapToLong(Long::parseLong).toArray();
+                unfinished.put(id, new BatchJob(id, BatchJobType.valueOf(parts.get(2)), new BigDecimal(parts.get(3)),
+                        bounds));
+                lastId = Math.max(lastId, id);
+                break;
+            case RANGE:
+                BatchJob job = unfinished.get(id);
+                if (job != null) {
+                    job.restore(Integer.parseInt(parts.get(2)), Long.parseLong(parts.get(3)),
+                            Long.parseLong(parts.get(4)), Long.parseLong(parts.get(5)), Long.parseLong(parts.get(6)));
+                }
+                break;
+            case END:
+                unfinished.remove(id);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown batch checkpoint line " + line);
+        }
+    }
+}
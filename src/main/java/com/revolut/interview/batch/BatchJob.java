@@ -0,0 +1,124 @@
+package com.revolut.interview.batch;
+
+import com.revolut.interview.dto.BatchJobResponse;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Progress of a batch job. Accounts are split by id into ranges, range i covering ids from
+ * <code>bounds[i]</code> up to <code>bounds[i + 1]</code>, the last one every id above. Every range is processed
+ * in id order by a single thread, which is the only one updating its counters.
+ */
+@Getter
+class BatchJob {
+
+    enum State {
+        RUNNING,
+        COMPLETED,
+        /**
+         * Interrupted by a shutdown
+         */
+        STOPPED,
+        FAILED
+    }
+
+    /**
+     * Cursor of a range with every account processed
+     */
+    static final long DONE = Long.MAX_VALUE;
+
+    private final long id;
+
+    private final BatchJobType type;
+
+    private final BigDecimal amount;
+
+    private final long[] bounds;
+
+    /**
+     * Id of the last processed account per range, {@link Long#MIN_VALUE} before the first one
+     */
+    private final AtomicLongArray cursors;
+
+    private final AtomicLongArray processed;
+
+    private final AtomicLongArray changed;
+
+    private final AtomicLongArray failed;
+
+    private volatile State state = State.RUNNING;
+
+    BatchJob(long id, BatchJobType type, BigDecimal amount, long[] bounds) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.bounds = bounds;
+        this.cursors = new AtomicLongArray(bounds.length);
+        this.processed = new AtomicLongArray(bounds.length);
+        this.changed = new AtomicLongArray(bounds.length);
+        this.failed = new AtomicLongArray(bounds.length);
+        for (int range = 0; range < bounds.length; range++) {
+            cursors.set(range, Long.MIN_VALUE);
+        }
+    }
+
+    int ranges() {
+        return bounds.length;
+    }
+
+    /**
+     * @return first account id after the range, {@link Long#MAX_VALUE} for the last one
+     */
+    long upperBound(int range) {
+        return range + 1 < bounds.length ? bounds[range + 1] : Long.MAX_VALUE;
+    }
+
+    boolean isDone(int range) {
+        return cursors.get(range) == DONE;
+    }
+
+    boolean isDone() {
+        for (int range = 0; range < bounds.length; range++) {
+            if (!isDone(range)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restore progress of a range read back from the checkpoint
+     */
+    void restore(int range, long cursor, long processed, long changed, long failed) {
+        this.cursors.set(range, cursor);
+        this.processed.set(range, processed);
+        this.changed.set(range, changed);
+        this.failed.set(range, failed);
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    BatchJobResponse toResponse() {
+        int done = 0;
+        long processed = 0;
+        long changed = 0;
+        long failed = 0;
+        for (int range = 0; range < bounds.length; range++) {
+            done += isDone(range) ? 1 : 0;
+            processed += this.processed.get(range);
+            changed += this.changed.get(range);
+            failed += this.failed.get(range);
+        }
+        return new BatchJobResponse(id, type, amount, state.name(), bounds.length, done, processed, changed, failed);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchJob #" + id + " " + type + " " + amount.toPlainString() + " over " + Arrays.toString(bounds);
+    }
+}
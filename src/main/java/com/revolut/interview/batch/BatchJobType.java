@@ -0,0 +1,33 @@
+package com.revolut.interview.batch;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public enum BatchJobType {
+
+    /**
+     * Credit every account with <code>amount</code> times its balance, e.g. 0.0001 for 0.01% daily interest
+     */
+    INTEREST {
+        @Override
+        BatchOperation operation(BigDecimal amount, int scale) {
+            return account -> account.getAmount().multiply(amount).setScale(scale, RoundingMode.DOWN);
+        }
+    },
+
+    /**
+     * Charge every account a fee of <code>amount</code>, accounts which cannot pay it are left unchanged and
+     * counted as failed
+     */
+    FEE {
+        @Override
+        BatchOperation operation(BigDecimal amount, int scale) {
+            return account -> amount.negate();
+        }
+    };
+
+    /**
+     * @param scale amounts are rounded down to this many decimal places
+     */
+    abstract BatchOperation operation(BigDecimal amount, int scale);
+}
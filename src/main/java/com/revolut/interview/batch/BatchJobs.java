@@ -0,0 +1,352 @@
+package com.revolut.interview.batch;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.admission.AdmissionControl;
+import com.revolut.interview.dto.BatchJobRequest;
+import com.revolut.interview.dto.BatchJobResponse;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.AccountNotFoundException;
+import com.revolut.interview.exception.BatchJobNotFoundException;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngine;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Whole-book jobs, such as interest accrual or fee charging, applied to every account of this node.
+ * <p>
+ * Accounts are split by id into ranges of <code>rangeSize</code>, which are processed in parallel on a
+ * fork-join pool of <code>parallelism</code> threads. Every account is changed with
+ * {@link TransferEngine#adjust}, so a job runs alongside live traffic under the same locking rules; jobs give
+ * way to it by pausing while admission control reports a saturated route and retrying accounts found busy.
+ * <p>
+ * Progress of every range is fsync-ed to a {@link BatchCheckpoint} every <code>checkpointEvery</code> accounts,
+ * jobs interrupted by a shutdown or a crash are resumed on the next start from the last checkpoint of every
+ * range. Every change is journaled with the id of its job, so accounts changed after that checkpoint are found
+ * in the {@link JournalLog} and skipped instead of being charged twice; only changes persisted before the crash
+ * count, a change lost with it is made again.
+ */
+@Slf4j
+@Singleton
+public class BatchJobs {
+
+    private final AccountService accountService;
+
+    private final TransferEngine transferEngine;
+
+    private final BooleanSupplier busy;
+
+    private final LongFunction<Set<Long>> adjustedBy;
+
+    private final BatchCheckpoint checkpoint;
+
+    private final int parallelism;
+
+    private final int rangeSize;
+
+    private final int checkpointEvery;
+
+    private final int scale;
+
+    private final long yieldPauseMillis;
+
+    private final Map<Long, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids;
+
+    private volatile boolean stopping;
+
+    private ForkJoinPool pool;
+
+    @Inject
+    public BatchJobs(AccountService accountService, TransferEngine transferEngine, AdmissionControl admission,
+                     JournalLog journalLog, Config config) {
+        this(accountService, transferEngine, admission::isBusy, jobId -> adjustedBy(journalLog, jobId),
+                Paths.get(config.getString("batch.checkpoint")),
+                config.getInt("batch.parallelism"),
+                config.getInt("batch.rangeSize"),
+                config.getInt("batch.checkpointEvery"),
+                config.getInt("batch.scale"),
+                config.getDuration("batch.yieldPause", TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param busy       live traffic needs the resources, jobs pause while it is <code>true</code>
+     * @param adjustedBy persisted ids of accounts already changed by a job
+     * @param scale      amounts computed by jobs are rounded down to this many decimal places
+     */
+    public BatchJobs(AccountService accountService, TransferEngine transferEngine, BooleanSupplier busy,
+                     LongFunction<Set<Long>> adjustedBy, Path checkpoint, int parallelism, int rangeSize,
+                     int checkpointEvery, int scale, long yieldPauseMillis) {
+        Preconditions.checkArgument(parallelism > 0 && rangeSize > 0 && checkpointEvery > 0,
+                "Parallelism, range size and checkpoint interval must be positive");
+        this.accountService = accountService;
+        this.transferEngine = transferEngine;
+        this.busy = busy;
+        this.adjustedBy = adjustedBy;
+        this.checkpoint = new BatchCheckpoint(checkpoint);
+        this.parallelism = parallelism;
+        this.rangeSize = rangeSize;
+        this.checkpointEvery = checkpointEvery;
+        this.scale = scale;
+        this.yieldPauseMillis = yieldPauseMillis;
+        this.ids = new AtomicLong(this.checkpoint.lastId());
+    }
+
+    public synchronized void start() {
+        if (pool != null) {
+            return;
+        }
+        stopping = false;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Resume jobs which did not finish before the last shutdown
+     */
+    public synchronized void resume() {
+        Preconditions.checkState(pool != null, "Batch jobs are not started");
+        for (BatchJob job : checkpoint.unfinished()) {
+            BatchJob current = jobs.get(job.getId());
+            if (current != null && current.getState() == BatchJob.State.RUNNING) {
+                continue;
+            }
+            Set<Long> adjusted = adjustedBy.apply(job.getId());
+            log.info("Resuming {}, {} accounts were already changed", job, adjusted.size());
+            jobs.put(job.getId(), job);
+            run(job, adjusted);
+        }
+    }
+
+    /**
+     * Interrupt running jobs, they are resumed by {@link #resume()} after the next start
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (pool == null) {
+            return;
+        }
+        stopping = true;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        pool = null;
+    }
+
+    /**
+     * Start a job over all accounts existing now
+     *
+     * @throws IllegalArgumentException - on validation error
+     */
+    public synchronized BatchJobResponse submit(BatchJobRequest request) {
+        Preconditions.checkArgument(request.getType() != null, "Type should be set");
+        Preconditions.checkArgument(request.getAmount() != null, "Amount should be set");
+        Preconditions.checkArgument(request.getAmount().signum() > 0, "Amount must be positive");
+        Preconditions.checkState(pool != null, "Batch jobs are not started");
+
+        long[] accounts = accountIds();
+        long[] bounds = new long[(accounts.length + rangeSize - 1) / rangeSize];
+        for (int range = 0; range < bounds.length; range++) {
+            bounds[range] = accounts[range * rangeSize];
+        }
+        BatchJob job = new BatchJob(ids.incrementAndGet(), request.getType(), request.getAmount(), bounds);
+        checkpoint.started(job);
+        jobs.put(job.getId(), job);
+        run(job, Collections.emptySet());
+        return job.toResponse();
+    }
+
+    /**
+     * @throws BatchJobNotFoundException - when there is no such job
+     */
+    public BatchJobResponse get(long id) {
+        BatchJob job = jobs.get(id);
+        if (job == null) {
+            throw new BatchJobNotFoundException("Batch job #" + id + " not found");
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * @return jobs started or resumed since the start, in order of start
+     */
+    public List<BatchJobResponse> list() {
+        return jobs.values()
+                .stream()
+                .sorted(Comparator.comparingLong(BatchJob::getId))
+                .map(BatchJob::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param adjusted accounts the job changed already
+     */
+    private void run(BatchJob job, Set<Long> adjusted) {
+        BatchOperation operation = job.getType().operation(job.getAmount(), scale);
+        long[] accounts = accountIds();
+        job.setState(BatchJob.State.RUNNING);
+        CompletableFuture
+                .runAsync(() -> new RangeTask(job, operation, accounts, adjusted, 0, job.ranges()).invoke(), pool)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("{} failed", job, e);
+                        job.setState(BatchJob.State.FAILED);
+                    } else if (!job.isDone()) {
+                        job.setState(BatchJob.State.STOPPED);
+                    } else {
+                        checkpoint.ended(job);
+                        job.setState(BatchJob.State.COMPLETED);
+                        log.info("{} completed: {}", job, job.toResponse());
+                    }
+                });
+    }
+
+    /**
+     * @return ids of all accounts, sorted
+     */
+    private long[] accountIds() {
+        long[] accounts = accountService.getAll().stream().mapToLong(Account::getId).toArray();
+        Arrays.sort(accounts);
+        return accounts;
+    }
+
+    private void process(BatchJob job, BatchOperation operation, long[] accounts, Set<Long> adjusted, int range) {
+        if (job.isDone(range)) {
+            return;
+        }
+        long upperBound = job.upperBound(range);
+        int from = Arrays.binarySearch(accounts, Math.max(job.getBounds()[range], job.getCursors().get(range) + 1));
+        long sinceCheckpoint = 0;
+        for (int i = from >= 0 ? from : -from - 1; i < accounts.length && accounts[i] < upperBound; i++) {
+            if (adjusted.contains(accounts[i])) {
+                job.getChanged().incrementAndGet(range);
+            } else if (!apply(job, operation, range, accounts[i])) {
+                checkpoint.progress(job, range);
+                return;
+            }
+            job.getCursors().set(range, accounts[i]);
+            job.getProcessed().incrementAndGet(range);
+            if (++sinceCheckpoint == checkpointEvery) {
+                checkpoint.progress(job, range);
+                sinceCheckpoint = 0;
+            }
+        }
+        job.getCursors().set(range, BatchJob.DONE);
+        checkpoint.progress(job, range);
+    }
+
+    /**
+     * @return <code>false</code> when interrupted by {@link #stop()} before the account is processed
+     */
+    private boolean apply(BatchJob job, BatchOperation operation, int range, long accountId) {
+        boolean[] changed = new boolean[1];
+        while (true) {
+            if (stopping) {
+                return false;
+            }
+            if (busy.getAsBoolean()) {
+                pause();
+                continue;
+            }
+            try {
+                transferEngine.adjust(accountId, job.getId(), account -> {
+                    BigDecimal change = operation.change(account);
+                    changed[0] = change.signum() != 0;
+                    return change;
+                });
+                if (changed[0]) {
+                    job.getChanged().incrementAndGet(range);
+                }
+                return true;
+            } catch (AccountBusyException e) {
+                pause();
+            } catch (AccountNotFoundException e) {
+                return true;
+            } catch (RuntimeException e) {
+                log.debug("{} skipped account #{}: {}", job, accountId, e.getMessage());
+                job.getFailed().incrementAndGet(range);
+                return true;
+            }
+        }
+    }
+
+    private static Set<Long> adjustedBy(JournalLog journalLog, long jobId) {
+        try {
+            return journalLog.adjustedBy(jobId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read changes of batch job #" + jobId, e);
+        }
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(yieldPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch job interrupted", e);
+        }
+    }
+
+    /**
+     * Ranges <code>from</code> until <code>to</code> of a job, split in halves down to single ranges
+     */
+    private class RangeTask extends RecursiveAction {
+
+        private final BatchJob job;
+
+        private final BatchOperation operation;
+
+        private final long[] accounts;
+
+        private final Set<Long> adjusted;
+
+        private final int from;
+
+        private final int to;
+
+        RangeTask(BatchJob job, BatchOperation operation, long[] accounts, Set<Long> adjusted, int from, int to) {
+            this.job = job;
+            this.operation = operation;
+            this.accounts = accounts;
+            this.adjusted = adjusted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    process(job, operation, accounts, adjusted, from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(job, operation, accounts, adjusted, from, middle),
+                    new RangeTask(job, operation, accounts, adjusted, middle, to));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.revolut.interview.batch;
+
+import com.revolut.interview.model.Account;
+
+import java.math.BigDecimal;
+
+/**
+ * Change applied by a batch job to every account
+ */
+public interface BatchOperation {
+
+    /**
+     * @param account account to change, nobody else changes it meanwhile
+     * @return signed amount to add to the account, zero to leave it unchanged
+     */
+    BigDecimal change(Account account);
+}
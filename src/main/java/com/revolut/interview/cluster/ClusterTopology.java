@@ -0,0 +1,89 @@
+package com.revolut.interview.cluster;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValueType;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Static partitioning of account ids between cluster nodes.
+ * <p>
+ * Node <code>n</code> of <code>N</code> owns ids <code>n + 1, n + 1 + N, n + 1 + 2N, ...</code>, so the owner
+ * of any id is known without a lookup and every node allocates ids without coordination.
+ * With a single node ids are just <code>1, 2, 3, ...</code>
+ */
+@Singleton
+public class ClusterTopology {
+
+    private final List<String> nodes;
+
+    private final int node;
+
+    /**
+     * Single node topology
+     */
+    public ClusterTopology() {
+        this(Collections.emptyList(), 0);
+    }
+
+    @Inject
+    public ClusterTopology(Config config) {
+        this(nodes(config), config.getInt("cluster.node"));
+    }
+
+    public ClusterTopology(List<String> nodes, int node) {
+        Preconditions.checkArgument(nodes.isEmpty() ? node == 0 : node >= 0 && node < nodes.size(),
+                "Node index must point to one of cluster nodes");
+        this.nodes = nodes;
+        this.node = node;
+    }
+
+    public boolean isClustered() {
+        return nodes.size() > 1;
+    }
+
+    public int nodeCount() {
+        return Math.max(1, nodes.size());
+    }
+
+    public int localNode() {
+        return node;
+    }
+
+    /**
+     * @param localSequence 1-based number of account created on this node
+     * @return global account id
+     */
+    public long accountId(long localSequence) {
+        return (localSequence - 1) * nodeCount() + node + 1;
+    }
+
+    public int owner(long accountId) {
+        // ids below 1 never exist, they still map to a node which then replies 404
+        return (int) Math.floorMod(accountId - 1, (long) nodeCount());
+    }
+
+    public boolean isLocal(long accountId) {
+        return owner(accountId) == node;
+    }
+
+    /**
+     * @return base url of the node, e.g. <code>http://localhost:8081</code>
+     */
+    public String nodeUrl(int node) {
+        return nodes.get(node);
+    }
+
+    private static List<String> nodes(Config config) {
+        // a comma separated string is accepted too, so the list can be passed as a command line argument
+        if (config.getValue("cluster.nodes").valueType() == ConfigValueType.STRING) {
+            return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(config.getString("cluster.nodes"));
+        }
+        return config.getStringList("cluster.nodes");
+    }
+}
@@ -0,0 +1,99 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.service.TransferEngine;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * {@link TransferEngine} of a clustered node: operations on local accounts go to the configured
+ * engine, transfers to accounts of other nodes go through {@link TwoPhaseTransfers}. Holds are only
+ * supported for transfers between accounts of this node.
+ * Requests for accounts owned by other nodes never get here, they are forwarded by the routing layer.
+ */
+@Singleton
+public class ClusteredTransferEngine implements TransferEngine {
+
+    /**
+     * Binding name of the engine applying operations to local accounts
+     */
+    public static final String LOCAL = "local";
+
+    private final TransferEngine localEngine;
+
+    private final ClusterTopology topology;
+
+    private final TwoPhaseTransfers twoPhaseTransfers;
+
+    @Inject
+    public ClusteredTransferEngine(@Named(LOCAL) TransferEngine localEngine, ClusterTopology topology,
+                                   TwoPhaseTransfers twoPhaseTransfers) {
+        this.localEngine = localEngine;
+        this.topology = topology;
+        this.twoPhaseTransfers = twoPhaseTransfers;
+    }
+
+    @Override
+    public Account deposit(Long accountId, BigDecimal amount) {
+        return localEngine.deposit(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(Long accountId, BigDecimal amount) {
+        return localEngine.withdraw(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(Long accountId, BigDecimal amount, String reference) {
+        return localEngine.withdraw(accountId, amount, reference);
+    }
+
+    @Override
+    public Account transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (toAccountId == null || topology.isLocal(toAccountId)) {
+            return localEngine.transfer(fromAccountId, toAccountId, amount);
+        }
+        return twoPhaseTransfers.transfer(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * @throws InvalidTransferException - when the target account belongs to another node
+     */
+    @Override
+    public Hold hold(Long accountId, Long toAccountId, BigDecimal amount, Duration expiresIn) {
+        if (toAccountId != null && !topology.isLocal(toAccountId)) {
+            throw new InvalidTransferException("Holds for accounts of other nodes are not supported");
+        }
+        return localEngine.hold(accountId, toAccountId, amount, expiresIn);
+    }
+
+    @Override
+    public Account capture(Long accountId, Long holdId, BigDecimal amount) {
+        return localEngine.capture(accountId, holdId, amount);
+    }
+
+    @Override
+    public Hold release(Long accountId, Long holdId) {
+        return localEngine.release(accountId, holdId);
+    }
+
+    @Override
+    public Account adjust(Long accountId, long jobId, Function<Account, BigDecimal> change) {
+        return localEngine.adjust(accountId, jobId, change);
+    }
+
+    /**
+     * Only accounts of this node are found
+     */
+    @Override
+    public Account[] read(long[] accountIds) {
+        return localEngine.read(accountIds);
+    }
+}
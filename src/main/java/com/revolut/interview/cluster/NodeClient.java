@@ -0,0 +1,165 @@
+package com.revolut.interview.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.revolut.interview.exception.AccountNotFoundException;
+import com.typesafe.config.Config;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Minimal HTTP client for node to node calls
+ */
+@Singleton
+public class NodeClient {
+
+    /**
+     * Marks requests already forwarded by a node, they are never forwarded again
+     */
+    public static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+    /**
+     * Carries <code>cluster.secret</code> on calls of cluster internal routes
+     */
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final int TIMEOUT_MILLIS = 5_000;
+
+    private final ObjectMapper mapper;
+
+    private final String secret;
+
+    @Inject
+    public NodeClient(ObjectMapper mapper, Config config) {
+        this(mapper, config.getString("cluster.secret"));
+    }
+
+    public NodeClient(ObjectMapper mapper, String secret) {
+        this.mapper = mapper;
+        this.secret = secret;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Reply {
+
+        private final int status;
+
+        private final String contentType;
+
+        private final byte[] body;
+    }
+
+    /**
+     * Send a request to another node as is
+     */
+    public Reply forward(String nodeUrl, String method, String pathAndQuery,
+                         String contentType, String accept, byte[] body) {
+        return send(nodeUrl, method, pathAndQuery, contentType, accept, body, false);
+    }
+
+    /**
+     * Post json to a cluster internal route of another node, with the cluster secret
+     *
+     * @throws AccountNotFoundException - when the node replies with 404
+     * @throws IllegalStateException    - when the node replies with another error
+     * @throws UncheckedIOException     - when the node cannot be reached
+     */
+    public void postInternal(String nodeUrl, String path, Object body) {
+        check(nodeUrl, path, send(nodeUrl, "POST", path, "application/json", "application/json", json(body), true));
+    }
+
+    /**
+     * Ask a cluster internal route of another node whether something exists, with the cluster secret
+     *
+     * @return <code>true</code> on a success reply, <code>false</code> on 404
+     * @throws IllegalStateException - when the node replies with another error
+     * @throws UncheckedIOException  - when the node cannot be reached
+     */
+    public boolean getInternal(String nodeUrl, String path) {
+        Reply reply = send(nodeUrl, "GET", path, null, "application/json", null, true);
+        if (reply.getStatus() == 404) {
+            return false;
+        }
+        check(nodeUrl, path, reply);
+        return true;
+    }
+
+    private Reply send(String nodeUrl, String method, String pathAndQuery, String contentType, String accept,
+                       byte[] body, boolean internal) {
+        try {
+            HttpURLConnection connection = open(nodeUrl + pathAndQuery, method);
+            if (internal) {
+                connection.setRequestProperty(SECRET_HEADER, secret);
+            }
+            connection.setRequestProperty("Accept", accept);
+            if (body != null && body.length > 0) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", contentType);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] reply = in == null ? new byte[0] : read(in);
+            return new Reply(status, connection.getContentType(), reply);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Node " + nodeUrl + " is unavailable", e);
+        }
+    }
+
+    /**
+     * Post json to another node
+     *
+     * @throws AccountNotFoundException - when the node replies with 404
+     * @throws IllegalStateException    - when the node replies with another error
+     * @throws UncheckedIOException     - when the node cannot be reached
+     */
+    public void post(String nodeUrl, String path, Object body) {
+        check(nodeUrl, path, forward(nodeUrl, "POST", path, "application/json", "application/json", json(body)));
+    }
+
+    private byte[] json(Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void check(String nodeUrl, String path, Reply reply) {
+        if (reply.getStatus() == 404) {
+            throw new AccountNotFoundException("Account not found on node " + nodeUrl);
+        }
+        if (reply.getStatus() >= 300) {
+            throw new IllegalStateException("Node " + nodeUrl + " replied " + reply.getStatus() + " to " + path);
+        }
+    }
+
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        // nodes never redirect, a callback host must not send requests elsewhere
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty(FORWARDED_HEADER, "true");
+        return connection;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return ByteStreams.toByteArray(stream);
+        }
+    }
+}
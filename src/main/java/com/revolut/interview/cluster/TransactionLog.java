@@ -0,0 +1,165 @@
+package com.revolut.interview.cluster;
+
+import com.google.common.base.Splitter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, fsync-ed log of cross-node transfer states, one text line per state change.
+ * <p>
+ * Only the latest state of every transaction matters; on start the log is read back to find
+ * transactions that did not reach a final state.
+ */
+@Slf4j
+class TransactionLog implements AutoCloseable {
+
+    enum State {
+        /**
+         * Coordinator: transfer started, source may be debited
+         */
+        BEGIN(false),
+        /**
+         * Coordinator: source debited, participant is asked to prepare
+         */
+        DEBITED(false),
+        /**
+         * Coordinator: participant prepared, decision is to commit
+         */
+        COMMIT(false),
+        /**
+         * Coordinator: participant acknowledged commit
+         */
+        DONE(true),
+        /**
+         * Coordinator: decision is to abort, source is being refunded
+         */
+        REFUNDING(false),
+        /**
+         * Coordinator: transfer rolled back, source refunded
+         */
+        ABORT(true),
+        /**
+         * Participant: ready to credit the target on commit
+         */
+        PREPARED(false),
+        /**
+         * Participant: target credited
+         */
+        COMMITTED(true),
+        /**
+         * Participant: transfer dropped
+         */
+        ABORTED(true);
+
+        private final boolean terminal;
+
+        State(boolean terminal) {
+            this.terminal = terminal;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Entry {
+
+        private State state;
+
+        private String txId;
+
+        private long fromAccountId;
+
+        private long toAccountId;
+
+        private BigDecimal amount;
+
+        Entry with(State state) {
+            return new Entry(state, txId, fromAccountId, toAccountId, amount);
+        }
+    }
+
+    private final FileChannel channel;
+
+    private final Map<String, Entry> unfinished = new LinkedHashMap<>();
+
+    TransactionLog(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    try {
+                        track(parse(line));
+                    } catch (RuntimeException e) {
+                        // only the last line can be torn by a crash, its transaction was not acted upon
+                        log.warn("Skipping malformed transaction log line: {}", line);
+                    }
+                }
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open transaction log " + file, e);
+        }
+    }
+
+    /**
+     * Durably record a state change
+     */
+    synchronized void append(Entry entry) {
+        String line = entry.getState() + " " + entry.getTxId() + " " + entry.getFromAccountId()
+                + " " + entry.getToAccountId() + " " + entry.getAmount().toPlainString() + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write transaction log", e);
+        }
+        track(entry);
+    }
+
+    /**
+     * @return transactions which latest state is not final, in order of appearance
+     */
+    synchronized Collection<Entry> unfinished() {
+        return new ArrayList<>(unfinished.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void track(Entry entry) {
+        if (entry.getState().terminal) {
+            unfinished.remove(entry.getTxId());
+        } else {
+            unfinished.put(entry.getTxId(), entry);
+        }
+    }
+
+    private static Entry parse(String line) {
+        List<String> parts = Splitter.on(' ').splitToList(line);
+        return new Entry(State.valueOf(parts.get(0)), parts.get(1), Long.parseLong(parts.get(2)),
+                Long.parseLong(parts.get(3)), new BigDecimal(parts.get(4)));
+    }
+}
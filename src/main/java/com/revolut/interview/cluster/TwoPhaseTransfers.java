@@ -0,0 +1,343 @@
+package com.revolut.interview.cluster;
+
+import com.google.common.primitives.Ints;
+import com.revolut.interview.cluster.TransactionLog.Entry;
+import com.revolut.interview.cluster.TransactionLog.State;
+import com.revolut.interview.dto.TransferRequest;
+import com.revolut.interview.exception.AccountNotFoundException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngine;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Two-phase commit of transfers between accounts owned by different nodes.
+ * <p>
+ * The node owning the source account coordinates: it logs BEGIN, debits the source and logs DEBITED, asks the
+ * target node to PREPARE, then logs the COMMIT decision and asks the target node to credit the account.
+ * The debit is journaled with the transaction id, so a BEGIN left by a crash is refunded when the account
+ * journal has the debit and aborted otherwise. If the target cannot prepare, the coordinator logs REFUNDING, refunds the source and aborts the transfer. Every
+ * state change is fsync-ed to the {@link TransactionLog} before acting on it; commits that were not acknowledged
+ * and refunds that failed are retried in background, including after a restart.
+ * <p>
+ * The amount is debited in the currency of the source account and converted when the target node prepares,
+ * with its exchange rates at that time, so the credit does not depend on rate updates until the commit.
+ * <p>
+ * Participant side is idempotent: a commit or abort for a transaction it does not know is
+ * acknowledged, as it was already applied. A transaction id starts with the index of its coordinator, which the
+ * participant asks to confirm the debit before it prepares, so a credit always has a matching debit.
+ */
+@Slf4j
+@Singleton
+public class TwoPhaseTransfers {
+
+    private static final String PATH = "/api/internal/transfers/";
+
+    private final TransferEngine localEngine;
+
+    private final AccountService accountService;
+
+    private final ClusterTopology topology;
+
+    private final NodeClient client;
+
+    private final TransactionLog transactionLog;
+
+    private final Predicate<String> debited;
+
+    /**
+     * Participant side transactions waiting for decision
+     */
+    private final Map<String, Entry> prepared = new ConcurrentHashMap<>();
+
+    /**
+     * Coordinator side transactions decided to commit but not acknowledged yet
+     */
+    private final Map<String, Entry> committing = new ConcurrentHashMap<>();
+
+    /**
+     * Coordinator side transactions decided to abort which source is not refunded yet
+     */
+    private final Map<String, Entry> refunding = new ConcurrentHashMap<>();
+
+    /**
+     * Coordinator side transactions which source is debited, until the participant prepared or refused
+     */
+    private final Set<String> awaitingPrepare = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "two-phase-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Inject
+    public TwoPhaseTransfers(@Named(ClusteredTransferEngine.LOCAL) TransferEngine localEngine,
+                             AccountService accountService, ClusterTopology topology,
+                             NodeClient client, JournalLog journalLog, Config config) {
+        this(localEngine, accountService, topology, client, txId -> withdrawn(journalLog, txId), config);
+    }
+
+    /**
+     * @param debited whether the source of a transaction was debited, as persisted by the account journal
+     */
+    public TwoPhaseTransfers(TransferEngine localEngine, AccountService accountService, ClusterTopology topology,
+                             NodeClient client, Predicate<String> debited, Config config) {
+        this.localEngine = localEngine;
+        this.accountService = accountService;
+        this.topology = topology;
+        this.client = client;
+        this.debited = debited;
+        this.transactionLog = new TransactionLog(Paths.get(config.getString("cluster.transactionLog")));
+        long retryMillis = config.getDuration("cluster.commitRetry", TimeUnit.MILLISECONDS);
+        retries.scheduleWithFixedDelay(this::retry, retryMillis, retryMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Resolve transactions left unfinished by previous run
+     */
+    public void recover() {
+        for (Entry entry : transactionLog.unfinished()) {
+            switch (entry.getState()) {
+                case BEGIN:
+                    // the node may have stopped after the debit but before logging it, the journal knows
+                    if (debited.test(entry.getTxId())) {
+                        refundUndecided(entry);
+                    } else {
+                        transactionLog.append(entry.with(State.ABORT));
+                        sendAbort(entry);
+                    }
+                    break;
+                case DEBITED:
+                    refundUndecided(entry);
+                    break;
+                case REFUNDING:
+                    refunding.put(entry.getTxId(), entry);
+                    break;
+                case COMMIT:
+                    committing.put(entry.getTxId(), entry);
+                    break;
+                case PREPARED:
+                    prepared.put(entry.getTxId(), entry);
+                    break;
+                default:
+                    break;
+            }
+        }
+        log.info("Recovered {} in-doubt, {} committing and {} refunding transfers", prepared.size(),
+                committing.size(), refunding.size());
+    }
+
+    /**
+     * Source was charged but no decision was made, so the transfer never happened for the other side
+     */
+    private void refundUndecided(Entry entry) {
+        Entry refund = entry.with(State.REFUNDING);
+        transactionLog.append(refund);
+        sendAbort(refund);
+        refunding.put(refund.getTxId(), refund);
+    }
+
+    /**
+     * Transfer money from a local account to an account of another node
+     *
+     * @return modified source account
+     */
+    public Account transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        String txId = topology.localNode() + "-" + UUID.randomUUID();
+        Entry entry = new Entry(State.BEGIN, txId, fromAccountId, toAccountId, amount);
+        transactionLog.append(entry);
+
+        Account from;
+        try {
+            from = localEngine.withdraw(fromAccountId, amount, txId);
+        } catch (RuntimeException e) {
+            transactionLog.append(entry.with(State.ABORT));
+            throw e;
+        }
+        Entry debited = entry.with(State.DEBITED);
+        transactionLog.append(debited);
+
+        awaitingPrepare.add(txId);
+        try {
+            client.postInternal(nodeOf(toAccountId), PATH + txId + "/prepare",
+                    new TransferRequest(amount, toAccountId, from.getCurrency()));
+        } catch (RuntimeException e) {
+            Entry refund = debited.with(State.REFUNDING);
+            transactionLog.append(refund);
+            sendAbort(refund);
+            if (!refund(refund)) {
+                refunding.put(refund.getTxId(), refund);
+            }
+            throw e;
+        } finally {
+            awaitingPrepare.remove(txId);
+        }
+
+        Entry commit = debited.with(State.COMMIT);
+        transactionLog.append(commit);
+        if (!sendCommit(commit)) {
+            committing.put(commit.getTxId(), commit);
+        }
+        return from;
+    }
+
+    /**
+     * Coordinator: whether the source of the transfer is debited and the participant is being asked to prepare
+     */
+    public boolean isAwaitingPrepare(String txId) {
+        return awaitingPrepare.contains(txId);
+    }
+
+    /**
+     * Participant: validate and remember the transfer, in the currency of the target account, until decision
+     * arrives
+     *
+     * @param currency currency of the amount, the base currency when <code>null</code>
+     * @throws AccountNotFoundException  - when target account does not exist
+     * @throws InvalidTransferException - when there is no rate for a currency, the amount converts to nothing or
+     *                                  the coordinator named by the transaction id does not confirm the debit
+     */
+    public void prepare(String txId, Long toAccountId, BigDecimal amount, String currency) {
+        if (prepared.containsKey(txId)) {
+            return;
+        }
+        if (!client.getInternal(coordinatorOf(txId), PATH + txId)) {
+            throw new InvalidTransferException("Transfer " + txId + " is not confirmed by its coordinator");
+        }
+        Account to = accountService.getById(toAccountId);
+        BigDecimal converted = accountService.convert(amount, currency, to);
+        if (converted.signum() <= 0) {
+            throw new InvalidTransferException("Amount is too small to transfer to " + to.getCurrency());
+        }
+        Entry entry = new Entry(State.PREPARED, txId, 0, toAccountId, converted);
+        transactionLog.append(entry);
+        prepared.put(txId, entry);
+    }
+
+    /**
+     * Participant: credit the target account of a prepared transfer. The transfer stays prepared until the
+     * credit is applied, so a failed credit is applied by the commit retried by the coordinator.
+     */
+    public void commit(String txId) {
+        Entry entry = prepared.get(txId);
+        if (entry == null) {
+            return;
+        }
+        // a retried commit may arrive while the first one is still crediting
+        synchronized (entry) {
+            if (prepared.get(txId) == entry) {
+                localEngine.deposit(entry.getToAccountId(), entry.getAmount());
+                transactionLog.append(entry.with(State.COMMITTED));
+                prepared.remove(txId);
+            }
+        }
+    }
+
+    /**
+     * Participant: drop a prepared transfer
+     */
+    public void abort(String txId) {
+        Entry entry = prepared.get(txId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (prepared.get(txId) == entry) {
+                transactionLog.append(entry.with(State.ABORTED));
+                prepared.remove(txId);
+            }
+        }
+    }
+
+    private void retry() {
+        for (Entry entry : committing.values()) {
+            if (sendCommit(entry)) {
+                committing.remove(entry.getTxId());
+            }
+        }
+        for (Entry entry : refunding.values()) {
+            if (refund(entry)) {
+                refunding.remove(entry.getTxId());
+            }
+        }
+    }
+
+    /**
+     * Credit the source of an aborted transfer back
+     *
+     * @return <code>true</code> when refunded
+     */
+    private boolean refund(Entry entry) {
+        try {
+            localEngine.deposit(entry.getFromAccountId(), entry.getAmount());
+        } catch (RuntimeException e) {
+            log.warn("Refund of transfer {} failed, will retry: {}", entry.getTxId(), e.getMessage());
+            return false;
+        }
+        transactionLog.append(entry.with(State.ABORT));
+        return true;
+    }
+
+    private boolean sendCommit(Entry entry) {
+        try {
+            client.postInternal(nodeOf(entry.getToAccountId()), PATH + entry.getTxId() + "/commit",
+                    new TransferRequest(entry.getAmount(), entry.getToAccountId()));
+            transactionLog.append(entry.with(State.DONE));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Commit of transfer {} is not acknowledged yet: {}", entry.getTxId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void sendAbort(Entry entry) {
+        try {
+            client.postInternal(nodeOf(entry.getToAccountId()), PATH + entry.getTxId() + "/abort",
+                    new TransferRequest(entry.getAmount(), entry.getToAccountId()));
+        } catch (RuntimeException e) {
+            // participant keeps the transfer in doubt, it is never credited without a commit
+            log.warn("Abort of transfer {} is not delivered: {}", entry.getTxId(), e.getMessage());
+        }
+    }
+
+    private String nodeOf(long accountId) {
+        return topology.nodeUrl(topology.owner(accountId));
+    }
+
+    private static boolean withdrawn(JournalLog journalLog, String txId) {
+        try {
+            return journalLog.withdrawn(txId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the debit of transfer " + txId, e);
+        }
+    }
+
+    private String coordinatorOf(String txId) {
+        int separator = txId.indexOf('-');
+        Integer node = separator > 0 ? Ints.tryParse(txId.substring(0, separator)) : null;
+        if (node == null || node < 0 || node >= topology.nodeCount() || node == topology.localNode()) {
+            throw new InvalidTransferException("Transfer " + txId + " does not name another node as coordinator");
+        }
+        return topology.nodeUrl(node);
+    }
+}
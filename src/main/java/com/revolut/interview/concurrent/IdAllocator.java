@@ -0,0 +1,72 @@
+package com.revolut.interview.concurrent;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Unique ids handed out from per-thread blocks, so threads creating entities at the same time do not all
+ * increment one shared counter. A thread takes {@link #blockSize} ids from the shared counter at once and hands
+ * them out in order, so ids of a thread increase, but ids of different threads interleave in blocks and the ids
+ * left in a block are only used by the next allocations of the same thread.
+ * <p>
+ * The JVM does not tell which core a thread runs on, so blocks are per thread; pool threads mostly stay on the
+ * same core, which makes them effectively per core.
+ */
+public final class IdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final int blockSize;
+
+    private final PaddedAtomicLong next;
+
+    /**
+     * Ids below are reserved, blocks taken before a reservation are dropped if they start below. Read by every
+     * allocation, written only by reservations, so it does not share a cache line with {@link #next}.
+     */
+    private final PaddedAtomicLong floor;
+
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    /**
+     * @param first first id
+     */
+    public IdAllocator(long first, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0, "Block size must be positive");
+        this.blockSize = blockSize;
+        this.next = new PaddedAtomicLong(first);
+        this.floor = new PaddedAtomicLong(first);
+    }
+
+    public long next() {
+        Block block = blocks.get();
+        if (block.next == block.end || block.next < floor.get()) {
+            block.next = next.getAndAdd(blockSize);
+            block.end = block.next + blockSize;
+        }
+        return block.next++;
+    }
+
+    /**
+     * Allocate consecutive ids at once, bypassing the blocks
+     *
+     * @return first of <code>count</code> ids
+     */
+    public long next(int count) {
+        return next.getAndAdd(count);
+    }
+
+    /**
+     * Never hand out this id or lower ones, e.g. after restoring an entity with this id
+     */
+    public void reserve(long id) {
+        next.accumulateAndGet(id + 1, Math::max);
+        floor.accumulateAndGet(id + 1, Math::max);
+    }
+
+    private static class Block {
+
+        private long next;
+
+        private long end;
+    }
+}
@@ -0,0 +1,84 @@
+package com.revolut.interview.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * {@link java.util.concurrent.atomic.AtomicLong} alone on its cache line, for shared state written by every core,
+ * e.g. id counters and in-flight counts. A plain <code>AtomicLong</code> is a 24 byte object, usually allocated
+ * next to the objects created with it, so every write also invalidates their line in the caches of all other
+ * cores even when they are only read.
+ * <p>
+ * The value is surrounded by 56 bytes of padding on both sides, declared in superclasses and a subclass, since
+ * the JVM lays out superclass fields first but may reorder fields of the same class. <code>@Contended</code>
+ * would do the same, but it is ignored outside the JDK unless the JVM runs with
+ * <code>-XX:-RestrictContended</code>.
+ * <p>
+ * Counters which are written much more often than read are better off with
+ * {@link java.util.concurrent.atomic.LongAdder}, which stripes them per thread and merges stripes on read.
+ */
+public final class PaddedAtomicLong extends PaddedAtomicLongValue {
+
+    private static final AtomicLongFieldUpdater<PaddedAtomicLongValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(PaddedAtomicLongValue.class, "value");
+
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    public PaddedAtomicLong() {
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        value = initialValue;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    public boolean compareAndSet(long expect, long update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    public long getAndAdd(long delta) {
+        return VALUE.getAndAdd(this, delta);
+    }
+
+    public long getAndIncrement() {
+        return VALUE.getAndIncrement(this);
+    }
+
+    public long getAndDecrement() {
+        return VALUE.getAndDecrement(this);
+    }
+
+    public long incrementAndGet() {
+        return VALUE.incrementAndGet(this);
+    }
+
+    public long decrementAndGet() {
+        return VALUE.decrementAndGet(this);
+    }
+
+    public long accumulateAndGet(long x, LongBinaryOperator accumulator) {
+        return VALUE.accumulateAndGet(this, x, accumulator);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
+
+abstract class PaddedAtomicLongLeftPadding {
+
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongLeftPadding {
+
+    volatile long value;
+}
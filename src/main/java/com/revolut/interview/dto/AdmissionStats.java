@@ -0,0 +1,28 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Jackson DTO with admission control counters of a single route
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionStats {
+
+    private String route;
+
+    private int limit;
+
+    private int inFlight;
+
+    private int waiting;
+
+    private long admitted;
+
+    private long queued;
+
+    private long shed;
+}
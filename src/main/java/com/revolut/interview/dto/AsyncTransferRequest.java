@@ -0,0 +1,27 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Jackson DTO to submit a transfer for asynchronous processing
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsyncTransferRequest {
+
+    private Long fromAccountId;
+
+    private Long toAccountId;
+
+    private BigDecimal amount;
+
+    /**
+     * Optional url the final {@link TransferStatusResponse} is posted to
+     */
+    private String callbackUrl;
+}
@@ -0,0 +1,24 @@
+package com.revolut.interview.dto;
+
+import com.revolut.interview.batch.BatchJobType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Jackson DTO to start a batch job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchJobRequest {
+
+    private BatchJobType type;
+
+    /**
+     * Interest rate or fee, see {@link BatchJobType}
+     */
+    private BigDecimal amount;
+}
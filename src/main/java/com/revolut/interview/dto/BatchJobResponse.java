@@ -0,0 +1,38 @@
+package com.revolut.interview.dto;
+
+import com.revolut.interview.batch.BatchJobType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Jackson DTO with progress of a batch job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchJobResponse {
+
+    private Long id;
+
+    private BatchJobType type;
+
+    private BigDecimal amount;
+
+    /**
+     * RUNNING, COMPLETED, STOPPED or FAILED, the last two are resumed on the next start
+     */
+    private String state;
+
+    private int ranges;
+
+    private int rangesDone;
+
+    private long processed;
+
+    private long changed;
+
+    private long failed;
+}
@@ -14,4 +14,13 @@ public class CreateAccountRequest {
     private String name;
 
     private BigDecimal amount;
+
+    /**
+     * ISO 4217 code, the base currency when not set
+     */
+    private String currency;
+
+    public CreateAccountRequest(String name, BigDecimal amount) {
+        this(name, amount, null);
+    }
 }
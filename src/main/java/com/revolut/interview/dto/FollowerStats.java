@@ -0,0 +1,25 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Jackson DTO with replication progress of a single follower, as seen by the primary
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowerStats {
+
+    private String address;
+
+    private long sentSequence;
+
+    private long acknowledgedSequence;
+
+    /**
+     * Records appended on the primary and not yet applied by the follower
+     */
+    private long lag;
+}
@@ -0,0 +1,22 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Jackson DTO to replace exchange rates
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRatesRequest {
+
+    /**
+     * Units of every currency per unit of the base currency, e.g. <code>{"USD": 1.10}</code>
+     */
+    private Map<String, BigDecimal> rates;
+}
@@ -0,0 +1,29 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Jackson DTO of current exchange rates
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRatesResponse {
+
+    private String base;
+
+    /**
+     * Incremented by every update
+     */
+    private long version;
+
+    /**
+     * Units of every currency per unit of the base currency, including the base currency itself
+     */
+    private Map<String, BigDecimal> rates;
+}
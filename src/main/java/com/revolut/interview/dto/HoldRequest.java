@@ -0,0 +1,31 @@
+package com.revolut.interview.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Jackson DTO for hold operation
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@NoArgsConstructor
+public class HoldRequest extends RefillRequest {
+
+    private Long toAccountId;
+
+    /**
+     * Time to keep the hold, ISO-8601 e.g. <code>PT15M</code>; <code>transfer.holds.expiresIn</code> when not set
+     */
+    private Duration expiresIn;
+
+    public HoldRequest(BigDecimal amount, Long toAccountId) {
+        super(amount);
+        this.toAccountId = toAccountId;
+    }
+}
@@ -0,0 +1,29 @@
+package com.revolut.interview.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Jackson DTO of a hold
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldResponse {
+
+    private Long id;
+
+    private Long accountId;
+
+    private Long toAccountId;
+
+    private BigDecimal amount;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant expiresAt;
+}
@@ -0,0 +1,22 @@
+package com.revolut.interview.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Jackson DTO for a single line of bulk import response
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportLineResult {
+
+    private long line;
+
+    private Long id;
+
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.revolut.interview.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Jackson DTO to read several accounts at once
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LookupRequest {
+
+    private List<Long> ids;
+}
@@ -0,0 +1,34 @@
+package com.revolut.interview.dto;
+
+import com.revolut.interview.replication.ReplicationRole;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Jackson DTO with replication state of the node
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationStats {
+
+    private ReplicationRole role;
+
+    /**
+     * Last appended journal record on the primary, last applied one on a follower
+     */
+    private long sequence;
+
+    /**
+     * Follower only: time between the last applied record being appended on the primary and applied here
+     */
+    private long lagMillis;
+
+    /**
+     * Primary only: connected followers
+     */
+    private List<FollowerStats> followers;
+}
@@ -0,0 +1,49 @@
+package com.revolut.interview.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Jackson DTO of a scheduled transfer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ScheduledTransferResponse {
+
+    private Long id;
+
+    private Long fromAccountId;
+
+    private Long toAccountId;
+
+    private BigDecimal amount;
+
+    /**
+     * Not set once the last execution is done or the transfer is cancelled
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant nextExecutionAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Duration repeatEvery;
+
+    /**
+     * Executions left, not set for unlimited recurring transfers
+     */
+    private Integer remaining;
+
+    private long executed;
+
+    private long failed;
+
+    private String lastError;
+}
@@ -6,9 +6,11 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 
 /**
- * Jackson DTO for transfer operation
+ * Jackson DTO for transfer operation, scheduled when <code>executeAt</code> or <code>repeatEvery</code> is set
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -18,8 +20,33 @@ public class TransferRequest extends RefillRequest {
 
     private Long toAccountId;
 
+    /**
+     * Time of the first execution, ISO-8601 e.g. <code>2019-01-01T00:00:00Z</code>
+     */
+    private Instant executeAt;
+
+    /**
+     * Interval of a recurring transfer, ISO-8601 e.g. <code>P1D</code>
+     */
+    private Duration repeatEvery;
+
+    /**
+     * Number of executions of a recurring transfer, unlimited when not set
+     */
+    private Integer times;
+
+    /**
+     * Cluster internal: currency of the amount of a prepared transfer, the base currency when not set
+     */
+    private String currency;
+
     public TransferRequest(BigDecimal amount, Long toAccountId) {
         super(amount);
         this.toAccountId = toAccountId;
     }
+
+    public TransferRequest(BigDecimal amount, Long toAccountId, String currency) {
+        this(amount, toAccountId);
+        this.currency = currency;
+    }
 }
@@ -0,0 +1,36 @@
+package com.revolut.interview.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Jackson DTO of an asynchronously processed transfer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferStatusResponse {
+
+    private Long id;
+
+    private Long fromAccountId;
+
+    private Long toAccountId;
+
+    private BigDecimal amount;
+
+    /**
+     * QUEUED, COMPLETED or FAILED
+     */
+    private String status;
+
+    /**
+     * Reason of a failure
+     */
+    private String error;
+}
@@ -1,12 +1,21 @@
 package com.revolut.interview.dto.mapping;
 
 import com.revolut.interview.dto.AccountResponse;
+import com.revolut.interview.dto.HoldResponse;
 import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
 import org.mapstruct.Mapper;
 
+import java.time.Instant;
+
 @Mapper
 public interface AccountMapper {
 
     AccountResponse toResponse(Account account);
 
+    default HoldResponse toResponse(Hold hold) {
+        return new HoldResponse(hold.getId(), hold.getAccountId(), hold.getToAccountId(), hold.getAmount(),
+                Instant.ofEpochMilli(hold.getExpiresAtMillis()));
+    }
+
 }
@@ -0,0 +1,11 @@
+package com.revolut.interview.exception;
+
+/**
+ * Account lock could not be acquired in time, operation was not applied and can be retried
+ */
+public class AccountBusyException extends ServiceOverloadedException {
+
+    public AccountBusyException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.exception;
+
+public class BatchJobNotFoundException extends RuntimeException {
+
+    public BatchJobNotFoundException(String message) {
+        super(message);
+    }
+}
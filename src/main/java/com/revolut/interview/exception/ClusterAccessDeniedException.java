@@ -0,0 +1,11 @@
+package com.revolut.interview.exception;
+
+/**
+ * Cluster internal route was called without the cluster secret
+ */
+public class ClusterAccessDeniedException extends RuntimeException {
+
+    public ClusterAccessDeniedException(String message) {
+        super(message);
+    }
+}
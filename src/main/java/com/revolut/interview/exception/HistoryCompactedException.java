@@ -0,0 +1,8 @@
+package com.revolut.interview.exception;
+
+public class HistoryCompactedException extends RuntimeException {
+
+    public HistoryCompactedException(String message) {
+        super(message);
+    }
+}
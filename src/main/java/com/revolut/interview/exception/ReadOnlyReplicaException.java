@@ -0,0 +1,11 @@
+package com.revolut.interview.exception;
+
+/**
+ * Write request was sent to a follower
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+
+    public ReadOnlyReplicaException(String message) {
+        super(message);
+    }
+}
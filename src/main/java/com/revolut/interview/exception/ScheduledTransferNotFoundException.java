@@ -0,0 +1,8 @@
+package com.revolut.interview.exception;
+
+public class ScheduledTransferNotFoundException extends RuntimeException {
+
+    public ScheduledTransferNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.revolut.interview.exception;
+
+/**
+ * Request was rejected without being processed, client should retry after {@link #getRetryAfterSeconds()}
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
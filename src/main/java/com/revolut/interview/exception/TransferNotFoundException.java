@@ -0,0 +1,8 @@
+package com.revolut.interview.exception;
+
+public class TransferNotFoundException extends RuntimeException {
+
+    public TransferNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.revolut.interview.exception;
+
+public class VelocityLimitExceededException extends RuntimeException {
+
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
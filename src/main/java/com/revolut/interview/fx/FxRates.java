@@ -0,0 +1,82 @@
+package com.revolut.interview.fx;
+
+import com.revolut.interview.dto.FxRatesResponse;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current exchange rates, a copy-on-write {@link RateTable}. An update builds a complete new table and publishes
+ * it with a single reference swap, so conversions never wait for an update and never see a partial one; a
+ * transfer converts with the table it read first.
+ * <p>
+ * Accounts are in the <code>fx.base</code> currency unless created with another supported one.
+ */
+@Singleton
+public class FxRates {
+
+    public static final String DEFAULT_BASE = "EUR";
+
+    private final AtomicReference<RateTable> table;
+
+    /**
+     * Only the default base currency
+     */
+    public FxRates() {
+        this(DEFAULT_BASE, Collections.emptyMap());
+    }
+
+    @Inject
+    public FxRates(Config config) {
+        this(config.getString("fx.base"), rates(config.getConfig("fx.rates")));
+    }
+
+    /**
+     * @param rates units of every currency per unit of the base currency
+     * @throws IllegalArgumentException - on an unknown currency code or a non-positive rate
+     */
+    public FxRates(String base, Map<String, BigDecimal> rates) {
+        this.table = new AtomicReference<>(new RateTable(1, base, rates));
+    }
+
+    public RateTable current() {
+        return table.get();
+    }
+
+    /**
+     * Replace all rates, currencies missing from the update can no longer be converted
+     *
+     * @param rates units of every currency per unit of the base currency
+     * @return published table
+     * @throws IllegalArgumentException - on an unknown currency code or a non-positive rate
+     */
+    public RateTable update(Map<String, BigDecimal> rates) {
+        while (true) {
+            RateTable current = table.get();
+            RateTable updated = new RateTable(current.getVersion() + 1, current.getBase(), rates);
+            if (table.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * @return current rates
+     */
+    public FxRatesResponse describe() {
+        RateTable current = table.get();
+        return new FxRatesResponse(current.getBase(), current.getVersion(), current.getRates());
+    }
+
+    private static Map<String, BigDecimal> rates(Config rates) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        rates.root().keySet().forEach(currency -> result.put(currency, new BigDecimal(rates.getString(currency))));
+        return result;
+    }
+}
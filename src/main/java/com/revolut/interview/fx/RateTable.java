@@ -0,0 +1,115 @@
+package com.revolut.interview.fx;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.exception.InvalidTransferException;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable version of exchange rates. The rate of every pair of currencies is computed once, when the table is
+ * built, as a fixed-point number of {@link #RATE_SCALE} decimal places, so a conversion is a single
+ * multiplication rounded down to the minor units of the target currency.
+ */
+public final class RateTable {
+
+    /**
+     * Decimal places of cross rates
+     */
+    static final int RATE_SCALE = 12;
+
+    @Getter
+    private final long version;
+
+    @Getter
+    private final String base;
+
+    /**
+     * Units of every currency per unit of the base currency, as given
+     */
+    @Getter
+    private final Map<String, BigDecimal> rates;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * Rate from currency i to currency j at [i][j]
+     */
+    private final BigDecimal[][] crossRates;
+
+    private final int[] fractionDigits;
+
+    /**
+     * @param rates units of every currency per unit of the base currency, the base currency itself is implied
+     * @throws IllegalArgumentException - on an unknown currency code or a non-positive rate
+     */
+    RateTable(long version, String base, Map<String, BigDecimal> rates) {
+        Map<String, BigDecimal> all = new LinkedHashMap<>();
+        all.put(checkCurrency(base), BigDecimal.ONE);
+        rates.forEach((currency, rate) -> {
+            Preconditions.checkArgument(rate != null && rate.signum() > 0, "Rate of %s must be positive", currency);
+            if (!currency.equals(base)) {
+                all.put(checkCurrency(currency), rate);
+            }
+        });
+        this.version = version;
+        this.base = base;
+        this.rates = Collections.unmodifiableMap(all);
+
+        String[] currencies = all.keySet().toArray(new String[0]);
+        crossRates = new BigDecimal[currencies.length][currencies.length];
+        fractionDigits = new int[currencies.length];
+        for (int i = 0; i < currencies.length; i++) {
+            indexes.put(currencies[i], i);
+            fractionDigits[i] = Math.max(0, Currency.getInstance(currencies[i]).getDefaultFractionDigits());
+            for (int j = 0; j < currencies.length; j++) {
+                crossRates[i][j] = all.get(currencies[j]).divide(all.get(currencies[i]), RATE_SCALE,
+                        RoundingMode.HALF_EVEN);
+            }
+        }
+    }
+
+    /**
+     * @return whether accounts can be held in the currency
+     */
+    public boolean supports(String currency) {
+        return indexes.containsKey(currency);
+    }
+
+    /**
+     * Convert an amount, rounding down to the minor units of the target currency
+     *
+     * @param from currency of the amount, the base currency when <code>null</code>
+     * @param to   target currency, the base currency when <code>null</code>
+     * @throws InvalidTransferException - when either currency has no rate
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to) {
+        from = from == null ? base : from;
+        to = to == null ? base : to;
+        if (from.equals(to)) {
+            return amount;
+        }
+        int target = index(to);
+        return amount.multiply(crossRates[index(from)][target]).setScale(fractionDigits[target], RoundingMode.DOWN);
+    }
+
+    private int index(String currency) {
+        Integer index = indexes.get(currency);
+        if (index == null) {
+            throw new InvalidTransferException("No exchange rate for " + currency);
+        }
+        return index;
+    }
+
+    private static String checkCurrency(String currency) {
+        Preconditions.checkArgument(currency != null, "Currency should be set");
+        // throws IllegalArgumentException on unknown codes
+        return Currency.getInstance(currency).getCurrencyCode();
+    }
+}
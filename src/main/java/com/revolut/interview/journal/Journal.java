@@ -0,0 +1,92 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.journal.JournalRecord.Type;
+import com.revolut.interview.model.Account;
+
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ordered stream of account changes. Writers append while holding the account lock, so records of the
+ * same account are in commit order, and the journal lock makes sequence order equal to delivery order.
+ * <p>
+ * Nothing is recorded until someone subscribes.
+ */
+@Singleton
+public class Journal {
+
+    private final List<JournalListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile long sequence;
+
+    /**
+     * Record account change, must be called by the thread currently mutating the account
+     *
+     * @param counterpartyId other account of a transfer, batch job of an adjustment,
+     *                       {@link JournalRecord#NO_COUNTERPARTY} otherwise
+     * @param amount         signed balance change
+     * @return sequence of the record or <code>0</code> when nobody listens
+     */
+    public long append(Type type, Account account, long counterpartyId, BigDecimal amount) {
+        return append(type, account, counterpartyId, amount, null);
+    }
+
+    /**
+     * Record account change made on behalf of a cross-node transfer
+     *
+     * @param reference transaction id, see {@link JournalRecord#getName()}
+     */
+    public long append(Type type, Account account, long counterpartyId, BigDecimal amount, String reference) {
+        if (listeners.isEmpty()) {
+            return 0;
+        }
+        String name = type == Type.CREATE ? account.getName() : reference;
+        String currency = type == Type.CREATE ? account.getCurrency() : null;
+        synchronized (this) {
+            JournalRecord record = new JournalRecord(sequence + 1, System.currentTimeMillis(), type,
+                    account.getId(), counterpartyId, amount, account.getAmount(), name, currency);
+            sequence = record.getSequence();
+            for (JournalListener listener : listeners) {
+                listener.onRecord(record);
+            }
+            return record.getSequence();
+        }
+    }
+
+    /**
+     * Wait until every listener acknowledges the record, see {@link JournalListener#awaitAcknowledged(long)}
+     *
+     * @param sequence record sequence returned by {@link #append}, <code>0</code> returns immediately
+     */
+    public void awaitAcknowledged(long sequence) {
+        if (sequence == 0) {
+            return;
+        }
+        for (JournalListener listener : listeners) {
+            listener.awaitAcknowledged(sequence);
+        }
+    }
+
+    /**
+     * Start delivering records to the listener
+     *
+     * @return sequence of the last record it will not receive
+     */
+    public synchronized long subscribe(JournalListener listener) {
+        listeners.add(listener);
+        return sequence;
+    }
+
+    public void unsubscribe(JournalListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return sequence of the last appended record
+     */
+    public long lastSequence() {
+        return sequence;
+    }
+}
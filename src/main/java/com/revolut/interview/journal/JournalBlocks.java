@@ -0,0 +1,181 @@
+package com.revolut.interview.journal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed, checksummed blocks of {@link JournalCodec} records, the unit in which {@link JournalLog} files are
+ * written and read. A block is framed as
+ * <pre>
+ * raw length, compressed length, CRC32 of the raw bytes (3 ints), deflated records
+ * </pre>
+ */
+final class JournalBlocks {
+
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * Larger lengths are read as corruption rather than allocated
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private JournalBlocks() {
+    }
+
+    /**
+     * @param deflater reset and reused, so compressing a block allocates only its frame
+     * @return framed block, ready to be written
+     */
+    static ByteBuffer frame(byte[] raw, int length, Deflater deflater) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        // deflate bound, stored blocks never exceed it
+        byte[] compressed = new byte[length + (length >> 12) + (length >> 14) + 64];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, length);
+        ByteBuffer block = ByteBuffer.allocate(HEADER_SIZE + compressedLength)
+                .putInt(length)
+                .putInt(compressedLength)
+                .putInt((int) crc.getValue());
+        block.put(compressed, 0, compressedLength);
+        block.flip();
+        return block;
+    }
+
+    /**
+     * Read records of every block of a file in order
+     *
+     * @param tornTail the file may end with a block torn by a crash, which is then ignored
+     * @param bytesRead called with the size of every block read, e.g. to throttle the reader
+     * @throws IOException - on a corrupted block
+     */
+    static void read(Path file, boolean tornTail, Consumer<JournalRecord> records, Consumer<Integer> bytesRead)
+            throws IOException {
+        try (Reader reader = new Reader(file, tornTail)) {
+            int size;
+            while ((size = reader.next(records)) >= 0) {
+                bytesRead.accept(size);
+            }
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int length, Inflater inflater)
+            throws DataFormatException, IOException {
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] raw = new byte[length];
+        int inflated = 0;
+        while (inflated < length && !inflater.finished()) {
+            int count = inflater.inflate(raw, inflated, length - inflated);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            inflated += count;
+        }
+        if (inflated != length) {
+            throw new IOException("Block inflated to " + inflated + " bytes instead of " + length);
+        }
+        return raw;
+    }
+
+    /**
+     * Reads blocks of a file one at a time
+     */
+    static class Reader implements Closeable {
+
+        private final Path file;
+
+        private final boolean tornTail;
+
+        private final InputStream in;
+
+        private final DataInputStream data;
+
+        private final Inflater inflater = new Inflater(true);
+
+        /**
+         * @param tornTail the file may end with a block torn by a crash, which is then ignored
+         */
+        Reader(Path file, boolean tornTail) throws IOException {
+            this.file = file;
+            this.tornTail = tornTail;
+            this.in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+            this.data = new DataInputStream(in);
+        }
+
+        /**
+         * Read records of the next block
+         *
+         * @return size of the block, <code>-1</code> at the end of the file
+         * @throws IOException - on a corrupted block
+         */
+        int next(Consumer<JournalRecord> records) throws IOException {
+            byte[] raw;
+            int size;
+            try {
+                int length;
+                try {
+                    length = data.readInt();
+                } catch (EOFException e) {
+                    return -1;
+                }
+                int compressedLength = data.readInt();
+                int crc = data.readInt();
+                if (length < 0 || length > MAX_BLOCK_SIZE || compressedLength < 0
+                        || compressedLength > MAX_BLOCK_SIZE) {
+                    throw new IOException("Invalid block length " + length + "/" + compressedLength);
+                }
+                byte[] compressed = new byte[compressedLength];
+                data.readFully(compressed);
+                raw = inflate(compressed, length, inflater);
+                CRC32 actual = new CRC32();
+                actual.update(raw);
+                if ((int) actual.getValue() != crc) {
+                    throw new IOException("Checksum mismatch");
+                }
+                size = HEADER_SIZE + compressedLength;
+            } catch (IOException | DataFormatException e) {
+                if (tornTail && in.available() == 0) {
+                    // the last block written before a crash, it was never acknowledged
+                    return -1;
+                }
+                throw new IOException("Corrupted block in " + file, e);
+            }
+            DataInputStream block = new DataInputStream(new ByteArrayInputStream(raw));
+            while (block.available() > 0) {
+                records.accept(JournalCodec.read(block));
+            }
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            data.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.journal.JournalRecord.Type;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Compact binary form of {@link JournalRecord}
+ */
+public final class JournalCodec {
+
+    private static final Type[] TYPES = Type.values();
+
+    private JournalCodec() {
+    }
+
+    public static void write(DataOutput out, JournalRecord record) throws IOException {
+        out.writeLong(record.getSequence());
+        out.writeLong(record.getTimestamp());
+        out.writeByte(record.getType().ordinal());
+        out.writeLong(record.getAccountId());
+        out.writeLong(record.getCounterpartyId());
+        writeDecimal(out, record.getAmount());
+        writeDecimal(out, record.getBalance());
+        out.writeBoolean(record.getName() != null);
+        if (record.getName() != null) {
+            out.writeUTF(record.getName());
+        }
+        out.writeBoolean(record.getCurrency() != null);
+        if (record.getCurrency() != null) {
+            out.writeUTF(record.getCurrency());
+        }
+    }
+
+    public static JournalRecord read(DataInput in) throws IOException {
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        int type = in.readUnsignedByte();
+        if (type >= TYPES.length) {
+            throw new IOException("Unknown record type " + type + " of record " + sequence);
+        }
+        long accountId = in.readLong();
+        long counterpartyId = in.readLong();
+        BigDecimal amount = readDecimal(in);
+        BigDecimal balance = readDecimal(in);
+        String name = in.readBoolean() ? in.readUTF() : null;
+        String currency = in.readBoolean() ? in.readUTF() : null;
+        return new JournalRecord(sequence, timestamp, TYPES[type], accountId, counterpartyId, amount, balance, name,
+                currency);
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
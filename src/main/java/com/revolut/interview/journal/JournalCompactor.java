@@ -0,0 +1,144 @@
+package com.revolut.interview.journal;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * Folds closed {@link JournalLog} segments into a snapshot holding a {@link JournalRecord.Type#SNAPSHOT} record
+ * of every account, named after the last segment it covers. The new snapshot is moved in place atomically before
+ * the folded segments and the previous snapshot are deleted, so a crash in between leaves files which are
+ * ignored on read and deleted by the next compaction.
+ */
+@Slf4j
+class JournalCompactor {
+
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final Path dir;
+
+    private final int compactAfter;
+
+    private final RateLimiter ioRate;
+
+    /**
+     * @param ioRate bytes per second
+     */
+    JournalCompactor(Path dir, int compactAfter, RateLimiter ioRate) {
+        this.dir = dir;
+        this.compactAfter = compactAfter;
+        this.ioRate = ioRate;
+    }
+
+    /**
+     * @param activeSegment segment being written, only lower ones are folded
+     * @return <code>true</code> when segments were compacted
+     */
+    boolean compact(long activeSegment) throws IOException {
+        Path snapshot = JournalLog.latestSnapshot(dir);
+        long covered = snapshot == null ? 0 : JournalLog.number(snapshot);
+        List<Path> segments = JournalLog.files(dir, JournalLog.SEGMENT).stream()
+                .filter(segment -> JournalLog.number(segment) > covered
+                        && JournalLog.number(segment) < activeSegment)
+                .collect(Collectors.toList());
+        if (segments.size() < compactAfter) {
+            return false;
+        }
+
+        Map<Long, JournalRecord> accounts = new TreeMap<>();
+        if (snapshot != null) {
+            JournalBlocks.read(snapshot, false, record -> accounts.put(record.getAccountId(), record),
+                    this::throttle);
+        }
+        for (Path segment : segments) {
+            JournalBlocks.read(segment, true, record -> fold(accounts, record), this::throttle);
+        }
+        long folded = JournalLog.number(segments.get(segments.size() - 1));
+        write(accounts, dir.resolve(JournalLog.fileName(folded, JournalLog.SNAPSHOT)));
+
+        for (Path file : JournalLog.files(dir, null)) {
+            long number = JournalLog.number(file);
+            if (number < folded || number == folded && file.toString().endsWith(JournalLog.SEGMENT)) {
+                Files.delete(file);
+            }
+        }
+        log.info("Compacted {} journal segments into a snapshot of {} accounts", segments.size(), accounts.size());
+        return true;
+    }
+
+    private static void fold(Map<Long, JournalRecord> accounts, JournalRecord record) {
+        JournalRecord created;
+        long lastJob;
+        switch (record.getType()) {
+            case CREATE:
+            case SNAPSHOT:
+                created = record;
+                lastJob = record.getCounterpartyId();
+                break;
+            default:
+                created = accounts.get(record.getAccountId());
+                if (created == null) {
+                    // account existed before the log was enabled, nothing to restore it from
+                    return;
+                }
+                // kept, so a batch job resumed after a crash still sees which accounts it adjusted
+                lastJob = record.getType() == JournalRecord.Type.ADJUSTMENT ? record.getCounterpartyId()
+                        : created.getCounterpartyId();
+        }
+        accounts.put(record.getAccountId(), new JournalRecord(record.getSequence(), record.getTimestamp(),
+                JournalRecord.Type.SNAPSHOT, record.getAccountId(), lastJob,
+                record.getBalance(), record.getBalance(), created.getName(), created.getCurrency()));
+    }
+
+    private void write(Map<Long, JournalRecord> accounts, Path snapshot) throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + (BLOCK_SIZE >> 2));
+            DataOutputStream out = new DataOutputStream(block);
+            for (JournalRecord record : accounts.values()) {
+                JournalCodec.write(out, record);
+                if (block.size() >= BLOCK_SIZE) {
+                    write(channel, block, deflater);
+                }
+            }
+            if (block.size() > 0) {
+                write(channel, block, deflater);
+            }
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(FileChannel channel, ByteArrayOutputStream block, Deflater deflater) throws IOException {
+        ByteBuffer framed = JournalBlocks.frame(block.toByteArray(), block.size(), deflater);
+        block.reset();
+        throttle(framed.remaining());
+        while (framed.hasRemaining()) {
+            channel.write(framed);
+        }
+    }
+
+    private void throttle(int bytes) {
+        if (bytes > 0) {
+            ioRate.acquire(bytes);
+        }
+    }
+}
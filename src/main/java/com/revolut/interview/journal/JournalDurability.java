@@ -0,0 +1,20 @@
+package com.revolut.interview.journal;
+
+/**
+ * When a change persisted by the {@link JournalLog} is acknowledged, selected with
+ * <code>journal.log.durability</code> setting
+ */
+public enum JournalDurability {
+
+    /**
+     * Once its block is fsync-ed, nothing acknowledged is lost on a crash. Records arriving while a block is
+     * written share the next fsync.
+     */
+    SYNC,
+
+    /**
+     * Once it is queued for the writer, unless the writer is more than <code>backlog</code> records behind.
+     * Up to <code>backlog</code> acknowledged changes are lost on a crash.
+     */
+    ASYNC
+}
@@ -0,0 +1,19 @@
+package com.revolut.interview.journal;
+
+/**
+ * Receives {@link Journal} records in sequence order
+ */
+public interface JournalListener {
+
+    /**
+     * Called while the journal is locked, must not block
+     */
+    void onRecord(JournalRecord record);
+
+    /**
+     * Block until the record with given sequence is safe by the listener's standards, called by
+     * the writer after releasing account locks
+     */
+    default void awaitAcknowledged(long sequence) {
+    }
+}
@@ -0,0 +1,496 @@
+package com.revolut.interview.journal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.interview.exception.HistoryCompactedException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Persists the {@link Journal} to <code>journal.log.dir</code> and restores accounts from it on start.
+ * Nothing is persisted when the setting is empty.
+ * <p>
+ * Records are handed over to a writer thread, which packs them into {@link JournalBlocks} of
+ * <code>blockSize</code>, compresses and fsync-s every block and rolls over to a new segment file after
+ * <code>segmentSize</code>. With {@link JournalDurability#SYNC} durability {@link #awaitAcknowledged} holds
+ * writers back until their records are on disk; with {@link JournalDurability#ASYNC} writers never wait for the
+ * disk unless the writer thread falls more than <code>backlog</code> records behind.
+ * <p>
+ * When the writer fails, the log stops listening to the journal and drops queued records: changes are no
+ * longer persisted, but neither held back nor piling up in memory.
+ * <p>
+ * Once <code>compactAfter</code> segments are closed, a compactor thread folds them into a snapshot of the
+ * last state of every account and deletes them. It runs every <code>compactEvery</code> and is throttled to
+ * <code>ioRate</code> bytes per second of reads and writes, so it does not compete with the writer for the disk.
+ * <p>
+ * A new segment is started on every start, the segment open during a crash may end with a torn block, which
+ * was never acknowledged and is ignored. Accounts must not exist before the log is first enabled, their earlier
+ * changes are not in it.
+ */
+@Slf4j
+@Singleton
+public class JournalLog implements JournalListener {
+
+    static final String SEGMENT = "segment";
+
+    static final String SNAPSHOT = "snapshot";
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d{20})\\.(" + SEGMENT + "|" + SNAPSHOT + ")");
+
+    /**
+     * Partial blocks are written once no record comes for this long
+     */
+    private static final long IDLE_FLUSH_MILLIS = 5;
+
+    private final Journal journal;
+
+    private final AccountRepository repository;
+
+    private final Path dir;
+
+    private final long segmentSize;
+
+    private final int blockSize;
+
+    private final long backlog;
+
+    private final JournalDurability durability;
+
+    private final long compactEveryMillis;
+
+    private final JournalCompactor compactor;
+
+    private final BlockingQueue<JournalRecord> queue = new LinkedBlockingQueue<>();
+
+    private final Object progress = new Object();
+
+    /**
+     * Sequence of the last record on disk
+     */
+    private volatile long written;
+
+    /**
+     * Number of the segment being written, lower ones are closed
+     */
+    private volatile long activeSegment;
+
+    /**
+     * Set when the writer failed, records are no longer persisted and writers no longer held back
+     */
+    private volatile boolean failed;
+
+    private volatile boolean stopping;
+
+    private Thread writer;
+
+    private ScheduledExecutorService compaction;
+
+    @Inject
+    public JournalLog(Journal journal, AccountRepository repository, Config config) {
+        this(journal, repository,
+                Strings.isNullOrEmpty(config.getString("journal.log.dir")) ? null
+                        : Paths.get(config.getString("journal.log.dir")),
+                config.getBytes("journal.log.segmentSize"),
+                config.getBytes("journal.log.blockSize").intValue(),
+                config.getLong("journal.log.backlog"),
+                config.getEnum(JournalDurability.class, "journal.log.durability"),
+                config.getInt("journal.log.compactAfter"),
+                config.getDuration("journal.log.compactEvery", TimeUnit.MILLISECONDS),
+                config.getBytes("journal.log.ioRate"));
+    }
+
+    /**
+     * @param dir            log directory, <code>null</code> to persist nothing
+     * @param compactAfter   closed segments folded into the snapshot at once
+     * @param ioRateBytes    compaction reads and writes per second
+     */
+    public JournalLog(Journal journal, AccountRepository repository, Path dir, long segmentSize, int blockSize,
+                      long backlog, JournalDurability durability, int compactAfter, long compactEveryMillis,
+                      long ioRateBytes) {
+        Preconditions.checkArgument(segmentSize > 0 && blockSize > 0 && backlog > 0 && compactAfter > 0
+                        && compactEveryMillis > 0 && ioRateBytes > 0,
+                "Journal log sizes, backlog, compaction and IO rate must be positive");
+        Preconditions.checkArgument(blockSize <= JournalBlocks.MAX_BLOCK_SIZE, "Block size is too large");
+        this.journal = journal;
+        this.repository = repository;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.blockSize = blockSize;
+        this.backlog = backlog;
+        this.durability = durability;
+        this.compactEveryMillis = compactEveryMillis;
+        this.compactor = new JournalCompactor(dir, compactAfter, RateLimiter.create(ioRateBytes));
+    }
+
+    /**
+     * Restore accounts from the log and start persisting the journal
+     */
+    public synchronized void start() throws IOException {
+        if (dir == null || writer != null) {
+            return;
+        }
+        Files.createDirectories(dir);
+        List<JournalRecord> records = read(dir);
+        for (JournalRecord record : records) {
+            restore(record);
+        }
+        long lastFile = files(dir, null).stream().mapToLong(JournalLog::number).max().orElse(0);
+        FileChannel channel = open(lastFile + 1);
+        log.info("Restored {} accounts from {} journal records in {}", repository.getAll().size(), records.size(),
+                dir);
+
+        stopping = false;
+        failed = false;
+        written = journal.subscribe(this);
+        writer = new ThreadFactoryBuilder().setNameFormat("journal-writer").setDaemon(true).build()
+                .newThread(() -> write(channel));
+        writer.start();
+        compaction = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("journal-compactor").setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+        compaction.scheduleWithFixedDelay(this::compact, compactEveryMillis, compactEveryMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop once every record received so far is on disk
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        journal.unsubscribe(this);
+        compaction.shutdownNow();
+        stopping = true;
+        writer.join(TimeUnit.MINUTES.toMillis(1));
+        compaction.awaitTermination(1, TimeUnit.MINUTES);
+        writer = null;
+    }
+
+    @Override
+    public void onRecord(JournalRecord record) {
+        if (!failed) {
+            queue.add(record);
+        }
+    }
+
+    @Override
+    public void awaitAcknowledged(long sequence) {
+        long pending = durability == JournalDurability.SYNC ? 0 : backlog;
+        if (sequence - written <= pending) {
+            return;
+        }
+        synchronized (progress) {
+            while (sequence - written > pending && !failed && !stopping) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fold closed segments into the snapshot if there are enough of them
+     *
+     * @return <code>true</code> when segments were compacted
+     */
+    boolean compact() {
+        try {
+            return compactor.compact(activeSegment);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Journal compaction in {} failed, retrying in {} ms", dir, compactEveryMillis, e);
+            return false;
+        }
+    }
+
+    /**
+     * Read changes still kept in segments, changes folded into the snapshot are no longer available one by one
+     *
+     * @param fromMillis segments last written before this time are skipped
+     * @return reader of records in sequence order
+     * @throws IllegalStateException      - when the log is not enabled
+     * @throws HistoryCompactedException - when changes since <code>fromMillis</code> may be folded into the snapshot
+     */
+    public JournalLogReader segments(long fromMillis) throws IOException {
+        Preconditions.checkState(dir != null, "Account history needs journal.log.dir to be set");
+        checkHistory(fromMillis);
+        List<Path> segments = new ArrayList<>();
+        for (Path segment : files(dir, SEGMENT)) {
+            try {
+                if (Files.getLastModifiedTime(segment).toMillis() >= fromMillis) {
+                    segments.add(segment);
+                }
+            } catch (NoSuchFileException e) {
+                // folded into the snapshot meanwhile, checked below
+            }
+        }
+        checkHistory(fromMillis);
+        return new JournalLogReader(segments);
+    }
+
+    /**
+     * Snapshot is written after the last change it folds, changes since it was written are all kept in segments
+     */
+    private void checkHistory(long fromMillis) throws IOException {
+        Path snapshot = latestSnapshot(dir);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            long compactedMillis = Files.getLastModifiedTime(snapshot).toMillis();
+            if (compactedMillis > fromMillis) {
+                throw new HistoryCompactedException("Account history is kept since "
+                        + Instant.ofEpochMilli(compactedMillis));
+            }
+        } catch (NoSuchFileException e) {
+            // replaced by a newer snapshot meanwhile
+            checkHistory(fromMillis);
+        }
+    }
+
+    /**
+     * Accounts a batch job changed, as persisted: from adjustments still kept in segments and, for those folded
+     * into the snapshot, the job which last adjusted every account
+     *
+     * @return ids of accounts, empty when the log is not enabled
+     */
+    public Set<Long> adjustedBy(long jobId) throws IOException {
+        Set<Long> accounts = new HashSet<>();
+        if (dir == null) {
+            return accounts;
+        }
+        Path snapshot = latestSnapshot(dir);
+        long covered = snapshot == null ? 0 : number(snapshot);
+        Consumer<JournalRecord> collect = record -> {
+            if (record.getCounterpartyId() == jobId && (record.getType() == JournalRecord.Type.ADJUSTMENT
+                    || record.getType() == JournalRecord.Type.SNAPSHOT)) {
+                accounts.add(record.getAccountId());
+            }
+        };
+        try {
+            if (snapshot != null) {
+                JournalBlocks.read(snapshot, false, collect, bytes -> {
+                });
+            }
+            for (Path segment : files(dir, SEGMENT)) {
+                if (number(segment) > covered) {
+                    JournalBlocks.read(segment, true, collect, bytes -> {
+                    });
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // compacted meanwhile, the new snapshot covers it
+            return adjustedBy(jobId);
+        }
+        return accounts;
+    }
+
+    /**
+     * Whether a withdrawal made on behalf of a cross-node transaction is persisted. Only segments are searched,
+     * the snapshot keeps no transaction ids: a withdrawal is found as long as the segment it was written to is not
+     * compacted, and compaction folds only closed segments, starting {@link #start() after} recovery.
+     *
+     * @param reference transaction id, see {@link JournalRecord#getName()}
+     * @return <code>false</code> also when the log is not enabled, then no change survives a restart anyway
+     */
+    public boolean withdrawn(String reference) throws IOException {
+        if (dir == null) {
+            return false;
+        }
+        Path snapshot = latestSnapshot(dir);
+        long covered = snapshot == null ? 0 : number(snapshot);
+        boolean[] found = new boolean[1];
+        Consumer<JournalRecord> search = record -> {
+            if (record.getType() == JournalRecord.Type.WITHDRAWAL && reference.equals(record.getName())) {
+                found[0] = true;
+            }
+        };
+        try {
+            for (Path segment : files(dir, SEGMENT)) {
+                if (number(segment) > covered && !found[0]) {
+                    JournalBlocks.read(segment, true, search, bytes -> {
+                    });
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // compacted meanwhile
+            return withdrawn(reference);
+        }
+        return found[0];
+    }
+
+    /**
+     * @return records of a log directory in order: the snapshot, then records of segments it does not cover
+     */
+    public static List<JournalRecord> read(Path dir) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        Path snapshot = latestSnapshot(dir);
+        long covered = snapshot == null ? 0 : number(snapshot);
+        if (snapshot != null) {
+            JournalBlocks.read(snapshot, false, records::add, bytes -> {
+            });
+        }
+        for (Path segment : files(dir, SEGMENT)) {
+            if (number(segment) > covered) {
+                JournalBlocks.read(segment, true, records::add, bytes -> {
+                });
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @param type file type, <code>null</code> for any
+     * @return log files sorted by number
+     */
+    static List<Path> files(Path dir, String type) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(file -> {
+                        Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+                        return name.matches() && (type == null || type.equals(name.group(2)));
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static Path latestSnapshot(Path dir) throws IOException {
+        List<Path> snapshots = files(dir, SNAPSHOT);
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * @return segment number, or for a snapshot the last segment it covers
+     */
+    static long number(Path file) {
+        Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+        Preconditions.checkArgument(name.matches(), "Not a journal log file: %s", file);
+        return Long.parseLong(name.group(1));
+    }
+
+    static String fileName(long number, String type) {
+        return String.format("%020d.%s", number, type);
+    }
+
+    private void restore(JournalRecord record) {
+        switch (record.getType()) {
+            case CREATE:
+            case SNAPSHOT:
+                repository.restore(record.getAccountId(), record.getName(), record.getCurrency(),
+                        record.getBalance());
+                break;
+            default:
+                Account account = repository.getById(record.getAccountId());
+                if (account != null) {
+                    account.setAmount(record.getBalance());
+                }
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(fileName(segment, SEGMENT)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = segment;
+        return channel;
+    }
+
+    private void write(FileChannel first) {
+        FileChannel channel = first;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + (blockSize >> 2));
+        DataOutputStream out = new DataOutputStream(block);
+        long last = written;
+        try {
+            while (true) {
+                JournalRecord record = queue.poll();
+                if (record == null && (block.size() == 0 || durability == JournalDurability.ASYNC)) {
+                    // nobody waits for a partial block of an asynchronous log, more records may fill it
+                    record = queue.poll(IDLE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (record != null) {
+                    JournalCodec.write(out, record);
+                    last = record.getSequence();
+                    if (block.size() < blockSize) {
+                        continue;
+                    }
+                } else if (block.size() == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    continue;
+                }
+                ByteBuffer framed = JournalBlocks.frame(block.toByteArray(), block.size(), deflater);
+                block.reset();
+                while (framed.hasRemaining()) {
+                    channel.write(framed);
+                }
+                channel.force(false);
+                acknowledge(last);
+                if (channel.size() >= segmentSize) {
+                    channel.close();
+                    channel = open(activeSegment + 1);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Journal log writer failed, account changes are no longer persisted to {}", dir, e);
+            failed = true;
+            journal.unsubscribe(this);
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Cannot close journal segment in {}", dir, e);
+            }
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private void acknowledge(long sequence) {
+        written = sequence;
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+}
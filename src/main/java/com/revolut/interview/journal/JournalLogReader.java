@@ -0,0 +1,65 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.exception.HistoryCompactedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Reads records of {@link JournalLog} segments in order, keeping a single block in memory. A segment folded into
+ * the snapshot before the reader gets to it fails the read, records are never skipped.
+ */
+public class JournalLogReader implements Closeable {
+
+    private final Iterator<Path> segments;
+
+    private final Queue<JournalRecord> block = new ArrayDeque<>();
+
+    private JournalBlocks.Reader reader;
+
+    JournalLogReader(List<Path> segments) {
+        this.segments = segments.iterator();
+    }
+
+    /**
+     * @return next record, <code>null</code> after the last one
+     * @throws IOException                - on a corrupted block
+     * @throws HistoryCompactedException - when a segment was folded into the snapshot meanwhile
+     */
+    public JournalRecord next() throws IOException {
+        while (block.isEmpty()) {
+            if (reader == null) {
+                if (!segments.hasNext()) {
+                    return null;
+                }
+                Path segment = segments.next();
+                try {
+                    // the active segment may end with a block being written
+                    reader = new JournalBlocks.Reader(segment, true);
+                } catch (NoSuchFileException e) {
+                    throw new HistoryCompactedException("Account history in " + segment.getFileName()
+                            + " was compacted while being read");
+                }
+            }
+            if (reader.next(block::add) < 0) {
+                reader.close();
+                reader = null;
+            }
+        }
+        return block.poll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.revolut.interview.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Single committed change of an account. Records carry the resulting balance, so applying them in
+ * sequence order reproduces the state and re-applying an already applied record is harmless.
+ */
+@Data
+@AllArgsConstructor
+public class JournalRecord {
+
+    public enum Type {
+        /**
+         * Account was created, {@link #getAmount()} is the initial amount
+         */
+        CREATE,
+        DEPOSIT,
+        WITHDRAWAL,
+        /**
+         * One leg of a transfer, negative amount for the source account
+         */
+        TRANSFER,
+        /**
+         * Compensation of a transfer leg that could not be completed
+         */
+        REVERSAL,
+        /**
+         * Current state of an account, sent to a follower when it connects
+         */
+        SNAPSHOT,
+        /**
+         * Change made by a batch job, e.g. interest or a fee
+         */
+        ADJUSTMENT
+    }
+
+    public static final long NO_COUNTERPARTY = 0;
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final Type type;
+
+    private final long accountId;
+
+    /**
+     * Other account of a {@link Type#TRANSFER} or {@link Type#REVERSAL}, batch job which made an
+     * {@link Type#ADJUSTMENT}, for a {@link Type#SNAPSHOT} the batch job which last adjusted the account, otherwise
+     * {@link #NO_COUNTERPARTY}
+     */
+    private final long counterpartyId;
+
+    /**
+     * Signed balance change
+     */
+    private final BigDecimal amount;
+
+    private final BigDecimal balance;
+
+    /**
+     * Account name for {@link Type#CREATE} and {@link Type#SNAPSHOT}, id of the cross-node transaction of a
+     * {@link Type#WITHDRAWAL} made by one, <code>null</code> otherwise
+     */
+    private final String name;
+
+    /**
+     * Account currency for {@link Type#CREATE} and {@link Type#SNAPSHOT}, <code>null</code> otherwise. Amounts
+     * are always in the currency of the account.
+     */
+    private final String currency;
+}
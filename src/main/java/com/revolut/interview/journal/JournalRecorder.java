@@ -0,0 +1,112 @@
+package com.revolut.interview.journal;
+
+import com.google.common.base.Strings;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the {@link Journal} to <code>journal.record</code> in {@link JournalCodec} form, e.g. to replay
+ * production traffic with {@link com.revolut.interview.replay.JournalReplay}. Records are buffered and reach
+ * the file at the latest when the recorder is stopped. Nothing is recorded when the setting is empty.
+ * <p>
+ * Records are written while the account is being changed, so a failed write stops the recording instead of
+ * failing the change.
+ */
+@Slf4j
+@Singleton
+public class JournalRecorder implements JournalListener {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Journal journal;
+
+    private final Path file;
+
+    private DataOutputStream out;
+
+    @Inject
+    public JournalRecorder(Journal journal, Config config) {
+        this(journal, Strings.isNullOrEmpty(config.getString("journal.record")) ? null
+                : Paths.get(config.getString("journal.record")));
+    }
+
+    /**
+     * @param file recording, overwritten on start, <code>null</code> to record nothing
+     */
+    public JournalRecorder(Journal journal, Path file) {
+        this.journal = journal;
+        this.file = file;
+    }
+
+    public synchronized void start() throws IOException {
+        if (file == null || out != null) {
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+        journal.subscribe(this);
+        log.info("Recording journal to {}", file);
+    }
+
+    public synchronized void stop() throws IOException {
+        if (out == null) {
+            return;
+        }
+        journal.unsubscribe(this);
+        out.close();
+        out = null;
+    }
+
+    @Override
+    public synchronized void onRecord(JournalRecord record) {
+        if (out == null) {
+            return;
+        }
+        try {
+            JournalCodec.write(out, record);
+        } catch (IOException e) {
+            log.error("Cannot record journal to {}, recording stopped", file, e);
+            journal.unsubscribe(this);
+            try {
+                out.close();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * @return records of a recording in sequence order
+     */
+    public static List<JournalRecord> read(Path file) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE))) {
+            while (true) {
+                try {
+                    records.add(JournalCodec.read(data));
+                } catch (EOFException e) {
+                    return records;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.revolut.interview.limit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Limit of debits of an account over a sliding window
+ */
+@Data
+@AllArgsConstructor
+public class VelocityLimit {
+
+    private final Duration period;
+
+    /**
+     * Max debited amount, zero for no limit
+     */
+    private final BigDecimal maxAmount;
+
+    /**
+     * Max number of debits, zero for no limit
+     */
+    private final long maxCount;
+}
@@ -0,0 +1,200 @@
+package com.revolut.interview.limit;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.exception.VelocityLimitExceededException;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Per-account limits of debited amount and number of debits over sliding windows, e.g. at most 1000 per day.
+ * <p>
+ * Every window is split into {@link #BUCKETS} buckets and slides one bucket at a time. An account has a fixed
+ * array of counters, one per bucket of every window and counted value, each packing the bucket it belongs to
+ * with its value into a single <code>long</code>, so counters are updated with a CAS and stale buckets are
+ * recognized and reset in place. A debit is added first and checked against the window sum after, and taken
+ * back if over the limit: concurrent debits of one account may reject each other near the limit, but can
+ * never exceed it together. Checks run before account locks are taken and do not allocate.
+ */
+@Singleton
+public class VelocityLimits {
+
+    static final int BUCKETS = 10;
+
+    private static final int TAG_BITS = 20;
+
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+
+    /**
+     * Max value of a counter, amounts above are rejected by amount limits
+     */
+    static final long MAX_VALUE = (1L << (Long.SIZE - TAG_BITS - 1)) - 1;
+
+    private static final int AMOUNT = 0;
+
+    private static final int COUNT = 1;
+
+    private final int scale;
+
+    private final long[] bucketMillis;
+
+    /**
+     * Limits of window i: amount at 2i, count at 2i + 1, zero for no limit
+     */
+    private final long[] max;
+
+    private final ConcurrentMap<Long, AtomicLongArray> counters = new ConcurrentHashMap<>();
+
+    /**
+     * No limits
+     */
+    public VelocityLimits() {
+        this(0, Collections.emptyList());
+    }
+
+    @Inject
+    public VelocityLimits(Config config) {
+        this(config.getInt("transfer.limits.scale"), config.getConfigList("transfer.limits.windows").stream()
+                .map(window -> new VelocityLimit(
+                        window.getDuration("period"),
+                        new BigDecimal(window.getString("maxAmount")),
+                        window.getLong("maxCount")))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @param scale amounts are counted in units of 10^-scale, fractions of a unit are rounded up
+     */
+    public VelocityLimits(int scale, List<VelocityLimit> limits) {
+        Preconditions.checkArgument(scale >= 0, "Scale cannot be negative");
+        this.scale = scale;
+        this.bucketMillis = new long[limits.size()];
+        this.max = new long[limits.size() * 2];
+        for (int i = 0; i < limits.size(); i++) {
+            VelocityLimit limit = limits.get(i);
+            bucketMillis[i] = limit.getPeriod().toMillis() / BUCKETS;
+            Preconditions.checkArgument(bucketMillis[i] > 0, "Limit period must be at least %sms", BUCKETS);
+            Preconditions.checkArgument(limit.getMaxAmount().signum() >= 0 && limit.getMaxCount() >= 0,
+                    "Limits cannot be negative");
+            max[2 * i + AMOUNT] = units(limit.getMaxAmount());
+            max[2 * i + COUNT] = limit.getMaxCount();
+            Preconditions.checkArgument(max[2 * i + AMOUNT] <= MAX_VALUE && max[2 * i + COUNT] <= MAX_VALUE,
+                    "Limits must be below %s units", MAX_VALUE);
+        }
+    }
+
+    public boolean isEnabled() {
+        return bucketMillis.length > 0;
+    }
+
+    /**
+     * Count a debit of the account
+     *
+     * @return time the debit is counted at, to {@link #release} it
+     * @throws VelocityLimitExceededException - when the debit would exceed a limit of the account
+     */
+    public long acquire(long accountId, BigDecimal amount) {
+        long now = System.currentTimeMillis();
+        if (!isEnabled()) {
+            return now;
+        }
+        long units = units(amount);
+        AtomicLongArray cells = counters.computeIfAbsent(accountId, id -> new AtomicLongArray(max.length * BUCKETS));
+        for (int limit = 0; limit < max.length; limit++) {
+            long value = limit % 2 == AMOUNT ? units : 1;
+            long bucket = now / bucketMillis[limit / 2];
+            if (max[limit] > 0 && (value > max[limit] || !tryAdd(cells, limit, bucket, value))) {
+                for (int acquired = 0; acquired < limit; acquired++) {
+                    if (max[acquired] > 0) {
+                        add(cells, acquired, now / bucketMillis[acquired / 2],
+                                -(acquired % 2 == AMOUNT ? units : 1), false);
+                    }
+                }
+                throw new VelocityLimitExceededException("Limit of " + (limit % 2 == AMOUNT
+                        ? BigDecimal.valueOf(max[limit], scale).toPlainString() + " debited" : max[limit] + " debits")
+                        + " per " + Duration.ofMillis(bucketMillis[limit / 2] * BUCKETS)
+                        + " exceeded on account #" + accountId);
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Take back a debit which did not happen
+     *
+     * @param acquiredAt value returned by {@link #acquire}
+     */
+    public void release(long accountId, BigDecimal amount, long acquiredAt) {
+        AtomicLongArray cells = counters.get(accountId);
+        if (cells == null) {
+            return;
+        }
+        long units = units(amount);
+        for (int limit = 0; limit < max.length; limit++) {
+            if (max[limit] > 0) {
+                add(cells, limit, acquiredAt / bucketMillis[limit / 2], -(limit % 2 == AMOUNT ? units : 1), false);
+            }
+        }
+    }
+
+    private boolean tryAdd(AtomicLongArray cells, int limit, long bucket, long value) {
+        add(cells, limit, bucket, value, true);
+        if (sum(cells, limit, bucket) <= max[limit]) {
+            return true;
+        }
+        add(cells, limit, bucket, -value, false);
+        return false;
+    }
+
+    /**
+     * @param reset start the bucket from zero if its cell holds an older one, otherwise leave it unchanged
+     */
+    private static void add(AtomicLongArray cells, int limit, long bucket, long delta, boolean reset) {
+        int cell = limit * BUCKETS + (int) (bucket % BUCKETS);
+        long tag = bucket & TAG_MASK;
+        while (true) {
+            long current = cells.get(cell);
+            long value;
+            if ((current & TAG_MASK) == tag) {
+                value = current >>> TAG_BITS;
+            } else if (reset) {
+                value = 0;
+            } else {
+                return;
+            }
+            long updated = Math.max(0, Math.min(MAX_VALUE, value + delta)) << TAG_BITS | tag;
+            if (cells.compareAndSet(cell, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return sum of the buckets of the window ending with <code>bucket</code>
+     */
+    private static long sum(AtomicLongArray cells, int limit, long bucket) {
+        long sum = 0;
+        for (long previous = bucket; previous > bucket - BUCKETS; previous--) {
+            long current = cells.get(limit * BUCKETS + (int) (previous % BUCKETS));
+            if ((current & TAG_MASK) == (previous & TAG_MASK)) {
+                sum += current >>> TAG_BITS;
+            }
+        }
+        return sum;
+    }
+
+    private long units(BigDecimal amount) {
+        BigDecimal units = amount.movePointRight(scale).setScale(0, RoundingMode.CEILING);
+        return units.compareTo(BigDecimal.valueOf(MAX_VALUE)) > 0 ? Long.MAX_VALUE : units.longValueExact();
+    }
+}
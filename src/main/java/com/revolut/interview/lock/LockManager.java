@@ -0,0 +1,36 @@
+package com.revolut.interview.lock;
+
+import com.revolut.interview.exception.AccountBusyException;
+
+/**
+ * Exclusive locks on accounts, keyed by account id
+ */
+public interface LockManager {
+
+    /**
+     * Lock accounts for a single operation. Locks are taken in a globally consistent order,
+     * so concurrent multi-account operations cannot deadlock.
+     *
+     * @param accountIds ids of accounts to lock, duplicates are allowed
+     * @return handle releasing all the locks on close
+     * @throws AccountBusyException - when locks could not be acquired before the deadline
+     */
+    Locked lock(long... accountIds);
+
+    /**
+     * Lock an account only if nobody, including the current thread, holds its lock right now.
+     * Never waits, so it is safe to call while holding other account locks.
+     *
+     * @return handle releasing the lock on close or <code>null</code> when the lock is not free
+     */
+    Locked tryLock(long accountId);
+
+    /**
+     * Acquired locks, to be used in try-with-resources
+     */
+    interface Locked extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,19 @@
+package com.revolut.interview.lock;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ReentrantLock} padded to a cache line.
+ * <p>
+ * Lock state lives in the synchronizer allocated right after the lock object, so the padding keeps
+ * synchronizers of neighbouring stripes on different cache lines.
+ */
+@SuppressWarnings("unused")
+final class PaddedReentrantLock extends ReentrantLock {
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    PaddedReentrantLock(boolean fair) {
+        super(fair);
+    }
+}
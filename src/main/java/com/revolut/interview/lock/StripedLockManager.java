@@ -0,0 +1,126 @@
+package com.revolut.interview.lock;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.exception.AccountBusyException;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LockManager} backed by a fixed table of padded {@link PaddedReentrantLock}s.
+ * <p>
+ * An account is guarded by the stripe its id hashes to. Multi-account operations lock stripes in
+ * ascending index order, and every acquisition shares a single deadline: once it passes, already taken
+ * locks are released and {@link AccountBusyException} is thrown instead of waiting further.
+ */
+@Singleton
+public class StripedLockManager implements LockManager {
+
+    public static final int DEFAULT_STRIPES = 4096;
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 500;
+
+    private final PaddedReentrantLock[] stripes;
+
+    private final int mask;
+
+    private final long timeoutNanos;
+
+    private final long retryAfterSeconds;
+
+    @Inject
+    public StripedLockManager(Config config) {
+        this(config.getInt("transfer.lock.stripes"),
+                config.getDuration("transfer.lock.timeout", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS,
+                config.getBoolean("transfer.lock.fair"));
+    }
+
+    public StripedLockManager() {
+        this(DEFAULT_STRIPES, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, false);
+    }
+
+    public StripedLockManager(int stripes, long timeout, TimeUnit unit, boolean fair) {
+        Preconditions.checkArgument(stripes > 0 && Integer.bitCount(stripes) == 1,
+                "Stripes count must be a power of two");
+        this.stripes = new PaddedReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new PaddedReentrantLock(fair);
+        }
+        this.mask = stripes - 1;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.retryAfterSeconds = Math.max(1, unit.toSeconds(timeout));
+    }
+
+    @Override
+    public Locked lock(long... accountIds) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        if (accountIds.length == 1) {
+            PaddedReentrantLock lock = stripes[stripe(accountIds[0])];
+            if (!acquire(lock, deadline)) {
+                throw busy(accountIds);
+            }
+            return lock::unlock;
+        }
+
+        int[] order = new int[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            order[i] = stripe(accountIds[i]);
+        }
+        Arrays.sort(order);
+
+        int acquired = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i > 0 && order[i] == order[i - 1]) {
+                continue;
+            }
+            if (!acquire(stripes[order[i]], deadline)) {
+                unlock(order, acquired);
+                throw busy(accountIds);
+            }
+            order[acquired++] = order[i];
+        }
+        int count = acquired;
+        return () -> unlock(order, count);
+    }
+
+    @Override
+    public Locked tryLock(long accountId) {
+        PaddedReentrantLock lock = stripes[stripe(accountId)];
+        if (lock.isHeldByCurrentThread() || !lock.tryLock()) {
+            return null;
+        }
+        return lock::unlock;
+    }
+
+    int stripe(long accountId) {
+        // spread consecutive ids over the table, Long.hashCode alone would keep them adjacent
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private boolean acquire(PaddedReentrantLock lock, long deadline) {
+        try {
+            return lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private AccountBusyException busy(long[] accountIds) {
+        StringBuilder message = new StringBuilder("Account");
+        for (long accountId : accountIds) {
+            message.append(" #").append(accountId);
+        }
+        return new AccountBusyException(message.append(" is busy, retry later").toString(), retryAfterSeconds);
+    }
+
+    private void unlock(int[] stripeIndexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+}
@@ -13,5 +13,10 @@ public class Account {
 
     private final String name;
 
+    /**
+     * ISO 4217 code
+     */
+    private final String currency;
+
     private BigDecimal amount;
 }
@@ -0,0 +1,24 @@
+package com.revolut.interview.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Funds of an account reserved for a later transfer to another account
+ */
+@Data
+@AllArgsConstructor
+public class Hold {
+
+    private final long id;
+
+    private final long accountId;
+
+    private final long toAccountId;
+
+    private final BigDecimal amount;
+
+    private final long expiresAtMillis;
+}
@@ -0,0 +1,45 @@
+package com.revolut.interview.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a request answered with an error
+ */
+@Name("com.revolut.interview.Rejection")
+@Label("Rejection")
+@Category({"Revolut Interview", "Requests"})
+@Description("Request answered with an error status")
+@StackTrace(false)
+public class RejectionEvent extends jdk.jfr.Event {
+
+    @Label("Type")
+    @Description("Exception the request failed with")
+    private String type;
+
+    @Label("Status")
+    private int status;
+
+    @Label("Method")
+    private String method;
+
+    @Label("Route")
+    private String route;
+
+    /**
+     * Record a rejection if rejections are recorded
+     */
+    public static void emit(Throwable cause, int status, String method, String route) {
+        RejectionEvent event = new RejectionEvent();
+        if (event.isEnabled()) {
+            event.type = cause.getClass().getSimpleName();
+            event.status = status;
+            event.method = method;
+            event.route = route;
+            event.commit();
+        }
+    }
+}
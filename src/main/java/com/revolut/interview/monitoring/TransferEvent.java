@@ -0,0 +1,94 @@
+package com.revolut.interview.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.math.BigDecimal;
+
+/**
+ * Flight Recorder event of a balance mutation. Fields which cost anything to compute are only set when the event
+ * is going to be committed, so with recording off an operation pays for an allocation the JIT usually removes.
+ */
+@Name("com.revolut.interview.Transfer")
+@Label("Transfer")
+@Category({"Revolut Interview", "Transfers"})
+@Description("Deposit, withdrawal or transfer")
+@StackTrace(false)
+public class TransferEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    private final String operation;
+
+    @Label("Account")
+    private final long accountId;
+
+    @Label("Counterparty")
+    @Description("Target account of a transfer, 0 otherwise")
+    private final long counterpartyId;
+
+    @Label("Amount Magnitude")
+    @Description("Decimal exponent of the amount, e.g. 2 for amounts from 100 to 999.99")
+    private int amountMagnitude;
+
+    @Label("Lock Wait")
+    @Description("Time spent waiting for exclusive access to the accounts")
+    @Timespan
+    private long lockWait;
+
+    @Label("Outcome")
+    @Description("OK or the exception the operation failed with")
+    private String outcome;
+
+    private transient Class<?> failure;
+
+    private TransferEvent(String operation, long accountId, long counterpartyId) {
+        this.operation = operation;
+        this.accountId = accountId;
+        this.counterpartyId = counterpartyId;
+    }
+
+    /**
+     * @param counterpartyId target account of a transfer, 0 otherwise
+     */
+    public static TransferEvent start(String operation, long accountId, long counterpartyId) {
+        TransferEvent event = new TransferEvent(operation, accountId, counterpartyId);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return start time of a lock wait, 0 when the event is not recorded
+     */
+    public long lockWaitStart() {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param startNanos value of {@link #lockWaitStart()}
+     */
+    public void lockAcquired(long startNanos) {
+        if (startNanos != 0) {
+            lockWait = System.nanoTime() - startNanos;
+        }
+    }
+
+    public void failed(RuntimeException e) {
+        failure = e.getClass();
+    }
+
+    /**
+     * End the event and commit it if recorded
+     */
+    public void finish(BigDecimal amount) {
+        end();
+        if (shouldCommit()) {
+            amountMagnitude = amount == null || amount.signum() == 0 ? 0 : amount.precision() - amount.scale() - 1;
+            outcome = failure == null ? "OK" : failure.getSimpleName();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.revolut.interview.pipeline;
+
+import com.revolut.interview.dto.TransferStatusResponse;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transfer submitted to the {@link TransferPipeline}. Processed by a single shard thread, other threads only
+ * read it.
+ */
+@Getter
+class PendingTransfer {
+
+    enum Status {
+        QUEUED,
+        COMPLETED,
+        FAILED
+    }
+
+    private final long id;
+
+    private final long fromAccountId;
+
+    private final long toAccountId;
+
+    private final BigDecimal amount;
+
+    private final String callbackUrl;
+
+    /**
+     * Completed once the transfer is processed
+     */
+    private final CompletableFuture<TransferStatusResponse> done = new CompletableFuture<>();
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile String error;
+
+    private volatile long finishedAtMillis;
+
+    PendingTransfer(long id, long fromAccountId, long toAccountId, BigDecimal amount, String callbackUrl) {
+        this.id = id;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.callbackUrl = callbackUrl;
+    }
+
+    /**
+     * @param error failure message or <code>null</code> if the transfer succeeded
+     */
+    void finish(String error, long nowMillis) {
+        this.error = error;
+        this.status = error == null ? Status.COMPLETED : Status.FAILED;
+        this.finishedAtMillis = nowMillis;
+        done.complete(toResponse());
+    }
+
+    TransferStatusResponse toResponse() {
+        return new TransferStatusResponse(id, fromAccountId, toAccountId, amount, status.name(), error);
+    }
+}
@@ -0,0 +1,319 @@
+package com.revolut.interview.pipeline;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.interview.cluster.NodeClient;
+import com.revolut.interview.dto.AsyncTransferRequest;
+import com.revolut.interview.dto.TransferStatusResponse;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.exception.ServiceOverloadedException;
+import com.revolut.interview.exception.TransferNotFoundException;
+import com.revolut.interview.service.TransferEngine;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transfers submitted without waiting for them: a submission is validated, queued and answered right away,
+ * the transfer is applied later through the {@link TransferEngine}.
+ * <p>
+ * Transfers are queued to one of <code>shards</code> bounded queues by source account, every queue is drained
+ * by its own thread in batches of up to <code>batchSize</code>. Transfers from the same account are therefore
+ * applied in submission order, while transfers from different accounts run in parallel. A full queue rejects
+ * submissions with {@link ServiceOverloadedException}, so clients slow down instead of piling up work. A transfer
+ * finding an account busy is retried in place up to <code>busyRetries</code> times and then fails, so one hot
+ * account holds up the other accounts of its shard only that long.
+ * <p>
+ * Status of a transfer can be polled, awaited or posted to a callback url. Callbacks are sent from inside the
+ * cluster, so only http(s) urls of <code>callbackHosts</code> are accepted. Finished transfers are forgotten
+ * after <code>retention</code>, queued ones are lost on restart.
+ */
+@Slf4j
+@Singleton
+public class TransferPipeline {
+
+    private static final String CALLBACK_MESSAGE = "Callback url must be http or https on an allowed host";
+
+    private final TransferEngine transferEngine;
+
+    private final NodeClient client;
+
+    private final int batchSize;
+
+    private final long retentionMillis;
+
+    private final long maxWaitMillis;
+
+    private final int callbackThreads;
+
+    private final int callbackQueue;
+
+    private final int busyRetries;
+
+    private final Set<String> callbackHosts;
+
+    private final List<BlockingQueue<PendingTransfer>> shards = new ArrayList<>();
+
+    private final Map<Long, PendingTransfer> transfers = new ConcurrentHashMap<>();
+
+    /**
+     * Finished transfers in order of completion, to forget them after retention
+     */
+    private final Queue<PendingTransfer> finished = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private List<Thread> threads;
+
+    private ScheduledThreadPoolExecutor timer;
+
+    private ThreadPoolExecutor callbacks;
+
+    @Inject
+    public TransferPipeline(TransferEngine transferEngine, NodeClient client, Config config) {
+        this(transferEngine, client,
+                config.getInt("transfer.async.shards"),
+                config.getInt("transfer.async.queue"),
+                config.getInt("transfer.async.batchSize"),
+                config.getDuration("transfer.async.retention", TimeUnit.MILLISECONDS),
+                config.getDuration("transfer.async.maxWait", TimeUnit.MILLISECONDS),
+                config.getInt("transfer.async.callbackThreads"),
+                config.getInt("transfer.async.callbackQueue"),
+                config.getInt("transfer.async.busyRetries"),
+                config.getStringList("transfer.async.callbackHosts"));
+    }
+
+    /**
+     * @param queue         transfers waiting per shard
+     * @param busyRetries   attempts after the first one while an account is busy
+     * @param callbackHosts hosts callbacks may be sent to, none to accept no callbacks
+     */
+    public TransferPipeline(TransferEngine transferEngine, NodeClient client, int shards, int queue,
+                            int batchSize, long retentionMillis, long maxWaitMillis, int callbackThreads,
+                            int callbackQueue, int busyRetries, Collection<String> callbackHosts) {
+        Preconditions.checkArgument(shards > 0 && queue > 0 && batchSize > 0 && callbackThreads > 0
+                && callbackQueue > 0, "Shards, queues, batch size and callback threads must be positive");
+        Preconditions.checkArgument(busyRetries >= 0, "Busy retries cannot be negative");
+        this.transferEngine = transferEngine;
+        this.client = client;
+        this.batchSize = batchSize;
+        this.retentionMillis = retentionMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.callbackThreads = callbackThreads;
+        this.callbackQueue = callbackQueue;
+        this.busyRetries = busyRetries;
+        this.callbackHosts = callbackHosts.stream().map(host -> host.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        for (int i = 0; i < shards; i++) {
+            this.shards.add(new ArrayBlockingQueue<>(queue));
+        }
+    }
+
+    public synchronized void start() {
+        if (threads != null) {
+            return;
+        }
+        timer = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("transfer-poll-timer").setDaemon(true).build());
+        timer.setRemoveOnCancelPolicy(true);
+        callbacks = new ThreadPoolExecutor(callbackThreads, callbackThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(callbackQueue),
+                new ThreadFactoryBuilder().setNameFormat("transfer-callback-%d").setDaemon(true).build(),
+                (callback, executor) -> log.warn("Transfer callback queue is full, callback dropped"));
+        threads = new ArrayList<>();
+        for (BlockingQueue<PendingTransfer> shard : shards) {
+            Thread thread = new ThreadFactoryBuilder().setNameFormat("transfer-pipeline-" + threads.size())
+                    .setDaemon(true).build().newThread(() -> drain(shard));
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (threads == null) {
+            return;
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        }
+        timer.shutdownNow();
+        callbacks.shutdown();
+        callbacks.awaitTermination(1, TimeUnit.MINUTES);
+        threads = null;
+    }
+
+    /**
+     * Queue a transfer
+     *
+     * @return queued transfer
+     * @throws IllegalArgumentException    - on validation error, e.g. a callback url of a host not allowed
+     * @throws InvalidTransferException    - when accounts are the same
+     * @throws ServiceOverloadedException - when too many transfers are queued
+     */
+    public TransferStatusResponse submit(AsyncTransferRequest request) {
+        Preconditions.checkArgument(request.getFromAccountId() != null, "Source account should be set");
+        Preconditions.checkArgument(request.getToAccountId() != null, "Target account should be set");
+        Preconditions.checkArgument(request.getAmount() != null, "Amount should be set");
+        Preconditions.checkArgument(request.getAmount().signum() > 0, "Amount must be positive");
+        if (request.getFromAccountId().equals(request.getToAccountId())) {
+            throw new InvalidTransferException("Cannot transfer to same account");
+        }
+        if (request.getCallbackUrl() != null) {
+            checkCallback(request.getCallbackUrl());
+        }
+
+        PendingTransfer transfer = new PendingTransfer(ids.incrementAndGet(), request.getFromAccountId(),
+                request.getToAccountId(), request.getAmount(), request.getCallbackUrl());
+        // taken before queueing, the transfer may finish before this method returns
+        TransferStatusResponse queued = transfer.toResponse();
+        transfers.put(transfer.getId(), transfer);
+        if (!shards.get(Math.floorMod(Long.hashCode(transfer.getFromAccountId()), shards.size())).offer(transfer)) {
+            transfers.remove(transfer.getId());
+            throw new ServiceOverloadedException("Too many queued transfers", 1);
+        }
+        return queued;
+    }
+
+    /**
+     * @throws TransferNotFoundException - when there is no such transfer or it finished too long ago
+     */
+    public TransferStatusResponse get(long id) {
+        return find(id).toResponse();
+    }
+
+    /**
+     * Wait for a transfer to finish without blocking the caller
+     *
+     * @param waitMillis max wait, capped by <code>maxWait</code>
+     * @return future status, finished or still queued once the wait is over
+     * @throws TransferNotFoundException - when there is no such transfer or it finished too long ago
+     */
+    public CompletableFuture<TransferStatusResponse> await(long id, long waitMillis) {
+        PendingTransfer transfer = find(id);
+        if (transfer.getDone().isDone() || waitMillis <= 0) {
+            return CompletableFuture.completedFuture(transfer.toResponse());
+        }
+        CompletableFuture<TransferStatusResponse> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = timer.schedule(() -> result.complete(transfer.toResponse()),
+                Math.min(waitMillis, maxWaitMillis), TimeUnit.MILLISECONDS);
+        transfer.getDone().thenAccept(status -> {
+            timeout.cancel(false);
+            result.complete(status);
+        });
+        return result;
+    }
+
+    /**
+     * @return number of queued transfers
+     */
+    public int queued() {
+        return shards.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void checkCallback(String callbackUrl) {
+        URI uri;
+        try {
+            uri = new URI(callbackUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(CALLBACK_MESSAGE, e);
+        }
+        String scheme = uri.getScheme();
+        Preconditions.checkArgument(("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))
+                && uri.getRawUserInfo() == null && uri.getHost() != null
+                && callbackHosts.contains(uri.getHost().toLowerCase(Locale.ROOT)), CALLBACK_MESSAGE);
+    }
+
+    private PendingTransfer find(long id) {
+        PendingTransfer transfer = transfers.get(id);
+        if (transfer == null) {
+            throw new TransferNotFoundException("Transfer #" + id + " not found");
+        }
+        return transfer;
+    }
+
+    private void drain(BlockingQueue<PendingTransfer> shard) {
+        List<PendingTransfer> batch = new ArrayList<>(batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(shard.take());
+                shard.drainTo(batch, batchSize - 1);
+                for (PendingTransfer transfer : batch) {
+                    execute(transfer);
+                }
+                batch.clear();
+                forgetFinished(System.currentTimeMillis() - retentionMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(PendingTransfer transfer) throws InterruptedException {
+        String error = null;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                transferEngine.transfer(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount());
+                break;
+            } catch (AccountBusyException e) {
+                if (attempt == busyRetries) {
+                    error = e.getMessage();
+                    break;
+                }
+                // retried in place, later transfers from the account must not overtake it
+                TimeUnit.MILLISECONDS.sleep(1);
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+                break;
+            }
+        }
+        transfer.finish(error, System.currentTimeMillis());
+        finished.add(transfer);
+        if (transfer.getCallbackUrl() != null) {
+            callbacks.execute(() -> callback(transfer));
+        }
+    }
+
+    private void callback(PendingTransfer transfer) {
+        try {
+            client.post(transfer.getCallbackUrl(), "", transfer.toResponse());
+        } catch (RuntimeException e) {
+            log.warn("Callback of transfer #{} to {} failed: {}", transfer.getId(), transfer.getCallbackUrl(),
+                    e.getMessage());
+        }
+    }
+
+    private void forgetFinished(long beforeMillis) {
+        PendingTransfer oldest;
+        while ((oldest = finished.peek()) != null && oldest.getFinishedAtMillis() < beforeMillis) {
+            if (finished.remove(oldest)) {
+                transfers.remove(oldest.getId());
+            }
+        }
+    }
+}
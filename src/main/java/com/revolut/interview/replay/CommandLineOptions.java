@@ -0,0 +1,31 @@
+package com.revolut.interview.replay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>key=value</code> arguments of command line tools, like {@link JournalReplay#main}
+ */
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    /**
+     * @return value by key, a repeated key keeps the last value
+     * @throws IllegalArgumentException - when an argument has no <code>=</code>
+     */
+    public static Map<String, String> parse(String... args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            List<String> option = Splitter.on('=').limit(2).splitToList(arg);
+            Preconditions.checkArgument(option.size() == 2, "Expected key=value argument, got %s", arg);
+            options.put(option.get(0), option.get(1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,273 @@
+package com.revolut.interview.replay;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.journal.JournalRecorder;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.ActorTransferEngine;
+import com.revolut.interview.service.TransferEngine;
+import com.revolut.interview.service.TransferEngineType;
+import com.revolut.interview.service.TransferService;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Replays a {@link JournalRecorder} recording, or a {@link JournalLog} directory, against a fresh in-process
+ * {@link AccountService} and {@link TransferEngine}, to compare engines and locking changes on recorded traffic.
+ * <p>
+ * Records are turned back into operations: creates, deposits, withdrawals, transfers (from the source leg, the
+ * target leg is implied) and batch adjustments; reversals are left to the engine. Operations are run by
+ * <code>threads</code> workers, operations of the same source account by the same worker in recorded order.
+ * At <code>speed=max</code> operations are issued as fast as workers take them, otherwise at recorded times
+ * scaled by <code>speed</code>, and latency is then measured from the recorded time, so a stalled engine shows
+ * up in the percentiles instead of slowing the replay down.
+ * <p>
+ * Exchange rates are not journaled, so every account is replayed in the base currency and accounts which received
+ * cross-currency transfers show up as mismatched.
+ * <p>
+ * Usage: <code>JournalReplay file=journal.bin [engine=LOCK|ACTOR] [speed=max|1|2.5] [threads=4]</code>
+ */
+public class JournalReplay {
+
+    private final List<JournalRecord> records;
+
+    private final TransferEngineType engineType;
+
+    /**
+     * Replay speed relative to the recording, zero for max speed
+     */
+    private final double speed;
+
+    private final int threads;
+
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    public JournalReplay(List<JournalRecord> records, TransferEngineType engineType, double speed, int threads) {
+        Preconditions.checkArgument(speed >= 0, "Speed cannot be negative");
+        Preconditions.checkArgument(threads > 0, "Threads must be positive");
+        this.records = records;
+        this.engineType = engineType;
+        this.speed = speed;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        Preconditions.checkArgument(options.containsKey("file"),
+                "Usage: JournalReplay file=journal.bin [engine=LOCK|ACTOR] [speed=max|1] [threads=4]");
+        String speed = options.getOrDefault("speed", "max");
+        Path file = Paths.get(options.get("file"));
+        JournalReplay replay = new JournalReplay(
+                Files.isDirectory(file) ? JournalLog.read(file) : JournalRecorder.read(file),
+                TransferEngineType.valueOf(options.getOrDefault("engine", TransferEngineType.LOCK.name())),
+                "max".equals(speed) ? 0 : Double.parseDouble(speed),
+                Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        System.out.println(replay.run());
+    }
+
+    public ReplayReport run() throws InterruptedException {
+        AccountService accountService = new AccountService(new AccountRepository());
+        TransferEngine engine = engineType == TransferEngineType.ACTOR
+                ? new ActorTransferEngine(accountService, threads)
+                : new TransferService(accountService);
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker("replay-" + i));
+        }
+        workers.forEach(Thread::start);
+
+        Map<Long, Long> replayedIds = new HashMap<>();
+        long skipped = 0;
+        long firstTimestamp = records.isEmpty() ? 0 : records.get(0).getTimestamp();
+        long start = System.nanoTime();
+        for (JournalRecord record : records) {
+            long intendedNanos = speed == 0 ? 0
+                    : start + (long) (TimeUnit.MILLISECONDS.toNanos(record.getTimestamp() - firstTimestamp) / speed);
+            if (intendedNanos != 0) {
+                long delay = intendedNanos - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            }
+            Long accountId = replayedIds.get(record.getAccountId());
+            Long counterpartyId = replayedIds.get(record.getCounterpartyId());
+            BigDecimal amount = record.getAmount();
+            Runnable operation;
+            switch (record.getType()) {
+                case CREATE:
+                case SNAPSHOT:
+                    if (accountId == null) {
+                        // run here, later operations need the id
+                        long created = System.nanoTime();
+                        replayedIds.put(record.getAccountId(),
+                                accountService.create(record.getName(), record.getBalance()).getId());
+                        workers.get(0).record(System.nanoTime() - (intendedNanos != 0 ? intendedNanos : created));
+                    }
+                    continue;
+                case DEPOSIT:
+                    operation = () -> engine.deposit(accountId, amount);
+                    break;
+                case WITHDRAWAL:
+                    operation = () -> engine.withdraw(accountId, amount.negate());
+                    break;
+                case TRANSFER:
+                    if (counterpartyId == null) {
+                        // the other account is not in the recording, e.g. on another node
+                        operation = amount.signum() < 0 ? () -> engine.withdraw(accountId, amount.negate())
+                                : () -> engine.deposit(accountId, amount);
+                    } else if (amount.signum() < 0) {
+                        operation = () -> engine.transfer(accountId, counterpartyId, amount.negate());
+                    } else {
+                        continue;
+                    }
+                    break;
+                case ADJUSTMENT:
+                    operation = () -> engine.adjust(accountId, record.getCounterpartyId(), account -> amount);
+                    break;
+                default:
+                    continue;
+            }
+            if (accountId == null) {
+                skipped++;
+                continue;
+            }
+            workers.get(Math.floorMod(Long.hashCode(accountId), threads)).submit(operation, intendedNanos);
+        }
+        for (Worker worker : workers) {
+            worker.submit(null, 0);
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return report(accountService, replayedIds, workers, skipped, elapsed);
+    }
+
+    private ReplayReport report(AccountService accountService, Map<Long, Long> replayedIds, List<Worker> workers,
+                                long skipped, long elapsedNanos) {
+        long[] latencies = new long[workers.stream().mapToInt(worker -> worker.count).sum()];
+        int merged = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, merged, worker.count);
+            merged += worker.count;
+        }
+        Arrays.sort(latencies);
+        long[] percentiles = new long[ReplayReport.PERCENTILES.length];
+        for (int i = 0; i < percentiles.length && latencies.length > 0; i++) {
+            int index = (int) Math.ceil(ReplayReport.PERCENTILES[i] * latencies.length) - 1;
+            percentiles[i] = latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        Map<Long, BigDecimal> recorded = new TreeMap<>();
+        for (JournalRecord record : records) {
+            if (replayedIds.containsKey(record.getAccountId())) {
+                recorded.put(record.getAccountId(), record.getBalance());
+            }
+        }
+        Map<Long, BigDecimal> replayed = new TreeMap<>();
+        replayedIds.forEach((recordedId, id) -> replayed.put(recordedId, accountService.getById(id).getAmount()));
+        long mismatched = recorded.entrySet().stream()
+                .filter(entry -> entry.getValue().compareTo(replayed.get(entry.getKey())) != 0)
+                .count();
+
+        Map<String, Long> failed = new TreeMap<>();
+        failures.forEach((exception, count) -> failed.put(exception, count.sum()));
+        return new ReplayReport(latencies.length, failed, skipped, elapsedNanos, percentiles,
+                checksum(replayed), checksum(recorded), mismatched);
+    }
+
+    private static long checksum(Map<Long, BigDecimal> balances) {
+        CRC32 crc = new CRC32();
+        ByteBuffer id = ByteBuffer.allocate(Long.BYTES);
+        balances.forEach((accountId, balance) -> {
+            id.clear();
+            crc.update(id.putLong(accountId).array());
+            crc.update(balance.stripTrailingZeros().toPlainString().getBytes(StandardCharsets.US_ASCII));
+        });
+        return crc.getValue();
+    }
+
+    /**
+     * Runs operations in submission order and keeps their latencies
+     */
+    private class Worker extends Thread {
+
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        /**
+         * @param operation operation or <code>null</code> to stop once previous ones are done
+         * @param intendedNanos recorded time of the operation, zero at max speed
+         */
+        void submit(Runnable operation, long intendedNanos) {
+            queue.add(new Task(operation, intendedNanos));
+        }
+
+        synchronized void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Task task = queue.take();
+                    if (task.operation == null) {
+                        return;
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        task.operation.run();
+                    } catch (RuntimeException e) {
+                        failures.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+                    }
+                    record(System.nanoTime() - (task.intendedNanos != 0 ? task.intendedNanos : started));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Task {
+
+        private final Runnable operation;
+
+        private final long intendedNanos;
+    }
+}
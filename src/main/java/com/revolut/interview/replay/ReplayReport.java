@@ -0,0 +1,74 @@
+package com.revolut.interview.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link JournalReplay}
+ */
+@Data
+@AllArgsConstructor
+public class ReplayReport {
+
+    static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999, 1};
+
+    private final long operations;
+
+    /**
+     * Operations which failed, by exception
+     */
+    private final Map<String, Long> failures;
+
+    /**
+     * Records which cannot be replayed, e.g. operations on accounts created before the recording started
+     */
+    private final long skipped;
+
+    private final long elapsedNanos;
+
+    /**
+     * Latency at every one of {@link #PERCENTILES}
+     */
+    private final long[] latencyNanos;
+
+    /**
+     * CRC32 of final balances of the replayed accounts, by recorded account id
+     */
+    private final long checksum;
+
+    /**
+     * Same checksum of the balances in the recording
+     */
+    private final long recordedChecksum;
+
+    /**
+     * Accounts which final balance differs from the recording
+     */
+    private final long mismatched;
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append(String.format("operations: %d in %d ms, %.0f ops/s%n", operations,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput()))
+                .append("failures: ").append(failures).append(", skipped records: ").append(skipped)
+                .append(String.format("%nlatency us:"));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            report.append(PERCENTILES[i] == 1 ? " max "
+                    : " p" + BigDecimal.valueOf(PERCENTILES[i] * 100).stripTrailingZeros().toPlainString() + " ")
+                    .append(TimeUnit.NANOSECONDS.toMicros(latencyNanos[i]));
+        }
+        return report
+                .append(String.format("%nchecksum: %08x, recorded %08x, %d accounts differ", checksum,
+                        recordedChecksum, mismatched))
+                .toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.revolut.interview.replication;
+
+/**
+ * When a write on the primary is acknowledged to the client
+ */
+public enum AckMode {
+    /**
+     * Right after it is applied locally, followers catch up in background
+     */
+    ASYNC,
+    /**
+     * After the configured number of followers applied it
+     */
+    QUORUM
+}
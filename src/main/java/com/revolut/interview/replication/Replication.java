@@ -0,0 +1,144 @@
+package com.revolut.interview.replication;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.HostAndPort;
+import com.revolut.interview.dto.ReplicationStats;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.lock.StripedLockManager;
+import com.revolut.interview.repository.AccountRepository;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leader-follower replication of the {@link Journal} over plain TCP.
+ * <p>
+ * The primary streams every record to its followers in sequence order, followers apply them to their own
+ * repository and serve reads only. With {@link AckMode#QUORUM} writes return once <code>quorum</code>
+ * followers applied them; when that takes longer than <code>ackTimeout</code> the primary stops waiting
+ * until followers catch up, the same way semi-synchronous database replication falls back to async,
+ * so a lost follower does not stop writes.
+ */
+@Slf4j
+@Singleton
+public class Replication {
+
+    private final Journal journal;
+
+    private final AccountRepository repository;
+
+    private final LockManager lockManager;
+
+    private final Config config;
+
+    private volatile ReplicationRole role;
+
+    private ReplicationPrimary primary;
+
+    private ReplicationFollower follower;
+
+    public Replication(Journal journal, AccountRepository repository, Config config) {
+        this(journal, repository, new StripedLockManager(), config);
+    }
+
+    /**
+     * @param lockManager followers apply changes under account locks, like writers on the primary
+     */
+    @Inject
+    public Replication(Journal journal, AccountRepository repository, LockManager lockManager, Config config) {
+        this.journal = journal;
+        this.repository = repository;
+        this.lockManager = lockManager;
+        this.config = config;
+        this.role = config.getEnum(ReplicationRole.class, "replication.role");
+    }
+
+    public synchronized void start() {
+        if (role == ReplicationRole.PRIMARY) {
+            startPrimary();
+        } else if (role == ReplicationRole.FOLLOWER) {
+            HostAndPort address = HostAndPort.fromString(config.getString("replication.primary"));
+            Preconditions.checkArgument(address.hasPort(), "replication.primary must be host:port");
+            follower = new ReplicationFollower(repository, lockManager, address.getHost(), address.getPort(),
+                    config.getDuration("replication.reconnectDelay", TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public synchronized void stop() {
+        try {
+            if (primary != null) {
+                journal.unsubscribe(primary);
+                primary.close();
+                primary = null;
+            }
+            if (follower != null) {
+                follower.close();
+                follower = null;
+            }
+        } catch (IOException e) {
+            log.warn("Cannot stop replication", e);
+        }
+    }
+
+    /**
+     * Turn a follower into a primary, e.g. when the old primary is gone. Other followers should be pointed
+     * to this node.
+     *
+     * @throws IllegalArgumentException - when the node is not a follower
+     */
+    public synchronized void promote() {
+        Preconditions.checkArgument(role == ReplicationRole.FOLLOWER, "Only a follower can be promoted");
+        stop();
+        role = ReplicationRole.PRIMARY;
+        startPrimary();
+        log.info("Promoted to primary");
+    }
+
+    /**
+     * @return <code>true</code> when writes must be sent to the primary
+     */
+    public boolean isReadOnly() {
+        return role == ReplicationRole.FOLLOWER;
+    }
+
+    public synchronized ReplicationStats stats() {
+        if (primary != null) {
+            return new ReplicationStats(role, primary.lastSequence(), 0, primary.stats());
+        }
+        if (follower != null) {
+            return new ReplicationStats(role, follower.appliedSequence(), follower.lagMillis(),
+                    Collections.emptyList());
+        }
+        return new ReplicationStats(role, journal.lastSequence(), 0, Collections.emptyList());
+    }
+
+    /**
+     * @return port the primary accepts followers on
+     */
+    synchronized int port() {
+        Preconditions.checkState(primary != null, "Not a primary");
+        return primary.port();
+    }
+
+    private void startPrimary() {
+        try {
+            primary = new ReplicationPrimary(repository,
+                    config.getInt("replication.port"),
+                    config.getEnum(AckMode.class, "replication.ack"),
+                    config.getInt("replication.quorum"),
+                    config.getDuration("replication.ackTimeout", TimeUnit.NANOSECONDS),
+                    config.getInt("replication.maxBacklog"),
+                    journal.lastSequence());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for followers", e);
+        }
+        journal.subscribe(primary);
+    }
+}
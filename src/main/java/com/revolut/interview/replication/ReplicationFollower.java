@@ -0,0 +1,135 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.journal.JournalCodec;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follower side of replication: applies records streamed by the primary to the local repository and
+ * acknowledges the last applied sequence whenever it runs out of received records. Reconnects, and so
+ * gets a fresh snapshot, when the connection is lost.
+ */
+@Slf4j
+class ReplicationFollower implements Closeable {
+
+    private final AccountRepository repository;
+
+    private final LockManager lockManager;
+
+    private final String host;
+
+    private final int port;
+
+    private final long reconnectDelayMillis;
+
+    private final Thread thread;
+
+    private volatile Socket socket;
+
+    private volatile boolean closed;
+
+    private volatile long appliedSequence;
+
+    private volatile long lagMillis;
+
+    ReplicationFollower(AccountRepository repository, LockManager lockManager, String host, int port,
+                        long reconnectDelayMillis) {
+        this.repository = repository;
+        this.lockManager = lockManager;
+        this.host = host;
+        this.port = port;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.thread = new Thread(this::run, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    long appliedSequence() {
+        return appliedSequence;
+    }
+
+    long lagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                connection.setTcpNoDelay(true);
+                log.info("Following primary {}:{}", host, port);
+                follow(connection);
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Lost primary {}:{}, reconnecting in {}ms: {}", host, port, reconnectDelayMillis,
+                        e.getMessage());
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(Socket connection) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        DataOutputStream out = new DataOutputStream(connection.getOutputStream());
+        while (!closed) {
+            JournalRecord record = JournalCodec.read(in);
+            apply(record);
+            if (in.available() == 0) {
+                out.writeLong(appliedSequence);
+            }
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        try (LockManager.Locked ignored = lockManager.lock(record.getAccountId())) {
+            applyLocked(record);
+        }
+        appliedSequence = Math.max(appliedSequence, record.getSequence());
+        lagMillis = Math.max(0, System.currentTimeMillis() - record.getTimestamp());
+    }
+
+    private void applyLocked(JournalRecord record) {
+        switch (record.getType()) {
+            case CREATE:
+            case SNAPSHOT:
+                repository.restore(record.getAccountId(), record.getName(), record.getCurrency(),
+                        record.getBalance());
+                break;
+            default:
+                Account account = repository.getById(record.getAccountId());
+                if (account == null) {
+                    log.warn("Record {} for unknown account #{} skipped", record.getSequence(),
+                            record.getAccountId());
+                } else {
+                    account.setAmount(record.getBalance());
+                }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.revolut.interview.replication;
+
+import com.revolut.interview.dto.FollowerStats;
+import com.revolut.interview.journal.JournalCodec;
+import com.revolut.interview.journal.JournalListener;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Primary side of replication: accepts follower connections and streams journal records to each of them
+ * from its own bounded backlog. A follower that falls behind by more than the backlog is disconnected and
+ * resynchronized from a snapshot when it reconnects.
+ * <p>
+ * A new follower gets a snapshot of all accounts first. The snapshot is not a point in time copy, so
+ * records queued while it is taken may be older than the snapshotted balances; they are applied after
+ * it and the follower converges once it gets to the records appended after the snapshot.
+ */
+@Slf4j
+class ReplicationPrimary implements JournalListener, Closeable {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final AccountRepository repository;
+
+    private final AckMode ackMode;
+
+    private final int quorum;
+
+    private final long ackTimeoutNanos;
+
+    private final int maxBacklog;
+
+    private final ServerSocket server;
+
+    /**
+     * Guarded by itself when registering, so a new session gets every record after its start sequence
+     */
+    private final List<FollowerSession> sessions = new CopyOnWriteArrayList<>();
+
+    private final Object acknowledgements = new Object();
+
+    private volatile long lastSequence;
+
+    /**
+     * Set when quorum was not reached in time, writes do not wait until followers catch up again
+     */
+    private volatile boolean degraded;
+
+    ReplicationPrimary(AccountRepository repository, int port, AckMode ackMode, int quorum,
+                       long ackTimeoutNanos, int maxBacklog, long startSequence) throws IOException {
+        this.repository = repository;
+        this.ackMode = ackMode;
+        this.quorum = quorum;
+        this.ackTimeoutNanos = ackTimeoutNanos;
+        this.maxBacklog = maxBacklog;
+        this.lastSequence = startSequence;
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress(port));
+        daemon(this::accept, "replication-accept").start();
+        log.info("Replication primary listening on port {}, {} acknowledgements", port(), ackMode);
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void onRecord(JournalRecord record) {
+        synchronized (sessions) {
+            lastSequence = record.getSequence();
+            for (FollowerSession session : sessions) {
+                if (!session.backlog.offer(record)) {
+                    log.warn("Follower {} is more than {} records behind, disconnecting", session.address,
+                            maxBacklog);
+                    session.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void awaitAcknowledged(long sequence) {
+        if (ackMode == AckMode.ASYNC || degraded) {
+            return;
+        }
+        long deadline = System.nanoTime() + ackTimeoutNanos;
+        synchronized (acknowledgements) {
+            while (acknowledged(sequence) < quorum) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    degraded = true;
+                    log.warn("Record {} was not acknowledged by {} followers in time, not waiting for followers "
+                            + "until they catch up", sequence, quorum);
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(acknowledgements, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    List<FollowerStats> stats() {
+        long last = lastSequence;
+        return sessions.stream()
+                .map(session -> new FollowerStats(session.address, session.sent, session.acknowledged,
+                        Math.max(0, last - session.acknowledged)))
+                .collect(Collectors.toList());
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        sessions.forEach(FollowerSession::close);
+    }
+
+    private int acknowledged(long sequence) {
+        int count = 0;
+        for (FollowerSession session : sessions) {
+            if (session.acknowledged >= sequence) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void onAcknowledged() {
+        if (degraded && acknowledged(lastSequence) >= quorum) {
+            degraded = false;
+            log.info("Followers caught up, waiting for {} acknowledgements again", quorum);
+        }
+        synchronized (acknowledgements) {
+            acknowledgements.notifyAll();
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                FollowerSession session = new FollowerSession(socket);
+                session.sender = daemon(session::send, "replication-send-" + session.address);
+                synchronized (sessions) {
+                    session.start = lastSequence;
+                    sessions.add(session);
+                }
+                log.info("Follower {} connected at sequence {}", session.address, session.start);
+                session.sender.start();
+                daemon(session::receive, "replication-ack-" + session.address).start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    log.warn("Cannot accept follower", e);
+                }
+            }
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private class FollowerSession {
+
+        private final Socket socket;
+
+        private final String address;
+
+        private final BlockingQueue<JournalRecord> backlog = new ArrayBlockingQueue<>(maxBacklog);
+
+        private long start;
+
+        private Thread sender;
+
+        private volatile long sent;
+
+        private volatile long acknowledged;
+
+        FollowerSession(Socket socket) {
+            this.socket = socket;
+            this.address = socket.getRemoteSocketAddress().toString();
+        }
+
+        void send() {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                for (Account account : repository.getAll()) {
+                    JournalCodec.write(out, new JournalRecord(start, System.currentTimeMillis(),
+                            JournalRecord.Type.SNAPSHOT, account.getId(), JournalRecord.NO_COUNTERPARTY,
+                            account.getAmount(), account.getAmount(), account.getName(), account.getCurrency()));
+                }
+                sent = start;
+                out.flush();
+
+                List<JournalRecord> batch = new ArrayList<>(BATCH_SIZE);
+                while (!socket.isClosed()) {
+                    batch.add(backlog.take());
+                    backlog.drainTo(batch, BATCH_SIZE - 1);
+                    for (JournalRecord record : batch) {
+                        JournalCodec.write(out, record);
+                    }
+                    out.flush();
+                    sent = batch.get(batch.size() - 1).getSequence();
+                    batch.clear();
+                }
+            } catch (IOException e) {
+                log.info("Follower {} disconnected: {}", address, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        void receive() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true) {
+                    acknowledged = in.readLong();
+                    onAcknowledged();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            sender.interrupt();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Cannot close follower socket", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.revolut.interview.replication;
+
+public enum ReplicationRole {
+    /**
+     * Standalone node
+     */
+    NONE,
+    /**
+     * Accepts writes and ships the journal to followers
+     */
+    PRIMARY,
+    /**
+     * Applies the journal of the primary, serves reads only
+     */
+    FOLLOWER
+}
@@ -0,0 +1,83 @@
+package com.revolut.interview.repository;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted, lock-free index over account names used for prefix search.
+ * <p>
+ * Entries are ordered by normalized (lower-cased) name and then by account id, so a prefix query
+ * is a single range scan and a page can be resumed from the last returned account.
+ */
+class AccountNameIndex {
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    void add(Account account) {
+        if (account.getName() != null) {
+            entries.add(new Entry(normalize(account.getName()), account.getId()));
+        }
+    }
+
+    /**
+     * Find ids of accounts which name starts with prefix
+     *
+     * @param prefix  name prefix, case insensitive
+     * @param after   account to resume the scan after or <code>null</code> to start from the beginning
+     * @param limit   max number of ids to return
+     * @return ids ordered by name and then by id
+     * @throws IllegalArgumentException - when the name of <code>after</code> does not start with prefix
+     */
+    List<Long> find(String prefix, Account after, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        Entry first = new Entry(normalizedPrefix, Long.MIN_VALUE);
+        NavigableSet<Entry> range = entries.tailSet(first, true);
+        if (after != null) {
+            Preconditions.checkArgument(after.getName() != null
+                            && normalize(after.getName()).startsWith(normalizedPrefix),
+                    "Account #%s does not match name prefix %s", after.getId(), prefix);
+            range = entries.tailSet(new Entry(normalize(after.getName()), after.getId()), false);
+        }
+
+        List<Long> result = new ArrayList<>(Math.min(limit, 64));
+        for (Entry entry : range) {
+            if (result.size() >= limit || !entry.name.startsWith(normalizedPrefix)) {
+                break;
+            }
+            result.add(entry.id);
+        }
+        return result;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String name;
+
+        private final long id;
+
+        private Entry(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Long.compare(id, other.id);
+        }
+    }
+}
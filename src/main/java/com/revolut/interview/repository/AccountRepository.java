@@ -1,27 +1,109 @@
 package com.revolut.interview.repository;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.concurrent.IdAllocator;
 import com.revolut.interview.model.Account;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Singleton
 public class AccountRepository {
 
-    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final AccountStore accounts;
 
-    private final AtomicLong idCounter = new AtomicLong(1L);
+    /**
+     * Account sequences. Single creates take them from per-thread blocks, so concurrent creates do not all
+     * increment one counter, bulk creates take a range at once. Ids are unique but not dense, see
+     * {@link OffHeapAccountStore} for what the gaps cost there.
+     */
+    private final IdAllocator sequences = new IdAllocator(1L, IdAllocator.DEFAULT_BLOCK_SIZE);
 
-    public Account create(String name, BigDecimal initialAmount) {
-        long id = idCounter.getAndIncrement();
-        Account account = new Account(id, name, initialAmount);
-        accounts.put(id, account);
+    private final AccountNameIndex nameIndex = new AccountNameIndex();
+
+    private final ClusterTopology topology;
+
+    public AccountRepository() {
+        this(new ClusterTopology());
+    }
+
+    /**
+     * @param topology defines which account ids this node allocates
+     */
+    public AccountRepository(ClusterTopology topology) {
+        this(topology, new InMemoryAccountStore());
+    }
+
+    /**
+     * @param topology defines which account ids this node allocates
+     * @param accounts where accounts are kept
+     */
+    @Inject
+    public AccountRepository(ClusterTopology topology, AccountStore accounts) {
+        this.topology = topology;
+        this.accounts = accounts;
+    }
+
+    /**
+     * @return most decimal places of an amount accounts keep
+     */
+    public int maxScale() {
+        return accounts.maxScale();
+    }
+
+    public Account create(String name, String currency, BigDecimal initialAmount) {
+        long id = topology.accountId(sequences.next());
+        accounts.put(new Account(id, name, currency, initialAmount));
+        Account account = accounts.get(id);
+        nameIndex.add(account);
+        return account;
+    }
+
+    /**
+     * Create accounts in one go, allocating a single block of ids for the whole batch
+     *
+     * @param names          account names
+     * @param currencies     currencies, same size as names
+     * @param initialAmounts initial amounts, same size as names
+     * @return created accounts in the same order
+     */
+    public List<Account> createAll(List<String> names, List<String> currencies, List<BigDecimal> initialAmounts) {
+        int count = names.size();
+        long firstSequence = sequences.next(count);
+        List<Account> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = topology.accountId(firstSequence + i);
+            accounts.put(new Account(id, names.get(i), currencies.get(i), initialAmounts.get(i)));
+            Account account = accounts.get(id);
+            nameIndex.add(account);
+            created.add(account);
+        }
+        return created;
+    }
+
+    /**
+     * Put an account copied from another node, keeping its id, or update its amount if already present.
+     * Ids allocated afterwards do not clash with restored ones.
+     *
+     * @return restored account
+     */
+    public Account restore(Long id, String name, String currency, BigDecimal amount) {
+        Account account = accounts.get(id);
+        if (account == null) {
+            accounts.put(new Account(id, name, currency, amount));
+            account = accounts.get(id);
+            nameIndex.add(account);
+        } else {
+            account.setAmount(amount);
+        }
+        sequences.reserve(id);
         return account;
     }
 
@@ -30,12 +112,32 @@ public class AccountRepository {
     }
 
     public Collection<Account> getAll() {
-        return Collections.unmodifiableCollection(accounts.values());
+        return accounts.values();
+    }
+
+    /**
+     * Find accounts which name starts with given prefix (case insensitive)
+     *
+     * @param prefix  name prefix
+     * @param afterId id of the last account of previous page or <code>null</code> for the first page
+     * @param limit   max page size
+     * @return accounts ordered by name and id
+     * @throws IllegalArgumentException - when <code>afterId</code> is not an account matching the prefix, so a stale
+     *                                  cursor does not restart from the first page
+     */
+    public List<Account> findByNamePrefix(String prefix, Long afterId, int limit) {
+        Account after = afterId == null ? null : accounts.get(afterId);
+        Preconditions.checkArgument(afterId == null || after != null, "Account #%s does not exist", afterId);
+        return nameIndex.find(prefix, after, limit)
+                .stream()
+                .map(accounts::get)
+                .collect(Collectors.toList());
     }
 
 
     @VisibleForTesting
     public void clear(){
         accounts.clear();
+        nameIndex.clear();
     }
 }
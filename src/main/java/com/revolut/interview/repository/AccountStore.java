@@ -0,0 +1,35 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import java.util.Collection;
+
+/**
+ * Storage of accounts by id used by {@link AccountRepository}
+ */
+public interface AccountStore {
+
+    /**
+     * @return account or <code>null</code> if there is no account with such id
+     */
+    Account get(long id);
+
+    /**
+     * Add account with a new id
+     */
+    void put(Account account);
+
+    /**
+     * @return all accounts, may be a copy
+     */
+    Collection<Account> values();
+
+    /**
+     * @return most decimal places of an amount the store keeps, finer amounts are rejected
+     */
+    default int maxScale() {
+        return Integer.MAX_VALUE;
+    }
+
+    void clear();
+}
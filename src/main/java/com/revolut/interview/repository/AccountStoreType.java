@@ -0,0 +1,23 @@
+package com.revolut.interview.repository;
+
+/**
+ * Available {@link AccountStore} implementations, selected with <code>repository.store</code> setting
+ */
+public enum AccountStoreType {
+
+    MEMORY(InMemoryAccountStore.class),
+
+    TIERED(TieredAccountStore.class),
+
+    OFF_HEAP(OffHeapAccountStore.class);
+
+    private final Class<? extends AccountStore> implementation;
+
+    AccountStoreType(Class<? extends AccountStore> implementation) {
+        this.implementation = implementation;
+    }
+
+    public Class<? extends AccountStore> implementation() {
+        return implementation;
+    }
+}
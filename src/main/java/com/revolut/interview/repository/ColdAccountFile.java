@@ -0,0 +1,288 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Log-structured file of accounts paged out of the heap.
+ * <p>
+ * Every write appends a length-prefixed record and points the in-memory offset index to it, so the only
+ * heap cost of a cold account is one <code>long</code>. Older versions of a record become garbage; once it
+ * takes more than half of the file the live records are copied to a new file. The file only extends the
+ * heap, it is deleted on close and not read on start.
+ * <p>
+ * Writes are expected from a single thread at a time, reads are concurrent.
+ */
+class ColdAccountFile implements Closeable {
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final long COMPACTION_THRESHOLD = 64 * 1024 * 1024;
+
+    private static final int HAS_NAME = 1;
+
+    private static final int HAS_AMOUNT = 2;
+
+    private static final int HAS_CURRENCY = 4;
+
+    private final Path path;
+
+    /**
+     * Taken exclusively while the file is swapped by compaction
+     */
+    private final ReadWriteLock compaction = new ReentrantReadWriteLock();
+
+    /**
+     * Offset of the record of every id plus one, zero for ids not in the file
+     */
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+    private FileChannel channel;
+
+    private int generation;
+
+    private long size;
+
+    private long garbage;
+
+    ColdAccountFile(Path path) {
+        this.path = path;
+        this.channel = open(path);
+    }
+
+    boolean contains(long id) {
+        return offset(id) >= 0;
+    }
+
+    Account read(long id) {
+        compaction.readLock().lock();
+        try {
+            long offset = offset(id);
+            return offset < 0 ? null : decode(readRecord(channel, offset));
+        } finally {
+            compaction.readLock().unlock();
+        }
+    }
+
+    synchronized void write(Account account) {
+        ByteBuffer record = encode(account);
+        long previous = offset(account.getId());
+        compaction.readLock().lock();
+        try {
+            if (previous >= 0) {
+                garbage += readRecord(channel, previous).remaining() + Integer.BYTES;
+            }
+            long offset = size;
+            writeFully(channel, record, offset);
+            size += record.capacity();
+            setOffset(account.getId(), offset);
+        } finally {
+            compaction.readLock().unlock();
+        }
+        if (size > COMPACTION_THRESHOLD && garbage > size / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Visit ids of all accounts in the file
+     */
+    void forEachId(LongConsumer consumer) {
+        AtomicLongArray[] current = pages;
+        for (int page = 0; page < current.length; page++) {
+            if (current[page] == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (current[page].get(i) != 0) {
+                    consumer.accept((long) page * PAGE_SIZE + i);
+                }
+            }
+        }
+    }
+
+    synchronized void clear() {
+        compaction.writeLock().lock();
+        try {
+            pages = new AtomicLongArray[0];
+            channel.truncate(0);
+            size = 0;
+            garbage = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void compact() {
+        Path target = Paths.get(path + "." + (generation + 1));
+        FileChannel compacted = open(target);
+        compaction.writeLock().lock();
+        try {
+            long compactedSize = 0;
+            AtomicLongArray[] current = pages;
+            for (AtomicLongArray page : current) {
+                for (int i = 0; page != null && i < PAGE_SIZE; i++) {
+                    long offset = page.get(i) - 1;
+                    if (offset < 0) {
+                        continue;
+                    }
+                    ByteBuffer body = readRecord(channel, offset);
+                    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + body.remaining());
+                    record.putInt(body.remaining()).put(body).flip();
+                    writeFully(compacted, record, compactedSize);
+                    page.set(i, compactedSize + 1);
+                    compactedSize += record.capacity();
+                }
+            }
+            channel.close();
+            channel = compacted;
+            generation++;
+            size = compactedSize;
+            garbage = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+
+    private long offset(long id) {
+        AtomicLongArray[] current = pages;
+        int page = (int) (id / PAGE_SIZE);
+        if (id < 0 || page >= current.length || current[page] == null) {
+            return -1;
+        }
+        return current[page].get((int) (id % PAGE_SIZE)) - 1;
+    }
+
+    private void setOffset(long id, long offset) {
+        int page = (int) (id / PAGE_SIZE);
+        AtomicLongArray[] current = pages;
+        if (page >= current.length || current[page] == null) {
+            // readers only see complete page tables
+            current = Arrays.copyOf(current, Math.max(page + 1, current.length));
+            current[page] = new AtomicLongArray(PAGE_SIZE);
+            pages = current;
+        }
+        current[page].set((int) (id % PAGE_SIZE), offset + 1);
+    }
+
+    private static ByteBuffer encode(Account account) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeLong(account.getId());
+            out.writeByte((account.getName() != null ? HAS_NAME : 0) | (account.getAmount() != null ? HAS_AMOUNT : 0)
+                    | (account.getCurrency() != null ? HAS_CURRENCY : 0));
+            if (account.getAmount() != null) {
+                byte[] unscaled = account.getAmount().unscaledValue().toByteArray();
+                out.writeInt(account.getAmount().scale());
+                out.writeShort(unscaled.length);
+                out.write(unscaled);
+            }
+            if (account.getName() != null) {
+                out.writeUTF(account.getName());
+            }
+            if (account.getCurrency() != null) {
+                out.writeUTF(account.getCurrency());
+            }
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            record.putInt(0, record.capacity() - Integer.BYTES);
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Account decode(ByteBuffer body) {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(body.array(), body.position(), body.remaining()));
+            long id = in.readLong();
+            int flags = in.readUnsignedByte();
+            BigDecimal amount = null;
+            if ((flags & HAS_AMOUNT) != 0) {
+                int scale = in.readInt();
+                byte[] unscaled = new byte[in.readUnsignedShort()];
+                in.readFully(unscaled);
+                amount = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            String name = (flags & HAS_NAME) != 0 ? in.readUTF() : null;
+            String currency = (flags & HAS_CURRENCY) != 0 ? in.readUTF() : null;
+            return new Account(id, name, currency, amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return record body, without the length prefix
+     */
+    private static ByteBuffer readRecord(FileChannel channel, long offset) {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, length, offset);
+        ByteBuffer body = ByteBuffer.allocate(length.getInt(0));
+        readFully(channel, body, offset + Integer.BYTES);
+        body.flip();
+        return body;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of cold account file at " + position);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileChannel open(Path path) {
+        try {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+    }
+}
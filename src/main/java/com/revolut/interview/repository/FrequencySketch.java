@@ -0,0 +1,93 @@
+package com.revolut.interview.repository;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often an account was used recently.
+ * <p>
+ * Every id maps to one counter in each of four rows, its frequency is the minimum of them. Once the
+ * number of increments reaches ten times the cache capacity all counters are halved, so the history
+ * ages and accounts that stopped being used lose their weight. Not thread safe.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int increments;
+
+    /**
+     * @param capacity number of entries the cache holds
+     */
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * Math.max(1, capacity);
+    }
+
+    int frequency(long id) {
+        int frequency = MAX_COUNT;
+        for (long seed : SEEDS) {
+            long hash = hash(id, seed);
+            frequency = Math.min(frequency, counter(hash));
+        }
+        return frequency;
+    }
+
+    void increment(long id) {
+        boolean incremented = false;
+        for (long seed : SEEDS) {
+            long hash = hash(id, seed);
+            if (counter(hash) < MAX_COUNT) {
+                table[index(hash)] += 1L << shift(hash);
+                incremented = true;
+            }
+        }
+        if (incremented && ++increments >= sampleSize) {
+            halve();
+        }
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+        increments = 0;
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        increments /= 2;
+    }
+
+    private int counter(long hash) {
+        return (int) (table[index(hash)] >>> shift(hash)) & MAX_COUNT;
+    }
+
+    private int index(long hash) {
+        return (int) (hash >>> 32) & tableMask;
+    }
+
+    private static int shift(long hash) {
+        // one of the 16 counters packed in a long
+        return ((int) hash & 15) << 2;
+    }
+
+    private static long hash(long id, long seed) {
+        long hash = (id + seed) * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 32);
+    }
+}
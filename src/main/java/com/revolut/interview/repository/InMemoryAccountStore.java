@@ -0,0 +1,38 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.model.Account;
+
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every account on heap
+ */
+@Singleton
+public class InMemoryAccountStore implements AccountStore {
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    @Override
+    public Account get(long id) {
+        return accounts.get(id);
+    }
+
+    @Override
+    public void put(Account account) {
+        accounts.put(account.getId(), account);
+    }
+
+    @Override
+    public Collection<Account> values() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
+    @Override
+    public void clear() {
+        accounts.clear();
+    }
+}
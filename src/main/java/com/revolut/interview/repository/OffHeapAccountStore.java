@@ -0,0 +1,307 @@
+package com.revolut.interview.repository;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.model.Account;
+import com.typesafe.config.Config;
+import sun.misc.Unsafe;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link AccountStore} keeping accounts outside of the Java heap, so the garbage collector has nothing to
+ * trace per account and pause times do not grow with the number of accounts.
+ * <p>
+ * Accounts are stored column-wise in chunks of {@value #CHUNK_SLOTS} slots, the slot of an account is its id:
+ * <ul>
+ * <li>id, zero for an empty slot, written last with volatile semantics to publish a new account</li>
+ * <li>balance in minor units with fixed <code>scale</code>, written and read with volatile semantics</li>
+ * <li>version, incremented on every balance change</li>
+ * <li>reference of the name in the string arena</li>
+ * <li>currency code, its ASCII characters packed into a <code>long</code></li>
+ * </ul>
+ * Ids need not be dense. A chunk is allocated when the first id falling into it is stored, and slots of ids not
+ * handed out, e.g. the rest of a per-thread id block, just stay empty.
+ * <p>
+ * Names are UTF-8 strings appended to an arena of {@value #ARENA_CHUNK_SIZE} byte chunks.
+ * <p>
+ * {@link #get(long)} returns a small flyweight {@link Account} reading and writing the columns directly.
+ * Memory is never given back while the process runs: readers hold no locks, so nothing can be freed safely.
+ */
+@Singleton
+public class OffHeapAccountStore implements AccountStore {
+
+    static final int CHUNK_SLOTS = 1 << 16;
+
+    static final int ARENA_CHUNK_SIZE = 1 << 20;
+
+    private static final int MAX_NAME_BYTES = ARENA_CHUNK_SIZE - Integer.BYTES;
+
+    private static final long NO_AMOUNT = Long.MIN_VALUE;
+
+    private static final long NO_NAME = -1;
+
+    private static final int ID = 0;
+
+    private static final int BALANCE = 1;
+
+    private static final int VERSION = 2;
+
+    private static final int NAME = 3;
+
+    private static final int CURRENCY = 4;
+
+    private static final int COLUMNS = 5;
+
+    private static final long COLUMN_SIZE = (long) CHUNK_SLOTS * Long.BYTES;
+
+    private static final Unsafe UNSAFE = unsafe();
+
+    private final int scale;
+
+    /**
+     * Address of every chunk of slots, replaced on growth so readers never see a partially filled table
+     */
+    private volatile long[] chunks = new long[0];
+
+    private long[] arenaChunks = new long[0];
+
+    /**
+     * Next free position in the arena, guarded by this
+     */
+    private long arenaEnd;
+
+    @Inject
+    public OffHeapAccountStore(Config config) {
+        this(config.getInt("repository.offHeap.scale"));
+    }
+
+    /**
+     * @param scale number of decimal places kept, e.g. 2 to store cents
+     */
+    public OffHeapAccountStore(int scale) {
+        Preconditions.checkArgument(scale >= 0, "Scale cannot be negative");
+        this.scale = scale;
+    }
+
+    @Override
+    public Account get(long id) {
+        long slot = slot(id);
+        return slot != 0 && UNSAFE.getLongVolatile(null, slot + column(ID)) == id ? new OffHeapAccount(id, slot) : null;
+    }
+
+    @Override
+    public synchronized void put(Account account) {
+        long id = account.getId();
+        Preconditions.checkArgument(id > 0, "Account id must be positive");
+        long slot = slot(id);
+        if (slot == 0) {
+            slot = allocate(id);
+        }
+        UNSAFE.putLong(slot + column(BALANCE), toUnits(account.getAmount()));
+        UNSAFE.putLong(slot + column(VERSION), 0);
+        UNSAFE.putLong(slot + column(NAME), storeName(account.getName()));
+        UNSAFE.putLong(slot + column(CURRENCY), packCurrency(account.getCurrency()));
+        UNSAFE.putLongVolatile(null, slot + column(ID), id);
+    }
+
+    @Override
+    public Collection<Account> values() {
+        long[] current = chunks;
+        List<Account> values = new ArrayList<>();
+        for (int chunk = 0; chunk < current.length; chunk++) {
+            if (current[chunk] == 0) {
+                continue;
+            }
+            for (int i = 0; i < CHUNK_SLOTS; i++) {
+                long slot = current[chunk] + (long) i * Long.BYTES;
+                long id = UNSAFE.getLongVolatile(null, slot + column(ID));
+                if (id != 0) {
+                    values.add(new OffHeapAccount(id, slot));
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public int maxScale() {
+        return scale;
+    }
+
+    /**
+     * Forget all accounts, keeping the memory for reuse
+     */
+    @Override
+    public synchronized void clear() {
+        for (long chunk : chunks) {
+            if (chunk != 0) {
+                UNSAFE.setMemory(chunk + column(ID), COLUMN_SIZE, (byte) 0);
+            }
+        }
+        arenaEnd = 0;
+    }
+
+    /**
+     * @return number of balance changes of the account since it was stored
+     */
+    long version(long id) {
+        long slot = slot(id);
+        Preconditions.checkArgument(slot != 0, "Unknown account");
+        return UNSAFE.getLongVolatile(null, slot + column(VERSION));
+    }
+
+    /**
+     * @return address of the slot in the id column or 0 if its chunk is not allocated
+     */
+    private long slot(long id) {
+        long[] current = chunks;
+        long chunk = id / CHUNK_SLOTS;
+        if (id < 0 || chunk >= current.length || current[(int) chunk] == 0) {
+            return 0;
+        }
+        return current[(int) chunk] + (id % CHUNK_SLOTS) * Long.BYTES;
+    }
+
+    private long allocate(long id) {
+        int chunk = (int) (id / CHUNK_SLOTS);
+        long address = UNSAFE.allocateMemory(COLUMNS * COLUMN_SIZE);
+        UNSAFE.setMemory(address, COLUMNS * COLUMN_SIZE, (byte) 0);
+        long[] grown = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length));
+        grown[chunk] = address;
+        chunks = grown;
+        return slot(id);
+    }
+
+    private static long column(int column) {
+        return column * COLUMN_SIZE;
+    }
+
+    private long toUnits(BigDecimal amount) {
+        if (amount == null) {
+            return NO_AMOUNT;
+        }
+        try {
+            return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString() + " must fit " + scale
+                    + " decimal places and 64 bits", e);
+        }
+    }
+
+    private long storeName(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        Preconditions.checkArgument(bytes.length <= MAX_NAME_BYTES, "Account name is too long");
+        long remaining = ARENA_CHUNK_SIZE - arenaEnd % ARENA_CHUNK_SIZE;
+        if (arenaEnd % ARENA_CHUNK_SIZE != 0 && remaining < Integer.BYTES + bytes.length) {
+            arenaEnd += remaining;
+        }
+        int chunk = (int) (arenaEnd / ARENA_CHUNK_SIZE);
+        if (chunk >= arenaChunks.length) {
+            arenaChunks = Arrays.copyOf(arenaChunks, chunk + 1);
+        }
+        if (arenaChunks[chunk] == 0) {
+            arenaChunks[chunk] = UNSAFE.allocateMemory(ARENA_CHUNK_SIZE);
+        }
+        long address = arenaChunks[chunk] + arenaEnd % ARENA_CHUNK_SIZE;
+        UNSAFE.putInt(address, bytes.length);
+        UNSAFE.copyMemory(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET, null, address + Integer.BYTES, bytes.length);
+        arenaEnd += Integer.BYTES + bytes.length;
+        return address;
+    }
+
+    private static String loadName(long reference) {
+        if (reference == NO_NAME) {
+            return null;
+        }
+        byte[] bytes = new byte[UNSAFE.getInt(reference)];
+        UNSAFE.copyMemory(null, reference + Integer.BYTES, bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long packCurrency(String currency) {
+        if (currency == null) {
+            return 0;
+        }
+        Preconditions.checkArgument(currency.length() <= Long.BYTES, "Currency code is too long");
+        long packed = 0;
+        for (int i = 0; i < currency.length(); i++) {
+            char c = currency.charAt(i);
+            Preconditions.checkArgument(c > 0 && c < 128, "Currency code must be ASCII");
+            packed = packed << Byte.SIZE | c;
+        }
+        return packed;
+    }
+
+    private static String unpackCurrency(long packed) {
+        if (packed == 0) {
+            return null;
+        }
+        StringBuilder currency = new StringBuilder(3);
+        for (; packed != 0; packed >>>= Byte.SIZE) {
+            currency.append((char) (packed & 0xFF));
+        }
+        return currency.reverse().toString();
+    }
+
+    private static Unsafe unsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * View of a stored account, every call goes to off-heap memory
+     */
+    private final class OffHeapAccount extends Account {
+
+        private final long slot;
+
+        private OffHeapAccount(long id, long slot) {
+            super(id, null, null, null);
+            this.slot = slot;
+        }
+
+        @Override
+        public String getName() {
+            return loadName(UNSAFE.getLong(slot + column(NAME)));
+        }
+
+        @Override
+        public String getCurrency() {
+            return unpackCurrency(UNSAFE.getLong(slot + column(CURRENCY)));
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            long units = UNSAFE.getLongVolatile(null, slot + column(BALANCE));
+            return units == NO_AMOUNT ? null : BigDecimal.valueOf(units, scale);
+        }
+
+        /**
+         * Must be called by the only thread currently mutating the account
+         *
+         * @throws IllegalArgumentException - when the amount has more decimal places than the store keeps
+         */
+        @Override
+        public void setAmount(BigDecimal amount) {
+            UNSAFE.putLongVolatile(null, slot + column(BALANCE), toUnits(amount));
+            UNSAFE.putOrderedLong(null, slot + column(VERSION), UNSAFE.getLong(slot + column(VERSION)) + 1);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.revolut.interview.repository;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.model.Account;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link AccountStore} keeping at most <code>capacity</code> accounts on heap and paging the rest out to a
+ * {@link ColdAccountFile}. Which accounts stay is decided by {@link TinyLfuPolicy}.
+ * <p>
+ * An account is only evicted while its {@link LockManager} lock is free, and the lock is held while it is
+ * written out, so the account cannot change in the meantime. Writers must look the account up again once
+ * they hold its lock: the instance they got before may have been evicted, and changing it would be lost.
+ * <p>
+ * Concurrent lookups of the same cold account share a single load. Reads of hot accounts update the eviction
+ * policy only when its lock is free, dropping the access otherwise, so hot reads never wait.
+ */
+@Singleton
+public class TieredAccountStore implements AccountStore, Closeable {
+
+    private final Map<Long, Account> hot = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, CompletableFuture<Account>> loading = new ConcurrentHashMap<>();
+
+    private final LockManager lockManager;
+
+    private final ColdAccountFile cold;
+
+    private final TinyLfuPolicy policy;
+
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    @Inject
+    public TieredAccountStore(LockManager lockManager, Config config) {
+        this(lockManager, config.getInt("repository.tiered.capacity"),
+                Paths.get(config.getString("repository.tiered.file")));
+    }
+
+    /**
+     * @param capacity max number of accounts on heap
+     * @param file     file for the other accounts, replaced if exists
+     */
+    public TieredAccountStore(LockManager lockManager, int capacity, Path file) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+        this.lockManager = lockManager;
+        this.cold = new ColdAccountFile(file);
+        this.policy = new TinyLfuPolicy(capacity);
+    }
+
+    @Override
+    public Account get(long id) {
+        Account account = hot.get(id);
+        if (account != null) {
+            if (policyLock.tryLock()) {
+                try {
+                    policy.recordAccess(id);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return account;
+        }
+        return cold.contains(id) ? load(id) : null;
+    }
+
+    @Override
+    public void put(Account account) {
+        hot.put(account.getId(), account);
+        admit(account.getId());
+    }
+
+    @Override
+    public Collection<Account> values() {
+        List<Account> values = new ArrayList<>(hot.values());
+        cold.forEachId(id -> {
+            if (!hot.containsKey(id)) {
+                Account account = cold.read(id);
+                if (account != null) {
+                    values.add(account);
+                }
+            }
+        });
+        return values;
+    }
+
+    @Override
+    public void clear() {
+        policyLock.lock();
+        try {
+            hot.clear();
+            policy.clear();
+            cold.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of accounts on heap
+     */
+    public int hotSize() {
+        return hot.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cold.close();
+    }
+
+    private Account load(long id) {
+        while (true) {
+            CompletableFuture<Account> loaded = new CompletableFuture<>();
+            CompletableFuture<Account> inFlight = loading.putIfAbsent(id, loaded);
+            if (inFlight != null) {
+                Account account = join(inFlight);
+                if (account == null || hot.get(id) == account) {
+                    return account;
+                }
+                // evicted again right after the load, that instance is stale
+                continue;
+            }
+            try {
+                Account account = hot.get(id);
+                if (account == null) {
+                    account = cold.read(id);
+                    if (account != null) {
+                        hot.put(id, account);
+                        admit(id);
+                    }
+                }
+                loaded.complete(account);
+                return account;
+            } catch (RuntimeException e) {
+                loaded.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(id, loaded);
+            }
+        }
+    }
+
+    private void admit(long id) {
+        policyLock.lock();
+        try {
+            policy.recordInsert(id);
+            policy.evict(this::evict);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private boolean evict(long id) {
+        LockManager.Locked locked = lockManager.tryLock(id);
+        if (locked == null) {
+            return false;
+        }
+        try {
+            Account account = hot.get(id);
+            if (account != null) {
+                cold.write(account);
+                hot.remove(id);
+            }
+            return true;
+        } finally {
+            locked.close();
+        }
+    }
+
+    private static Account join(CompletableFuture<Account> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
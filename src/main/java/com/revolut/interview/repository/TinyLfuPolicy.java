@@ -0,0 +1,120 @@
+package com.revolut.interview.repository;
+
+import java.util.LinkedHashSet;
+import java.util.function.LongPredicate;
+
+/**
+ * W-TinyLFU eviction order of cached account ids.
+ * <p>
+ * New ids enter a small LRU window (1% of capacity). Ids leaving the window compete with the least recently
+ * used id of the main space and the one used less often according to the {@link FrequencySketch} is evicted,
+ * so a burst of one-off reads cannot flush frequently used accounts. The main space is a segmented LRU:
+ * ids start in probation and move to the protected segment (80% of it) when used again.
+ * <p>
+ * Not thread safe, guarded by the owning store.
+ */
+class TinyLfuPolicy {
+
+    private final int maximum;
+
+    private final int windowMaximum;
+
+    private final int protectedMaximum;
+
+    private final LinkedHashSet<Long> window = new LinkedHashSet<>();
+
+    private final LinkedHashSet<Long> probation = new LinkedHashSet<>();
+
+    private final LinkedHashSet<Long> protectedSegment = new LinkedHashSet<>();
+
+    private final FrequencySketch sketch;
+
+    TinyLfuPolicy(int maximum) {
+        this.maximum = maximum;
+        this.windowMaximum = Math.max(1, maximum / 100);
+        this.protectedMaximum = (maximum - windowMaximum) * 4 / 5;
+        this.sketch = new FrequencySketch(maximum);
+    }
+
+    void recordInsert(long id) {
+        sketch.increment(id);
+        window.add(id);
+    }
+
+    void recordAccess(long id) {
+        sketch.increment(id);
+        Long key = id;
+        if (window.remove(key)) {
+            window.add(key);
+        } else if (probation.remove(key)) {
+            protectedSegment.add(key);
+            if (protectedSegment.size() > protectedMaximum) {
+                Long demoted = first(protectedSegment);
+                protectedSegment.remove(demoted);
+                probation.add(demoted);
+            }
+        } else if (protectedSegment.remove(key)) {
+            protectedSegment.add(key);
+        }
+    }
+
+    int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Evict ids until the size is back within maximum. An id the evictor refuses is moved to the most recently
+     * used end of its segment; if every id is refused the size is left above maximum until the next call.
+     *
+     * @param evictor removes the id from the cache, returns <code>false</code> if it cannot be evicted now
+     */
+    void evict(LongPredicate evictor) {
+        int attempts = size();
+        while ((window.size() > windowMaximum || size() > maximum) && attempts-- >= 0) {
+            Long candidate = window.size() > windowMaximum ? first(window) : null;
+            if (size() <= maximum) {
+                window.remove(candidate);
+                probation.add(candidate);
+                continue;
+            }
+            Long victim = !probation.isEmpty() ? first(probation)
+                    : !protectedSegment.isEmpty() ? first(protectedSegment) : null;
+
+            Long evicted;
+            if (candidate == null) {
+                evicted = victim != null ? victim : first(window);
+            } else if (victim == null || sketch.frequency(candidate) <= sketch.frequency(victim)) {
+                evicted = candidate;
+            } else {
+                evicted = victim;
+            }
+
+            LinkedHashSet<Long> segment = segment(evicted);
+            segment.remove(evicted);
+            if (!evictor.test(evicted)) {
+                segment.add(evicted);
+            } else if (candidate != null && !evicted.equals(candidate)) {
+                window.remove(candidate);
+                probation.add(candidate);
+            }
+        }
+    }
+
+    void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        sketch.clear();
+    }
+
+    private LinkedHashSet<Long> segment(Long id) {
+        if (window.contains(id)) {
+            return window;
+        }
+        return probation.contains(id) ? probation : protectedSegment;
+    }
+
+    private static Long first(LinkedHashSet<Long> segment) {
+        return segment.iterator().next();
+    }
+}
@@ -0,0 +1,107 @@
+package com.revolut.interview.schedule;
+
+import com.revolut.interview.dto.ScheduledTransferResponse;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Pending transfer in the {@link TimingWheel}. Executed by one thread at a time, as it is in the wheel at most
+ * once; the other threads only read it or cancel it.
+ */
+@Getter
+class ScheduledTransfer {
+
+    static final int UNLIMITED = -1;
+
+    private final long id;
+
+    private final long fromAccountId;
+
+    private final long toAccountId;
+
+    private final BigDecimal amount;
+
+    /**
+     * Zero for a one-off transfer, which has a single execution
+     */
+    private final long repeatEveryMillis;
+
+    private volatile long nextExecutionMillis;
+
+    private volatile int remaining;
+
+    private volatile long executed;
+
+    private volatile long failed;
+
+    private volatile String lastError;
+
+    private volatile boolean cancelled;
+
+    ScheduledTransfer(long id, long fromAccountId, long toAccountId, BigDecimal amount,
+                      long firstExecutionMillis, long repeatEveryMillis, int times) {
+        this.id = id;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.nextExecutionMillis = firstExecutionMillis;
+        this.repeatEveryMillis = repeatEveryMillis;
+        this.remaining = times;
+    }
+
+    /**
+     * Record an execution
+     *
+     * @param error     failure message or <code>null</code> if the transfer succeeded
+     * @param nowMillis current time, occurrences due before it are skipped
+     * @return <code>true</code> when the transfer has to run again
+     */
+    boolean completed(String error, long nowMillis) {
+        if (error == null) {
+            executed++;
+        } else {
+            failed++;
+            lastError = error;
+        }
+        if (remaining != UNLIMITED) {
+            remaining--;
+        }
+        if (repeatEveryMillis == 0 || remaining == 0 || cancelled) {
+            return false;
+        }
+        // next to the previous planned time, so executions do not drift
+        nextExecutionMillis += repeatEveryMillis;
+        if (nextExecutionMillis < nowMillis) {
+            // missed while the node was behind, running them all at once would repeat the transfer in a burst
+            nextExecutionMillis += Math.floorDiv(nowMillis - nextExecutionMillis + repeatEveryMillis - 1,
+                    repeatEveryMillis) * repeatEveryMillis;
+        }
+        return true;
+    }
+
+    /**
+     * Run again after <code>delayMillis</code> without counting an execution, e.g. when accounts are busy
+     */
+    void retry(long nowMillis, long delayMillis) {
+        nextExecutionMillis = nowMillis + delayMillis;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isDone() {
+        return cancelled || remaining == 0;
+    }
+
+    ScheduledTransferResponse toResponse() {
+        return new ScheduledTransferResponse(id, fromAccountId, toAccountId, amount,
+                isDone() ? null : Instant.ofEpochMilli(nextExecutionMillis),
+                repeatEveryMillis == 0 ? null : Duration.ofMillis(repeatEveryMillis),
+                remaining == UNLIMITED ? null : remaining,
+                executed, failed, lastError);
+    }
+}
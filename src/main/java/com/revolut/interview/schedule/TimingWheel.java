@@ -0,0 +1,122 @@
+package com.revolut.interview.schedule;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hierarchical timing wheel of entries with a deadline.
+ * <p>
+ * Every level has <code>wheelSize</code> slots, a slot of level 0 spans one tick and a slot of every next
+ * level spans a whole turn of the level below. An entry is added to the lowest level whose turn covers its
+ * delay, so adding is O(1) whatever the number of pending entries. When time enters the span of a slot of
+ * an upper level, its entries are spread over the levels below; entries beyond the top level are put back
+ * until their turn comes. Entries due in the same tick are returned together.
+ * <p>
+ * Not thread safe, guarded by its owner.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final int levels;
+
+    private final int bits;
+
+    private final int mask;
+
+    private final ArrayDeque<T>[][] slots;
+
+    private final ToLongFunction<T> deadline;
+
+    /**
+     * Next tick to fire, every entry due before it has been returned
+     */
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * @param wheelSize slots per level, a power of two
+     * @param deadline  due time of an entry in epoch milliseconds
+     */
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis, ToLongFunction<T> deadline) {
+        Preconditions.checkArgument(tickMillis > 0, "Tick must be positive");
+        Preconditions.checkArgument(wheelSize > 1 && Integer.bitCount(wheelSize) == 1,
+                "Wheel size must be a power of two");
+        Preconditions.checkArgument(levels > 0 && levels * Integer.numberOfTrailingZeros(wheelSize) < Long.SIZE - 1,
+                "Levels must be positive and cover less than 2^63 ticks");
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        @SuppressWarnings("unchecked")
+        ArrayDeque<T>[][] slots = (ArrayDeque<T>[][]) new ArrayDeque<?>[levels][wheelSize];
+        this.slots = slots;
+        this.deadline = deadline;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Add an entry, entries already due are returned by the next {@link #advance(long)}
+     */
+    public void add(T entry) {
+        long tick = Math.max(deadline.applyAsLong(entry) / tickMillis, currentTick);
+        long delay = tick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delay >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (bits * level)) & mask);
+        ArrayDeque<T> bucket = slots[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            slots[level][slot] = bucket;
+        }
+        bucket.add(entry);
+        size++;
+    }
+
+    /**
+     * Advance time, catching up on every tick missed since the last call
+     *
+     * @param nowMillis current time
+     * @return entries of every tick up to <code>nowMillis</code>, one collection per tick with due entries
+     */
+    public List<ArrayDeque<T>> advance(long nowMillis) {
+        List<ArrayDeque<T>> due = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        for (; currentTick <= target; currentTick++) {
+            for (int level = 1; level < levels && (currentTick & ((1L << (bits * level)) - 1)) == 0; level++) {
+                ArrayDeque<T> bucket = take(level, (int) ((currentTick >>> (bits * level)) & mask));
+                if (bucket != null) {
+                    bucket.forEach(this::add);
+                }
+            }
+            ArrayDeque<T> bucket = take(0, (int) (currentTick & mask));
+            if (bucket != null) {
+                due.add(bucket);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return number of entries not returned yet
+     */
+    public int size() {
+        return size;
+    }
+
+    private ArrayDeque<T> take(int level, int slot) {
+        ArrayDeque<T> bucket = slots[level][slot];
+        if (bucket != null) {
+            slots[level][slot] = null;
+            size -= bucket.size();
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,240 @@
+package com.revolut.interview.schedule;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.interview.dto.ScheduledTransferResponse;
+import com.revolut.interview.dto.TransferRequest;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.exception.ScheduledTransferNotFoundException;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngine;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Future-dated and recurring transfers.
+ * <p>
+ * Pending transfers are kept in a {@link TimingWheel} advanced by a single timer thread every tick. Transfers
+ * due in the same tick are run through the {@link TransferEngine} in batches of <code>batchSize</code> on a
+ * bounded pool; when its queue is full the timer thread runs the batch itself, so a burst of due transfers
+ * delays the following ticks instead of piling up. Transfers which find an account busy are retried on the
+ * next tick, other failures are recorded and count as an execution.
+ * <p>
+ * Schedules live in memory of the node owning the source account and are lost on restart.
+ */
+@Slf4j
+@Singleton
+public class TransferScheduler {
+
+    private final AccountService accountService;
+
+    private final TransferEngine transferEngine;
+
+    private final long tickMillis;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    private final int queue;
+
+    private final TimingWheel<ScheduledTransfer> wheel;
+
+    private final Map<Long, ScheduledTransfer> transfers = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private ScheduledExecutorService timer;
+
+    private ThreadPoolExecutor executor;
+
+    @Inject
+    public TransferScheduler(AccountService accountService, TransferEngine transferEngine, Config config) {
+        this(accountService, transferEngine,
+                config.getDuration("transfer.schedule.tick", TimeUnit.MILLISECONDS),
+                config.getInt("transfer.schedule.wheelSize"),
+                config.getInt("transfer.schedule.levels"),
+                config.getInt("transfer.schedule.batchSize"),
+                config.getInt("transfer.schedule.threads"),
+                config.getInt("transfer.schedule.queue"));
+    }
+
+    /**
+     * @param wheelSize slots per timing wheel level, a power of two
+     * @param levels    timing wheel levels, transfers due later than <code>wheelSize^levels</code> ticks are
+     *                  moved around the top level until their turn
+     * @param queue     max batches waiting for a thread
+     */
+    public TransferScheduler(AccountService accountService, TransferEngine transferEngine, long tickMillis,
+                             int wheelSize, int levels, int batchSize, int threads, int queue) {
+        Preconditions.checkArgument(batchSize > 0 && threads > 0 && queue > 0,
+                "Batch size, threads and queue must be positive");
+        this.accountService = accountService;
+        this.transferEngine = transferEngine;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.threads = threads;
+        this.queue = queue;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, levels, System.currentTimeMillis(),
+                ScheduledTransfer::getNextExecutionMillis);
+    }
+
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                new ThreadFactoryBuilder().setNameFormat("scheduled-transfers-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("transfer-timer").setDaemon(true).build());
+        timer.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        timer.awaitTermination(1, TimeUnit.MINUTES);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        timer = null;
+        executor = null;
+    }
+
+    /**
+     * Schedule a transfer from the account
+     *
+     * @param request transfer with <code>executeAt</code> and/or <code>repeatEvery</code>, the first execution
+     *                of a recurring transfer without <code>executeAt</code> is one interval from now
+     * @throws IllegalArgumentException - on validation error, e.g. <code>executeAt</code> earlier than a tick ago
+     * @throws com.revolut.interview.exception.AccountNotFoundException - when the source account does not exist
+     */
+    public ScheduledTransferResponse schedule(long fromAccountId, TransferRequest request) {
+        Preconditions.checkArgument(request.getAmount() != null, "Amount should be set");
+        Preconditions.checkArgument(request.getAmount().signum() > 0, "Amount must be positive");
+        Preconditions.checkArgument(request.getToAccountId() != null, "Target account should be set");
+        Preconditions.checkArgument(request.getExecuteAt() != null || request.getRepeatEvery() != null,
+                "Execution time or interval should be set");
+        if (request.getToAccountId() == fromAccountId) {
+            throw new InvalidTransferException("Cannot transfer to same account");
+        }
+        long repeatEveryMillis = 0;
+        int times = 1;
+        if (request.getRepeatEvery() != null) {
+            repeatEveryMillis = request.getRepeatEvery().toMillis();
+            Preconditions.checkArgument(repeatEveryMillis >= tickMillis, "Interval must be at least %sms",
+                    tickMillis);
+            Preconditions.checkArgument(request.getTimes() == null || request.getTimes() > 0,
+                    "Times must be positive");
+            times = request.getTimes() != null ? request.getTimes() : ScheduledTransfer.UNLIMITED;
+        }
+        long now = System.currentTimeMillis();
+        // a tick of tolerance, so "now" sent by a client is still accepted
+        Preconditions.checkArgument(request.getExecuteAt() == null
+                || request.getExecuteAt().toEpochMilli() >= now - tickMillis, "Execution time is in the past");
+        accountService.getById(fromAccountId);
+
+        long first = request.getExecuteAt() != null ? request.getExecuteAt().toEpochMilli() : now + repeatEveryMillis;
+        ScheduledTransfer transfer = new ScheduledTransfer(ids.incrementAndGet(), fromAccountId,
+                request.getToAccountId(), request.getAmount(), first, repeatEveryMillis, times);
+        transfers.put(transfer.getId(), transfer);
+        synchronized (wheel) {
+            wheel.add(transfer);
+        }
+        return transfer.toResponse();
+    }
+
+    /**
+     * @throws ScheduledTransferNotFoundException - when the account has no such pending transfer
+     */
+    public ScheduledTransferResponse get(long fromAccountId, long id) {
+        return find(fromAccountId, id).toResponse();
+    }
+
+    /**
+     * Cancel a pending transfer. An execution already in progress is not stopped.
+     *
+     * @throws ScheduledTransferNotFoundException - when the account has no such pending transfer
+     */
+    public ScheduledTransferResponse cancel(long fromAccountId, long id) {
+        ScheduledTransfer transfer = find(fromAccountId, id);
+        transfer.cancel();
+        transfers.remove(id);
+        return transfer.toResponse();
+    }
+
+    /**
+     * @return number of pending transfers
+     */
+    public int pending() {
+        return transfers.size();
+    }
+
+    private ScheduledTransfer find(long fromAccountId, long id) {
+        ScheduledTransfer transfer = transfers.get(id);
+        if (transfer == null || transfer.getFromAccountId() != fromAccountId) {
+            throw new ScheduledTransferNotFoundException("Scheduled transfer #" + id + " of account #"
+                    + fromAccountId + " not found");
+        }
+        return transfer;
+    }
+
+    private void tick() {
+        List<ArrayDeque<ScheduledTransfer>> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        for (ArrayDeque<ScheduledTransfer> bucket : due) {
+            for (List<ScheduledTransfer> batch : Iterables.partition(bucket, batchSize)) {
+                executor.execute(() -> batch.forEach(this::execute));
+            }
+        }
+    }
+
+    private void execute(ScheduledTransfer transfer) {
+        if (transfer.isCancelled()) {
+            return;
+        }
+        String error = null;
+        try {
+            transferEngine.transfer(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount());
+        } catch (AccountBusyException e) {
+            transfer.retry(System.currentTimeMillis(), tickMillis);
+            reschedule(transfer);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Scheduled transfer #{} from account #{} failed: {}", transfer.getId(),
+                    transfer.getFromAccountId(), e.getMessage());
+            error = e.getMessage();
+        }
+        if (transfer.completed(error, System.currentTimeMillis())) {
+            reschedule(transfer);
+        } else {
+            transfers.remove(transfer.getId());
+        }
+    }
+
+    private void reschedule(ScheduledTransfer transfer) {
+        synchronized (wheel) {
+            wheel.add(transfer);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.revolut.interview.service;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.limit.VelocityLimits;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Validation and balance arithmetic shared by {@link TransferEngine} implementations.
+ * Subclasses only decide how mutations of the same account are serialized.
+ */
+abstract class AbstractTransferEngine implements TransferEngine {
+
+    protected final AccountService accountService;
+
+    protected final VelocityLimits limits;
+
+    protected AbstractTransferEngine(AccountService accountService, VelocityLimits limits) {
+        this.accountService = accountService;
+        this.limits = limits;
+    }
+
+    /**
+     * Change account balance and journal the change, must be called by the only thread currently
+     * mutating the account
+     *
+     * @param type           journal record type
+     * @param counterpartyId other account of a transfer, batch job of an adjustment,
+     *                       {@link JournalRecord#NO_COUNTERPARTY} otherwise
+     * @return journal sequence of the change
+     * @throws InsufficientFundsException - when balance would become negative or, for a debit, lower than
+     *                                    the amount held on the account
+     */
+    protected long addAmount(Account account, BigDecimal amount, JournalRecord.Type type, long counterpartyId) {
+        return addAmount(account, amount, type, counterpartyId, null);
+    }
+
+    /**
+     * @param reference cross-node transaction id journaled with the change, <code>null</code> for none
+     * @see #addAmount(Account, BigDecimal, JournalRecord.Type, long)
+     */
+    protected long addAmount(Account account, BigDecimal amount, JournalRecord.Type type, long counterpartyId,
+                             String reference) {
+
+        BigDecimal result = account.getAmount().add(amount);
+        if (result.signum() == -1
+                || amount.signum() < 0 && result.compareTo(accountService.holds().reserved(account.getId())) < 0) {
+            throw new InsufficientFundsException("Insufficient funds on account #" + account.getId());
+        }
+
+        account.setAmount(result);
+        return accountService.journal().append(type, account, counterpartyId, amount, reference);
+    }
+
+    /**
+     * Amount credited to the target account of a transfer, in its currency
+     *
+     * @param amount amount debited from the source account
+     * @throws InvalidTransferException - when there is no rate for a currency or the amount converts to nothing
+     */
+    protected BigDecimal convert(Account from, Account to, BigDecimal amount) {
+        BigDecimal credited = accountService.convert(amount, from, to);
+        if (credited.signum() <= 0) {
+            throw new InvalidTransferException("Amount " + amount + " is too small to convert to " + to.getCurrency());
+        }
+        return credited;
+    }
+
+    /**
+     * Run a debit counted by the velocity limits of the account, the debit is not counted if it fails. Must be
+     * called without holding account locks.
+     *
+     * @throws com.revolut.interview.exception.VelocityLimitExceededException - when the debit exceeds a limit
+     */
+    protected <T> T withinLimits(Account account, BigDecimal amount, Supplier<T> debit) {
+        long acquiredAt = limits.acquire(account.getId(), amount);
+        try {
+            return debit.get();
+        } catch (RuntimeException e) {
+            limits.release(account.getId(), amount, acquiredAt);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserve money of the account, must be called by the only thread currently mutating the account
+     *
+     * @throws InsufficientFundsException - when balance without other holds is lower than the amount
+     */
+    protected Hold placeHold(Account account, long toAccountId, BigDecimal amount, Duration expiresIn) {
+        HoldLedger holds = accountService.holds();
+        if (account.getAmount().subtract(holds.reserved(account.getId())).compareTo(amount) < 0) {
+            throw new InsufficientFundsException("Insufficient funds on account #" + account.getId());
+        }
+        return holds.add(account.getId(), toAccountId, amount, System.currentTimeMillis() + expiresIn.toMillis());
+    }
+
+    /**
+     * Remove a hold to capture it, must be called by the only thread currently mutating the account
+     *
+     * @param amount amount to capture, the whole hold when <code>null</code>
+     * @throws HoldNotFoundException    - when there is no such active hold or it has expired
+     * @throws IllegalArgumentException - when amount is above the held amount
+     */
+    protected Hold takeHold(long accountId, long holdId, BigDecimal amount) {
+        HoldLedger holds = accountService.holds();
+        Hold hold = holds.get(accountId, holdId);
+        Preconditions.checkArgument(amount == null || amount.compareTo(hold.getAmount()) <= 0,
+                "Cannot capture more than held %s", hold.getAmount());
+        holds.remove(accountId, holdId);
+        if (hold.getExpiresAtMillis() <= System.currentTimeMillis()) {
+            throw new HoldNotFoundException("Hold #" + holdId + " of account #" + accountId + " expired");
+        }
+        return hold;
+    }
+
+    /**
+     * Put back a hold taken for a capture which failed
+     */
+    protected void restoreHold(Hold hold) {
+        accountService.holds().put(hold);
+    }
+
+    /**
+     * Release a hold, must be called by the only thread currently mutating the account
+     *
+     * @throws HoldNotFoundException - when there is no such active hold
+     */
+    protected Hold releaseHold(long accountId, long holdId) {
+        return accountService.holds().remove(accountId, holdId);
+    }
+
+    /**
+     * Wait for journal listeners, e.g. replication, to acknowledge the change. Must be called without
+     * holding account locks.
+     */
+    protected void awaitAcknowledged(long sequence) {
+        accountService.journal().awaitAcknowledged(sequence);
+    }
+
+    /**
+     * @return detached copy of the account, which later changes do not affect
+     */
+    protected static Account copy(Account account) {
+        return account == null ? null
+                : new Account(account.getId(), account.getName(), account.getCurrency(), account.getAmount());
+    }
+
+    protected void checkAmount(BigDecimal amount) {
+        Preconditions.checkArgument(amount != null, "Amount should be set");
+        Preconditions.checkArgument(amount.signum() > 0, "Amount must be positive");
+    }
+
+    protected void checkHold(BigDecimal amount, Duration expiresIn) {
+        checkAmount(amount);
+        Preconditions.checkArgument(expiresIn != null && !expiresIn.isNegative() && !expiresIn.isZero(),
+                "Expiration must be positive");
+    }
+
+    protected void checkDifferent(Account from, Account to) {
+        if (to.equals(from)) {
+            throw new InvalidTransferException("Cannot transfer to same account");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.revolut.interview.service;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Mailbox of a single account. Messages are run one at a time on a shared executor, so they never
+ * need a lock; at most {@link #THROUGHPUT} messages are processed per turn to let other actors make
+ * progress on a skewed load.
+ */
+final class AccountActor implements Runnable {
+
+    static final int THROUGHPUT = 64;
+
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final Executor executor;
+
+    AccountActor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Enqueue an operation
+     *
+     * @return future completed with the operation result once the actor has run it
+     */
+    <T> CompletableFuture<T> ask(Supplier<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tell(() -> {
+            try {
+                result.complete(operation.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Enqueue a message which reports its outcome by itself
+     */
+    void tell(Runnable message) {
+        mailbox.offer(message);
+        schedule();
+    }
+
+    @Override
+    public void run() {
+        Runnable message;
+        int processed = 0;
+        while (processed++ < THROUGHPUT && (message = mailbox.poll()) != null) {
+            message.run();
+        }
+        scheduled.set(false);
+        if (!mailbox.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Flat combining of mutations of a single account.
+ * <p>
+ * Callers enqueue their mutation and one of them becomes the combiner: it locks the account once, applies up
+ * to {@link #MAX_BATCH} queued mutations in queue order and hands every caller its own result. The other
+ * callers only wait, so a hot account is locked once per batch instead of once per mutation. A mutation
+ * failing, e.g. for insufficient funds, fails only its caller; when the account cannot be locked at all,
+ * every queued mutation fails the same way.
+ */
+final class AccountCombiner {
+
+    static final int MAX_BATCH = 64;
+
+    /**
+     * Upper bound of a wait, so a caller enqueued while the combiner was finishing takes over soon
+     */
+    private static final long PARK_NANOS = 50_000;
+
+    private final Queue<Mutation> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean combining = new AtomicBoolean();
+
+    /**
+     * Apply a mutation, by the calling thread or by the current combiner
+     *
+     * @param change mutation of the locked account, returns journal sequence of the change
+     * @param batch  locks the account and runs the given batch on its current instance
+     * @return result of <code>change</code>
+     */
+    long apply(ToLongFunction<Account> change, Consumer<Consumer<Account>> batch) {
+        Mutation mutation = new Mutation(change);
+        pending.offer(mutation);
+        while (!mutation.done) {
+            if (combining.compareAndSet(false, true)) {
+                try {
+                    combine(batch);
+                } finally {
+                    combining.set(false);
+                }
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+        if (mutation.failure != null) {
+            throw mutation.failure;
+        }
+        return mutation.sequence;
+    }
+
+    /**
+     * @return <code>true</code> when nothing is queued or being applied
+     */
+    boolean isIdle() {
+        return pending.isEmpty() && !combining.get();
+    }
+
+    private void combine(Consumer<Consumer<Account>> batch) {
+        List<Mutation> applied = new ArrayList<>();
+        try {
+            batch.accept(account -> {
+                Mutation mutation;
+                while (applied.size() < MAX_BATCH && (mutation = pending.poll()) != null) {
+                    try {
+                        mutation.sequence = mutation.change.applyAsLong(account);
+                    } catch (RuntimeException e) {
+                        mutation.failure = e;
+                    }
+                    applied.add(mutation);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the account could not be locked or found, queued mutations would fail the same way
+            Mutation mutation;
+            while ((mutation = pending.poll()) != null) {
+                mutation.failure = e;
+                applied.add(mutation);
+            }
+        } finally {
+            // completed once the lock is released, so woken callers do not contend for it
+            for (Mutation mutation : applied) {
+                mutation.done = true;
+                LockSupport.unpark(mutation.waiter);
+            }
+        }
+    }
+
+    private static final class Mutation {
+
+        private final ToLongFunction<Account> change;
+
+        private final Thread waiter = Thread.currentThread();
+
+        private long sequence;
+
+        private RuntimeException failure;
+
+        /**
+         * Written last, publishes sequence and failure to the waiter
+         */
+        private volatile boolean done;
+
+        private Mutation(ToLongFunction<Account> change) {
+            this.change = change;
+        }
+    }
+}
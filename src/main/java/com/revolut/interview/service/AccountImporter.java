@@ -0,0 +1,193 @@
+package com.revolut.interview.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.revolut.interview.dto.CreateAccountRequest;
+import com.revolut.interview.dto.ImportLineResult;
+import com.revolut.interview.model.Account;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk account creation from NDJSON or CSV input.
+ * <p>
+ * Input is parsed lazily while the result is being read: every {@link #BATCH_SIZE} lines are validated,
+ * created with a single block of ids and rendered as NDJSON {@link ImportLineResult} lines. Memory usage
+ * does not depend on input size.
+ * <p>
+ * CSV accounts are created in the base currency, NDJSON lines may set a <code>currency</code>.
+ */
+@Singleton
+public class AccountImporter {
+
+    static final int BATCH_SIZE = 4096;
+
+    private static final String CSV_HEADER = "name,amount";
+
+    private final AccountService accountService;
+
+    private final ObjectReader requestReader;
+
+    private final ObjectWriter resultWriter;
+
+    @Inject
+    public AccountImporter(AccountService accountService, ObjectMapper mapper) {
+        this.accountService = accountService;
+        this.requestReader = mapper.readerFor(CreateAccountRequest.class);
+        this.resultWriter = mapper.writerFor(ImportLineResult.class);
+    }
+
+    /**
+     * Import accounts
+     *
+     * @param input  accounts, one per line
+     * @param format input format
+     * @return NDJSON stream with one result per non-empty input line, import runs as the stream is read
+     */
+    public InputStream importAccounts(InputStream input, ImportFormat format) {
+        return new ImportStream(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)), format);
+    }
+
+    private CreateAccountRequest parse(String line, ImportFormat format) throws IOException {
+        if (format == ImportFormat.NDJSON) {
+            return requestReader.readValue(line);
+        }
+        int separator = line.lastIndexOf(',');
+        if (separator < 0) {
+            return new CreateAccountRequest(line.trim(), null);
+        }
+        String amount = line.substring(separator + 1).trim();
+        return new CreateAccountRequest(
+                line.substring(0, separator).trim(),
+                amount.isEmpty() ? null : new BigDecimal(amount));
+    }
+
+    private class ImportStream extends InputStream {
+
+        private final BufferedReader reader;
+
+        private final ImportFormat format;
+
+        private final List<ImportLineResult> results = new ArrayList<>(BATCH_SIZE);
+
+        private final List<ImportLineResult> pending = new ArrayList<>(BATCH_SIZE);
+
+        private final List<String> names = new ArrayList<>(BATCH_SIZE);
+
+        private final List<String> currencies = new ArrayList<>(BATCH_SIZE);
+
+        private final List<BigDecimal> amounts = new ArrayList<>(BATCH_SIZE);
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(BATCH_SIZE * 32);
+
+        private byte[] buffer = new byte[0];
+
+        private int position;
+
+        private long lineNumber;
+
+        private boolean eof;
+
+        private ImportStream(BufferedReader reader, ImportFormat format) {
+            this.reader = reader;
+            this.format = format;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private boolean fill() throws IOException {
+            while (position == buffer.length) {
+                if (eof) {
+                    return false;
+                }
+                nextBatch();
+            }
+            return true;
+        }
+
+        private void nextBatch() throws IOException {
+            results.clear();
+            pending.clear();
+            names.clear();
+            currencies.clear();
+            amounts.clear();
+
+            String line;
+            while (results.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || isHeader(line)) {
+                    continue;
+                }
+                ImportLineResult result = new ImportLineResult(lineNumber, null, null);
+                results.add(result);
+                try {
+                    CreateAccountRequest request = parse(line, format);
+                    BigDecimal amount = accountService.checkNewAccount(request.getName(), request.getAmount());
+                    currencies.add(accountService.checkCurrency(request.getCurrency()));
+                    amounts.add(amount);
+                    names.add(request.getName());
+                    pending.add(result);
+                } catch (IOException | RuntimeException e) {
+                    result.setError(e.getMessage());
+                }
+            }
+            eof = results.size() < BATCH_SIZE;
+
+            if (!pending.isEmpty()) {
+                List<Account> created = accountService.createAll(names, currencies, amounts);
+                for (int i = 0; i < created.size(); i++) {
+                    pending.get(i).setId(created.get(i).getId());
+                }
+            }
+
+            out.reset();
+            for (ImportLineResult result : results) {
+                resultWriter.writeValue(out, result);
+                out.write('\n');
+            }
+            buffer = out.toByteArray();
+            position = 0;
+        }
+
+        private boolean isHeader(String line) {
+            return format == ImportFormat.CSV && lineNumber == 1 && CSV_HEADER.equalsIgnoreCase(line.trim());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.revolut.interview.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.revolut.interview.lock.StripedLockManager;
+import com.revolut.interview.model.Account;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Bulk balance reads.
+ * <p>
+ * All requested accounts are read with a single {@link TransferEngine#read(long[])} call, missing ids are
+ * collected instead of failing, and the result is rendered lazily while it is being read, {@link #BATCH_SIZE}
+ * accounts at a time, as
+ * <pre>
+ * {"accounts":[{"id":1,"currency":"EUR","amount":10.00},...],"missing":[7,...]}
+ * </pre>
+ */
+@Singleton
+public class AccountLookup {
+
+    /**
+     * The LOCK engine holds the locks of all requested accounts while it reads them, so a lookup never takes
+     * more locks than there are stripes
+     */
+    static final int MAX_IDS = StripedLockManager.DEFAULT_STRIPES;
+
+    static final int BATCH_SIZE = 512;
+
+    private final TransferEngine engine;
+
+    private final ObjectMapper mapper;
+
+    @Inject
+    public AccountLookup(TransferEngine engine, ObjectMapper mapper) {
+        this.engine = engine;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Read accounts
+     *
+     * @param ids account ids, at most {@link #MAX_IDS}
+     * @return JSON stream with found accounts in order of ids, then ids not found
+     * @throws IllegalArgumentException - when ids are not set, contain <code>null</code> or are too many
+     */
+    public InputStream lookup(List<Long> ids) {
+        Preconditions.checkArgument(ids != null, "Account ids should be supplied");
+        Preconditions.checkArgument(ids.size() <= MAX_IDS, "At most %s accounts can be read at once", MAX_IDS);
+        long[] accountIds = new long[ids.size()];
+        for (int i = 0; i < accountIds.length; i++) {
+            Long id = ids.get(i);
+            Preconditions.checkArgument(id != null, "Account id must not be null");
+            accountIds[i] = id;
+        }
+        return new LookupStream(accountIds, engine.read(accountIds));
+    }
+
+    private class LookupStream extends InputStream {
+
+        private final long[] ids;
+
+        private final Account[] accounts;
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(BATCH_SIZE * 48);
+
+        private final JsonGenerator generator;
+
+        private byte[] buffer = new byte[0];
+
+        private int position;
+
+        /**
+         * Next account to render
+         */
+        private int next;
+
+        private boolean eof;
+
+        private LookupStream(long[] ids, Account[] accounts) {
+            this.ids = ids;
+            this.accounts = accounts;
+            try {
+                this.generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("accounts");
+            } catch (IOException e) {
+                // writes to memory only
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == buffer.length) {
+                if (eof) {
+                    return false;
+                }
+                nextBatch();
+            }
+            return true;
+        }
+
+        private void nextBatch() throws IOException {
+            int end = Math.min(next + BATCH_SIZE, accounts.length);
+            for (; next < end; next++) {
+                Account account = accounts[next];
+                if (account != null) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", account.getId());
+                    generator.writeStringField("currency", account.getCurrency());
+                    generator.writeNumberField("amount", account.getAmount());
+                    generator.writeEndObject();
+                }
+            }
+            if (next == accounts.length) {
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("missing");
+                for (int i = 0; i < accounts.length; i++) {
+                    if (accounts[i] == null) {
+                        generator.writeNumber(ids[i]);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.close();
+                eof = true;
+            } else {
+                generator.flush();
+            }
+            buffer = out.toByteArray();
+            out.reset();
+            position = 0;
+        }
+    }
+}
@@ -3,40 +3,169 @@ package com.revolut.interview.service;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.revolut.interview.exception.AccountNotFoundException;
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.journal.JournalRecord;
 import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
 import com.revolut.interview.repository.AccountRepository;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
 
 @Singleton
 public class AccountService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final AccountRepository repository;
 
-    @Inject
+    private final Journal journal;
+
+    private final FxRates rates;
+
+    private final HoldLedger holds = new HoldLedger();
+
     public AccountService(AccountRepository repository) {
+        this(repository, new Journal());
+    }
+
+    public AccountService(AccountRepository repository, Journal journal) {
+        this(repository, journal, new FxRates());
+    }
+
+    @Inject
+    public AccountService(AccountRepository repository, Journal journal, FxRates rates) {
         this.repository = repository;
+        this.journal = journal;
+        this.rates = rates;
     }
 
     /**
-     * Create new account
+     * Create new account in the base currency
      *
      * @param accountName
      * @param initialAmount
      * @return
      */
     public Account create(String accountName, BigDecimal initialAmount) {
+        return create(accountName, null, initialAmount);
+    }
+
+    /**
+     * Create new account
+     *
+     * @param currency currency with an exchange rate, the base currency when <code>null</code>
+     * @throws IllegalArgumentException - when name is empty, currency is not supported or amount is negative
+     */
+    public Account create(String accountName, String currency, BigDecimal initialAmount) {
+        BigDecimal amount = checkNewAccount(accountName, initialAmount);
+        Account account = repository.create(accountName, checkCurrency(currency), amount);
+        journal.awaitAcknowledged(journal.append(JournalRecord.Type.CREATE, account,
+                JournalRecord.NO_COUNTERPARTY, account.getAmount()));
+        return account;
+    }
+
+    /**
+     * Create a batch of already validated accounts
+     *
+     * @param accountNames   account names
+     * @param currencies     currencies, checked with {@link #checkCurrency(String)}
+     * @param initialAmounts initial amounts, checked with {@link #checkNewAccount(String, BigDecimal)}
+     * @return created accounts in the same order
+     */
+    List<Account> createAll(List<String> accountNames, List<String> currencies, List<BigDecimal> initialAmounts) {
+        List<Account> created = repository.createAll(accountNames, currencies, initialAmounts);
+        long sequence = 0;
+        for (Account account : created) {
+            sequence = journal.append(JournalRecord.Type.CREATE, account,
+                    JournalRecord.NO_COUNTERPARTY, account.getAmount());
+        }
+        journal.awaitAcknowledged(sequence);
+        return created;
+    }
+
+    /**
+     * Validate new account attributes
+     *
+     * @return initial amount to use
+     * @throws IllegalArgumentException - when name is empty or amount is negative
+     */
+    BigDecimal checkNewAccount(String accountName, BigDecimal initialAmount) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(accountName), "Account name should be supplied");
 
         if (initialAmount == null) {
-            initialAmount = BigDecimal.ZERO;
+            return BigDecimal.ZERO;
         } else if (initialAmount.signum() < 0) {
             throw new IllegalArgumentException("Initial amount cannot be negative");
         }
-        return repository.create(accountName, initialAmount);
+        return initialAmount;
+    }
+
+    /**
+     * Validate currency of a new account. Amounts converted to the currency have its minor units, so accounts
+     * can only be held in currencies with no more of them than the store keeps; otherwise the credit of a
+     * transfer could be rejected after the debit was applied.
+     *
+     * @return currency to use
+     * @throws IllegalArgumentException - when there is no exchange rate for the currency or its minor units are
+     *                                  finer than amounts kept
+     */
+    String checkCurrency(String currency) {
+        if (currency == null) {
+            currency = rates.current().getBase();
+        } else {
+            Preconditions.checkArgument(rates.current().supports(currency), "Unsupported currency %s", currency);
+        }
+        Preconditions.checkArgument(Currency.getInstance(currency).getDefaultFractionDigits() <= repository.maxScale(),
+                "Currency %s has more decimal places than accounts keep", currency);
+        return currency;
+    }
+
+    /**
+     * Convert an amount debited from an account to the currency of the credited account, with the exchange
+     * rates current at the time of the call
+     *
+     * @throws com.revolut.interview.exception.InvalidTransferException - when there is no rate for a currency
+     */
+    BigDecimal convert(BigDecimal amount, Account from, Account to) {
+        return convert(amount, from.getCurrency(), to);
+    }
+
+    /**
+     * @param currency currency of the amount
+     */
+    public BigDecimal convert(BigDecimal amount, String currency, Account to) {
+        return rates.current().convert(amount, currency, to.getCurrency());
+    }
+
+    /**
+     * @return journal of account changes
+     */
+    Journal journal() {
+        return journal;
+    }
+
+    /**
+     * @return holds of all accounts
+     */
+    HoldLedger holds() {
+        return holds;
+    }
+
+    /**
+     * Find active hold of an account
+     *
+     * @throws HoldNotFoundException - when the account has no such active hold
+     */
+    public Hold getHold(Long accountId, Long holdId) {
+        Preconditions.checkArgument(accountId != null && holdId != null, "Account and hold id must not be null");
+        return holds.get(accountId, holdId);
     }
 
     /**
@@ -49,6 +178,23 @@ public class AccountService {
         return repository.getAll();
     }
 
+    /**
+     * Search accounts by name prefix, page by page
+     *
+     * @param namePrefix name prefix, case insensitive
+     * @param afterId    id of the last account from previous page, <code>null</code> for the first page
+     * @param limit      page size
+     * @return page of accounts ordered by name
+     * @throws IllegalArgumentException - when prefix is not set, limit is out of range or <code>afterId</code> is not
+     *                                  an account matching the prefix
+     */
+    public List<Account> findByNamePrefix(String namePrefix, Long afterId, int limit) {
+        Preconditions.checkArgument(namePrefix != null, "Name prefix should be supplied");
+        Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE,
+                "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        return repository.findByNamePrefix(namePrefix, afterId, limit);
+    }
+
     /**
      * Find existing account by id
      *
@@ -66,5 +212,12 @@ public class AccountService {
         return account;
     }
 
-
+    /**
+     * Lookup of ids which are expected to be missing, e.g. in bulk reads
+     *
+     * @return account or <code>null</code> when account is not found
+     */
+    public Account find(long id) {
+        return repository.getById(id);
+    }
 }
@@ -0,0 +1,212 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.limit.VelocityLimits;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Actor based {@link TransferEngine}: every account is owned by an {@link AccountActor}, operations
+ * are sent to its mailbox and executed one by one on a shared work-stealing pool.
+ * <p>
+ * A transfer, or a capture of a hold, is a debit message to the source account followed by a credit message to
+ * the target one; if the credit fails the debit is compensated. Pool threads never block on account locks, the caller
+ * waits for the outcome.
+ */
+@Singleton
+public class ActorTransferEngine extends AbstractTransferEngine {
+
+    private final ForkJoinPool pool;
+
+    private final ConcurrentMap<Long, AccountActor> actors = new ConcurrentHashMap<>();
+
+    public ActorTransferEngine(AccountService accountService, int parallelism) {
+        this(accountService, parallelism, new VelocityLimits());
+    }
+
+    @Inject
+    public ActorTransferEngine(AccountService accountService,
+                               @Named("transfer.actor.parallelism") int parallelism, VelocityLimits limits) {
+        super(accountService, limits);
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    @Override
+    public Account deposit(Long accountId, BigDecimal amount) {
+        Account account = accountService.getById(accountId);
+        checkAmount(amount);
+
+        long sequence = await(actor(account).ask(() ->
+                addAmount(account, amount, JournalRecord.Type.DEPOSIT, JournalRecord.NO_COUNTERPARTY)));
+        awaitAcknowledged(sequence);
+        return account;
+    }
+
+    @Override
+    public Account withdraw(Long accountId, BigDecimal amount) {
+        return withdraw(accountId, amount, null);
+    }
+
+    @Override
+    public Account withdraw(Long accountId, BigDecimal amount, String reference) {
+        Account account = accountService.getById(accountId);
+        checkAmount(amount);
+
+        long sequence = withinLimits(account, amount, () -> await(actor(account).ask(() -> addAmount(account,
+                amount.negate(), JournalRecord.Type.WITHDRAWAL, JournalRecord.NO_COUNTERPARTY, reference))));
+        awaitAcknowledged(sequence);
+        return account;
+    }
+
+    @Override
+    public Account transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        Account from = accountService.getById(fromAccountId);
+        Account to = accountService.getById(toAccountId);
+        checkAmount(amount);
+        checkDifferent(from, to);
+        // reject a transfer without a rate before anything is debited
+        convert(from, to, amount);
+
+        awaitAcknowledged(withinLimits(from, amount, () -> await(move(from, to, () -> {
+            addAmount(from, amount.negate(), JournalRecord.Type.TRANSFER, to.getId());
+            return amount;
+        }, debited -> addAmount(from, debited, JournalRecord.Type.REVERSAL, to.getId())))));
+        return from;
+    }
+
+    @Override
+    public Hold hold(Long accountId, Long toAccountId, BigDecimal amount, Duration expiresIn) {
+        Account account = accountService.getById(accountId);
+        Account to = accountService.getById(toAccountId);
+        checkHold(amount, expiresIn);
+        checkDifferent(account, to);
+
+        return withinLimits(account, amount,
+                () -> await(actor(account).ask(() -> placeHold(account, to.getId(), amount, expiresIn))));
+    }
+
+    @Override
+    public Account capture(Long accountId, Long holdId, BigDecimal amount) {
+        Account from = accountService.getById(accountId);
+        Account to = accountService.getById(accountService.getHold(accountId, holdId).getToAccountId());
+        if (amount != null) {
+            checkAmount(amount);
+        }
+
+        Hold[] taken = new Hold[1];
+        awaitAcknowledged(await(move(from, to, () -> {
+            Hold hold = takeHold(accountId, holdId, amount);
+            BigDecimal captured = amount != null ? amount : hold.getAmount();
+            try {
+                addAmount(from, captured.negate(), JournalRecord.Type.TRANSFER, to.getId());
+            } catch (RuntimeException e) {
+                restoreHold(hold);
+                throw e;
+            }
+            taken[0] = hold;
+            return captured;
+        }, debited -> {
+            addAmount(from, debited, JournalRecord.Type.REVERSAL, to.getId());
+            restoreHold(taken[0]);
+        })));
+        return from;
+    }
+
+    @Override
+    public Hold release(Long accountId, Long holdId) {
+        Account account = accountService.getById(accountId);
+        accountService.getHold(accountId, holdId);
+
+        return await(actor(account).ask(() -> releaseHold(accountId, holdId)));
+    }
+
+    @Override
+    public Account adjust(Long accountId, long jobId, Function<Account, BigDecimal> change) {
+        Account account = accountService.getById(accountId);
+
+        long sequence = await(actor(account).ask(() -> {
+            BigDecimal amount = change.apply(account);
+            return amount.signum() == 0 ? 0L
+                    : addAmount(account, amount, JournalRecord.Type.ADJUSTMENT, jobId);
+        }));
+        awaitAcknowledged(sequence);
+        return account;
+    }
+
+    /**
+     * Accounts are read without messages to their actors, every balance is one the account had but a transfer
+     * between two of the accounts may be seen after its debit and before its credit
+     */
+    @Override
+    public Account[] read(long[] accountIds) {
+        Account[] accounts = new Account[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            accounts[i] = copy(accountService.find(accountIds[i]));
+        }
+        return accounts;
+    }
+
+    /**
+     * Debit message to the source account followed by a credit message to the target one
+     *
+     * @param debit   run by the source actor, returns the debited amount
+     * @param reverse run by the source actor when the credit fails
+     * @return future journal sequence of the credit
+     */
+    private CompletableFuture<Long> move(Account from, Account to, Supplier<BigDecimal> debit,
+                                         Consumer<BigDecimal> reverse) {
+        AccountActor source = actor(from);
+        AccountActor target = actor(to);
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        source.tell(() -> {
+            BigDecimal amount;
+            try {
+                amount = debit.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            target.tell(() -> {
+                try {
+                    result.complete(addAmount(to, convert(from, to, amount), JournalRecord.Type.TRANSFER,
+                            from.getId()));
+                } catch (RuntimeException e) {
+                    source.tell(() -> {
+                        reverse.accept(amount);
+                        result.completeExceptionally(e);
+                    });
+                }
+            });
+        });
+        return result;
+    }
+
+    private AccountActor actor(Account account) {
+        return actors.computeIfAbsent(account.getId(), id -> new AccountActor(pool));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.revolut.interview.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.model.Hold;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases expired holds through the {@link TransferEngine}, so releases are serialized with other mutations
+ * of the account. Holds are released within a second after they expire; a hold which expired is never
+ * captured, even if it has not been released yet.
+ */
+@Slf4j
+@Singleton
+public class HoldExpiry {
+
+    private final AccountService accountService;
+
+    private final TransferEngine transferEngine;
+
+    private ScheduledExecutorService timer;
+
+    @Inject
+    public HoldExpiry(AccountService accountService, TransferEngine transferEngine) {
+        this.accountService = accountService;
+        this.transferEngine = transferEngine;
+    }
+
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("hold-expiry").setDaemon(true).build());
+        timer.scheduleWithFixedDelay(this::releaseExpired, HoldLedger.EXPIRY_TICK_MILLIS,
+                HoldLedger.EXPIRY_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        timer.awaitTermination(1, TimeUnit.MINUTES);
+        timer = null;
+    }
+
+    void releaseExpired() {
+        HoldLedger holds = accountService.holds();
+        for (Hold hold : holds.expired(System.currentTimeMillis())) {
+            try {
+                transferEngine.release(hold.getAccountId(), hold.getId());
+                log.debug("Hold #{} of account #{} expired", hold.getId(), hold.getAccountId());
+            } catch (HoldNotFoundException e) {
+                // captured or released meanwhile
+            } catch (AccountBusyException e) {
+                holds.expireLater(hold);
+            } catch (RuntimeException e) {
+                log.warn("Expired hold #{} of account #{} not released", hold.getId(), hold.getAccountId(), e);
+            }
+        }
+    }
+}
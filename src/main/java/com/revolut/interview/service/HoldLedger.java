@@ -0,0 +1,114 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.schedule.TimingWheel;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Active holds of all accounts and the total amount reserved on every account.
+ * <p>
+ * Holds of an account are only added and removed by the thread currently mutating the account, so keeping
+ * the reserved total needs no further synchronization and every operation is O(1). Expired holds are found
+ * through a {@link TimingWheel} of hold deadlines; holds settled earlier stay in it until then and are skipped.
+ */
+class HoldLedger {
+
+    static final long EXPIRY_TICK_MILLIS = 1000;
+
+    private static final int EXPIRY_WHEEL_SIZE = 512;
+
+    private static final int EXPIRY_LEVELS = 3;
+
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+
+    private final Map<Long, BigDecimal> reserved = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final TimingWheel<Hold> expiry = new TimingWheel<>(EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE,
+            EXPIRY_LEVELS, System.currentTimeMillis(), Hold::getExpiresAtMillis);
+
+    /**
+     * @return total amount of active holds of the account
+     */
+    BigDecimal reserved(long accountId) {
+        return reserved.getOrDefault(accountId, BigDecimal.ZERO);
+    }
+
+    Hold add(long accountId, long toAccountId, BigDecimal amount, long expiresAtMillis) {
+        Hold hold = new Hold(ids.incrementAndGet(), accountId, toAccountId, amount, expiresAtMillis);
+        put(hold);
+        return hold;
+    }
+
+    /**
+     * Put a removed hold back
+     */
+    void put(Hold hold) {
+        holds.put(hold.getId(), hold);
+        reserved.merge(hold.getAccountId(), hold.getAmount(), BigDecimal::add);
+        expireLater(hold);
+    }
+
+    /**
+     * @throws HoldNotFoundException - when the account has no such active hold
+     */
+    Hold get(long accountId, long holdId) {
+        Hold hold = holds.get(holdId);
+        if (hold == null || hold.getAccountId() != accountId) {
+            throw new HoldNotFoundException("Hold #" + holdId + " of account #" + accountId + " not found");
+        }
+        return hold;
+    }
+
+    /**
+     * @throws HoldNotFoundException - when the account has no such active hold
+     */
+    Hold remove(long accountId, long holdId) {
+        Hold hold = get(accountId, holdId);
+        holds.remove(holdId);
+        BigDecimal left = reserved(accountId).subtract(hold.getAmount());
+        if (left.signum() == 0) {
+            reserved.remove(accountId);
+        } else {
+            reserved.put(accountId, left);
+        }
+        return hold;
+    }
+
+    /**
+     * @return active holds which expired by <code>nowMillis</code>, still to be released
+     */
+    List<Hold> expired(long nowMillis) {
+        List<ArrayDeque<Hold>> due;
+        synchronized (expiry) {
+            due = expiry.advance(nowMillis);
+        }
+        List<Hold> expired = new ArrayList<>();
+        for (ArrayDeque<Hold> bucket : due) {
+            for (Hold hold : bucket) {
+                if (holds.get(hold.getId()) == hold) {
+                    expired.add(hold);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Report an expired hold again on the next expiry tick, e.g. when it could not be released now
+     */
+    void expireLater(Hold hold) {
+        synchronized (expiry) {
+            expiry.add(hold);
+        }
+    }
+}
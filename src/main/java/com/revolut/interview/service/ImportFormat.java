@@ -0,0 +1,41 @@
+package com.revolut.interview.service;
+
+/**
+ * Supported bulk import formats
+ */
+public enum ImportFormat {
+
+    /**
+     * One {@link com.revolut.interview.dto.CreateAccountRequest} json object per line
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * <code>name,amount</code> per line, optional header
+     */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Resolve format by request content type
+     *
+     * @throws IllegalArgumentException - when content type is not supported
+     */
+    public static ImportFormat of(String contentType) {
+        for (ImportFormat format : values()) {
+            if (format.contentType.equalsIgnoreCase(contentType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format " + contentType);
+    }
+}
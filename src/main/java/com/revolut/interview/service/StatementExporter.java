@@ -0,0 +1,156 @@
+package com.revolut.interview.service;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.journal.JournalLogReader;
+import com.revolut.interview.journal.JournalRecord;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Account statements rendered from the {@link JournalLog}.
+ * <p>
+ * The statement is rendered lazily while the result is being read: records are read one log block at a time and
+ * rows of the account are buffered up to {@link #BUFFER_SIZE} bytes, so memory usage does not depend on the
+ * length of the history. Segments last written before the start of the period are not read at all and reading stops
+ * at the first record after the period, journal timestamps follow the sequence.
+ * <p>
+ * Changes already folded into the log snapshot are no longer available, a period starting before the last
+ * compaction is rejected rather than listed partially.
+ */
+@Singleton
+public class StatementExporter {
+
+    public static final String CSV = "csv";
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String CSV_HEADER = "timestamp,type,amount,balance,counterparty\n";
+
+    private final AccountService accountService;
+
+    private final JournalLog journalLog;
+
+    @Inject
+    public StatementExporter(AccountService accountService, JournalLog journalLog) {
+        this.accountService = accountService;
+        this.journalLog = journalLog;
+    }
+
+    /**
+     * Export changes of an account
+     *
+     * @param from   start of the period, inclusive
+     * @param to     end of the period, exclusive
+     * @param format only {@link #CSV} is supported
+     * @return CSV stream with a header and a row per change, in order of change
+     * @throws com.revolut.interview.exception.AccountNotFoundException - when account not exists
+     * @throws IllegalArgumentException - on unsupported format or an empty period
+     * @throws IllegalStateException    - when account changes are not persisted
+     * @throws com.revolut.interview.exception.HistoryCompactedException - when the period starts before the last
+     *                                                                    compaction
+     */
+    public InputStream export(Long accountId, Instant from, Instant to, String format) throws IOException {
+        long id = accountService.getById(accountId).getId();
+        Preconditions.checkArgument(CSV.equalsIgnoreCase(format), "Unsupported statement format %s", format);
+        Preconditions.checkArgument(from.isBefore(to), "Statement period must end after it starts");
+
+        return new StatementStream(journalLog.segments(from.toEpochMilli()), id, from.toEpochMilli(),
+                to.toEpochMilli());
+    }
+
+    private static class StatementStream extends InputStream {
+
+        private final JournalLogReader reader;
+
+        private final long accountId;
+
+        private final long fromMillis;
+
+        private final long toMillis;
+
+        private final StringBuilder rows = new StringBuilder(BUFFER_SIZE + 128).append(CSV_HEADER);
+
+        private byte[] buffer = new byte[0];
+
+        private int position;
+
+        private boolean eof;
+
+        private StatementStream(JournalLogReader reader, long accountId, long fromMillis, long toMillis) {
+            this.reader = reader;
+            this.accountId = accountId;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private boolean fill() throws IOException {
+            while (position == buffer.length) {
+                if (eof) {
+                    return false;
+                }
+                nextRows();
+            }
+            return true;
+        }
+
+        private void nextRows() throws IOException {
+            JournalRecord record;
+            boolean end = false;
+            while (rows.length() < BUFFER_SIZE && !end && (record = reader.next()) != null) {
+                if (record.getTimestamp() >= toMillis) {
+                    end = true;
+                    continue;
+                }
+                if (record.getAccountId() != accountId || record.getTimestamp() < fromMillis) {
+                    continue;
+                }
+                rows.append(Instant.ofEpochMilli(record.getTimestamp())).append(',')
+                        .append(record.getType()).append(',')
+                        .append(record.getAmount().toPlainString()).append(',')
+                        .append(record.getBalance().toPlainString()).append(',');
+                if (record.getCounterpartyId() != JournalRecord.NO_COUNTERPARTY
+                        && record.getType() != JournalRecord.Type.ADJUSTMENT) {
+                    rows.append(record.getCounterpartyId());
+                }
+                rows.append('\n');
+            }
+            eof = end || rows.length() < BUFFER_SIZE;
+            buffer = rows.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            rows.setLength(0);
+        }
+    }
+}
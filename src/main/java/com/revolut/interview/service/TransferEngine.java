@@ -0,0 +1,126 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.exception.AccountNotFoundException;
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Balance mutations. Implementations differ in how concurrent operations on the same account are serialized,
+ * see <code>transfer.engine</code> setting.
+ */
+public interface TransferEngine {
+
+    /**
+     * Deposit money on account
+     *
+     * @param accountId accountId
+     * @param amount    amount of money to deposit
+     * @return modified account
+     * @throws AccountNotFoundException - when account not found
+     * @throws IllegalArgumentException - when amount is negative or zero
+     */
+    Account deposit(Long accountId, BigDecimal amount);
+
+    /**
+     * Withdraw money from account
+     *
+     * @param accountId accountId
+     * @param amount    amount of money to deposit
+     * @return modified account
+     * @throws AccountNotFoundException   - when account not found
+     * @throws IllegalArgumentException   - when amount is negative or zero
+     * @throws InsufficientFundsException - when there is not enough money on account
+     */
+    Account withdraw(Long accountId, BigDecimal amount);
+
+    /**
+     * Withdraw money from account on behalf of a cross-node transfer. The journal record of the withdrawal
+     * carries the transaction id, so a coordinator restarted before it logged the debit can still find it.
+     *
+     * @param reference transaction id
+     * @see #withdraw(Long, BigDecimal)
+     */
+    Account withdraw(Long accountId, BigDecimal amount, String reference);
+
+    /**
+     * Transfer money from one account to another
+     *
+     * @param fromAccountId account to withdraw money from
+     * @param toAccountId   account to deposit money on
+     * @param amount        amount of money to transfer
+     * @return modified source account
+     * @throws AccountNotFoundException   - when any of accounts not found
+     * @throws IllegalArgumentException   - when amount is negative or zero
+     * @throws InvalidTransferException   - when accounts are the same
+     * @throws InsufficientFundsException - when there is not enough money on source account
+     */
+    Account transfer(Long fromAccountId, Long toAccountId, BigDecimal amount);
+
+    /**
+     * Reserve money of an account for a later transfer. Reserved money cannot be withdrawn or transferred
+     * until the hold is captured, released or expires.
+     *
+     * @param accountId   account to reserve money on
+     * @param toAccountId account the money will be transferred to on capture
+     * @param amount      amount of money to reserve
+     * @param expiresIn   time after which the hold is released
+     * @return new hold
+     * @throws AccountNotFoundException   - when any of accounts not found
+     * @throws IllegalArgumentException   - when amount or expiration is negative or zero
+     * @throws InvalidTransferException   - when accounts are the same
+     * @throws InsufficientFundsException - when account balance without its other holds is not enough
+     */
+    Hold hold(Long accountId, Long toAccountId, BigDecimal amount, Duration expiresIn);
+
+    /**
+     * Transfer held money, the hold is settled and any amount not captured becomes available again
+     *
+     * @param accountId account of the hold
+     * @param holdId    hold id
+     * @param amount    amount to transfer, at most the held amount, all of it when <code>null</code>
+     * @return modified source account
+     * @throws HoldNotFoundException    - when the account has no such active hold
+     * @throws IllegalArgumentException - when amount is negative, zero or above the held amount
+     */
+    Account capture(Long accountId, Long holdId, BigDecimal amount);
+
+    /**
+     * Make held money available again
+     *
+     * @param accountId account of the hold
+     * @param holdId    hold id
+     * @return released hold
+     * @throws HoldNotFoundException - when the account has no such active hold
+     */
+    Hold release(Long accountId, Long holdId);
+
+    /**
+     * Change balance of an account by an amount computed from its current state, e.g. interest or a fee.
+     * Adjustments are not subject to velocity limits.
+     *
+     * @param accountId accountId
+     * @param jobId     batch job making the change, journaled with it
+     * @param change    signed amount to add, zero to leave the account unchanged; called while the account
+     *                  cannot be changed by anyone else
+     * @return modified account
+     * @throws AccountNotFoundException   - when account not found
+     * @throws InsufficientFundsException - when a negative change exceeds the balance not held
+     */
+    Account adjust(Long accountId, long jobId, Function<Account, BigDecimal> change);
+
+    /**
+     * Read several accounts at once. Engines serializing operations with locks read them all as of the same
+     * moment, so no transfer between them is seen half applied.
+     *
+     * @param accountIds ids of accounts to read, duplicates are allowed
+     * @return copy of every account in the same order, <code>null</code> for accounts not found
+     */
+    Account[] read(long[] accountIds);
+}
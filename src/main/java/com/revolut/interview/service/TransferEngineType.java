@@ -0,0 +1,21 @@
+package com.revolut.interview.service;
+
+/**
+ * Available {@link TransferEngine} implementations, selected with <code>transfer.engine</code> setting
+ */
+public enum TransferEngineType {
+
+    LOCK(TransferService.class),
+
+    ACTOR(ActorTransferEngine.class);
+
+    private final Class<? extends TransferEngine> implementation;
+
+    TransferEngineType(Class<? extends TransferEngine> implementation) {
+        this.implementation = implementation;
+    }
+
+    public Class<? extends TransferEngine> implementation() {
+        return implementation;
+    }
+}
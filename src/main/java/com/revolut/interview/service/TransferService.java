@@ -1,107 +1,250 @@
 package com.revolut.interview.service;
 
-import com.google.common.base.Preconditions;
-import com.revolut.interview.exception.AccountNotFoundException;
-import com.revolut.interview.exception.InsufficientFundsException;
-import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.limit.VelocityLimits;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.lock.StripedLockManager;
 import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.monitoring.TransferEvent;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.math.BigDecimal;
-import java.util.function.Consumer;
-
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Lock based {@link TransferEngine}: every mutation runs under the {@link LockManager} locks of affected
+ * accounts. Lock acquisition is time bounded, {@link AccountBusyException} is thrown when it fails.
+ * <p>
+ * Accounts are looked up again once locked, so a store paging accounts out, like
+ * {@link com.revolut.interview.repository.TieredAccountStore}, never has an evicted copy changed.
+ * <p>
+ * Concurrent deposits and withdrawals of the same account are combined by an {@link AccountCombiner}, so a
+ * hot account is locked once per batch of them. Transfers lock both accounts as before.
+ * <p>
+ * Debits are counted by {@link VelocityLimits} before any lock is taken.
+ * <p>
+ * Deposits, withdrawals and transfers emit a {@link TransferEvent} to Java Flight Recorder, with the time spent
+ * waiting for the locks.
+ */
 @Singleton
-public class TransferService {
+public class TransferService extends AbstractTransferEngine {
 
-    private final AccountService accountService;
+    private final LockManager lockManager;
+
+    /**
+     * Combiners of accounts with mutations in progress
+     */
+    private final ConcurrentMap<Long, AccountCombiner> combiners = new ConcurrentHashMap<>();
 
-    @Inject
     public TransferService(AccountService accountService) {
-        this.accountService = accountService;
+        this(accountService, new StripedLockManager());
     }
 
+    public TransferService(AccountService accountService, LockManager lockManager) {
+        this(accountService, lockManager, new VelocityLimits());
+    }
+
+    @Inject
+    public TransferService(AccountService accountService, LockManager lockManager, VelocityLimits limits) {
+        super(accountService, limits);
+        this.lockManager = lockManager;
+    }
 
-    /**
-     * Deposit money on account
-     *
-     * @param accountId accountId
-     * @param amount    amount of money to deposit
-     * @return modified account
-     * @throws AccountNotFoundException - when account not found
-     * @throws IllegalArgumentException - when amount is negative or zero
-     */
-    public Account deposit(Long accountId, BigDecimal amount) {
-        Account account = accountService.getById(accountId);
-        checkAmount(amount);
 
-        synchronized (account) {
-            addAmount(account, amount);
+    @Override
+    public Account deposit(Long accountId, BigDecimal amount) {
+        TransferEvent event = TransferEvent.start(JournalRecord.Type.DEPOSIT.name(), idOf(accountId),
+                JournalRecord.NO_COUNTERPARTY);
+        try {
+            Account account = accountService.getById(accountId);
+            checkAmount(amount);
+
+            return combine(account.getId(), amount, JournalRecord.Type.DEPOSIT, null, event);
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.finish(amount);
         }
-        return account;
     }
 
-    /**
-     * Withdraw money from account
-     *
-     * @param accountId accountId
-     * @param amount    amount of money to deposit
-     * @return modified account
-     * @throws AccountNotFoundException   - when account not found
-     * @throws IllegalArgumentException   - when amount is negative or zero
-     * @throws InsufficientFundsException - when there is not enough money on account
-     */
-
+    @Override
     public Account withdraw(Long accountId, BigDecimal amount) {
-        Account account = accountService.getById(accountId);
-        checkAmount(amount);
+        return withdraw(accountId, amount, null);
+    }
 
-        synchronized (account) {
-            addAmount(account, amount.negate());
+    @Override
+    public Account withdraw(Long accountId, BigDecimal amount, String reference) {
+        TransferEvent event = TransferEvent.start(JournalRecord.Type.WITHDRAWAL.name(), idOf(accountId),
+                JournalRecord.NO_COUNTERPARTY);
+        try {
+            Account account = accountService.getById(accountId);
+            checkAmount(amount);
+
+            return withinLimits(account, amount,
+                    () -> combine(account.getId(), amount.negate(), JournalRecord.Type.WITHDRAWAL, reference, event));
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.finish(amount);
         }
-
-        return account;
     }
 
 
+    @Override
     public Account transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
-        Account from = accountService.getById(fromAccountId);
+        TransferEvent event = TransferEvent.start(JournalRecord.Type.TRANSFER.name(), idOf(fromAccountId),
+                idOf(toAccountId));
+        try {
+            Account from = accountService.getById(fromAccountId);
+            Account to = accountService.getById(toAccountId);
+            checkAmount(amount);
+            checkDifferent(from, to);
+            BigDecimal credited = convert(from, to, amount);
+
+            return withinLimits(from, amount, () -> {
+                long sequence;
+                Account source;
+                long waitStart = event.lockWaitStart();
+                try (LockManager.Locked ignored = lockManager.lock(fromAccountId, toAccountId)) {
+                    event.lockAcquired(waitStart);
+                    source = accountService.getById(fromAccountId);
+                    Account target = accountService.getById(toAccountId);
+                    addAmount(source, amount.negate(), JournalRecord.Type.TRANSFER, target.getId());
+                    sequence = addAmount(target, credited, JournalRecord.Type.TRANSFER, source.getId());
+                }
+                awaitAcknowledged(sequence);
+                return source;
+            });
+        } catch (RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.finish(amount);
+        }
+    }
+
+    @Override
+    public Hold hold(Long accountId, Long toAccountId, BigDecimal amount, Duration expiresIn) {
+        Account account = accountService.getById(accountId);
         Account to = accountService.getById(toAccountId);
-        checkAmount(amount);
+        checkHold(amount, expiresIn);
+        checkDifferent(account, to);
 
-        if (to.equals(from)) {
-            throw new InvalidTransferException("Cannot transfer to same account");
-        }
+        return withinLimits(account, amount, () -> {
+            try (LockManager.Locked ignored = lockManager.lock(accountId)) {
+                return placeHold(accountService.getById(accountId), toAccountId, amount, expiresIn);
+            }
+        });
+    }
 
-        Account firstLock = from.getId() > to.getId() ? from : to;
-        Account secondLock = from.getId() < to.getId() ? from : to;
+    @Override
+    public Account capture(Long accountId, Long holdId, BigDecimal amount) {
+        Account from = accountService.getById(accountId);
+        Hold held = accountService.getHold(accountId, holdId);
+        if (amount != null) {
+            checkAmount(amount);
+        }
 
-        synchronized (firstLock) {
-            synchronized (secondLock) {
-                addAmount(from, amount.negate());
-                addAmount(to, amount);
+        long sequence;
+        try (LockManager.Locked ignored = lockManager.lock(from.getId(), held.getToAccountId())) {
+            from = accountService.getById(accountId);
+            Account to = accountService.getById(held.getToAccountId());
+            Hold hold = takeHold(accountId, holdId, amount);
+            BigDecimal captured = amount != null ? amount : hold.getAmount();
+            BigDecimal credited;
+            try {
+                credited = convert(from, to, captured);
+                addAmount(from, captured.negate(), JournalRecord.Type.TRANSFER, to.getId());
+            } catch (RuntimeException e) {
+                restoreHold(hold);
+                throw e;
             }
+            sequence = addAmount(to, credited, JournalRecord.Type.TRANSFER, from.getId());
         }
+        awaitAcknowledged(sequence);
 
         return from;
-
     }
 
-    private void addAmount(Account account, BigDecimal amount) {
+    @Override
+    public Hold release(Long accountId, Long holdId) {
+        Account account = accountService.getById(accountId);
+        accountService.getHold(accountId, holdId);
 
-        BigDecimal result = account.getAmount().add(amount);
-        if (result.signum() == -1) {
-            throw new InsufficientFundsException("Insufficient funds on account #" + account.getId());
+        try (LockManager.Locked ignored = lockManager.lock(account.getId())) {
+            return releaseHold(accountId, holdId);
         }
-
-        account.setAmount(result);
     }
 
+    @Override
+    public Account adjust(Long accountId, long jobId, Function<Account, BigDecimal> change) {
+        Account account = accountService.getById(accountId);
+
+        long sequence = 0;
+        try (LockManager.Locked ignored = lockManager.lock(account.getId())) {
+            account = accountService.getById(accountId);
+            BigDecimal amount = change.apply(account);
+            if (amount.signum() != 0) {
+                sequence = addAmount(account, amount, JournalRecord.Type.ADJUSTMENT, jobId);
+            }
+        }
+        awaitAcknowledged(sequence);
+        return account;
+    }
 
-    private void checkAmount(BigDecimal amount) {
-        Preconditions.checkArgument(amount != null, "Amount should be set");
-        Preconditions.checkArgument(amount.signum() > 0, "Amount must be positive");
+    /**
+     * All accounts are locked at once, in stripe order, so callers bound how many ids they read, see
+     * {@link AccountLookup#MAX_IDS}
+     */
+    @Override
+    public Account[] read(long[] accountIds) {
+        Account[] accounts = new Account[accountIds.length];
+        try (LockManager.Locked ignored = lockManager.lock(accountIds)) {
+            for (int i = 0; i < accountIds.length; i++) {
+                accounts[i] = copy(accountService.find(accountIds[i]));
+            }
+        }
+        return accounts;
     }
 
+    /**
+     * Add amount to the account in a batch with concurrent mutations of the same account
+     */
+    private Account combine(long accountId, BigDecimal amount, JournalRecord.Type type, String reference,
+                            TransferEvent event) {
+        AccountCombiner combiner = combiners.computeIfAbsent(accountId, id -> new AccountCombiner());
+        Account[] changed = new Account[1];
+        long sequence;
+        // the lock may be taken by another thread combining this mutation, so wait until it is applied
+        long waitStart = event.lockWaitStart();
+        try {
+            sequence = combiner.apply(account -> {
+                event.lockAcquired(waitStart);
+                changed[0] = account;
+                return addAmount(account, amount, type, JournalRecord.NO_COUNTERPARTY, reference);
+            }, batch -> {
+                try (LockManager.Locked ignored = lockManager.lock(accountId)) {
+                    batch.accept(accountService.getById(accountId));
+                }
+            });
+        } finally {
+            if (combiner.isIdle()) {
+                combiners.remove(accountId, combiner);
+            }
+        }
+        awaitAcknowledged(sequence);
+        return changed[0];
+    }
 
+    private static long idOf(Long accountId) {
+        return accountId == null ? JournalRecord.NO_COUNTERPARTY : accountId;
+    }
 }
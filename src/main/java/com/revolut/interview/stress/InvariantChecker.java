@@ -0,0 +1,140 @@
+package com.revolut.interview.stress;
+
+import com.revolut.interview.journal.JournalListener;
+import com.revolut.interview.journal.JournalRecord;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks every journal record as it is appended, while the engine is running:
+ * <ul>
+ * <li>the history of every account is sequential - each change applies to the balance left by the previous one,
+ * so no update is lost or seen twice</li>
+ * <li>no balance is ever negative</li>
+ * <li>transfers never create money - credits never exceed debits, so money in flight is never negative</li>
+ * </ul>
+ * Once the run is over, {@link #checkFinal} checks conservation of money against outcomes seen by the clients.
+ * Records are appended in the order changes are made to the same account, by any engine, so this holds for every
+ * prefix of the history, not only for the final state.
+ */
+class InvariantChecker implements JournalListener {
+
+    /**
+     * Violations described in the report, the rest are only counted
+     */
+    static final int MAX_DESCRIBED = 20;
+
+    private final Map<Long, BigDecimal> balances = new HashMap<>();
+
+    private final Map<JournalRecord.Type, Long> counts = new EnumMap<>(JournalRecord.Type.class);
+
+    private final List<String> violations = new ArrayList<>();
+
+    private BigDecimal inFlight = BigDecimal.ZERO;
+
+    private long debits;
+
+    private long records;
+
+    private long violationCount;
+
+    /**
+     * Called under the journal lock, so with records in sequence order
+     */
+    @Override
+    public synchronized void onRecord(JournalRecord record) {
+        records++;
+        counts.merge(record.getType(), 1L, Long::sum);
+        long accountId = record.getAccountId();
+        if (record.getType() == JournalRecord.Type.CREATE) {
+            balances.put(accountId, record.getBalance());
+        } else {
+            BigDecimal previous = balances.get(accountId);
+            if (previous == null) {
+                violation(record, "change of an unknown account");
+            } else if (previous.add(record.getAmount()).compareTo(record.getBalance()) != 0) {
+                violation(record, "balance " + record.getBalance() + " after " + record.getAmount() + " applied to "
+                        + previous);
+            }
+            // follow the engine, so one lost update is reported once
+            balances.put(accountId, record.getBalance());
+        }
+        if (record.getBalance().signum() < 0) {
+            violation(record, "negative balance " + record.getBalance());
+        }
+        if (record.getType() == JournalRecord.Type.TRANSFER || record.getType() == JournalRecord.Type.REVERSAL) {
+            if (record.getType() == JournalRecord.Type.TRANSFER && record.getAmount().signum() < 0) {
+                debits++;
+            }
+            inFlight = inFlight.subtract(record.getAmount());
+            if (inFlight.signum() < 0) {
+                violation(record, "transfers created " + inFlight.negate());
+            }
+        }
+    }
+
+    /**
+     * Check the quiescent state once every operation returned
+     *
+     * @param actual         balances held by the engine
+     * @param expectedTotal  initial balances plus deposits less withdrawals which succeeded
+     * @param expectedCounts records every type of operation which succeeded must have produced
+     * @param transfers      transfers which succeeded
+     */
+    synchronized void checkFinal(Map<Long, BigDecimal> actual, BigDecimal expectedTotal,
+                                 Map<JournalRecord.Type, Long> expectedCounts, long transfers) {
+        if (inFlight.signum() != 0) {
+            violation("after the run " + inFlight + " is debited but never credited");
+        }
+        BigDecimal total = actual.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (total.compareTo(expectedTotal) != 0) {
+            violation("accounts hold " + total + " in total instead of " + expectedTotal);
+        }
+        balances.forEach((accountId, balance) -> {
+            if (balance.compareTo(actual.get(accountId)) != 0) {
+                violation("account #" + accountId + " holds " + actual.get(accountId) + " but its history ends at "
+                        + balance);
+            }
+        });
+        expectedCounts.forEach((type, expected) -> {
+            if (counts.getOrDefault(type, 0L).longValue() != expected) {
+                violation(expected + " " + type + " operations succeeded but " + counts.getOrDefault(type, 0L)
+                        + " were recorded");
+            }
+        });
+        long reversed = counts.getOrDefault(JournalRecord.Type.REVERSAL, 0L);
+        if (debits - reversed != transfers) {
+            violation(transfers + " transfers succeeded but " + debits + " were debited and " + reversed
+                    + " reversed");
+        }
+    }
+
+    synchronized long getRecords() {
+        return records;
+    }
+
+    synchronized long getViolationCount() {
+        return violationCount;
+    }
+
+    synchronized List<String> getViolations() {
+        return new ArrayList<>(violations);
+    }
+
+    private void violation(JournalRecord record, String description) {
+        violation("#" + record.getSequence() + " " + record.getType() + " of account #" + record.getAccountId()
+                + ": " + description);
+    }
+
+    private void violation(String description) {
+        violationCount++;
+        if (violations.size() < MAX_DESCRIBED) {
+            violations.add(description);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.revolut.interview.stress;
+
+import com.google.common.base.Preconditions;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.replay.CommandLineOptions;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.ActorTransferEngine;
+import com.revolut.interview.service.TransferEngine;
+import com.revolut.interview.service.TransferEngineType;
+import com.revolut.interview.service.TransferService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link TransferEngine} under concurrent random deposits, withdrawals and transfers and checks it with an
+ * {@link InvariantChecker} while measuring its throughput, to prove a new engine before it is deployed.
+ * <p>
+ * Every worker thread runs its own stream of operations drawn from a generator seeded with the run seed and its
+ * index, so a seed reproduces the same operations, amounts and accounts on every run. Workers also pause at
+ * seeded points to shake up interleavings; the exact interleaving is still up to the OS scheduler, so a violation
+ * may need a few runs of its seed to show up again. Accounts are picked with a skew, zero for uniform, higher to
+ * concentrate traffic on a few hot accounts.
+ * <p>
+ * Usage: <code>StressHarness [engine=LOCK|ACTOR] [seed=1] [accounts=100] [threads=8] [operations=1000000]
+ * [skew=1]</code>
+ */
+public class StressHarness {
+
+    static final BigDecimal INITIAL_AMOUNT = BigDecimal.valueOf(1000);
+
+    /**
+     * Largest amount of an operation, in cents
+     */
+    private static final int MAX_CENTS = 10_000;
+
+    /**
+     * One in this many operations is followed by a pause
+     */
+    private static final int PAUSE_EVERY = 64;
+
+    private static final long MAX_PAUSE_NANOS = 50_000;
+
+    private final Function<AccountService, TransferEngine> engineFactory;
+
+    private final long seed;
+
+    private final int accounts;
+
+    private final int threads;
+
+    private final long operations;
+
+    private final double skew;
+
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    /**
+     * @param engineFactory builds the engine under test on top of the given accounts
+     * @param operations    operations of all workers together
+     */
+    public StressHarness(Function<AccountService, TransferEngine> engineFactory, long seed, int accounts,
+                         int threads, long operations, double skew) {
+        Preconditions.checkArgument(accounts > 1, "At least two accounts are needed for transfers");
+        Preconditions.checkArgument(threads > 0, "Threads must be positive");
+        Preconditions.checkArgument(operations >= 0, "Operations cannot be negative");
+        Preconditions.checkArgument(skew >= 0, "Skew cannot be negative");
+        this.engineFactory = engineFactory;
+        this.seed = seed;
+        this.accounts = accounts;
+        this.threads = threads;
+        this.operations = operations;
+        this.skew = skew;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        TransferEngineType engine = TransferEngineType.valueOf(
+                options.getOrDefault("engine", TransferEngineType.LOCK.name()));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        StressReport report = new StressHarness(
+                accountService -> engine == TransferEngineType.ACTOR
+                        ? new ActorTransferEngine(accountService, Runtime.getRuntime().availableProcessors())
+                        : new TransferService(accountService),
+                Long.parseLong(options.getOrDefault("seed", String.valueOf(System.nanoTime()))),
+                Integer.parseInt(options.getOrDefault("accounts", "100")),
+                threads,
+                Long.parseLong(options.getOrDefault("operations", "1000000")),
+                Double.parseDouble(options.getOrDefault("skew", "1"))).run();
+        System.out.println(report);
+        if (!report.isCorrect()) {
+            System.exit(1);
+        }
+    }
+
+    public StressReport run() throws InterruptedException {
+        Journal journal = new Journal();
+        InvariantChecker checker = new InvariantChecker();
+        journal.subscribe(checker);
+        AccountService accountService = new AccountService(new AccountRepository(), journal);
+        TransferEngine engine = engineFactory.apply(accountService);
+        long[] ids = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = accountService.create("stress" + i, INITIAL_AMOUNT).getId();
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i, engine, ids, operations / threads + (i < operations % threads ? 1 : 0),
+                    start);
+            workers.add(worker);
+            worker.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (long id : ids) {
+            balances.put(id, accountService.getById(id).getAmount());
+        }
+        long depositedCents = workers.stream().mapToLong(worker -> worker.depositedCents).sum();
+        long withdrawnCents = workers.stream().mapToLong(worker -> worker.withdrawnCents).sum();
+        Map<JournalRecord.Type, Long> succeeded = new EnumMap<>(JournalRecord.Type.class);
+        succeeded.put(JournalRecord.Type.DEPOSIT, workers.stream().mapToLong(worker -> worker.deposits).sum());
+        succeeded.put(JournalRecord.Type.WITHDRAWAL, workers.stream().mapToLong(worker -> worker.withdrawals).sum());
+        checker.checkFinal(balances,
+                INITIAL_AMOUNT.multiply(BigDecimal.valueOf(accounts))
+                        .add(BigDecimal.valueOf(depositedCents - withdrawnCents, 2)),
+                succeeded,
+                workers.stream().mapToLong(worker -> worker.transfers).sum());
+        journal.unsubscribe(checker);
+
+        Map<String, Long> failed = new TreeMap<>();
+        failures.forEach((exception, count) -> failed.put(exception, count.sum()));
+        return new StressReport(seed, operations, failed, elapsed, checker.getRecords(),
+                checker.getViolationCount(), checker.getViolations());
+    }
+
+    /**
+     * Runs a seeded stream of operations and counts the ones which succeeded
+     */
+    private class Worker extends Thread {
+
+        private final Random random;
+
+        private final TransferEngine engine;
+
+        private final long[] ids;
+
+        private final long operations;
+
+        private final CountDownLatch start;
+
+        private long deposits;
+
+        private long withdrawals;
+
+        private long transfers;
+
+        private long depositedCents;
+
+        private long withdrawnCents;
+
+        Worker(int index, TransferEngine engine, long[] ids, long operations, CountDownLatch start) {
+            super("stress-" + index);
+            setDaemon(true);
+            this.random = new Random(seed * 31 + index);
+            this.engine = engine;
+            this.ids = ids;
+            this.operations = operations;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (long i = 0; i < operations; i++) {
+                int kind = random.nextInt(10);
+                int from = pick();
+                int to = pick();
+                if (to == from) {
+                    to = (to + 1) % ids.length;
+                }
+                int cents = 1 + random.nextInt(MAX_CENTS);
+                BigDecimal amount = BigDecimal.valueOf(cents, 2);
+                try {
+                    if (kind < 2) {
+                        engine.deposit(ids[from], amount);
+                        deposits++;
+                        depositedCents += cents;
+                    } else if (kind < 4) {
+                        engine.withdraw(ids[from], amount);
+                        withdrawals++;
+                        withdrawnCents += cents;
+                    } else {
+                        engine.transfer(ids[from], ids[to], amount);
+                        transfers++;
+                    }
+                } catch (RuntimeException e) {
+                    failures.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+                }
+                if (random.nextInt(PAUSE_EVERY) == 0) {
+                    LockSupport.parkNanos((long) (random.nextDouble() * MAX_PAUSE_NANOS));
+                }
+            }
+        }
+
+        /**
+         * @return account index, low indexes are hotter the higher the skew
+         */
+        private int pick() {
+            return Math.min(ids.length - 1, (int) (ids.length * Math.pow(random.nextDouble(), 1 + skew)));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.revolut.interview.stress;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link StressHarness} run
+ */
+@Data
+@AllArgsConstructor
+public class StressReport {
+
+    /**
+     * Seed reproducing the operations of the run
+     */
+    private final long seed;
+
+    private final long operations;
+
+    /**
+     * Operations which failed, by exception, e.g. insufficient funds
+     */
+    private final Map<String, Long> failures;
+
+    private final long elapsedNanos;
+
+    /**
+     * Journal records checked while the engine was running
+     */
+    private final long checkedRecords;
+
+    private final long violationCount;
+
+    /**
+     * First {@link InvariantChecker#MAX_DESCRIBED} violations
+     */
+    private final List<String> violations;
+
+    public boolean isCorrect() {
+        return violationCount == 0;
+    }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append(String.format("seed: %d%noperations: %d in %d ms, %.0f ops/s%n", seed, operations,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput()))
+                .append("failures: ").append(failures)
+                .append(String.format("%nchecked records: %d, violations: %d", checkedRecords, violationCount));
+        violations.forEach(violation -> report.append(String.format("%n  ")).append(violation));
+        return report.toString();
+    }
+}
@@ -2,7 +2,11 @@ package com.revolut.interview;
 
 import com.google.common.collect.Lists;
 import com.revolut.interview.dto.AccountResponse;
+import com.revolut.interview.dto.AsyncTransferRequest;
 import com.revolut.interview.dto.CreateAccountRequest;
+import com.revolut.interview.dto.FxRatesRequest;
+import com.revolut.interview.dto.HoldRequest;
+import com.revolut.interview.dto.LookupRequest;
 import com.revolut.interview.dto.RefillRequest;
 import com.revolut.interview.dto.TransferRequest;
 import com.revolut.interview.model.Account;
@@ -22,21 +26,38 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static io.restassured.RestAssured.get;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItems;
 
 public class ApiTest {
 
+    /**
+     * Account ids are allocated upwards from 1, this one is never reached
+     */
+    private static final long MISSING_ID = Long.MAX_VALUE;
+
     private static final String PATH_WITHDRAW = "/{id}/withdraw";
 
     private static final String PATH_DEPOSIT = "/{id}/deposit";
 
     private static final String PATH_TRANSFER = "/{id}/transfer";
 
+    private static final String PATH_SCHEDULED = "/{id}/scheduled/{transferId}";
+
+    private static final String PATH_HOLDS = "/{id}/holds";
+
 
 
     public static Application app = new Application();
@@ -79,6 +100,56 @@ public class ApiTest {
     }
 
 
+    @Test
+    public void testSearchByNamePrefix() {
+        AccountResponse created = createAccount();
+        AccountResponse other = createAccount();
+        // same names are ordered by id, which increase per server thread only
+        AccountResponse first = created.getId() < other.getId() ? created : other;
+        AccountResponse second = first == created ? other : created;
+
+        AccountResponse[] response = given()
+                .queryParam("namePrefix", "NA")
+                .queryParam("limit", 1)
+            .when()
+                .get()
+            .then()
+                .statusCode(Status.OK.value())
+                .extract()
+                .body().as(AccountResponse[].class);
+        Assertions.assertThat(response).containsExactly(first);
+
+        response = given()
+                .queryParam("namePrefix", "na")
+                .queryParam("afterId", first.getId())
+            .when()
+                .get()
+            .then()
+                .statusCode(Status.OK.value())
+                .extract()
+                .body().as(AccountResponse[].class);
+        Assertions.assertThat(response).containsExactly(second);
+
+        //400 on a cursor which is not an account
+        given()
+            .queryParam("namePrefix", "na")
+            .queryParam("afterId", MISSING_ID)
+        .when()
+            .get()
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        //400 on wrong page size
+        given()
+            .queryParam("namePrefix", "na")
+            .queryParam("limit", 0)
+        .when()
+            .get()
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+    }
+
+
     @Test
     public void testGetAccount() {
 
@@ -95,7 +166,7 @@ public class ApiTest {
                 .isEqualTo(expected);
         //404 on non existent account
         when()
-            .get("/{id}",666)
+            .get("/{id}",MISSING_ID)
         .then()
             .statusCode(Status.NOT_FOUND.value());
 
@@ -103,6 +174,19 @@ public class ApiTest {
     }
 
 
+    @Test
+    public void testInternalRoutesExistOnlyInCluster() {
+        AccountResponse account = createAccount();
+
+        given()
+            .basePath("/api/internal/transfers")
+            .body(new TransferRequest(BigDecimal.TEN, account.getId()))
+        .when()
+            .post("/{txId}/prepare", "1-forged")
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+    }
+
     @Test
     public void testCreateAccount() {
 
@@ -130,7 +214,50 @@ public class ApiTest {
         .then()
             .statusCode(Status.OK.value())
             .body("amount", equalTo(0))
-            .body("name", equalTo("name"));
+            .body("name", equalTo("name"))
+            .body("currency", equalTo("EUR"));
+
+        // 400 on a currency without exchange rate
+        given()
+            .body(new CreateAccountRequest("name", BigDecimal.TEN, "XXX"))
+        .when()
+            .post()
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+    }
+
+
+    @Test
+    public void testImportAccounts() {
+        given()
+            .contentType("text/csv")
+            .accept("application/x-ndjson")
+            .body("name,amount\nfirst,10\n,1\n")
+        .when()
+            .post("/import")
+        .then()
+            .statusCode(Status.OK.value())
+            .contentType("application/x-ndjson")
+            .body(containsString("\"line\":2,\"id\""))
+            .body(containsString("\"line\":3,\"error\""));
+
+        AccountResponse[] accounts = get()
+                .then()
+                    .statusCode(Status.OK.value())
+                    .extract()
+                    .body().as(AccountResponse[].class);
+        Assertions.assertThat(accounts)
+                .extracting(AccountResponse::getName)
+                .containsExactly("first");
+
+        //415 on unsupported format
+        given()
+            .contentType("text/plain")
+            .body("first")
+        .when()
+            .post("/import")
+        .then()
+            .statusCode(Status.UNSUPPORTED_MEDIA_TYPE.value());
     }
 
 
@@ -167,7 +294,7 @@ public class ApiTest {
 
        given()
             .body(new RefillRequest(BigDecimal.TEN))
-            .pathParam("id",666)
+            .pathParam("id",MISSING_ID)
        .when()
             .post(PATH_DEPOSIT)
        .then()
@@ -220,7 +347,7 @@ public class ApiTest {
 
        given()
             .body(new RefillRequest(BigDecimal.TEN))
-            .pathParam("id",666)
+            .pathParam("id",MISSING_ID)
        .when()
             .post(PATH_WITHDRAW)
        .then()
@@ -249,6 +376,98 @@ public class ApiTest {
 
 
 
+    @Test
+    public void testHolds() {
+        AccountResponse from = createAccount();
+        AccountResponse to = createAccount();
+
+        //400 on insufficient funds
+        given()
+            .body(new HoldRequest(new BigDecimal(100), to.getId()))
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_HOLDS)
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        int holdId = given()
+            .body(new HoldRequest(BigDecimal.ONE, to.getId()))
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_HOLDS)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("amount", equalTo(1))
+            .extract().path("id");
+
+        given()
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_HOLDS + "/{holdId}/capture", holdId)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("amount", equalTo(from.getAmount().subtract(BigDecimal.ONE).intValueExact()));
+
+        //404 once captured
+        given()
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_HOLDS + "/{holdId}/release", holdId)
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+    }
+
+
+    @Test
+    public void testScheduledTransfer() {
+        AccountResponse from = createAccount();
+        AccountResponse to = createAccount();
+
+        //400 on interval shorter than a tick
+        given()
+            .body("{\"amount\":1,\"toAccountId\":" + to.getId() + ",\"repeatEvery\":\"PT0.001S\"}")
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_TRANSFER)
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        int transferId = given()
+            .body("{\"amount\":1,\"toAccountId\":" + to.getId() + ",\"repeatEvery\":\"P1D\",\"times\":2}")
+            .pathParam("id", from.getId())
+        .when()
+            .post(PATH_TRANSFER)
+        .then()
+            .statusCode(Status.ACCEPTED.value())
+            .body("repeatEvery", equalTo("PT24H"))
+            .body("remaining", equalTo(2))
+            .extract().path("id");
+
+        given()
+            .pathParam("id", from.getId())
+        .when()
+            .get(PATH_SCHEDULED, transferId)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("toAccountId", equalTo(to.getId().intValue()));
+
+        given()
+            .pathParam("id", from.getId())
+        .when()
+            .delete(PATH_SCHEDULED, transferId)
+        .then()
+            .statusCode(Status.OK.value());
+
+        //404 once cancelled
+        given()
+            .pathParam("id", from.getId())
+        .when()
+            .get(PATH_SCHEDULED, transferId)
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+    }
+
+
     @Test
     public void testTransfer(){
        AccountResponse from = createAccount();
@@ -284,14 +503,14 @@ public class ApiTest {
 
        given()
             .body(new TransferRequest(BigDecimal.ZERO,to.getId()))
-            .pathParam("id",666)
+            .pathParam("id",MISSING_ID)
        .when()
             .post(PATH_TRANSFER)
        .then()
             .statusCode(Status.NOT_FOUND.value());
 
         given()
-            .body(new TransferRequest(BigDecimal.ZERO,666L))
+            .body(new TransferRequest(BigDecimal.ZERO,MISSING_ID))
             .pathParam("id",from.getId())
        .when()
             .post(PATH_TRANSFER)
@@ -337,6 +556,225 @@ public class ApiTest {
 
 
 
+    @Test
+    public void testAdmissionStats() {
+        AccountResponse account = createAccount();
+        given()
+            .body(new RefillRequest(BigDecimal.TEN))
+            .pathParam("id", account.getId())
+        .when()
+            .post(PATH_DEPOSIT)
+        .then()
+            .statusCode(Status.OK.value());
+
+        given()
+            .basePath("/api/admin")
+        .when()
+            .get("/admission")
+        .then()
+            .statusCode(Status.OK.value())
+            .body("route", hasItems("deposit", "withdraw", "transfer"))
+            .body("find { it.route == 'deposit' }.admitted", greaterThanOrEqualTo(1));
+    }
+
+    @Test
+    public void testAsyncTransfer() {
+        AccountResponse from = createAccount();
+        AccountResponse to = createAccount();
+
+        //400 on same account
+        given()
+            .basePath("/api/transfers")
+            .body(new AsyncTransferRequest(from.getId(), from.getId(), BigDecimal.ONE, null))
+        .when()
+            .post()
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        int transferId = given()
+            .basePath("/api/transfers")
+            .body(new AsyncTransferRequest(from.getId(), to.getId(), BigDecimal.ONE, null))
+        .when()
+            .post()
+        .then()
+            .statusCode(Status.ACCEPTED.value())
+            .body("status", equalTo("QUEUED"))
+            .extract().path("id");
+
+        given()
+            .basePath("/api/transfers")
+            .queryParam("wait", "PT5S")
+        .when()
+            .get("/{id}", transferId)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("status", equalTo("COMPLETED"));
+
+        given()
+            .pathParam("id", to.getId())
+        .when()
+            .get("/{id}")
+        .then()
+            .body("amount", equalTo(11));
+
+        given()
+            .basePath("/api/transfers")
+        .when()
+            .get("/{id}", transferId + 1)
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+    }
+
+    @Test
+    public void testBatchJob() throws InterruptedException {
+        AccountResponse account = createAccount();
+
+        //400 without amount
+        given()
+            .basePath("/api/admin")
+            .body("{\"type\":\"FEE\"}")
+        .when()
+            .post("/batch")
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        int jobId = given()
+            .basePath("/api/admin")
+            .body("{\"type\":\"FEE\",\"amount\":1}")
+        .when()
+            .post("/batch")
+        .then()
+            .statusCode(Status.ACCEPTED.value())
+            .body("ranges", equalTo(1))
+            .extract().path("id");
+
+        for (int i = 0; i < 100 && !"COMPLETED".equals(given().basePath("/api/admin").get("/batch/{jobId}", jobId)
+                .path("state")); i++) {
+            Thread.sleep(50);
+        }
+        given()
+            .basePath("/api/admin")
+        .when()
+            .get("/batch/{jobId}", jobId)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("state", equalTo("COMPLETED"))
+            .body("changed", equalTo(1));
+
+        given()
+            .pathParam("id", account.getId())
+        .when()
+            .get("/{id}")
+        .then()
+            .body("amount", equalTo(9));
+    }
+
+
+    @Test
+    public void testStatement() {
+        AccountResponse account = createAccount();
+
+        given()
+            .accept("text/csv")
+            .pathParam("id", account.getId())
+            .queryParam("format", "pdf")
+        .when()
+            .get("/{id}/statement")
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        given()
+            .accept("text/csv")
+            .pathParam("id", MISSING_ID)
+        .when()
+            .get("/{id}/statement")
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+    }
+
+    @Test
+    public void testLookup() {
+        AccountResponse first = createAccount();
+        AccountResponse second = createAccount(BigDecimal.ONE);
+
+        given()
+            .body(new LookupRequest(Arrays.asList(first.getId(), MISSING_ID, second.getId())))
+        .when()
+            .post("/lookup")
+        .then()
+            .statusCode(Status.OK.value())
+            .body("accounts.id", contains(first.getId().intValue(), second.getId().intValue()))
+            .body("accounts.amount", contains(10, 1))
+            .body("missing", contains(MISSING_ID));
+
+        given()
+            .body(new LookupRequest(null))
+        .when()
+            .post("/lookup")
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+    }
+
+    @Test
+    public void testCurrencies() {
+        AccountResponse euros = createAccount();
+        AccountResponse dollars = given()
+                .body(new CreateAccountRequest("name", BigDecimal.ZERO, "USD"))
+            .when()
+                .post()
+            .then()
+                .statusCode(Status.OK.value())
+                .body("currency", equalTo("USD"))
+                .extract().body().as(AccountResponse.class);
+
+        given()
+            .body(new TransferRequest(BigDecimal.TEN, dollars.getId()))
+            .pathParam("id", euros.getId())
+        .when()
+            .post(PATH_TRANSFER)
+        .then()
+            .statusCode(Status.OK.value())
+            .body("amount", equalTo(0));
+
+        given()
+            .pathParam("id", dollars.getId())
+        .when()
+            .get("/{id}")
+        .then()
+            .body("amount", equalTo(11.0f));
+
+        given()
+            .basePath("/api/admin")
+        .when()
+            .get("/fx")
+        .then()
+            .statusCode(Status.OK.value())
+            .body("base", equalTo("EUR"))
+            .body("rates.USD", equalTo(1.10f));
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        rates.put("USD", new BigDecimal("1.10"));
+        rates.put("GBP", new BigDecimal("0.86"));
+        rates.put("CHF", new BigDecimal("0.95"));
+        given()
+            .basePath("/api/admin")
+            .body(new FxRatesRequest(rates))
+        .when()
+            .put("/fx")
+        .then()
+            .statusCode(Status.OK.value())
+            .body("version", equalTo(2))
+            .body("rates.CHF", equalTo(0.95f));
+
+        given()
+            .basePath("/api/admin")
+            .body(new FxRatesRequest(Collections.singletonMap("USD", BigDecimal.ZERO)))
+        .when()
+            .put("/fx")
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+    }
+
     private AccountResponse createAccount() {
         return createAccount(BigDecimal.TEN);
     }
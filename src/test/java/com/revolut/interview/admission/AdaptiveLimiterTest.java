@@ -0,0 +1,113 @@
+package com.revolut.interview.admission;
+
+import com.revolut.interview.dto.AdmissionStats;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimiterTest {
+
+    @Test
+    public void shedsWhenLimitAndQueueAreFull() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 0, 0, TimeUnit.MILLISECONDS, 2, 0.5);
+
+        assertThat(limiter.acquire()).isTrue();
+        assertThat(limiter.acquire()).isFalse();
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(limiter.acquire()).isTrue();
+
+        AdmissionStats stats = limiter.stats();
+        assertThat(stats.getAdmitted()).isEqualTo(2);
+        assertThat(stats.getShed()).isEqualTo(1);
+        assertThat(stats.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void queuedRequestIsAdmittedOnRelease() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 1, 10, TimeUnit.SECONDS, 2, 0.5);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(limiter.acquire()).isTrue();
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Boolean> queued = executor.submit(() -> {
+                started.countDown();
+                return limiter.acquire();
+            });
+            started.await();
+            while (limiter.stats().getWaiting() == 0) {
+                Thread.yield();
+            }
+            //queue is full now
+            assertThat(limiter.acquire()).isFalse();
+
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+            assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(limiter.stats().getQueued()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releasedSlotGoesToQueuedRequestBeforeNewOne() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 2, 1, TimeUnit.SECONDS, 2, 0.5);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(limiter.acquire()).isTrue();
+            Future<Boolean> queued = executor.submit(limiter::acquire);
+            while (limiter.stats().getWaiting() == 0) {
+                Thread.yield();
+            }
+
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+            // the slot is handed over, the new request can only queue up behind and time out
+            assertThat(limiter.acquire()).isFalse();
+            assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(limiter.stats().getInFlight()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void adaptsLimitToLatency() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 10, 2, 20, 0, 0, TimeUnit.MILLISECONDS, 2, 0.5);
+        long fast = TimeUnit.MICROSECONDS.toNanos(100);
+
+        //grows while limit is used and latency is close to the baseline
+        for (int i = 0; i < 200; i++) {
+            int acquired = fill(limiter);
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(fast);
+            }
+        }
+        assertThat(limiter.getLimit()).isEqualTo(20);
+        assertThat(limiter.stats().getInFlight()).isEqualTo(0);
+
+        //backs off on latency spike
+        Thread.sleep(1);
+        assertThat(limiter.acquire()).isTrue();
+        limiter.release(fast * 10);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    /**
+     * Take all available slots
+     *
+     * @return number of slots taken
+     */
+    private int fill(AdaptiveLimiter limiter) throws InterruptedException {
+        int acquired = 0;
+        while (limiter.acquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,186 @@
+package com.revolut.interview.batch;
+
+import com.revolut.interview.dto.BatchJobRequest;
+import com.revolut.interview.dto.BatchJobResponse;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.journal.JournalDurability;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchJobsTest {
+
+    private static final int ACCOUNTS = 1000;
+
+    private final AccountRepository repository = new AccountRepository();
+
+    private final Journal journal = new Journal();
+
+    private final AccountService accountService = new AccountService(repository, journal);
+
+    private final TransferService transferService = new TransferService(accountService);
+
+    private final List<Account> accounts = new ArrayList<>();
+
+    private Path checkpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        checkpoint = Files.createTempFile("batch", ".checkpoint");
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(accountService.create("name", BigDecimal.valueOf(i % 2 == 0 ? 100 : 0)));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(checkpoint);
+    }
+
+    @Test
+    public void interestIsAccruedOnEveryAccount() throws Exception {
+        BatchJobs jobs = jobs(() -> false);
+        jobs.start();
+
+        BatchJobResponse job = jobs.submit(new BatchJobRequest(BatchJobType.INTEREST, new BigDecimal("0.015")));
+        assertThat(job.getRanges()).isEqualTo(ACCOUNTS / 64 + 1);
+        job = await(jobs, job.getId(), "COMPLETED");
+        jobs.stop();
+
+        assertThat(job.getProcessed()).isEqualTo(ACCOUNTS);
+        assertThat(job.getChanged()).isEqualTo(ACCOUNTS / 2);
+        assertThat(job.getRangesDone()).isEqualTo(job.getRanges());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertThat(accounts.get(i).getAmount()).isEqualByComparingTo(i % 2 == 0 ? "101.50" : "0");
+        }
+    }
+
+    @Test
+    public void accountsWhichCannotPayFeeAreSkipped() throws Exception {
+        BatchJobs jobs = jobs(() -> false);
+        jobs.start();
+
+        BatchJobResponse job = await(jobs,
+                jobs.submit(new BatchJobRequest(BatchJobType.FEE, BigDecimal.ONE)).getId(), "COMPLETED");
+        jobs.stop();
+
+        assertThat(job.getChanged()).isEqualTo(ACCOUNTS / 2);
+        assertThat(job.getFailed()).isEqualTo(ACCOUNTS / 2);
+        assertThat(accounts.get(0).getAmount()).isEqualByComparingTo("99");
+        assertThat(accounts.get(1).getAmount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void stoppedJobIsResumedFromCheckpoint() throws Exception {
+        // live traffic takes over after the first accounts
+        AtomicInteger calls = new AtomicInteger();
+        BatchJobs jobs = jobs(() -> calls.incrementAndGet() > ACCOUNTS / 4);
+        jobs.start();
+        long id = jobs.submit(new BatchJobRequest(BatchJobType.INTEREST, new BigDecimal("0.01"))).getId();
+        while (calls.get() <= ACCOUNTS / 4) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        jobs.stop();
+        BatchJobResponse stopped = await(jobs, id, "STOPPED");
+        assertThat(stopped.getProcessed()).isBetween(1L, ACCOUNTS - 1L);
+
+        BatchJobs restarted = jobs(() -> false);
+        restarted.start();
+        restarted.resume();
+        BatchJobResponse job = await(restarted, id, "COMPLETED");
+        restarted.stop();
+
+        assertThat(job.getProcessed()).isEqualTo(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i += 2) {
+            assertThat(accounts.get(i).getAmount()).isEqualByComparingTo("101");
+        }
+        // nothing left to resume
+        BatchJobs again = jobs(() -> false);
+        again.start();
+        again.resume();
+        assertThat(again.list()).isEmpty();
+        again.stop();
+    }
+
+    @Test
+    public void accountsChangedAfterLastCheckpointAreSkippedAfterCrash() throws Exception {
+        Path dir = Files.createTempDirectory("batch-journal");
+        JournalLog journalLog = new JournalLog(journal, repository, dir, 1 << 20, 4096, 1000, JournalDurability.SYNC, 4,
+                TimeUnit.HOURS.toMillis(1), 1 << 20);
+        journalLog.start();
+        LongFunction<Set<Long>> adjustedBy = jobId -> {
+            try {
+                return journalLog.adjustedBy(jobId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        AtomicInteger calls = new AtomicInteger();
+        BatchJobs jobs = jobs(() -> calls.incrementAndGet() > ACCOUNTS / 4, adjustedBy);
+        jobs.start();
+        long id = jobs.submit(new BatchJobRequest(BatchJobType.INTEREST, new BigDecimal("0.01"))).getId();
+        while (calls.get() <= ACCOUNTS / 4) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        jobs.stop();
+        assertThat(await(jobs, id, "STOPPED").getChanged()).isPositive();
+
+        // crash before any progress was checkpointed, the changes are persisted by the journal log only
+        List<String> lines = Files.readAllLines(checkpoint);
+        Files.write(checkpoint, lines.subList(0, 1));
+        journalLog.stop();
+        journalLog.start();
+
+        BatchJobs restarted = jobs(() -> false, adjustedBy);
+        restarted.start();
+        restarted.resume();
+        BatchJobResponse job = await(restarted, id, "COMPLETED");
+        restarted.stop();
+        journalLog.stop();
+
+        assertThat(job.getProcessed()).isEqualTo(ACCOUNTS);
+        assertThat(job.getChanged()).isEqualTo(ACCOUNTS / 2);
+        for (int i = 0; i < ACCOUNTS; i += 2) {
+            assertThat(accounts.get(i).getAmount()).isEqualByComparingTo("101");
+        }
+    }
+
+    private BatchJobs jobs(BooleanSupplier busy) {
+        return jobs(busy, jobId -> Collections.emptySet());
+    }
+
+    private BatchJobs jobs(BooleanSupplier busy, LongFunction<Set<Long>> adjustedBy) {
+        return new BatchJobs(accountService, transferService, busy, adjustedBy, checkpoint, 4, 64, 1, 2, 1);
+    }
+
+    private static BatchJobResponse await(BatchJobs jobs, long id, String state) throws InterruptedException {
+        for (int i = 0; i < 500 && !state.equals(jobs.get(id).getState()); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        BatchJobResponse job = jobs.get(id);
+        assertThat(job.getState()).isEqualTo(state);
+        return job;
+    }
+}
@@ -0,0 +1,187 @@
+package com.revolut.interview.cluster;
+
+import com.revolut.interview.Application;
+import com.revolut.interview.dto.AccountResponse;
+import com.revolut.interview.dto.CreateAccountRequest;
+import com.revolut.interview.dto.TransferRequest;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.jooby.Status;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Two nodes in one JVM, talking to each other over HTTP on localhost
+ */
+public class ClusterTest {
+
+    private static final int[] PORTS = {18080, 18081};
+
+    private static final String SECRET = "cluster-test-secret";
+
+    private static final Application[] NODES = new Application[PORTS.length];
+
+    @BeforeClass
+    public static void startNodes() throws Exception {
+        File logs = Files.createTempDirectory("cluster").toFile();
+        String nodes = "http://localhost:" + PORTS[0] + ",http://localhost:" + PORTS[1];
+        for (int i = 0; i < NODES.length; i++) {
+            NODES[i] = new Application();
+            NODES[i].start("server.join=false",
+                    "application.port=" + PORTS[i],
+                    "cluster.nodes=" + nodes,
+                    "cluster.node=" + i,
+                    "cluster.secret=" + SECRET,
+                    "cluster.transactionLog=" + new File(logs, "node" + i + ".txlog").getAbsolutePath());
+        }
+    }
+
+    @AfterClass
+    public static void stopNodes() {
+        Arrays.stream(NODES).forEach(Application::stop);
+    }
+
+    @Test
+    public void topologyPartitionsIds() {
+        ClusterTopology first = new ClusterTopology(Arrays.asList("a", "b", "c"), 0);
+        ClusterTopology third = new ClusterTopology(Arrays.asList("a", "b", "c"), 2);
+
+        assertThat(first.accountId(1)).isEqualTo(1);
+        assertThat(first.accountId(2)).isEqualTo(4);
+        assertThat(third.accountId(1)).isEqualTo(3);
+        assertThat(third.accountId(2)).isEqualTo(6);
+        assertThat(first.owner(6)).isEqualTo(2);
+        assertThat(third.isLocal(6)).isTrue();
+        assertThat(first.owner(0)).isEqualTo(2);
+        assertThat(first.owner(-1)).isEqualTo(1);
+
+        ClusterTopology single = new ClusterTopology();
+        assertThat(single.isClustered()).isFalse();
+        assertThat(single.accountId(5)).isEqualTo(5);
+        assertThat(single.isLocal(5)).isTrue();
+    }
+
+    @Test
+    public void routesRequestsAndTransfersAcrossNodes() {
+        AccountResponse first = create(0, "first", BigDecimal.TEN);
+        AccountResponse second = create(1, "second", BigDecimal.TEN);
+        assertThat(NODES[0].require(ClusterTopology.class).isLocal(first.getId())).isTrue();
+        assertThat(NODES[1].require(ClusterTopology.class).isLocal(second.getId())).isTrue();
+
+        //foreign account is served by its owner
+        given().spec(node(0))
+        .when()
+            .get("/{id}", second.getId())
+        .then()
+            .statusCode(Status.OK.value())
+            .body("name", equalTo("second"));
+
+        //cross node transfer coordinated by node of the source account
+        given().spec(node(0))
+            .body(new TransferRequest(BigDecimal.valueOf(3), second.getId()))
+        .when()
+            .post("/{id}/transfer", first.getId())
+        .then()
+            .statusCode(Status.OK.value())
+            .body("amount", equalTo(7));
+        assertAmount(second.getId(), 13);
+
+        //request for foreign source account is forwarded to its node
+        given().spec(node(0))
+            .body(new TransferRequest(BigDecimal.ONE, first.getId()))
+        .when()
+            .post("/{id}/transfer", second.getId())
+        .then()
+            .statusCode(Status.OK.value())
+            .body("amount", equalTo(12));
+        assertAmount(first.getId(), 8);
+
+        //target is missing on its node: aborted and refunded
+        long missing = second.getId() + 2 * PORTS.length;
+        given().spec(node(0))
+            .body(new TransferRequest(BigDecimal.ONE, missing))
+        .when()
+            .post("/{id}/transfer", first.getId())
+        .then()
+            .statusCode(Status.NOT_FOUND.value());
+        assertAmount(first.getId(), 8);
+    }
+
+    @Test
+    public void accountIdsBelowOneAreNotFound() {
+        for (long id : new long[]{0, -1, Long.MIN_VALUE}) {
+            given().spec(node(0))
+            .when()
+                .get("/{id}", id)
+            .then()
+                .statusCode(Status.NOT_FOUND.value());
+        }
+    }
+
+    @Test
+    public void internalRoutesAcceptOnlyConfirmedTransfersFromNodes() {
+        AccountResponse target = create(1, "target", BigDecimal.ZERO);
+        String prepare = "http://localhost:" + PORTS[1] + "/api/internal/transfers/0-forged/prepare";
+
+        //without the cluster secret
+        given().contentType(ContentType.JSON)
+            .body(new TransferRequest(BigDecimal.TEN, target.getId()))
+        .when()
+            .post(prepare)
+        .then()
+            .statusCode(Status.FORBIDDEN.value());
+
+        //with the secret, but the coordinator did not debit anything
+        given().contentType(ContentType.JSON)
+            .header(NodeClient.SECRET_HEADER, SECRET)
+            .body(new TransferRequest(BigDecimal.TEN, target.getId()))
+        .when()
+            .post(prepare)
+        .then()
+            .statusCode(Status.BAD_REQUEST.value());
+
+        assertAmount(target.getId(), 0);
+    }
+
+    private void assertAmount(long accountId, int amount) {
+        for (int i = 0; i < NODES.length; i++) {
+            given().spec(node(i))
+            .when()
+                .get("/{id}", accountId)
+            .then()
+                .statusCode(Status.OK.value())
+                .body("amount", equalTo(amount));
+        }
+    }
+
+    private AccountResponse create(int node, String name, BigDecimal amount) {
+        return given().spec(node(node))
+                .body(new CreateAccountRequest(name, amount))
+            .when()
+                .post()
+            .then()
+                .statusCode(Status.OK.value())
+                .extract().body().as(AccountResponse.class);
+    }
+
+    private RequestSpecification node(int node) {
+        return new RequestSpecBuilder()
+                .setBaseUri("http://localhost")
+                .setPort(PORTS[node])
+                .setBasePath("/api/accounts")
+                .setContentType(ContentType.JSON)
+                .setAccept(ContentType.JSON)
+                .build();
+    }
+}
@@ -0,0 +1,239 @@
+package com.revolut.interview.cluster;
+
+import com.google.common.collect.ImmutableMap;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngine;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.endsWith;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TwoPhaseTransfersTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+    /**
+     * Transaction coordinated by the other node
+     */
+    private static final String TX = "1-tx";
+
+    private final TransferEngine engine = mock(TransferEngine.class);
+
+    private final AccountService accountService = mock(AccountService.class);
+
+    private final NodeClient client = mock(NodeClient.class);
+
+    private final ClusterTopology topology = new ClusterTopology(Arrays.asList("http://a", "http://b"), 0);
+
+    /**
+     * Transaction ids of debits in the account journal
+     */
+    private final Set<String> journaled = new HashSet<>();
+
+    private File log;
+
+    private Config config;
+
+    @Before
+    public void setUp() throws Exception {
+        log = new File(Files.createTempDirectory("twophase").toFile(), "node.txlog");
+        config = ConfigFactory.parseMap(ImmutableMap.of(
+                "cluster.transactionLog", log.getAbsolutePath(),
+                "cluster.commitRetry", "50ms"));
+    }
+
+    @Test
+    public void failedCreditIsAppliedByRetriedCommit() {
+        Account to = new Account(2L, "to", "EUR", BigDecimal.ZERO);
+        when(accountService.getById(2L)).thenReturn(to);
+        when(accountService.convert(AMOUNT, null, to)).thenReturn(AMOUNT);
+        when(engine.deposit(2L, AMOUNT))
+                .thenThrow(new AccountBusyException("Account #2 is busy", 1))
+                .thenReturn(to);
+        confirmedByCoordinator(TX);
+        TwoPhaseTransfers transfers = newTransfers();
+
+        transfers.prepare(TX, 2L, AMOUNT, null);
+        assertThatThrownBy(() -> transfers.commit(TX)).isInstanceOf(AccountBusyException.class);
+        transfers.commit(TX);
+        transfers.commit(TX);
+
+        verify(engine, times(2)).deposit(2L, AMOUNT);
+        assertThat(unfinished()).isEmpty();
+    }
+
+    @Test
+    public void amountConvertedToNothingIsNotPrepared() {
+        Account to = new Account(2L, "to", "JPY", BigDecimal.ZERO);
+        when(accountService.getById(2L)).thenReturn(to);
+        when(accountService.convert(new BigDecimal("0.001"), "EUR", to)).thenReturn(BigDecimal.ZERO);
+        confirmedByCoordinator(TX);
+        TwoPhaseTransfers transfers = newTransfers();
+
+        assertThatThrownBy(() -> transfers.prepare(TX, 2L, new BigDecimal("0.001"), "EUR"))
+                .isInstanceOf(InvalidTransferException.class);
+        transfers.commit(TX);
+
+        verify(engine, never()).deposit(anyLong(), any());
+        assertThat(unfinished()).isEmpty();
+    }
+
+    @Test
+    public void transferWithoutConfirmedDebitIsNotPrepared() {
+        Account to = new Account(2L, "to", "EUR", BigDecimal.ZERO);
+        when(accountService.getById(2L)).thenReturn(to);
+        when(accountService.convert(AMOUNT, null, to)).thenReturn(AMOUNT);
+        TwoPhaseTransfers transfers = newTransfers();
+
+        assertThatThrownBy(() -> transfers.prepare(TX, 2L, AMOUNT, null))
+                .isInstanceOf(InvalidTransferException.class);
+        assertThatThrownBy(() -> transfers.prepare("0-tx", 2L, AMOUNT, null))
+                .isInstanceOf(InvalidTransferException.class);
+        assertThatThrownBy(() -> transfers.prepare("tx", 2L, AMOUNT, null))
+                .isInstanceOf(InvalidTransferException.class);
+        transfers.commit(TX);
+
+        verify(engine, never()).deposit(anyLong(), any());
+        assertThat(unfinished()).isEmpty();
+    }
+
+    @Test
+    public void debitIsConfirmedOnlyWhilePreparing() {
+        Account from = new Account(1L, "from", "EUR", BigDecimal.ZERO);
+        when(engine.withdraw(eq(1L), eq(AMOUNT), anyString())).thenReturn(from);
+        TwoPhaseTransfers transfers = newTransfers();
+        String[] txId = new String[1];
+        boolean[] confirmed = new boolean[1];
+        doAnswer(invocation -> {
+            String path = (String) invocation.getArguments()[1];
+            txId[0] = path.substring("/api/internal/transfers/".length(), path.lastIndexOf('/'));
+            confirmed[0] = transfers.isAwaitingPrepare(txId[0]);
+            return null;
+        }).when(client).postInternal(anyString(), endsWith("/prepare"), any());
+
+        transfers.transfer(1L, 2L, AMOUNT);
+
+        assertThat(txId[0]).startsWith("0-");
+        assertThat(confirmed[0]).isTrue();
+        assertThat(transfers.isAwaitingPrepare(txId[0])).isFalse();
+    }
+
+    @Test
+    public void failedRefundIsRetried() throws Exception {
+        Account from = new Account(1L, "from", "EUR", BigDecimal.ZERO);
+        when(engine.withdraw(eq(1L), eq(AMOUNT), anyString())).thenReturn(from);
+        doThrow(new IllegalStateException("node b is down")).when(client).postInternal(anyString(), anyString(), any());
+        when(engine.deposit(1L, AMOUNT))
+                .thenThrow(new AccountBusyException("Account #1 is busy", 1))
+                .thenReturn(from);
+        TwoPhaseTransfers transfers = newTransfers();
+
+        assertThatThrownBy(() -> transfers.transfer(1L, 2L, AMOUNT)).hasMessageContaining("node b is down");
+
+        verify(engine, timeout(5_000).times(2)).deposit(1L, AMOUNT);
+        awaitFinished();
+    }
+
+    @Test
+    public void debitWithoutDecisionIsRefundedOnRecovery() throws Exception {
+        Account from = new Account(1L, "from", "EUR", BigDecimal.ZERO);
+        when(engine.withdraw(eq(1L), eq(AMOUNT), anyString())).thenReturn(from);
+        // the coordinator dies while asking the participant to prepare
+        doThrow(new Error("crash")).when(client).postInternal(anyString(), anyString(), any());
+        assertThatThrownBy(() -> newTransfers().transfer(1L, 2L, AMOUNT)).hasMessage("crash");
+        assertThat(unfinished()).extracting(TransactionLog.Entry::getState)
+                .containsExactly(TransactionLog.State.DEBITED);
+
+        Mockito.reset(client);
+        newTransfers().recover();
+
+        verify(engine, timeout(5_000)).deposit(1L, AMOUNT);
+        awaitFinished();
+    }
+
+    @Test
+    public void journaledDebitWithoutLoggedStateIsRefundedOnRecovery() throws Exception {
+        // the coordinator dies after the debit is journaled but before it is logged as DEBITED
+        when(engine.withdraw(eq(1L), eq(AMOUNT), anyString())).thenAnswer(invocation -> {
+            journaled.add((String) invocation.getArguments()[2]);
+            throw new Error("crash");
+        });
+        assertThatThrownBy(() -> newTransfers().transfer(1L, 2L, AMOUNT)).hasMessage("crash");
+        assertThat(unfinished()).extracting(TransactionLog.Entry::getState)
+                .containsExactly(TransactionLog.State.BEGIN);
+
+        newTransfers().recover();
+
+        verify(engine, timeout(5_000)).deposit(1L, AMOUNT);
+        awaitFinished();
+    }
+
+    @Test
+    public void beginWithoutJournaledDebitIsAbortedOnRecovery() throws Exception {
+        // the coordinator dies before the debit
+        when(engine.withdraw(eq(1L), eq(AMOUNT), anyString())).thenThrow(new Error("crash"));
+        assertThatThrownBy(() -> newTransfers().transfer(1L, 2L, AMOUNT)).hasMessage("crash");
+        assertThat(unfinished()).extracting(TransactionLog.Entry::getState)
+                .containsExactly(TransactionLog.State.BEGIN);
+
+        newTransfers().recover();
+
+        assertThat(unfinished()).isEmpty();
+        verify(engine, never()).deposit(anyLong(), any());
+    }
+
+    private void confirmedByCoordinator(String txId) {
+        when(client.getInternal("http://b", "/api/internal/transfers/" + txId)).thenReturn(true);
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!unfinished().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(unfinished()).isEmpty();
+    }
+
+    private Collection<TransactionLog.Entry> unfinished() {
+        try (TransactionLog transactionLog = new TransactionLog(log.toPath())) {
+            return transactionLog.unfinished();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TwoPhaseTransfers newTransfers() {
+        return new TwoPhaseTransfers(engine, accountService, topology, client, journaled::contains, config);
+    }
+}
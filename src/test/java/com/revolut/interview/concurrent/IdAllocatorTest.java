@@ -0,0 +1,67 @@
+package com.revolut.interview.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdAllocatorTest {
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        IdAllocator allocator = new IdAllocator(1, 8);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = IntStream.range(0, 4)
+                    .mapToObj(worker -> executor.submit(() -> {
+                        long previous = 0;
+                        for (int i = 0; i < 10_000; i++) {
+                            long id = allocator.next();
+                            assertThat(id).isGreaterThan(previous);
+                            assertThat(ids.add(id)).isTrue();
+                            previous = id;
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(ids).hasSize(40_000).allMatch(id -> id >= 1);
+    }
+
+    @Test
+    public void bulkIdsAreConsecutiveAndOutsideBlocks() {
+        IdAllocator allocator = new IdAllocator(1, 8);
+
+        assertThat(allocator.next()).isEqualTo(1);
+        assertThat(allocator.next(3)).isEqualTo(9);
+        assertThat(allocator.next()).isEqualTo(2);
+    }
+
+    @Test
+    public void reservedIdsAreNeverHandedOut() {
+        IdAllocator allocator = new IdAllocator(1, 8);
+        assertThat(allocator.next()).isEqualTo(1);
+
+        allocator.reserve(100);
+
+        assertThat(allocator.next()).isEqualTo(101);
+        assertThat(allocator.next(2)).isEqualTo(109);
+
+        // lower reservations do not move ids back
+        allocator.reserve(5);
+        assertThat(allocator.next()).isEqualTo(102);
+    }
+}
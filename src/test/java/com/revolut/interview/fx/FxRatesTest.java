@@ -0,0 +1,65 @@
+package com.revolut.interview.fx;
+
+import com.revolut.interview.exception.InvalidTransferException;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FxRatesTest {
+
+    @Test
+    public void convertsWithCrossRates() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        rates.put("USD", new BigDecimal("1.10"));
+        rates.put("GBP", new BigDecimal("0.86"));
+        rates.put("JPY", new BigDecimal("160"));
+        RateTable table = new FxRates("EUR", rates).current();
+
+        assertThat(table.convert(new BigDecimal("10"), "EUR", "USD")).isEqualTo(new BigDecimal("11.00"));
+        assertThat(table.convert(new BigDecimal("11"), "USD", "EUR")).isEqualTo(new BigDecimal("10.00"));
+        // 10 * 0.86 / 1.10 = 7.8181..., rounded down to pence
+        assertThat(table.convert(new BigDecimal("10"), "USD", "GBP")).isEqualTo(new BigDecimal("7.81"));
+        assertThat(table.convert(new BigDecimal("0.99"), "EUR", "JPY")).isEqualTo(new BigDecimal("158"));
+        assertThat(table.convert(new BigDecimal("1.234"), "USD", "USD")).isEqualTo(new BigDecimal("1.234"));
+        assertThat(table.convert(BigDecimal.ONE, null, "USD")).isEqualTo(new BigDecimal("1.10"));
+
+        Assertions.assertThatExceptionOfType(InvalidTransferException.class)
+                .isThrownBy(() -> table.convert(BigDecimal.ONE, "EUR", "CHF"))
+                .withMessageContaining("CHF");
+    }
+
+    @Test
+    public void updatePublishesNewVersion() {
+        FxRates fx = new FxRates("EUR", Collections.singletonMap("USD", new BigDecimal("1.10")));
+        RateTable before = fx.current();
+
+        RateTable after = fx.update(Collections.singletonMap("GBP", new BigDecimal("0.86")));
+
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(fx.current()).isSameAs(after);
+        assertThat(after.supports("GBP")).isTrue();
+        assertThat(after.supports("USD")).isFalse();
+        assertThat(after.getRates()).containsOnlyKeys("EUR", "GBP");
+        // a transfer which read the previous table still converts with it
+        assertThat(before.convert(BigDecimal.ONE, "EUR", "USD")).isEqualTo(new BigDecimal("1.10"));
+        assertThat(fx.describe().getVersion()).isEqualTo(after.getVersion());
+    }
+
+    @Test
+    public void rejectsInvalidRates() {
+        FxRates fx = new FxRates();
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> fx.update(Collections.singletonMap("USD", BigDecimal.ZERO)))
+                .withMessageContaining("positive");
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> fx.update(Collections.singletonMap("XYZ1", BigDecimal.ONE)));
+        assertThat(fx.current().getVersion()).isEqualTo(1);
+        assertThat(fx.current().getBase()).isEqualTo(FxRates.DEFAULT_BASE);
+    }
+}
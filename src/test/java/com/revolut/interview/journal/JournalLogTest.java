@@ -0,0 +1,241 @@
+package com.revolut.interview.journal;
+
+import com.revolut.interview.exception.HistoryCompactedException;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournalLogTest {
+
+    private static final int ACCOUNTS = 20;
+
+    private static final int OPERATIONS = 2000;
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void accountsAreRestored() throws Exception {
+        Map<Long, BigDecimal> balances = run(new AccountRepository());
+
+        AccountRepository restored = new AccountRepository();
+        JournalLog log = log(restored);
+        log.start();
+        log.stop();
+
+        assertThat(balances(restored)).isEqualTo(balances);
+        assertThat(restored.getById(1L).getName()).isEqualTo("name0");
+        assertThat(restored.create("new", "EUR", BigDecimal.ZERO).getId()).isEqualTo(ACCOUNTS + 1);
+        assertThat(JournalLog.files(dir, JournalLog.SEGMENT).size()).isGreaterThan(2);
+    }
+
+    @Test
+    public void closedSegmentsAreCompacted() throws Exception {
+        Map<Long, BigDecimal> balances = run(new AccountRepository());
+
+        JournalLog log = log(new AccountRepository());
+        log.start();
+        List<Path> segments = JournalLog.files(dir, JournalLog.SEGMENT);
+        assertThat(log.compact()).isTrue();
+        assertThat(log.compact()).isFalse();
+        log.stop();
+
+        // only the segment started by the last start is left, empty
+        assertThat(JournalLog.files(dir, JournalLog.SEGMENT)).containsExactly(segments.get(segments.size() - 1));
+        assertThat(JournalLog.files(dir, JournalLog.SNAPSHOT)).hasSize(1);
+        List<JournalRecord> records = JournalLog.read(dir);
+        assertThat(records).hasSize(ACCOUNTS).allMatch(record -> record.getType() == JournalRecord.Type.SNAPSHOT);
+
+        AccountRepository restored = new AccountRepository();
+        log = log(restored);
+        log.start();
+        log.stop();
+        assertThat(balances(restored)).isEqualTo(balances);
+    }
+
+    @Test
+    public void adjustingJobIsKeptByCompaction() throws Exception {
+        Journal journal = new Journal();
+        AccountRepository repository = new AccountRepository();
+        JournalLog log = log(journal, repository);
+        log.start();
+        AccountService accountService = new AccountService(repository, journal);
+        TransferService transferService = new TransferService(accountService);
+        Account first = accountService.create("first", BigDecimal.TEN);
+        Account second = accountService.create("second", BigDecimal.TEN);
+        transferService.adjust(first.getId(), 7, account -> BigDecimal.ONE);
+        transferService.adjust(second.getId(), 8, account -> BigDecimal.ONE);
+        transferService.transfer(second.getId(), first.getId(), BigDecimal.ONE);
+        log.stop();
+
+        log = log(new AccountRepository());
+        log.start();
+        assertThat(log.adjustedBy(7)).containsExactly(first.getId());
+        assertThat(log.compact()).isTrue();
+        log.stop();
+
+        assertThat(log.adjustedBy(7)).containsExactly(first.getId());
+        assertThat(log.adjustedBy(8)).containsExactly(second.getId());
+        assertThat(log.adjustedBy(9)).isEmpty();
+    }
+
+    @Test
+    public void referencedWithdrawalIsFoundAfterRestart() throws Exception {
+        Journal journal = new Journal();
+        AccountRepository repository = new AccountRepository();
+        JournalLog log = log(journal, repository);
+        log.start();
+        AccountService accountService = new AccountService(repository, journal);
+        TransferService transferService = new TransferService(accountService);
+        Account account = accountService.create("account", BigDecimal.TEN);
+        transferService.withdraw(account.getId(), BigDecimal.ONE, "0-tx");
+        transferService.withdraw(account.getId(), BigDecimal.ONE);
+        log.stop();
+
+        log = log(new AccountRepository());
+        log.start();
+        assertThat(log.withdrawn("0-tx")).isTrue();
+        assertThat(log.withdrawn("0-other")).isFalse();
+        log.stop();
+    }
+
+    @Test
+    public void historyBeforeCompactionIsRejected() throws Exception {
+        run(new AccountRepository());
+        long beforeCompaction = System.currentTimeMillis() - 1;
+
+        JournalLog log = log(new AccountRepository());
+        log.start();
+        try (JournalLogReader reader = log.segments(0)) {
+            assertThat(reader.next()).isNotNull();
+        }
+        assertThat(log.compact()).isTrue();
+        assertThatThrownBy(() -> log.segments(beforeCompaction)).isInstanceOf(HistoryCompactedException.class);
+        try (JournalLogReader reader = log.segments(System.currentTimeMillis() + 1000)) {
+            assertThat(reader.next()).isNull();
+        }
+        log.stop();
+    }
+
+    @Test
+    public void syncChangesAreOnDiskWhenAcknowledged() throws Exception {
+        Journal journal = new Journal();
+        AccountRepository repository = new AccountRepository();
+        JournalLog log = log(journal, repository, JournalDurability.SYNC);
+        log.start();
+        AccountService accountService = new AccountService(repository, journal);
+        TransferService transferService = new TransferService(accountService);
+        Account first = accountService.create("first", BigDecimal.TEN);
+        Account second = accountService.create("second", BigDecimal.TEN);
+        transferService.transfer(first.getId(), second.getId(), BigDecimal.ONE);
+
+        // read before stopping, nothing acknowledged may still be queued for the writer
+        assertThat(JournalLog.read(dir)).extracting(JournalRecord::getType).containsExactly(
+                JournalRecord.Type.CREATE, JournalRecord.Type.CREATE,
+                JournalRecord.Type.TRANSFER, JournalRecord.Type.TRANSFER);
+        log.stop();
+    }
+
+    @Test
+    public void tornBlockIsIgnored() throws Exception {
+        Map<Long, BigDecimal> balances = run(new AccountRepository());
+        List<Path> segments = JournalLog.files(dir, JournalLog.SEGMENT);
+        Files.write(segments.get(segments.size() - 1), new byte[]{0, 0, 1, 0, 0, 0, 0, 7, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        AccountRepository restored = new AccountRepository();
+        JournalLog log = log(restored);
+        log.start();
+        log.stop();
+
+        assertThat(balances(restored)).isEqualTo(balances);
+    }
+
+    private JournalLog log(AccountRepository repository) {
+        return log(new Journal(), repository);
+    }
+
+    private JournalLog log(Journal journal, AccountRepository repository) {
+        return log(journal, repository, JournalDurability.ASYNC);
+    }
+
+    private JournalLog log(Journal journal, AccountRepository repository, JournalDurability durability) {
+        return new JournalLog(journal, repository, dir, 1024, 256, 10, durability, 1, TimeUnit.HOURS.toMillis(1),
+                1 << 20);
+    }
+
+    /**
+     * Run random operations with the log started
+     *
+     * @return final balances
+     */
+    private Map<Long, BigDecimal> run(AccountRepository repository) throws Exception {
+        Journal journal = new Journal();
+        JournalLog log = log(journal, repository);
+        log.start();
+        AccountService accountService = new AccountService(repository, journal);
+        TransferService transferService = new TransferService(accountService);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(accountService.create("name" + i, BigDecimal.valueOf(100)));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < OPERATIONS; i++) {
+            long from = accounts.get(random.nextInt(ACCOUNTS)).getId();
+            long to = accounts.get(random.nextInt(ACCOUNTS)).getId();
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(50) + 1, 1);
+            try {
+                if (from == to) {
+                    transferService.withdraw(from, amount);
+                } else {
+                    transferService.transfer(from, to, amount);
+                }
+            } catch (InsufficientFundsException e) {
+                // not journaled
+            }
+        }
+        log.stop();
+        return balances(repository);
+    }
+
+    private static Map<Long, BigDecimal> balances(AccountRepository repository) {
+        Map<Long, BigDecimal> balances = new TreeMap<>();
+        repository.getAll().forEach(account -> balances.put(account.getId(), account.getAmount()));
+        return balances;
+    }
+}
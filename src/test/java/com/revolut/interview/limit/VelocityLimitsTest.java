@@ -0,0 +1,119 @@
+package com.revolut.interview.limit;
+
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.exception.VelocityLimitExceededException;
+import com.revolut.interview.lock.StripedLockManager;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VelocityLimitsTest {
+
+    private static final long ACCOUNT = 1;
+
+    @Test
+    public void amountAndCountAreLimited() {
+        VelocityLimits limits = new VelocityLimits(2, Arrays.asList(
+                new VelocityLimit(Duration.ofHours(1), new BigDecimal("10.00"), 0),
+                new VelocityLimit(Duration.ofDays(1), BigDecimal.ZERO, 3)));
+
+        limits.acquire(ACCOUNT, new BigDecimal("9.99"));
+        Assertions.assertThatExceptionOfType(VelocityLimitExceededException.class)
+                .isThrownBy(() -> limits.acquire(ACCOUNT, new BigDecimal("0.011")))
+                .withMessageContaining("10.00 debited per PT1H");
+        limits.acquire(ACCOUNT, new BigDecimal("0.01"));
+        // rejected debits are not counted
+        limits.acquire(ACCOUNT, BigDecimal.ZERO);
+        Assertions.assertThatExceptionOfType(VelocityLimitExceededException.class)
+                .isThrownBy(() -> limits.acquire(ACCOUNT, BigDecimal.ZERO))
+                .withMessageContaining("3 debits per PT24H");
+        // other accounts have their own counters
+        limits.acquire(ACCOUNT + 1, BigDecimal.TEN);
+    }
+
+    @Test
+    public void windowSlides() throws Exception {
+        VelocityLimits limits = new VelocityLimits(0, Collections.singletonList(
+                new VelocityLimit(Duration.ofMillis(200), BigDecimal.ZERO, 1)));
+
+        limits.acquire(ACCOUNT, BigDecimal.ONE);
+        Assertions.assertThatExceptionOfType(VelocityLimitExceededException.class)
+                .isThrownBy(() -> limits.acquire(ACCOUNT, BigDecimal.ONE));
+        TimeUnit.MILLISECONDS.sleep(250);
+
+        limits.acquire(ACCOUNT, BigDecimal.ONE);
+    }
+
+    @Test
+    public void releasedDebitIsNotCounted() {
+        VelocityLimits limits = new VelocityLimits(0, Collections.singletonList(
+                new VelocityLimit(Duration.ofHours(1), BigDecimal.TEN, 1)));
+
+        long acquiredAt = limits.acquire(ACCOUNT, BigDecimal.TEN);
+        limits.release(ACCOUNT, BigDecimal.TEN, acquiredAt);
+
+        limits.acquire(ACCOUNT, BigDecimal.TEN);
+    }
+
+    @Test
+    public void concurrentDebitsNeverExceedLimit() throws Exception {
+        int maxCount = 1000;
+        VelocityLimits limits = new VelocityLimits(0, Collections.singletonList(
+                new VelocityLimit(Duration.ofHours(1), BigDecimal.ZERO, maxCount)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        LongAdder accepted = new LongAdder();
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(executor.submit(() -> {
+                for (int j = 0; j < maxCount; j++) {
+                    try {
+                        limits.acquire(ACCOUNT, BigDecimal.ONE);
+                        accepted.increment();
+                    } catch (VelocityLimitExceededException e) {
+                        // expected once the limit is reached
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        assertThat(accepted.sum()).isLessThanOrEqualTo(maxCount).isGreaterThan(0);
+    }
+
+    @Test
+    public void failedWithdrawalIsNotCounted() {
+        AccountService accountService = new AccountService(new AccountRepository());
+        TransferService transferService = new TransferService(accountService, new StripedLockManager(),
+                new VelocityLimits(0, Collections.singletonList(
+                        new VelocityLimit(Duration.ofHours(1), BigDecimal.ZERO, 1))));
+        Account account = accountService.create("name", BigDecimal.ONE);
+
+        Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                .isThrownBy(() -> transferService.withdraw(account.getId(), BigDecimal.TEN));
+        transferService.withdraw(account.getId(), BigDecimal.ONE);
+        transferService.deposit(account.getId(), BigDecimal.ONE);
+        Assertions.assertThatExceptionOfType(VelocityLimitExceededException.class)
+                .isThrownBy(() -> transferService.withdraw(account.getId(), BigDecimal.ONE));
+    }
+}
@@ -0,0 +1,92 @@
+package com.revolut.interview.lock;
+
+import com.revolut.interview.exception.AccountBusyException;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedLockManagerTest {
+
+    private final StripedLockManager lockManager = new StripedLockManager(16, 50, TimeUnit.MILLISECONDS, false);
+
+    @Test
+    public void failsFastWhenAccountIsBusy() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> holder = executor.submit(() -> {
+                try (LockManager.Locked ignored = lockManager.lock(1L)) {
+                    locked.countDown();
+                    release.await();
+                }
+                return null;
+            });
+            locked.await();
+
+            long start = System.nanoTime();
+            Assertions.assertThatExceptionOfType(AccountBusyException.class)
+                    .isThrownBy(() -> lockManager.lock(2L, 1L))
+                    .withMessageContaining("#1")
+                    .withMessageContaining("busy");
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+
+            //partially acquired locks are released on failure
+            try (LockManager.Locked ignored = lockManager.lock(2L)) {
+                assertThat(ignored).isNotNull();
+            }
+
+            release.countDown();
+            holder.get();
+            try (LockManager.Locked ignored = lockManager.lock(1L, 2L)) {
+                assertThat(ignored).isNotNull();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void locksSameStripeOnce() {
+        long first = 1L;
+        long second = first + 1;
+        while (lockManager.stripe(second) != lockManager.stripe(first)) {
+            second++;
+        }
+        try (LockManager.Locked ignored = lockManager.lock(first, second, first)) {
+            assertThat(ignored).isNotNull();
+        }
+        try (LockManager.Locked ignored = lockManager.lock(second)) {
+            assertThat(ignored).isNotNull();
+        }
+    }
+
+    @Test
+    public void tryLockFailsWhenHeldEvenByCurrentThread() throws Exception {
+        try (LockManager.Locked ignored = lockManager.lock(1L)) {
+            assertThat(lockManager.tryLock(1L)).isNull();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                assertThat(executor.submit(() -> lockManager.tryLock(1L)).get()).isNull();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        LockManager.Locked locked = lockManager.tryLock(1L);
+        assertThat(locked).isNotNull();
+        locked.close();
+    }
+
+    @Test
+    public void rejectsWrongStripeCount() {
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> new StripedLockManager(15, 1, TimeUnit.SECONDS, false));
+    }
+}
@@ -0,0 +1,81 @@
+package com.revolut.interview.monitoring;
+
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferEventTest {
+
+    private static final String EVENT = "com.revolut.interview.Transfer";
+
+    @Test
+    public void operationsAreRecorded() throws Exception {
+        AccountService accountService = new AccountService(new AccountRepository());
+        TransferService transferService = new TransferService(accountService);
+        Account from = accountService.create("from", new BigDecimal("100.00"));
+        Account to = accountService.create("to", BigDecimal.ZERO);
+
+        Path file = Files.createTempFile("transfers", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT);
+            recording.start();
+            transferService.deposit(from.getId(), new BigDecimal("5.00"));
+            transferService.transfer(from.getId(), to.getId(), new BigDecimal("12.50"));
+            Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                    .isThrownBy(() -> transferService.withdraw(to.getId(), new BigDecimal("1000")));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(EVENT))
+                .collect(Collectors.toList());
+        Files.delete(file);
+
+        assertThat(events).extracting(event -> event.getString("operation"))
+                .containsExactly("DEPOSIT", "TRANSFER", "WITHDRAWAL");
+        assertThat(events).extracting(event -> event.getString("outcome"))
+                .containsExactly("OK", "OK", "InsufficientFundsException");
+        assertThat(events).extracting(event -> event.getInt("amountMagnitude")).containsExactly(0, 1, 3);
+        RecordedEvent transfer = events.get(1);
+        assertThat(transfer.getLong("accountId")).isEqualTo(from.getId());
+        assertThat(transfer.getLong("counterpartyId")).isEqualTo(to.getId());
+        assertThat(transfer.getDuration("lockWait")).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabled() throws Exception {
+        AccountService accountService = new AccountService(new AccountRepository());
+        TransferService transferService = new TransferService(accountService);
+        Account account = accountService.create("account", BigDecimal.ZERO);
+
+        Path file = Files.createTempFile("transfers", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable(EVENT);
+            recording.start();
+            transferService.deposit(account.getId(), BigDecimal.ONE);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        assertThat(RecordingFile.readAllEvents(file))
+                .noneMatch(event -> event.getEventType().getName().equals(EVENT));
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,145 @@
+package com.revolut.interview.pipeline;
+
+import com.revolut.interview.cluster.NodeClient;
+import com.revolut.interview.dto.AsyncTransferRequest;
+import com.revolut.interview.dto.TransferStatusResponse;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.ServiceOverloadedException;
+import com.revolut.interview.exception.TransferNotFoundException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngine;
+import com.revolut.interview.service.TransferService;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TransferPipelineTest {
+
+    private final AccountService accountService = new AccountService(new AccountRepository());
+
+    private final NodeClient client = Mockito.mock(NodeClient.class);
+
+    private final TransferPipeline pipeline = new TransferPipeline(new TransferService(accountService), client,
+            4, 1000, 16, TimeUnit.MINUTES.toMillis(1), TimeUnit.SECONDS.toMillis(5), 1, 10, 3,
+            Collections.singleton("localhost"));
+
+    @After
+    public void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    public void transfersFromAccountAreAppliedInOrder() throws Exception {
+        pipeline.start();
+        Account from = accountService.create("from", BigDecimal.TEN);
+        Account to = accountService.create("to", BigDecimal.ZERO);
+
+        List<TransferStatusResponse> submitted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            submitted.add(pipeline.submit(new AsyncTransferRequest(from.getId(), to.getId(), BigDecimal.ONE, null)));
+        }
+        for (int i = 0; i < submitted.size(); i++) {
+            TransferStatusResponse status = pipeline.await(submitted.get(i).getId(), 5000).get();
+            assertThat(status.getStatus()).isEqualTo(i < 10 ? "COMPLETED" : "FAILED");
+        }
+
+        assertThat(from.getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(to.getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(pipeline.get(submitted.get(19).getId()).getError()).contains("Insufficient funds");
+    }
+
+    @Test
+    public void awaitReturnsQueuedStatusAfterWait() throws Exception {
+        TransferEngine slowEngine = Mockito.mock(TransferEngine.class);
+        Mockito.when(slowEngine.transfer(1L, 2L, BigDecimal.ONE)).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(500);
+            return null;
+        });
+        TransferPipeline slow = new TransferPipeline(slowEngine, client, 1, 10, 1, 1000, 1000, 1, 1, 3,
+                Collections.emptySet());
+        slow.start();
+        try {
+            TransferStatusResponse submitted = slow.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, null));
+
+            assertThat(slow.await(submitted.getId(), 50).get(1, TimeUnit.SECONDS).getStatus()).isEqualTo("QUEUED");
+            assertThat(slow.await(submitted.getId(), 5000).get(1, TimeUnit.SECONDS).getStatus())
+                    .isEqualTo("COMPLETED");
+            Assertions.assertThatExceptionOfType(TransferNotFoundException.class)
+                    .isThrownBy(() -> slow.get(submitted.getId() + 1));
+        } finally {
+            slow.stop();
+        }
+    }
+
+    @Test
+    public void fullQueueRejectsSubmissions() {
+        TransferPipeline small = new TransferPipeline(new TransferService(accountService), client,
+                1, 1, 1, 1000, 1000, 1, 1, 3, Collections.emptySet());
+        small.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, null));
+
+        Assertions.assertThatExceptionOfType(ServiceOverloadedException.class)
+                .isThrownBy(() -> small.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, null)));
+    }
+
+    @Test
+    public void finalStatusIsPostedToCallback() throws Exception {
+        pipeline.start();
+        Account from = accountService.create("from", BigDecimal.TEN);
+
+        TransferStatusResponse submitted = pipeline.submit(new AsyncTransferRequest(from.getId(), from.getId() + 1,
+                BigDecimal.ONE, "http://localhost:1/callback"));
+
+        ArgumentCaptor<TransferStatusResponse> status = ArgumentCaptor.forClass(TransferStatusResponse.class);
+        verify(client, timeout(5000)).post(eq("http://localhost:1/callback"), eq(""), status.capture());
+        assertThat(status.getValue().getId()).isEqualTo(submitted.getId());
+        assertThat(status.getValue().getStatus()).isEqualTo("FAILED");
+    }
+
+    @Test
+    public void callbacksAreOnlySentToAllowedHosts() {
+        for (String url : new String[]{"http://10.0.0.1/api/internal/transfers/1/commit", "file:///etc/passwd",
+                "http://localhost@10.0.0.1/", "localhost", "not a url"}) {
+            Assertions.assertThatIllegalArgumentException()
+                    .isThrownBy(() -> pipeline.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, url)))
+                    .withMessageContaining("allowed host");
+        }
+        assertThat(pipeline.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, "https://LOCALHOST:8443/cb"))
+                .getStatus()).isEqualTo("QUEUED");
+    }
+
+    @Test
+    public void busyAccountFailsTransferAfterRetries() throws Exception {
+        TransferEngine busyEngine = Mockito.mock(TransferEngine.class);
+        Mockito.when(busyEngine.transfer(1L, 2L, BigDecimal.ONE))
+                .thenThrow(new AccountBusyException("Account #1 is busy", 1));
+        TransferPipeline busy = new TransferPipeline(busyEngine, client, 1, 10, 1, 1000, 1000, 1, 1, 2,
+                Collections.emptySet());
+        busy.start();
+        try {
+            TransferStatusResponse submitted = busy.submit(new AsyncTransferRequest(1L, 2L, BigDecimal.ONE, null));
+
+            TransferStatusResponse status = busy.await(submitted.getId(), 5000).get(5, TimeUnit.SECONDS);
+            assertThat(status.getStatus()).isEqualTo("FAILED");
+            assertThat(status.getError()).contains("busy");
+            verify(busyEngine, times(3)).transfer(1L, 2L, BigDecimal.ONE);
+        } finally {
+            busy.stop();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.revolut.interview.replay;
+
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.journal.JournalRecord;
+import com.revolut.interview.journal.JournalRecorder;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferEngineType;
+import com.revolut.interview.service.TransferService;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalReplayTest {
+
+    private static final int ACCOUNTS = 20;
+
+    private static final int OPERATIONS = 2000;
+
+    private Path recording;
+
+    private List<JournalRecord> records;
+
+    @Before
+    public void setUp() throws IOException {
+        recording = Files.createTempFile("journal", ".bin");
+        Journal journal = new Journal();
+        JournalRecorder recorder = new JournalRecorder(journal, recording);
+        recorder.start();
+        AccountService accountService = new AccountService(new AccountRepository(), journal);
+        TransferService transferService = new TransferService(accountService);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(accountService.create("name" + i, BigDecimal.valueOf(100)));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < OPERATIONS; i++) {
+            long from = accounts.get(random.nextInt(ACCOUNTS)).getId();
+            long to = accounts.get(random.nextInt(ACCOUNTS)).getId();
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(50) + 1, 1);
+            try {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        transferService.deposit(from, amount);
+                        break;
+                    case 1:
+                        transferService.withdraw(from, amount);
+                        break;
+                    default:
+                        if (from != to) {
+                            transferService.transfer(from, to, amount);
+                        }
+                }
+            } catch (InsufficientFundsException e) {
+                // not journaled
+            }
+        }
+        recorder.stop();
+        records = JournalRecorder.read(recording);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(recording);
+    }
+
+    @Test
+    public void recordingIsReadBack() {
+        assertThat(records).isNotEmpty();
+        assertThat(records.get(0).getType()).isEqualTo(JournalRecord.Type.CREATE);
+        assertThat(records.get(records.size() - 1).getSequence()).isEqualTo(records.size());
+    }
+
+    @Test
+    public void sequentialReplayReproducesFinalState() throws Exception {
+        ReplayReport report = new JournalReplay(records, TransferEngineType.LOCK, 0, 1).run();
+
+        assertThat(report.getMismatched()).isZero();
+        assertThat(report.getChecksum()).isEqualTo(report.getRecordedChecksum());
+        assertThat(report.getFailures()).isEmpty();
+        assertThat(report.getSkipped()).isZero();
+        assertThat(report.getLatencyNanos()[0]).isPositive();
+        assertThat(report.toString()).contains("ops/s", "p99.9 ", "0 accounts differ");
+    }
+
+    @Test
+    public void parallelReplayRunsEveryOperation() throws Exception {
+        ReplayReport sequential = new JournalReplay(records, TransferEngineType.LOCK, 0, 1).run();
+        ReplayReport parallel = new JournalReplay(records, TransferEngineType.ACTOR, 0, 4).run();
+
+        assertThat(parallel.getOperations()).isEqualTo(sequential.getOperations());
+    }
+
+    @Test
+    public void recordedSpeedFollowsRecordedTimes() throws Exception {
+        long recordedMillis = records.get(records.size() - 1).getTimestamp() - records.get(0).getTimestamp();
+
+        ReplayReport report = new JournalReplay(records, TransferEngineType.LOCK, 1, 2).run();
+
+        assertThat(report.getElapsedNanos() / 1_000_000).isGreaterThanOrEqualTo(recordedMillis);
+    }
+
+    @Test
+    public void invalidSpeedIsRejected() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new JournalReplay(records, TransferEngineType.LOCK, -1, 1));
+    }
+
+    @Test
+    public void failedRecordingDoesNotFailChanges() throws Exception {
+        Path full = Paths.get("/dev/full");
+        Assume.assumeTrue(Files.isWritable(full));
+        Journal journal = new Journal();
+        JournalRecorder recorder = new JournalRecorder(journal, full);
+        recorder.start();
+        AccountService accountService = new AccountService(new AccountRepository(), journal);
+        TransferService transferService = new TransferService(accountService);
+        Account from = accountService.create("from", BigDecimal.valueOf(OPERATIONS * 10));
+        Account to = accountService.create("to", BigDecimal.ZERO);
+
+        // far more than the buffer, so it is flushed to the full device
+        for (int i = 0; i < OPERATIONS * 10; i++) {
+            transferService.transfer(from.getId(), to.getId(), BigDecimal.ONE);
+        }
+        recorder.stop();
+
+        assertThat(from.getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(to.getAmount()).isEqualByComparingTo(BigDecimal.valueOf(OPERATIONS * 10));
+    }
+}
@@ -0,0 +1,122 @@
+package com.revolut.interview.replication;
+
+import com.google.common.collect.ImmutableMap;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReplicationTest {
+
+    private final AccountRepository primaryRepository = new AccountRepository();
+
+    private final AccountRepository followerRepository = new AccountRepository();
+
+    private final Journal journal = new Journal();
+
+    private final AccountService accountService = new AccountService(primaryRepository, journal);
+
+    private final TransferService transferService = new TransferService(accountService);
+
+    private Replication primary;
+
+    private Replication follower;
+
+    @Before
+    public void setUp() {
+        primary = new Replication(journal, primaryRepository, config(ImmutableMap.of(
+                "replication.role", "PRIMARY",
+                "replication.port", 0,
+                "replication.ack", "QUORUM",
+                "replication.ackTimeout", "10s")));
+    }
+
+    @After
+    public void tearDown() {
+        primary.stop();
+        if (follower != null) {
+            follower.stop();
+        }
+    }
+
+    @Test
+    public void followerAppliesSnapshotAndEveryQuorumWrite() throws Exception {
+        // existing accounts reach the follower with the snapshot
+        Account first = accountService.create("first", BigDecimal.TEN);
+        transferService.deposit(first.getId(), BigDecimal.ONE);
+        primary.start();
+
+        follower = follower();
+        follower.start();
+        await(() -> primary.stats().getFollowers().size() == 1);
+
+        Account second = accountService.create("second", BigDecimal.ZERO);
+        assertThat(followerRepository.getById(first.getId()).getAmount()).isEqualTo(new BigDecimal(11));
+        assertThat(followerRepository.getById(second.getId()).getName()).isEqualTo("second");
+
+        for (int i = 0; i < 100; i++) {
+            transferService.transfer(first.getId(), second.getId(), new BigDecimal("0.1"));
+            // quorum write returns only after the follower applied it
+            assertThat(followerRepository.getById(second.getId()).getAmount())
+                    .isEqualTo(second.getAmount());
+        }
+        assertThat(followerRepository.getById(first.getId()).getAmount()).isEqualTo(new BigDecimal("1.0"));
+        assertThat(follower.stats().getSequence()).isEqualTo(journal.lastSequence());
+        assertThat(primary.stats().getFollowers().get(0).getLag()).isZero();
+        assertThat(follower.isReadOnly()).isTrue();
+    }
+
+    @Test
+    public void promotedFollowerAcceptsWrites() throws Exception {
+        Account account = accountService.create("account", BigDecimal.TEN);
+        primary.start();
+        follower = follower();
+        follower.start();
+        await(() -> followerRepository.getById(account.getId()) != null);
+
+        primary.stop();
+        follower.promote();
+
+        assertThat(follower.isReadOnly()).isFalse();
+        assertThat(follower.stats().getRole()).isEqualTo(ReplicationRole.PRIMARY);
+        assertThat(new AccountService(followerRepository).create("new", null).getId())
+                .isGreaterThan(account.getId());
+        assertThatThrownBy(follower::promote).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Replication follower() {
+        return new Replication(new Journal(), followerRepository, config(ImmutableMap.of(
+                "replication.role", "FOLLOWER",
+                "replication.primary", "localhost:" + primary.port(),
+                "replication.port", 0)));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private static Config config(Map<String, Object> values) {
+        return ConfigFactory.parseMap(values)
+                .withFallback(ConfigFactory.parseResources("application.conf").getConfig("replication")
+                        .atPath("replication"))
+                .resolve();
+    }
+}
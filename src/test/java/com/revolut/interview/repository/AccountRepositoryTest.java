@@ -1,10 +1,14 @@
 package com.revolut.interview.repository;
 
 import com.revolut.interview.model.Account;
+import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -19,20 +23,20 @@ public class AccountRepositoryTest {
 
     @Test
     public void successfullyCreatesAccountWithAnyArguments() {
-        Account account = repository.create("name", BigDecimal.ONE);
+        Account account = repository.create("name", "EUR", BigDecimal.ONE);
         assertNotNull(account);
         assertNotNull(account.getId());
         assertEquals(BigDecimal.ONE, account.getAmount());
         assertEquals("name", account.getName());
 
 
-        Account account2 = repository.create(null, BigDecimal.ZERO);
+        Account account2 = repository.create(null, "EUR", BigDecimal.ZERO);
         assertNotNull(account2);
         assertNotNull(account.getId());
         assertEquals(BigDecimal.ZERO, account2.getAmount());
         assertNull(account2.getName());
 
-        Account account3 = repository.create(null, null);
+        Account account3 = repository.create(null, "EUR", null);
         assertNotNull(account3);
         assertNotNull(account3.getId());
         assertNull(account3.getAmount());
@@ -42,13 +46,67 @@ public class AccountRepositoryTest {
 
     @Test
     public void idStartsWithOneAndIncrementsWithOne() {
-        Account account = repository.create("name", BigDecimal.ONE);
+        Account account = repository.create("name", "EUR", BigDecimal.ONE);
         assertEquals(1L, account.getId().longValue());
 
-        account = repository.create(null, BigDecimal.ZERO);
+        account = repository.create(null, "EUR", BigDecimal.ZERO);
         assertEquals(2L, account.getId().longValue());
 
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void threadsCreateFromTheirOwnBlocks() throws Exception {
+        Account[] other = new Account[2];
+        Thread creator = new Thread(() -> {
+            other[0] = repository.create("other", "EUR", BigDecimal.ONE);
+            other[1] = repository.create("other", "EUR", BigDecimal.ONE);
+        });
+        creator.start();
+        creator.join();
+        Account first = repository.create("name", "EUR", BigDecimal.ONE);
+        List<Account> bulk = repository.createAll(Arrays.asList("a", "b"), Arrays.asList("EUR", "EUR"),
+                Arrays.asList(BigDecimal.ONE, BigDecimal.ONE));
+        Account second = repository.create("name", "EUR", BigDecimal.ONE);
+
+        assertEquals(other[0].getId() + 1, other[1].getId().longValue());
+        assertEquals(first.getId() + 1, second.getId().longValue());
+        assertEquals(bulk.get(0).getId() + 1, bulk.get(1).getId().longValue());
+        Assertions.assertThat(Arrays.asList(other[0].getId(), first.getId(), bulk.get(0).getId()))
+                .doesNotHaveDuplicates();
+        Assertions.assertThat(repository.getAll()).hasSize(6);
+    }
+
+    @Test
+    public void findsAccountsByNamePrefixPageByPage() {
+        Account bob = repository.create("Bob", "EUR", BigDecimal.ONE);
+        Account alice = repository.create("alice", "EUR", BigDecimal.ONE);
+        repository.create(null, "EUR", BigDecimal.ONE);
+        Account alex = repository.create("Alex", "EUR", BigDecimal.ONE);
+        Account alice2 = repository.create("Alice", "EUR", BigDecimal.ONE);
+
+        List<Account> firstPage = repository.findByNamePrefix("AL", null, 2);
+        assertEquals(Arrays.asList(alex, alice), firstPage);
+
+        List<Account> secondPage = repository.findByNamePrefix("al", alice.getId(), 2);
+        assertEquals(Collections.singletonList(alice2), secondPage);
+
+        assertEquals(Collections.singletonList(bob), repository.findByNamePrefix("b", null, 10));
+        assertTrue(repository.findByNamePrefix("c", null, 10).isEmpty());
+    }
+
+    @Test
+    public void rejectsUnknownOrForeignPageCursor() {
+        Account bob = repository.create("Bob", "EUR", BigDecimal.ONE);
+        Account unnamed = repository.create(null, "EUR", BigDecimal.ONE);
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> repository.findByNamePrefix("b", bob.getId() + 100, 10));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> repository.findByNamePrefix("a", bob.getId(), 10));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> repository.findByNamePrefix("b", unnamed.getId(), 10));
+        assertTrue(repository.findByNamePrefix("b", bob.getId(), 10).isEmpty());
+    }
+
+}
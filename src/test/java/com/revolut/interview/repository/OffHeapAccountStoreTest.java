@@ -0,0 +1,135 @@
+package com.revolut.interview.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class OffHeapAccountStoreTest {
+
+    private final OffHeapAccountStore store = new OffHeapAccountStore(2);
+
+    private final AccountRepository repository = new AccountRepository(new ClusterTopology(), store);
+
+    @Test
+    public void storesAccountsOffHeap() throws Exception {
+        Account account = repository.create("Zoë", "EUR", new BigDecimal("10.5"));
+        Account unnamed = repository.create(null, "EUR", null);
+        repository.restore(OffHeapAccountStore.CHUNK_SLOTS * 3L + 7, "far", "EUR", BigDecimal.ONE);
+
+        Account loaded = repository.getById(account.getId());
+        assertThat(loaded.getName()).isEqualTo("Zoë");
+        assertThat(loaded.getCurrency()).isEqualTo("EUR");
+        assertThat(loaded.getAmount()).isEqualTo(new BigDecimal("10.50"));
+        assertThat(loaded).isEqualTo(repository.getById(account.getId()));
+        assertThat(repository.getById(unnamed.getId()).getName()).isNull();
+        assertThat(repository.getById(unnamed.getId()).getAmount()).isNull();
+        assertThat(repository.getById(OffHeapAccountStore.CHUNK_SLOTS * 3L + 7).getName()).isEqualTo("far");
+        assertThat(repository.getById(100L)).isNull();
+        assertThat(repository.getAll()).hasSize(3);
+        assertThat(repository.findByNamePrefix("zo", null, 10)).extracting(Account::getId)
+                .containsExactly(account.getId());
+
+        loaded.setAmount(new BigDecimal("0.01"));
+        assertThat(account.getAmount()).isEqualTo(new BigDecimal("0.01"));
+        assertThat(store.version(account.getId())).isEqualTo(1);
+
+        assertThat(new ObjectMapper().writeValueAsString(loaded))
+                .isEqualTo("{\"id\":1,\"name\":\"Zoë\",\"currency\":\"EUR\",\"amount\":0.01}");
+    }
+
+    @Test
+    public void storesAccountsCreatedByManyThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> creators = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            creators.add(pool.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    repository.create("name", "EUR", BigDecimal.ONE);
+                }
+            }));
+        }
+        for (Future<?> creator : creators) {
+            creator.get();
+        }
+        pool.shutdown();
+
+        // ids come from per-thread blocks, so they may leave gaps
+        assertThat(repository.getAll()).hasSize(400).extracting(Account::getId).doesNotHaveDuplicates()
+                .allMatch(id -> repository.getById(id) != null);
+    }
+
+    @Test
+    public void rejectsAmountsNotFittingScale() {
+        Account account = repository.create("name", "EUR", BigDecimal.ONE);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> account.setAmount(new BigDecimal("0.001")));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> repository.create("name", "EUR", new BigDecimal("1e20")));
+        assertThat(account.getAmount()).isEqualTo(new BigDecimal("1.00"));
+    }
+
+    @Test
+    public void rejectsCurrenciesWithFinerMinorUnits() {
+        AccountService accountService = new AccountService(repository, new Journal(),
+                new FxRates("EUR", ImmutableMap.of("KWD", new BigDecimal("0.33"), "JPY", new BigDecimal("160"))));
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> accountService.create("dinars", "KWD", BigDecimal.ONE))
+                .withMessageContaining("KWD");
+        assertThat(accountService.create("yen", "JPY", BigDecimal.ONE).getCurrency()).isEqualTo("JPY");
+    }
+
+    @Test
+    public void concurrentTransfersKeepTotal() throws Exception {
+        AccountService accountService = new AccountService(repository);
+        TransferService transferService = new TransferService(accountService);
+        int accounts = 100;
+        for (int i = 0; i < accounts; i++) {
+            accountService.create("account", BigDecimal.valueOf(1000));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int task = 0; task < 8; task++) {
+            Random random = new Random(task);
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    long from = 1 + random.nextInt(accounts);
+                    long to = from % accounts + 1;
+                    try {
+                        transferService.transfer(from, to, new BigDecimal("0.01"));
+                    } catch (AccountBusyException e) {
+                        i--;
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        BigDecimal total = repository.getAll().stream()
+                .map(Account::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(total).isEqualByComparingTo(BigDecimal.valueOf(1000L * accounts));
+    }
+}
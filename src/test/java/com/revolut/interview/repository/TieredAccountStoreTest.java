@@ -0,0 +1,125 @@
+package com.revolut.interview.repository;
+
+import com.revolut.interview.cluster.ClusterTopology;
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.lock.StripedLockManager;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TieredAccountStoreTest {
+
+    private static final int CAPACITY = 100;
+
+    private final LockManager lockManager = new StripedLockManager();
+
+    private TieredAccountStore store;
+
+    private AccountRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        File file = File.createTempFile("accounts", ".cold");
+        store = new TieredAccountStore(lockManager, CAPACITY, file.toPath());
+        repository = new AccountRepository(new ClusterTopology(), store);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    public void coldAccountsAreLoadedOnDemand() {
+        for (int i = 1; i <= 10 * CAPACITY; i++) {
+            repository.create("name" + i, "EUR", BigDecimal.valueOf(i));
+        }
+        assertThat(store.hotSize()).isLessThanOrEqualTo(CAPACITY);
+
+        for (long id = 1; id <= 10 * CAPACITY; id++) {
+            Account account = repository.getById(id);
+            assertThat(account.getName()).isEqualTo("name" + id);
+            assertThat(account.getAmount()).isEqualTo(BigDecimal.valueOf(id));
+        }
+        assertThat(store.hotSize()).isLessThanOrEqualTo(CAPACITY);
+        assertThat(repository.getById(10L * CAPACITY + 1)).isNull();
+        assertThat(repository.getAll()).hasSize(10 * CAPACITY);
+        assertThat(repository.findByNamePrefix("name100", null, 10))
+                .extracting(Account::getId)
+                .containsExactly(100L, 1000L);
+    }
+
+    @Test
+    public void frequentlyUsedAccountsSurviveScans() {
+        for (int i = 1; i <= CAPACITY; i++) {
+            repository.create("hot", "EUR", BigDecimal.ONE);
+        }
+        List<Account> hot = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            hot.clear();
+            for (long id = 1; id <= CAPACITY / 2; id++) {
+                hot.add(repository.getById(id));
+            }
+        }
+
+        for (int i = 1; i <= 10 * CAPACITY; i++) {
+            repository.create("cold", "EUR", BigDecimal.ONE);
+        }
+
+        for (Account account : hot) {
+            assertThat(repository.getById(account.getId())).isSameAs(account);
+        }
+    }
+
+    @Test
+    public void changesOfEvictedAccountsAreNotLost() throws Exception {
+        AccountService accountService = new AccountService(repository);
+        TransferService transferService = new TransferService(accountService, lockManager);
+        int accounts = 10 * CAPACITY;
+        for (int i = 0; i < accounts; i++) {
+            accountService.create("account", BigDecimal.valueOf(1000));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int task = 0; task < 8; task++) {
+            Random random = new Random(task);
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    long from = 1 + random.nextInt(accounts);
+                    long to = from % accounts + 1;
+                    try {
+                        transferService.transfer(from, to, BigDecimal.ONE);
+                    } catch (AccountBusyException e) {
+                        i--;
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        BigDecimal total = repository.getAll().stream()
+                .map(Account::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(total).isEqualTo(BigDecimal.valueOf(1000L * accounts));
+        assertThat(store.hotSize()).isLessThanOrEqualTo(CAPACITY + 8);
+    }
+}
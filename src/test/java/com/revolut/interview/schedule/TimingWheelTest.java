@@ -0,0 +1,58 @@
+package com.revolut.interview.schedule;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    public void entriesAreReturnedInTheirTickAcrossLevels() {
+        // 3 levels of 4 slots cover 64 ticks, later deadlines go around the top level
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 4, 3, 0, deadline -> deadline);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long deadline = random.nextInt(200 * (int) TICK);
+            deadlines.add(deadline);
+            wheel.add(deadline);
+        }
+        assertThat(wheel.size()).isEqualTo(1000);
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now < 200 * TICK; now += TICK) {
+            for (ArrayDeque<Long> bucket : wheel.advance(now)) {
+                for (Long deadline : bucket) {
+                    assertThat(deadline / TICK).isEqualTo(now / TICK);
+                    fired.add(deadline);
+                }
+            }
+        }
+        assertThat(fired).containsExactlyInAnyOrderElementsOf(deadlines);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void missedTicksAreCaughtUp() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 4, 2, 1000, deadline -> deadline);
+        wheel.add(900L);
+        wheel.add(1005L);
+        wheel.add(1100L);
+        wheel.add(5000L);
+
+        List<ArrayDeque<Long>> due = wheel.advance(1200);
+
+        assertThat(due).hasSize(2);
+        assertThat(due.get(0)).containsExactlyInAnyOrder(900L, 1005L);
+        assertThat(due.get(1)).containsExactly(1100L);
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(5000)).hasSize(1);
+    }
+}
@@ -0,0 +1,123 @@
+package com.revolut.interview.schedule;
+
+import com.revolut.interview.dto.ScheduledTransferResponse;
+import com.revolut.interview.dto.TransferRequest;
+import com.revolut.interview.exception.ScheduledTransferNotFoundException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import com.revolut.interview.service.AccountService;
+import com.revolut.interview.service.TransferService;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferSchedulerTest {
+
+    private static final long TICK = 10;
+
+    private final AccountService accountService = new AccountService(new AccountRepository());
+
+    private final TransferScheduler scheduler = new TransferScheduler(accountService,
+            new TransferService(accountService), TICK, 16, 3, 100, 2, 4);
+
+    private Account from;
+
+    private Account to;
+
+    @Before
+    public void setUp() {
+        from = accountService.create("from", new BigDecimal(1_000_000));
+        to = accountService.create("to", BigDecimal.ZERO);
+        scheduler.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.stop();
+    }
+
+    @Test(timeout = 10_000)
+    public void dueTransfersAreExecutedInBatches() throws Exception {
+        int count = 10_000;
+        Instant executeAt = Instant.now().plusMillis(50);
+        for (int i = 0; i < count; i++) {
+            TransferRequest request = new TransferRequest(BigDecimal.ONE, to.getId());
+            request.setExecuteAt(executeAt);
+            scheduler.schedule(from.getId(), request);
+        }
+
+        while (scheduler.pending() > 0) {
+            TimeUnit.MILLISECONDS.sleep(TICK);
+        }
+        assertThat(System.currentTimeMillis()).isGreaterThanOrEqualTo(executeAt.toEpochMilli());
+        assertThat(accountService.getById(to.getId()).getAmount()).isEqualTo(BigDecimal.valueOf(count));
+    }
+
+    @Test(timeout = 10_000)
+    public void recurringTransferRunsGivenTimes() throws Exception {
+        TransferRequest request = new TransferRequest(BigDecimal.TEN, to.getId());
+        request.setRepeatEvery(Duration.ofMillis(2 * TICK));
+        request.setTimes(3);
+        ScheduledTransferResponse scheduled = scheduler.schedule(from.getId(), request);
+        assertThat(scheduled.getRemaining()).isEqualTo(3);
+
+        while (scheduler.pending() > 0) {
+            TimeUnit.MILLISECONDS.sleep(TICK);
+        }
+        assertThat(accountService.getById(to.getId()).getAmount()).isEqualTo(BigDecimal.valueOf(30));
+    }
+
+    @Test
+    public void cancelledTransferIsNotExecuted() throws Exception {
+        TransferRequest request = new TransferRequest(BigDecimal.TEN, to.getId());
+        request.setExecuteAt(Instant.now().plusMillis(5 * TICK));
+        ScheduledTransferResponse scheduled = scheduler.schedule(from.getId(), request);
+
+        assertThat(scheduler.cancel(from.getId(), scheduled.getId()).getNextExecutionAt()).isNull();
+        TimeUnit.MILLISECONDS.sleep(10 * TICK);
+
+        assertThat(accountService.getById(to.getId()).getAmount()).isEqualTo(BigDecimal.ZERO);
+        Assertions.assertThatExceptionOfType(ScheduledTransferNotFoundException.class)
+                .isThrownBy(() -> scheduler.get(from.getId(), scheduled.getId()));
+    }
+
+    @Test
+    public void invalidScheduleIsRejected() {
+        TransferRequest request = new TransferRequest(BigDecimal.TEN, to.getId());
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> scheduler.schedule(from.getId(), request))
+                .withMessageContaining("Execution time or interval");
+
+        request.setRepeatEvery(Duration.ofMillis(1));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> scheduler.schedule(from.getId(), request))
+                .withMessageContaining("Interval");
+
+        request.setRepeatEvery(Duration.ofDays(1));
+        request.setExecuteAt(Instant.parse("2019-01-01T00:00:00Z"));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> scheduler.schedule(from.getId(), request))
+                .withMessageContaining("in the past");
+    }
+
+    @Test
+    public void missedOccurrencesAreSkipped() {
+        long day = TimeUnit.DAYS.toMillis(1);
+        ScheduledTransfer transfer = new ScheduledTransfer(1, from.getId(), to.getId(), BigDecimal.TEN, 0, day,
+                ScheduledTransfer.UNLIMITED);
+
+        assertThat(transfer.completed(null, 1000 * day + 1)).isTrue();
+        assertThat(transfer.getNextExecutionMillis()).isEqualTo(1001 * day);
+
+        assertThat(transfer.completed(null, 1001 * day)).isTrue();
+        assertThat(transfer.getNextExecutionMillis()).isEqualTo(1002 * day);
+    }
+}
@@ -0,0 +1,86 @@
+package com.revolut.interview.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CharStreams;
+import com.revolut.interview.repository.AccountRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountImporterTest {
+
+    private AccountService accountService;
+
+    private AccountImporter importer;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService(new AccountRepository());
+        importer = new AccountImporter(accountService, new ObjectMapper());
+    }
+
+    @Test
+    public void importsCsvLineByLine() throws Exception {
+        List<String> result = importAccounts(ImportFormat.CSV,
+                "name,amount\n" +
+                        "first,10\n" +
+                        "\n" +
+                        "second,\n" +
+                        ",5\n" +
+                        "third,-1\n" +
+                        "Smith, John,2.5\n");
+
+        assertThat(result).containsExactly(
+                "{\"line\":2,\"id\":1}",
+                "{\"line\":4,\"id\":2}",
+                "{\"line\":5,\"error\":\"Account name should be supplied\"}",
+                "{\"line\":6,\"error\":\"Initial amount cannot be negative\"}",
+                "{\"line\":7,\"id\":3}");
+
+        assertThat(accountService.getById(1L).getAmount()).isEqualTo(BigDecimal.TEN);
+        assertThat(accountService.getById(2L).getAmount()).isEqualTo(BigDecimal.ZERO);
+        assertThat(accountService.getById(3L).getName()).isEqualTo("Smith, John");
+    }
+
+    @Test
+    public void importsNdjson() throws Exception {
+        List<String> result = importAccounts(ImportFormat.NDJSON,
+                "{\"name\":\"first\",\"amount\":10}\n" +
+                        "not a json\n" +
+                        "{\"name\":\"second\"}\n");
+
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0)).isEqualTo("{\"line\":1,\"id\":1}");
+        assertThat(result.get(1)).startsWith("{\"line\":2,\"error\":");
+        assertThat(result.get(2)).isEqualTo("{\"line\":3,\"id\":2}");
+    }
+
+    @Test
+    public void importsInBatches() throws Exception {
+        int count = AccountImporter.BATCH_SIZE * 2 + 1;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            input.append("name").append(i).append(",1\n");
+        }
+
+        List<String> result = importAccounts(ImportFormat.CSV, input.toString());
+
+        assertThat(result).hasSize(count);
+        assertThat(result.get(count - 1)).isEqualTo("{\"line\":" + count + ",\"id\":" + count + "}");
+        assertThat(accountService.getAll()).hasSize(count);
+    }
+
+    private List<String> importAccounts(ImportFormat format, String input) throws Exception {
+        InputStream result = importer.importAccounts(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format);
+        return CharStreams.readLines(new InputStreamReader(result, StandardCharsets.UTF_8));
+    }
+}
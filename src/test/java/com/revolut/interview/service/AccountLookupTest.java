@@ -0,0 +1,122 @@
+package com.revolut.interview.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.repository.AccountRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountLookupTest {
+
+    private static final int ACCOUNTS = AccountLookup.BATCH_SIZE + 100;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private AccountService accountService;
+
+    private TransferService transferService;
+
+    private AccountLookup lookup;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService(new AccountRepository());
+        transferService = new TransferService(accountService);
+        lookup = new AccountLookup(transferService, mapper);
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            accountService.create("account", BigDecimal.valueOf(i));
+        }
+    }
+
+    @Test
+    public void readsFoundAndMissingAccounts() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, ACCOUNTS + 2).boxed().collect(Collectors.toList());
+        ids.add(1L);
+
+        JsonNode result = read(ids);
+
+        assertThat(result.get("accounts")).hasSize(ACCOUNTS + 1);
+        assertThat(result.get("accounts").get(0).get("id").asLong()).isEqualTo(1);
+        assertThat(result.get("accounts").get(0).get("currency").asText()).isEqualTo("EUR");
+        assertThat(result.get("accounts").get(ACCOUNTS - 1).get("amount").decimalValue())
+                .isEqualTo(BigDecimal.valueOf(ACCOUNTS));
+        assertThat(result.get("accounts").get(ACCOUNTS).get("id").asLong()).isEqualTo(1);
+        assertThat(result.get("missing")).extracting(JsonNode::asLong).containsExactly(ACCOUNTS + 1L, ACCOUNTS + 2L);
+
+        assertThat(read(Collections.emptyList()).toString()).isEqualTo("{\"accounts\":[],\"missing\":[]}");
+    }
+
+    @Test
+    public void rejectsInvalidIds() {
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> lookup.lookup(null));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> lookup.lookup(Arrays.asList(1L, null)))
+                .withMessageContaining("null");
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> lookup.lookup(Collections.nCopies(AccountLookup.MAX_IDS + 1, 1L)))
+                .withMessageContaining("At most");
+    }
+
+    @Test
+    public void readsConsistentTotal() throws Exception {
+        BigDecimal total = BigDecimal.valueOf((long) ACCOUNTS * (ACCOUNTS + 1) / 2);
+        List<Long> ids = LongStream.rangeClosed(1, ACCOUNTS).boxed().collect(Collectors.toList());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> transfers = new ArrayList<>();
+        for (int task = 0; task < 4; task++) {
+            Random random = new Random(task);
+            transfers.add(executor.submit(() -> {
+                while (running.get()) {
+                    long from = 1 + random.nextInt(ACCOUNTS);
+                    try {
+                        transferService.transfer(from, from % ACCOUNTS + 1, BigDecimal.ONE);
+                    } catch (InsufficientFundsException e) {
+                        // the account was emptied by earlier transfers
+                    }
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < 20; i++) {
+                BigDecimal sum = BigDecimal.ZERO;
+                for (JsonNode account : read(ids).get("accounts")) {
+                    sum = sum.add(account.get("amount").decimalValue());
+                }
+                assertThat(sum).isEqualByComparingTo(total);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+        }
+        for (Future<?> transfer : transfers) {
+            transfer.get();
+        }
+    }
+
+    private JsonNode read(List<Long> ids) throws Exception {
+        try (InputStream result = lookup.lookup(ids)) {
+            return mapper.readTree(result);
+        }
+    }
+}
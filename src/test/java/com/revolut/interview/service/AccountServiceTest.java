@@ -26,19 +26,20 @@ public class AccountServiceTest {
 
     @Before
     public void setUp() {
+        when(repository.maxScale()).thenReturn(Integer.MAX_VALUE);
         service = new AccountService(repository);
     }
 
     @Test
     public void successfullyCreatesAccount() {
         //Test that account creates successfully with valid arguments
-        Account expected = new Account(1L, "name", BigDecimal.ONE);
-        when(repository.create("name", BigDecimal.ONE))
+        Account expected = new Account(1L, "name", "EUR", BigDecimal.ONE);
+        when(repository.create("name", "EUR", BigDecimal.ONE))
                 .thenReturn(expected);
         assertThat(service.create("name", BigDecimal.ONE))
                 .isSameAs(expected);
 
-        verify(repository).create("name", BigDecimal.ONE);
+        verify(repository).create("name", "EUR", BigDecimal.ONE);
 
     }
 
@@ -58,17 +59,17 @@ public class AccountServiceTest {
                 .isThrownBy(() -> service.create("name", BigDecimal.ONE.negate()))
                 .withMessageContaining("amount");
 
-        when(repository.create("name", BigDecimal.ZERO))
-                .thenReturn(new Account(1L, "name", BigDecimal.ZERO));
+        when(repository.create("name", "EUR", BigDecimal.ZERO))
+                .thenReturn(new Account(1L, "name", "EUR", BigDecimal.ZERO));
         service.create("name", null);
 
-        verify(repository).create("name", BigDecimal.ZERO);
+        verify(repository).create("name", "EUR", BigDecimal.ZERO);
     }
 
 
     @Test
     public void testGetById() {
-        Account expected = new Account(1L, "name", BigDecimal.TEN);
+        Account expected = new Account(1L, "name", "EUR", BigDecimal.TEN);
         when(repository.getById(1L)).thenReturn(expected);
         when(repository.getById(2L)).thenReturn(null);
 
@@ -0,0 +1,64 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.exception.AccountNotFoundException;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActorTransferEngineTest {
+
+    private AccountService accountService;
+
+    private ActorTransferEngine engine;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService(new AccountRepository());
+        engine = new ActorTransferEngine(accountService, 2);
+    }
+
+    @Test
+    public void depositsAndWithdraws() {
+        Account account = accountService.create("name", BigDecimal.ONE);
+
+        assertThat(engine.deposit(account.getId(), BigDecimal.TEN).getAmount())
+                .isEqualTo(BigDecimal.valueOf(11));
+        assertThat(engine.withdraw(account.getId(), BigDecimal.ONE).getAmount())
+                .isEqualTo(BigDecimal.TEN);
+
+        Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                .isThrownBy(() -> engine.withdraw(account.getId(), BigDecimal.valueOf(11)))
+                .withMessageContaining("funds");
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> engine.deposit(account.getId(), BigDecimal.ZERO))
+                .withMessageContaining("positive");
+        Assertions.assertThatExceptionOfType(AccountNotFoundException.class)
+                .isThrownBy(() -> engine.deposit(666L, BigDecimal.ONE));
+    }
+
+    @Test
+    public void transfers() {
+        Account from = accountService.create("from", BigDecimal.TEN);
+        Account to = accountService.create("to", BigDecimal.ZERO);
+
+        assertThat(engine.transfer(from.getId(), to.getId(), BigDecimal.valueOf(4)))
+                .isSameAs(from);
+        assertThat(from.getAmount()).isEqualTo(BigDecimal.valueOf(6));
+        assertThat(to.getAmount()).isEqualTo(BigDecimal.valueOf(4));
+
+        Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                .isThrownBy(() -> engine.transfer(from.getId(), to.getId(), BigDecimal.TEN));
+        Assertions.assertThatExceptionOfType(InvalidTransferException.class)
+                .isThrownBy(() -> engine.transfer(from.getId(), from.getId(), BigDecimal.ONE));
+        assertThat(from.getAmount()).isEqualTo(BigDecimal.valueOf(6));
+        assertThat(to.getAmount()).isEqualTo(BigDecimal.valueOf(4));
+    }
+}
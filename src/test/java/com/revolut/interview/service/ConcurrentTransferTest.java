@@ -1,21 +1,30 @@
 package com.revolut.interview.service;
 
+import com.revolut.interview.exception.AccountBusyException;
+import com.revolut.interview.exception.InsufficientFundsException;
 import com.revolut.interview.model.Account;
 import com.revolut.interview.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+@Slf4j
+@RunWith(Parameterized.class)
 public class ConcurrentTransferTest {
 
     private static final int ACCOUNT_NUMBER = 5;
@@ -24,13 +33,42 @@ public class ConcurrentTransferTest {
 
     private static final long RUN_COUNT = 15_000_000;
 
+    /**
+     * Every actor transfer is two mailbox hand-offs plus a wake-up of the caller, which is
+     * much more expensive on small machines than an uncontended monitor
+     */
+    private static final long ACTOR_RUN_COUNT = 3_000_000;
+
+    private static final long HOT_RUN_COUNT = 500_000;
+
 
     private AccountService accountService = new AccountService(new AccountRepository());
 
-    private TransferService transferService = new TransferService(accountService);
+    private final TransferEngineType engineType;
+
+    private final long runCount;
+
+    private TransferEngine transferService;
+
+    private final LongAdder busyCount = new LongAdder();
+
+    public ConcurrentTransferTest(TransferEngineType engineType, long runCount) {
+        this.engineType = engineType;
+        this.runCount = runCount;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> engines() {
+        return Arrays.asList(
+                new Object[]{TransferEngineType.LOCK, RUN_COUNT},
+                new Object[]{TransferEngineType.ACTOR, ACTOR_RUN_COUNT});
+    }
 
     @Before
     public void setUp() {
+        transferService = engineType == TransferEngineType.ACTOR
+                ? new ActorTransferEngine(accountService, Runtime.getRuntime().availableProcessors())
+                : new TransferService(accountService);
         for (int i = 0; i < ACCOUNT_NUMBER; i++) {
             createAccount(MAX_AMOUNT);
         }
@@ -40,11 +78,13 @@ public class ConcurrentTransferTest {
     @Test(timeout = 120_000)
     public void concurrentTransferShouldRunAsConsecutive() throws Exception {
         ExecutorService executor = Executors.newFixedThreadPool(50);
+        long start = System.nanoTime();
 
         Random random = new Random();
 
         LongAdder count = new LongAdder();
-        List<Future> tasks = random.ints(RUN_COUNT, 1, 10).boxed()
+        busyCount.reset();
+        List<Future> tasks = random.ints(runCount, 1, 10).boxed()
                 .map(BigDecimal::valueOf)
                 .map(amount -> {
                     long fromId = random.nextInt(ACCOUNT_NUMBER) + 1;
@@ -54,7 +94,7 @@ public class ConcurrentTransferTest {
                     }
                     final long toAccountId = toId;
                     return (Runnable) () -> {
-                        transferService.transfer(fromId, toAccountId, amount);
+                        transfer(fromId, toAccountId, amount);
                         count.increment();
                     };
                 })
@@ -65,8 +105,11 @@ public class ConcurrentTransferTest {
         for (Future task : tasks) {
             task.get(); //So exceptions are propagated
         }
+        executor.shutdown();
+        log.info("{} engine: {} transfers/s, {} busy retries", engineType,
+                runCount * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start), busyCount.sum());
         assertThat(count.longValue())
-                .isEqualTo(RUN_COUNT);//Check that tasks really ran
+                .isEqualTo(runCount);//Check that tasks really ran
         BigDecimal allAccountsSum = accountService.getAll()
                 .stream()
                 .map(Account::getAmount)
@@ -79,6 +122,56 @@ public class ConcurrentTransferTest {
 
     }
 
+    @Test(timeout = 120_000)
+    public void concurrentDepositsAndWithdrawalsOfHotAccountShouldRunAsConsecutive() throws Exception {
+        Account hot = createAccount(BigDecimal.ZERO);
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        LongAdder withdrawn = new LongAdder();
+        LongAdder rejected = new LongAdder();
+
+        List<Future> tasks = new Random().ints(HOT_RUN_COUNT, 0, 2).boxed()
+                .map(withdraw -> (Runnable) () -> {
+                    if (withdraw == 0) {
+                        retryBusy(() -> transferService.deposit(hot.getId(), BigDecimal.ONE));
+                        return;
+                    }
+                    try {
+                        retryBusy(() -> transferService.withdraw(hot.getId(), BigDecimal.ONE));
+                        withdrawn.increment();
+                    } catch (InsufficientFundsException e) {
+                        rejected.increment();
+                    }
+                })
+                .map(executor::submit)
+                .collect(Collectors.toList());
+
+        for (Future task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+        long deposited = HOT_RUN_COUNT - withdrawn.sum() - rejected.sum();
+        assertThat(accountService.getById(hot.getId()).getAmount())
+                .isEqualTo(BigDecimal.valueOf(deposited - withdrawn.sum()));
+    }
+
+    /**
+     * Busy accounts are not modified, so like a real client just retry
+     */
+    private void transfer(long fromId, long toId, BigDecimal amount) {
+        retryBusy(() -> transferService.transfer(fromId, toId, amount));
+    }
+
+    private void retryBusy(Runnable operation) {
+        while (true) {
+            try {
+                operation.run();
+                return;
+            } catch (AccountBusyException e) {
+                busyCount.increment();
+            }
+        }
+    }
+
     private Account createAccount(BigDecimal amount) {
         return accountService.create("name", amount);
     }
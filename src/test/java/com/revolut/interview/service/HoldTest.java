@@ -0,0 +1,115 @@
+package com.revolut.interview.service;
+
+import com.revolut.interview.exception.HoldNotFoundException;
+import com.revolut.interview.exception.InsufficientFundsException;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.model.Hold;
+import com.revolut.interview.repository.AccountRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(Parameterized.class)
+public class HoldTest {
+
+    private static final Duration EXPIRES_IN = Duration.ofMinutes(1);
+
+    private final TransferEngineType engineType;
+
+    private AccountService accountService;
+
+    private TransferEngine engine;
+
+    private Account from;
+
+    private Account to;
+
+    public HoldTest(TransferEngineType engineType) {
+        this.engineType = engineType;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> engines() {
+        return Arrays.asList(new Object[]{TransferEngineType.LOCK}, new Object[]{TransferEngineType.ACTOR});
+    }
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService(new AccountRepository());
+        engine = engineType == TransferEngineType.ACTOR
+                ? new ActorTransferEngine(accountService, 2)
+                : new TransferService(accountService);
+        from = accountService.create("from", BigDecimal.TEN);
+        to = accountService.create("to", BigDecimal.ZERO);
+    }
+
+    @Test
+    public void heldMoneyIsNotAvailable() {
+        engine.hold(from.getId(), to.getId(), BigDecimal.valueOf(6), EXPIRES_IN);
+
+        Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                .isThrownBy(() -> engine.withdraw(from.getId(), BigDecimal.valueOf(5)));
+        Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
+                .isThrownBy(() -> engine.hold(from.getId(), to.getId(), BigDecimal.valueOf(5), EXPIRES_IN));
+        assertThat(engine.withdraw(from.getId(), BigDecimal.valueOf(4)).getAmount())
+                .isEqualTo(BigDecimal.valueOf(6));
+        // deposits are never blocked
+        assertThat(engine.deposit(from.getId(), BigDecimal.ONE).getAmount()).isEqualTo(BigDecimal.valueOf(7));
+    }
+
+    @Test
+    public void partialCaptureReleasesTheRest() {
+        Hold hold = engine.hold(from.getId(), to.getId(), BigDecimal.valueOf(6), EXPIRES_IN);
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> engine.capture(from.getId(), hold.getId(), BigDecimal.valueOf(7)))
+                .withMessageContaining("more than held");
+        engine.capture(from.getId(), hold.getId(), BigDecimal.valueOf(4));
+
+        assertThat(accountService.getById(from.getId()).getAmount()).isEqualTo(BigDecimal.valueOf(6));
+        assertThat(accountService.getById(to.getId()).getAmount()).isEqualTo(BigDecimal.valueOf(4));
+        assertThat(engine.withdraw(from.getId(), BigDecimal.valueOf(6)).getAmount()).isEqualTo(BigDecimal.ZERO);
+        Assertions.assertThatExceptionOfType(HoldNotFoundException.class)
+                .isThrownBy(() -> engine.capture(from.getId(), hold.getId(), null));
+    }
+
+    @Test
+    public void releasedMoneyIsAvailableAgain() {
+        Hold hold = engine.hold(from.getId(), to.getId(), BigDecimal.TEN, EXPIRES_IN);
+
+        assertThat(engine.release(from.getId(), hold.getId())).isEqualTo(hold);
+
+        assertThat(engine.transfer(from.getId(), to.getId(), BigDecimal.TEN).getAmount()).isEqualTo(BigDecimal.ZERO);
+        Assertions.assertThatExceptionOfType(HoldNotFoundException.class)
+                .isThrownBy(() -> engine.release(from.getId(), hold.getId()));
+    }
+
+    @Test
+    public void expiredHoldIsReleased() throws Exception {
+        Hold hold = engine.hold(from.getId(), to.getId(), BigDecimal.TEN, Duration.ofMillis(1));
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        Assertions.assertThatExceptionOfType(HoldNotFoundException.class)
+                .isThrownBy(() -> engine.capture(from.getId(), hold.getId(), null))
+                .withMessageContaining("expired");
+        assertThat(accountService.holds().reserved(from.getId())).isEqualTo(BigDecimal.ZERO);
+
+        Hold other = engine.hold(from.getId(), to.getId(), BigDecimal.TEN, Duration.ofMillis(1));
+        TimeUnit.MILLISECONDS.sleep(5);
+        new HoldExpiry(accountService, engine).releaseExpired();
+
+        Assertions.assertThatExceptionOfType(HoldNotFoundException.class)
+                .isThrownBy(() -> accountService.getHold(from.getId(), other.getId()));
+        assertThat(engine.withdraw(from.getId(), BigDecimal.TEN).getAmount()).isEqualTo(BigDecimal.ZERO);
+    }
+}
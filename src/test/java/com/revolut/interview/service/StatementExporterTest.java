@@ -0,0 +1,129 @@
+package com.revolut.interview.service;
+
+import com.google.common.io.CharStreams;
+import com.revolut.interview.journal.Journal;
+import com.revolut.interview.journal.JournalDurability;
+import com.revolut.interview.journal.JournalLog;
+import com.revolut.interview.model.Account;
+import com.revolut.interview.repository.AccountRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatementExporterTest {
+
+    private Path dir;
+
+    private JournalLog journalLog;
+
+    private AccountService accountService;
+
+    private TransferService transferService;
+
+    private StatementExporter exporter;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("statements");
+        Journal journal = new Journal();
+        AccountRepository repository = new AccountRepository();
+        journalLog = new JournalLog(journal, repository, dir, 4096, 512, 1000, JournalDurability.SYNC, 4,
+                TimeUnit.HOURS.toMillis(1), 1 << 20);
+        journalLog.start();
+        accountService = new AccountService(repository, journal);
+        transferService = new TransferService(accountService);
+        exporter = new StatementExporter(accountService, journalLog);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journalLog.stop();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void changesOfAccountAreListed() throws Exception {
+        Account account = accountService.create("account", BigDecimal.TEN);
+        Account other = accountService.create("other", BigDecimal.ZERO);
+        transferService.deposit(account.getId(), new BigDecimal("2.50"));
+        transferService.deposit(other.getId(), BigDecimal.ONE);
+        transferService.transfer(account.getId(), other.getId(), new BigDecimal("5"));
+        transferService.withdraw(account.getId(), BigDecimal.ONE);
+        awaitWritten();
+
+        List<String> rows = export(account.getId(), Instant.EPOCH, Instant.now().plusSeconds(1));
+
+        assertThat(rows).hasSize(5);
+        assertThat(rows.get(0)).isEqualTo("timestamp,type,amount,balance,counterparty");
+        assertThat(rows.subList(1, 5)).extracting(row -> row.substring(row.indexOf(',') + 1)).containsExactly(
+                "CREATE,10,10,",
+                "DEPOSIT,2.50,12.50,",
+                "TRANSFER,-5,7.50," + other.getId(),
+                "WITHDRAWAL,-1,6.50,");
+    }
+
+    @Test
+    public void longHistoryIsStreamed() throws Exception {
+        Account account = accountService.create("account", BigDecimal.ZERO);
+        for (int i = 0; i < 10000; i++) {
+            transferService.deposit(account.getId(), BigDecimal.ONE);
+        }
+        awaitWritten();
+
+        List<String> rows = export(account.getId(), Instant.EPOCH, Instant.now().plusSeconds(1));
+
+        assertThat(rows).hasSize(10002);
+        assertThat(rows.get(10001)).endsWith(",DEPOSIT,1,10000,");
+        assertThat(JournalLog.read(dir)).hasSize(10001);
+        assertThat(export(account.getId(), Instant.now().plusSeconds(1), Instant.now().plusSeconds(2))).hasSize(1);
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() {
+        Account account = accountService.create("account", BigDecimal.ZERO);
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> exporter.export(account.getId(), Instant.EPOCH, Instant.now(), "pdf"));
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> exporter.export(account.getId(), Instant.now(), Instant.EPOCH, "csv"));
+        Assertions.assertThatIllegalStateException()
+                .isThrownBy(() -> new StatementExporter(accountService,
+                        new JournalLog(new Journal(), new AccountRepository(), null, 1, 1, 1, JournalDurability.SYNC,
+                                1, 1, 1))
+                        .export(account.getId(), Instant.EPOCH, Instant.now(), "csv"));
+    }
+
+    private List<String> export(long accountId, Instant from, Instant to) throws IOException {
+        try (InputStream statement = exporter.export(accountId, from, to, StatementExporter.CSV)) {
+            return CharStreams.readLines(new InputStreamReader(statement, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * The log is written in background, stopping waits until it is on disk
+     */
+    private void awaitWritten() throws Exception {
+        journalLog.stop();
+        journalLog.start();
+    }
+}
@@ -2,6 +2,8 @@ package com.revolut.interview.service;
 
 import com.revolut.interview.exception.InsufficientFundsException;
 import com.revolut.interview.exception.InvalidTransferException;
+import com.revolut.interview.fx.FxRates;
+import com.revolut.interview.journal.Journal;
 import com.revolut.interview.model.Account;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
@@ -11,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -23,8 +26,16 @@ public class TransferServiceTest {
 
     private TransferService transferService;
 
+    private final FxRates rates = new FxRates("EUR", Collections.singletonMap("USD", new BigDecimal("1.10")));
+
     @Before
     public void setUp() {
+        when(accountService.journal()).thenReturn(new Journal());
+        when(accountService.holds()).thenReturn(new HoldLedger());
+        when(accountService.convert(any(BigDecimal.class), any(Account.class), any(Account.class)))
+                .thenAnswer(invocation -> rates.current().convert((BigDecimal) invocation.getArguments()[0],
+                        ((Account) invocation.getArguments()[1]).getCurrency(),
+                        ((Account) invocation.getArguments()[2]).getCurrency()));
         this.transferService = new TransferService(accountService);
     }
 
@@ -83,7 +94,8 @@ public class TransferServiceTest {
         Assertions.assertThatExceptionOfType(InsufficientFundsException.class)
                 .isThrownBy(() -> transferService.withdraw(1L, BigDecimal.TEN))
                 .withMessageContaining("funds");
-        verify(accountService).getById(1L);
+        //looked up before and after locking
+        verify(accountService, times(2)).getById(1L);
     }
 
 
@@ -147,13 +159,42 @@ public class TransferServiceTest {
 
     }
 
+    @Test
+    public void transferConvertsToTargetCurrency() {
+        Account euros = mockAccount(1L, BigDecimal.TEN);
+        Account dollars = mockAccount(2L, "USD", BigDecimal.ZERO);
+        transferService.transfer(1L, 2L, new BigDecimal("4.99"));
+
+        assertThat(euros.getAmount()).isEqualTo(new BigDecimal("5.01"));
+        // 5.489 rounded down to cents
+        assertThat(dollars.getAmount()).isEqualTo(new BigDecimal("5.48"));
+
+        transferService.transfer(2L, 1L, new BigDecimal("1.10"));
+        assertThat(euros.getAmount()).isEqualTo(new BigDecimal("6.01"));
+
+        Account pounds = mockAccount(3L, "GBP", BigDecimal.ZERO);
+        Assertions.assertThatExceptionOfType(InvalidTransferException.class)
+                .isThrownBy(() -> transferService.transfer(1L, 3L, BigDecimal.ONE))
+                .withMessageContaining("GBP");
+        assertThat(euros.getAmount()).isEqualTo(new BigDecimal("6.01"));
+        assertThat(pounds.getAmount()).isEqualTo(BigDecimal.ZERO);
+
+        Assertions.assertThatExceptionOfType(InvalidTransferException.class)
+                .isThrownBy(() -> transferService.transfer(1L, 2L, new BigDecimal("0.001")))
+                .withMessageContaining("too small");
+    }
+
 
     private Account mockAccount(Long id) {
         return mockAccount(id, BigDecimal.TEN);
     }
 
     private Account mockAccount(Long id, BigDecimal amount) {
-        Account account = new Account(id, "name", amount);
+        return mockAccount(id, "EUR", amount);
+    }
+
+    private Account mockAccount(Long id, String currency, BigDecimal amount) {
+        Account account = new Account(id, "name", currency, amount);
         when(accountService.getById(id)).thenReturn(account);
         return account;
     }
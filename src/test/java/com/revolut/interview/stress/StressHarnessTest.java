@@ -0,0 +1,74 @@
+package com.revolut.interview.stress;
+
+import com.revolut.interview.lock.LockManager;
+import com.revolut.interview.service.ActorTransferEngine;
+import com.revolut.interview.service.TransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+public class StressHarnessTest {
+
+    private static final long SEED = 42;
+
+    @Test(timeout = 60_000)
+    public void lockEngineKeepsInvariants() throws Exception {
+        StressReport report = new StressHarness(TransferService::new, SEED, 20, 8, 200_000, 1).run();
+        log.info("LOCK engine:\n{}", report);
+
+        assertThat(report.isCorrect()).as(report.toString()).isTrue();
+        assertThat(report.getCheckedRecords()).isGreaterThan(report.getOperations() / 2);
+    }
+
+    @Test(timeout = 60_000)
+    public void actorEngineKeepsInvariants() throws Exception {
+        StressReport report = new StressHarness(accountService -> new ActorTransferEngine(accountService, 4),
+                SEED, 20, 8, 50_000, 1).run();
+        log.info("ACTOR engine:\n{}", report);
+
+        assertThat(report.isCorrect()).as(report.toString()).isTrue();
+    }
+
+    @Test(timeout = 60_000)
+    public void detectsLostUpdates() throws Exception {
+        StressReport report = null;
+        // races need a preemption in a few instructions, a run of the same seed may miss them
+        for (int run = 0; run < 10 && (report == null || report.isCorrect()); run++) {
+            report = new StressHarness(accountService -> new TransferService(accountService, new NoLocks()),
+                    SEED, 2, 8, 200_000, 0).run();
+        }
+
+        assertThat(report.isCorrect()).isFalse();
+        assertThat(report.getViolations()).isNotEmpty();
+        assertThat(report.getViolations().size()).isLessThanOrEqualTo(InvariantChecker.MAX_DESCRIBED);
+    }
+
+    @Test
+    public void sameSeedRunsSameOperations() throws Exception {
+        StressReport first = new StressHarness(TransferService::new, SEED, 5, 1, 10_000, 2).run();
+        StressReport second = new StressHarness(TransferService::new, SEED, 5, 1, 10_000, 2).run();
+
+        assertThat(first.getFailures()).isEqualTo(second.getFailures());
+        assertThat(first.getCheckedRecords()).isEqualTo(second.getCheckedRecords());
+    }
+
+    /**
+     * Broken engine: accounts are changed without locks
+     */
+    private static class NoLocks implements LockManager {
+
+        @Override
+        public Locked lock(long... accountIds) {
+            return () -> {
+            };
+        }
+
+        @Override
+        public Locked tryLock(long accountId) {
+            return () -> {
+            };
+        }
+    }
+}